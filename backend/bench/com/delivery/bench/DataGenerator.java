@@ -0,0 +1,923 @@
+package com.delivery.bench;
+
+import com.delivery.util.EnvLoader;
+import com.delivery.util.PasswordUtil;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Synthetic data generator for the delivery schema, for performance work at realistic volume.
+ *
+ * Usage: java -cp bin;bench-bin;lib\* com.delivery.bench.DataGenerator [options]
+ *   --packages N      packages to generate (default 100000; everything else scales from it)
+ *   --out DIR         output directory for the TSV files and load.sql (default gen-data)
+ *   --threads N       generator / loader threads (default: available processors)
+ *   --chunk N         packages per output file (default 250000)
+ *   --days N          history window the packages are spread over (default 90)
+ *   --as-of DATE      "today" for the timelines, yyyy-mm-dd (default: current UTC date)
+ *   --seed N          random seed (default 42); the same seed and options give the same rows
+ *   --id-base N       first generated id in every table (default 1000, above the schema.sql seed rows)
+ *   --load            load the files into --db-name over JDBC once written
+ *   --db-name NAME    database for --load (default delivery_loadtest; delivery_system is refused)
+ *
+ * Fills users, facilities, addresses, orders, packages, routes, route_assignments,
+ * route_packages, delivery_status_history, package_transfers, inventory and audit_log.
+ * Rows carry explicit primary keys so every foreign key is known while generating and each
+ * chunk can be produced independently on its own thread; a value derived from an entity
+ * (a customer's ZIP, an order's delivery address) comes from a random stream seeded by that
+ * entity's id, so any chunk can recompute it without shared state.
+ *
+ * Skew: ZIP codes are drawn from a Zipf distribution (a few hot ZIPs receive most parcels)
+ * and ZIPs map to facilities through a second Zipf draw, so a handful of hubs carry most of
+ * the inventory. Facilities sit around real metro coordinates, and route_json stop
+ * coordinates are jittered around their ZIP centroid.
+ *
+ * Output is one tab-separated file per table per chunk plus load.sql, which can be run with
+ *   mysql --local-infile=1 delivery_loadtest < gen-data/load.sql
+ * against a schema created from database/schema.sql (see LoadTest --load-schema). Every
+ * generated user's password is "password123".
+ */
+public class DataGenerator {
+    static final String PASSWORD = "password123";
+
+    // Table -> column list, in load order
+    static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+    static {
+        COLUMNS.put("users", "user_id, username, password_hash, salt, email, phone, full_name, role, clearance_level, created_at");
+        COLUMNS.put("facilities", "facility_id, facility_name, address, city, state, zip_code, phone, capacity");
+        COLUMNS.put("addresses", "address_id, user_id, address_type, street_address, city, state, zip_code, delivery_instructions, is_default");
+        COLUMNS.put("orders", "order_id, customer_id, pickup_address_id, delivery_address_id, order_status, total_cost, payment_status, estimated_delivery, created_at, updated_at");
+        COLUMNS.put("packages", "package_id, order_id, tracking_number, current_facility_id, package_status, weight_kg, length_cm, width_cm, height_cm, fragile, signature_required, created_at, delivered_at");
+        COLUMNS.put("routes", "route_id, route_name, facility_id, route_date, estimated_duration_minutes, total_stops, route_status, route_json, created_at, completed_at");
+        COLUMNS.put("route_assignments", "route_id, driver_id, vehicle_id, assigned_at, started_at, completed_at");
+        COLUMNS.put("route_packages", "route_id, package_id, stop_sequence, estimated_arrival");
+        COLUMNS.put("delivery_status_history", "package_id, status, location, updated_by, notes, timestamp");
+        COLUMNS.put("package_transfers", "package_id, from_facility_id, to_facility_id, transfer_status, initiated_by, transport_method, initiated_at, completed_at");
+        COLUMNS.put("inventory", "facility_id, package_id, arrival_time, departure_time, inventory_status");
+        COLUMNS.put("audit_log", "timestamp, user_id, username, action, result, ip_address, details");
+    }
+
+    // Metro areas facilities are placed in: city, state, ZIP prefix, latitude, longitude
+    static final Object[][] METROS = {
+        {"New York", "NY", "100", 40.7128, -74.0060}, {"Los Angeles", "CA", "900", 34.0522, -118.2437},
+        {"Chicago", "IL", "606", 41.8781, -87.6298}, {"Houston", "TX", "770", 29.7604, -95.3698},
+        {"Phoenix", "AZ", "850", 33.4484, -112.0740}, {"Philadelphia", "PA", "191", 39.9526, -75.1652},
+        {"Dallas", "TX", "752", 32.7767, -96.7970}, {"Atlanta", "GA", "303", 33.7490, -84.3880},
+        {"Denver", "CO", "802", 39.7392, -104.9903}, {"Seattle", "WA", "981", 47.6062, -122.3321},
+        {"Miami", "FL", "331", 25.7617, -80.1918}, {"Boston", "MA", "021", 42.3601, -71.0589},
+        {"Pittsburgh", "PA", "152", 40.4406, -79.9959}, {"Minneapolis", "MN", "554", 44.9778, -93.2650},
+        {"San Francisco", "CA", "941", 37.7749, -122.4194}, {"Detroit", "MI", "482", 42.3314, -83.0458},
+        {"St. Louis", "MO", "631", 38.6270, -90.1994}, {"Charlotte", "NC", "282", 35.2271, -80.8431},
+        {"Nashville", "TN", "372", 36.1627, -86.7816}, {"Salt Lake City", "UT", "841", 40.7608, -111.8910},
+        {"Kansas City", "MO", "641", 39.0997, -94.5786}, {"Columbus", "OH", "432", 39.9612, -82.9988},
+        {"Portland", "OR", "972", 45.5152, -122.6784}, {"Las Vegas", "NV", "891", 36.1699, -115.1398}
+    };
+    static final String[] STREETS = {"Main", "Oak", "Maple", "Cedar", "Pine", "Elm", "Washington", "Lake", "Hill",
+        "Park", "Walnut", "Sunset", "Lincoln", "Jackson", "Church", "River", "Forbes", "Liberty", "Market", "Highland"};
+    static final String[] SUFFIXES = {"St", "Ave", "Blvd", "Rd", "Ln", "Dr", "Way", "Ct"};
+    static final String[] FIRST = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda",
+        "David", "Elizabeth", "William", "Barbara", "Maria", "Wei", "Priya", "Carlos", "Aisha", "Noah", "Olivia", "Liam"};
+    static final String[] LAST = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis",
+        "Rodriguez", "Martinez", "Nguyen", "Patel", "Kim", "Lopez", "Wilson", "Anderson", "Thomas", "Lee", "Clark", "Hall"};
+    static final String[] INSTRUCTIONS = {null, null, null, "Leave at front door", "Ring doorbell twice",
+        "Call on arrival", "Leave with doorman", "Side entrance", "Do not leave unattended"};
+    static final String[] TRANSPORT = {"truck", "truck", "truck", "rail", "air"};
+
+    static final long HOUR = 3600L;
+    static final long DAY = 86400L;
+    static final int STOPS_PER_ROUTE = 40;
+
+    // Scale, derived from the package count
+    final long packages;
+    final int facilities;
+    final long customers;
+    final int drivers;
+    final int zips;
+    final long orders;
+    final long idBase;
+    final long seed;
+    final int chunk;
+    final int days;
+    final long now;
+    final Path out;
+
+    // Users are laid out contiguously: customers, drivers, managers (one per facility), admins
+    final long driverBase;
+    final long managerBase;
+    final long adminBase;
+
+    final Zipf zipZipf;
+    final Zipf facilityZipf;
+    final Zipf customerZipf;
+    final int[] zipFacility;
+    final double[] zipLat;
+    final double[] zipLon;
+    final double[] facilityLat;
+    final double[] facilityLon;
+    final String passwordSalt;
+    final String passwordHash;
+    // yyyy-MM-dd for every day a generated timestamp can fall on
+    final long firstDay;
+    final String[] dayStrings;
+
+    DataGenerator(long packages, long seed, long idBase, int chunk, int days, LocalDate asOf, Path out) {
+        this.packages = packages;
+        this.seed = seed;
+        this.idBase = idBase;
+        this.chunk = chunk;
+        this.days = days;
+        this.out = out;
+        this.now = asOf.atStartOfDay().toEpochSecond(ZoneOffset.UTC) + 18 * HOUR;
+
+        facilities = (int) Math.max(8, Math.min(400, packages / 20_000));
+        customers = Math.max(50, packages / 8);
+        drivers = (int) Math.max(facilities * 2L, Math.min(Integer.MAX_VALUE, packages / 1500));
+        zips = (int) Math.max(200, Math.min(40_000, facilities * 60L));
+        // Roughly one order in five ships two packages
+        orders = Math.max(1, packages * 4 / 5);
+        driverBase = idBase + customers;
+        managerBase = driverBase + drivers;
+        adminBase = managerBase + facilities;
+
+        zipZipf = new Zipf(zips, 1.05);
+        facilityZipf = new Zipf(facilities, 0.9);
+        customerZipf = new Zipf(customers, 0.6);
+
+        facilityLat = new double[facilities];
+        facilityLon = new double[facilities];
+        for (int f = 0; f < facilities; f++) {
+            SplittableRandom r = rng(1, f);
+            Object[] metro = METROS[f % METROS.length];
+            facilityLat[f] = (Double) metro[3] + r.nextDouble(-0.15, 0.15);
+            facilityLon[f] = (Double) metro[4] + r.nextDouble(-0.15, 0.15);
+        }
+        zipFacility = new int[zips];
+        zipLat = new double[zips];
+        zipLon = new double[zips];
+        for (int z = 0; z < zips; z++) {
+            SplittableRandom r = rng(2, z);
+            int f = facilityZipf.sample(r);
+            zipFacility[z] = f;
+            zipLat[z] = facilityLat[f] + gaussian(r) * 0.08;
+            zipLon[z] = facilityLon[f] + gaussian(r) * 0.08;
+        }
+
+        firstDay = Math.floorDiv(now, DAY) - days - 40;
+        dayStrings = new String[days + 50];
+        for (int d = 0; d < dayStrings.length; d++) dayStrings[d] = LocalDate.ofEpochDay(firstDay + d).toString();
+
+        // One PBKDF2 hash shared by every generated user, so logins work without hashing millions of times
+        passwordSalt = PasswordUtil.generateSalt();
+        passwordHash = PasswordUtil.hashPassword(PASSWORD, passwordSalt).unwrap();
+    }
+
+    public static void main(String[] args) throws Exception {
+        long packages = 100_000;
+        Path out = Paths.get("gen-data");
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunk = 250_000;
+        int days = 90;
+        LocalDate asOf = LocalDate.now(ZoneOffset.UTC);
+        long seed = 42;
+        long idBase = 1000;
+        boolean load = false;
+        String dbName = "delivery_loadtest";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--packages": packages = Long.parseLong(args[++i].replace("_", "")); break;
+                case "--out": out = Paths.get(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--chunk": chunk = Integer.parseInt(args[++i]); break;
+                case "--days": days = Integer.parseInt(args[++i]); break;
+                case "--as-of": asOf = LocalDate.parse(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--id-base": idBase = Long.parseLong(args[++i]); break;
+                case "--load": load = true; break;
+                case "--db-name": dbName = args[++i]; break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (load && dbName.equals("delivery_system")) {
+            System.err.println("Refusing to load generated data into delivery_system; pick another --db-name");
+            System.exit(2);
+        }
+
+        Files.createDirectories(out);
+        DataGenerator gen = new DataGenerator(packages, seed, idBase, chunk, days, asOf, out);
+        System.out.println(String.format("Generating %,d packages: %,d orders, %,d customers, %,d drivers, %d facilities, %,d ZIPs",
+            gen.packages, gen.orders, gen.customers, gen.drivers, gen.facilities, gen.zips));
+
+        long start = System.nanoTime();
+        List<DataFile> files = gen.generate(threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Long> rows = new LinkedHashMap<>();
+        for (String table : COLUMNS.keySet()) rows.put(table, 0L);
+        for (DataFile f : files) rows.merge(f.table, f.rows, Long::sum);
+        long total = 0;
+        for (Map.Entry<String, Long> e : rows.entrySet()) {
+            System.out.println(String.format("  %-24s %,14d rows", e.getKey(), e.getValue()));
+            total += e.getValue();
+        }
+        System.out.println(String.format("Wrote %,d rows in %d files to %s in %.1f s (%,.0f rows/s)",
+            total, files.size(), out.toAbsolutePath(), seconds, total / seconds));
+
+        Path script = writeLoadScript(files, out);
+        System.out.println("Load script: " + script.toAbsolutePath());
+
+        if (load) loadFiles(files, dbName, threads);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Generation
+    // ---------------------------------------------------------------------------------------------
+
+    List<DataFile> generate(int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<List<DataFile>>> tasks = new ArrayList<>();
+            tasks.add(pool.submit(this::writeStaff));
+            for (long c = 0, part = 0; c < customers; c += chunk, part++) {
+                final long from = c;
+                final long to = Math.min(customers, c + chunk);
+                final int id = (int) part;
+                tasks.add(pool.submit(() -> writeCustomers(id, from, to)));
+            }
+            for (long p = 0, part = 0; p < packages; p += chunk, part++) {
+                final long from = p;
+                final long to = Math.min(packages, p + chunk);
+                final int id = (int) part;
+                tasks.add(pool.submit(() -> writePackages(id, from, to)));
+            }
+            List<DataFile> files = new ArrayList<>();
+            for (Future<List<DataFile>> t : tasks) files.addAll(t.get());
+            return files;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Facilities, drivers, one manager per facility and two admins
+    List<DataFile> writeStaff() throws IOException {
+        long created = now - (days + 30) * DAY;
+        try (Tsv fac = new Tsv("facilities", "staff"); Tsv users = new Tsv("users", "staff")) {
+            for (int f = 0; f < facilities; f++) {
+                SplittableRandom r = rng(3, f);
+                Object[] metro = METROS[f % METROS.length];
+                int hub = f / METROS.length + 1;
+                // Capacity follows the expected share of traffic, with headroom
+                long capacity = Math.max(2000, Math.round(facilityZipf.probability(f) * packages * 0.2));
+                fac.id(idBase + f).str(metro[0] + " Hub " + hub).str(street(r)).str((String) metro[0])
+                    .str((String) metro[1]).str(metro[2] + String.format("%02d", f % 100)).str(phone(r)).num(capacity).end();
+                users.id(managerBase + f).str("gen_manager" + f).str(passwordHash).str(passwordSalt)
+                    .str("manager" + f + "@delivery.example.com").str(phone(r)).str(name(r)).str("manager").num(2)
+                    .time(created).end();
+            }
+            for (int d = 0; d < drivers; d++) {
+                SplittableRandom r = rng(4, d);
+                users.id(driverBase + d).str("gen_driver" + d).str(passwordHash).str(passwordSalt)
+                    .str("driver" + d + "@delivery.example.com").str(phone(r)).str(name(r)).str("driver").num(1)
+                    .time(created + r.nextLong(30 * DAY)).end();
+            }
+            for (int a = 0; a < 2; a++) {
+                users.id(adminBase + a).str("gen_admin" + a).str(passwordHash).str(passwordSalt)
+                    .str("admin" + a + "@delivery.example.com").nul().str("Generated Admin " + a).str("admin").num(3)
+                    .time(created).end();
+            }
+            return List.of(fac.file(), users.file());
+        }
+    }
+
+    // Customers and their two addresses (a default pickup/delivery address and a second delivery address)
+    List<DataFile> writeCustomers(int part, long from, long to) throws IOException {
+        String suffix = String.format("customers-%04d", part);
+        try (Tsv users = new Tsv("users", suffix); Tsv addresses = new Tsv("addresses", suffix)) {
+            for (long c = from; c < to; c++) {
+                SplittableRandom r = rng(5, c);
+                String fullName = name(r);
+                users.id(idBase + c).str("gen_customer" + c).str(passwordHash).str(passwordSalt)
+                    .str("customer" + c + "@example.com").str(phone(r)).str(fullName).str("customer").num(0)
+                    .time(now - (days + 30) * DAY + r.nextLong((days + 30) * DAY)).end();
+                for (int k = 0; k < 2; k++) {
+                    long addressId = addressId(c, k);
+                    int zip = addressZip(addressId);
+                    Object[] metro = METROS[zipFacility[zip] % METROS.length];
+                    SplittableRandom ar = rng(6, addressId);
+                    addresses.id(addressId).id(idBase + c).str(k == 0 ? "both" : "delivery").str(street(ar))
+                        .str((String) metro[0]).str((String) metro[1]).str(zipCode(zip))
+                        .str(INSTRUCTIONS[ar.nextInt(INSTRUCTIONS.length)]).bool(k == 0).end();
+                }
+            }
+            return List.of(users.file(), addresses.file());
+        }
+    }
+
+    /**
+     * Packages [from, to) with their orders, history, inventory, transfers, routes and audit rows.
+     * Routes are grouped per (facility, day) within the chunk; their ids come from a range owned
+     * by this chunk so chunks never collide.
+     */
+    List<DataFile> writePackages(int part, long from, long to) throws IOException {
+        String suffix = String.format("%04d", part);
+        Map<Long, RouteBuilder> openRoutes = new HashMap<>();
+        long nextRouteId = idBase + part * (long) chunk;
+
+        try (Tsv ord = new Tsv("orders", suffix);
+             Tsv pkg = new Tsv("packages", suffix);
+             Tsv hist = new Tsv("delivery_status_history", suffix);
+             Tsv inv = new Tsv("inventory", suffix);
+             Tsv xfer = new Tsv("package_transfers", suffix);
+             Tsv routes = new Tsv("routes", suffix);
+             Tsv assign = new Tsv("route_assignments", suffix);
+             Tsv stops = new Tsv("route_packages", suffix);
+             Tsv audit = new Tsv("audit_log", suffix)) {
+
+            for (long i = from; i < to; i++) {
+                long order = orderOf(i);
+                SplittableRandom or = rng(7, order);
+                long orderTime = now - or.nextLong(days * DAY);
+                long sender = customerZipf.sample(or);
+                long recipient = customerZipf.sample(or);
+                long pickupAddress = addressId(sender, 0);
+                long deliveryAddress = addressId(recipient, or.nextInt(2));
+                int zip = addressZip(deliveryAddress);
+                int destination = zipFacility[zip];
+
+                SplittableRandom r = rng(8, i);
+                long packageId = idBase + i;
+                String tracking = trackingNumber(i);
+                // Most parcels enter the network at the hub serving their ZIP; some cross hubs
+                int origin = r.nextInt(10) == 0 ? facilityZipf.sample(r) : destination;
+                Timeline t = new Timeline(orderTime + r.nextLong(HOUR), r, origin != destination);
+
+                // Current state is the last event that has already happened
+                String status = "created";
+                int facility = -1;
+                if (t.arrived <= now) { status = "at_facility"; facility = origin; }
+                if (t.transferred && t.departed <= now) { status = "in_transit"; }
+                if (t.transferred && t.arrivedDestination <= now) { status = "at_facility"; facility = destination; }
+                if (t.outForDelivery <= now) { status = "out_for_delivery"; facility = destination; }
+                if (t.delivered <= now) { status = t.outcome; }
+
+                if (i == firstPackageOf(order)) {
+                    String orderStatus = orderStatus(status);
+                    double cost = 6.5 + r.nextDouble() * 40;
+                    ord.id(idBase + order).id(idBase + sender).id(pickupAddress).id(deliveryAddress).str(orderStatus)
+                        .money(cost).str(orderStatus.equals("pending") ? "pending" : "completed")
+                        .time(orderTime + 3 * DAY).time(orderTime).time(Math.min(now, t.lastEvent())).end();
+                }
+
+                double weight = 0.2 + Math.pow(r.nextDouble(), 3) * 30;
+                pkg.id(packageId).id(idBase + order).str(tracking);
+                if (facility >= 0) pkg.id(idBase + facility); else pkg.nul();
+                pkg.str(status).money(weight).money(10 + r.nextInt(80)).money(10 + r.nextInt(60)).money(5 + r.nextInt(50))
+                    .bool(r.nextInt(8) == 0).bool(r.nextInt(6) == 0).time(t.created);
+                if (status.equals("delivered")) pkg.time(t.delivered); else pkg.nul();
+                pkg.end();
+
+                long manager = managerBase + origin;
+                long destManager = managerBase + destination;
+                long driver = driverFor(destination, t.outForDelivery);
+                Object[] originMetro = METROS[origin % METROS.length];
+                Object[] destMetro = METROS[destination % METROS.length];
+
+                history(hist, packageId, "created", null, idBase + sender, "Shipping label created", t.created);
+                if (t.arrived <= now) {
+                    history(hist, packageId, "at_facility", facilityName(origin), manager, "Received at facility", t.arrived);
+                }
+                if (t.transferred && t.departed <= now) {
+                    boolean done = t.arrivedDestination <= now;
+                    xfer.id(packageId).id(idBase + origin).id(idBase + destination).str(done ? "completed" : "in_transit")
+                        .id(manager).str(TRANSPORT[r.nextInt(TRANSPORT.length)]).time(t.departed);
+                    if (done) xfer.time(t.arrivedDestination); else xfer.nul();
+                    xfer.end();
+                    history(hist, packageId, "in_transit", originMetro[0] + ", " + originMetro[1], manager,
+                        "Transfer to " + facilityName(destination), t.departed);
+                    inv.id(idBase + origin).id(packageId).time(t.arrived).time(t.departed).str("transferred").end();
+                    if (done) {
+                        history(hist, packageId, "at_facility", facilityName(destination), destManager,
+                            "Arrived from " + facilityName(origin), t.arrivedDestination);
+                    }
+                } else if (t.transferred && t.arrived <= now) {
+                    // Waiting at the origin hub for the transfer to leave
+                    inv.id(idBase + origin).id(packageId).time(t.arrived).nul().str("in_stock").end();
+                }
+                long arrivedAtDestination = t.transferred ? t.arrivedDestination : t.arrived;
+                if (arrivedAtDestination <= now) {
+                    boolean left = t.outForDelivery <= now;
+                    inv.id(idBase + destination).id(packageId).time(arrivedAtDestination);
+                    if (left) inv.time(t.outForDelivery); else inv.nul();
+                    inv.str(left ? "checked_out" : "in_stock").end();
+                }
+                if (t.outForDelivery <= now) {
+                    history(hist, packageId, "out_for_delivery", destMetro[0] + ", " + destMetro[1], driver,
+                        "Out for delivery", t.outForDelivery);
+                    auditRow(audit, t.outForDelivery, driver, "gen_driver" + (driver - driverBase), "UPDATE_DELIVERY_STATUS",
+                        "success", r, "Package " + tracking + " -> out_for_delivery");
+
+                    // Attach to the open route for this hub and day, starting a new one when full
+                    long day = Math.floorDiv(t.outForDelivery, DAY);
+                    long key = day * facilities + destination;
+                    RouteBuilder route = openRoutes.get(key);
+                    if (route == null || route.size() >= STOPS_PER_ROUTE) {
+                        if (route != null) route.write(routes, assign, stops);
+                        route = new RouteBuilder(nextRouteId++, destination, day, driver);
+                        openRoutes.put(key, route);
+                    }
+                    SplittableRandom ar = rng(6, deliveryAddress);
+                    route.add(packageId, street(ar) + ", " + destMetro[0] + ", " + destMetro[1] + " " + zipCode(zip),
+                        zipLat[zip] + gaussian(ar) * 0.02, zipLon[zip] + gaussian(ar) * 0.02, t.outForDelivery);
+                }
+                if (t.delivered <= now) {
+                    history(hist, packageId, t.outcome, t.outcome.equals("lost") ? null : destMetro[0] + ", " + destMetro[1],
+                        driver, t.outcome.equals("delivered") ? "Delivered" : "Delivery exception: " + t.outcome, t.delivered);
+                    auditRow(audit, t.delivered, driver, "gen_driver" + (driver - driverBase), "UPDATE_DELIVERY_STATUS",
+                        "success", r, "Package " + tracking + " -> " + t.outcome);
+                }
+
+                // Background traffic: customer logins (some failing) and public tracking lookups
+                if (r.nextInt(3) == 0) {
+                    boolean failed = r.nextInt(12) == 0;
+                    auditRow(audit, t.created - r.nextLong(HOUR), idBase + sender, "gen_customer" + sender, "LOGIN",
+                        failed ? "denied" : "success", r, failed ? "Invalid credentials" : "Login successful");
+                }
+                int lookups = r.nextInt(3);
+                for (int k = 0; k < lookups; k++) {
+                    long when = t.created + r.nextLong(Math.max(1, Math.min(now, t.lastEvent()) - t.created));
+                    auditRow(audit, when, -1, null, "TRACK_PACKAGE", "success", r, "Tracked " + tracking);
+                }
+            }
+
+            for (RouteBuilder route : openRoutes.values()) route.write(routes, assign, stops);
+
+            List<DataFile> files = new ArrayList<>();
+            for (Tsv t : List.of(ord, pkg, hist, inv, xfer, routes, assign, stops, audit)) files.add(t.file());
+            return files;
+        }
+    }
+
+    /**
+     * Event times for one package. Each stage is only recorded once it is in the past
+     * relative to the generator's "now".
+     */
+    final class Timeline {
+        final long created;
+        final long arrived;
+        final boolean transferred;
+        final long departed;
+        final long arrivedDestination;
+        final long outForDelivery;
+        final long delivered;
+        final String outcome;
+
+        Timeline(long created, SplittableRandom r, boolean transferred) {
+            this.created = created;
+            this.transferred = transferred;
+            arrived = created + HOUR + r.nextLong(12 * HOUR);
+            long ready = arrived;
+            if (transferred) {
+                departed = arrived + 2 * HOUR + r.nextLong(10 * HOUR);
+                arrivedDestination = departed + 6 * HOUR + r.nextLong(42 * HOUR);
+                ready = arrivedDestination;
+            } else {
+                departed = Long.MAX_VALUE;
+                arrivedDestination = Long.MAX_VALUE;
+            }
+            // Routes leave at 08:00-10:00 the day after the parcel is sorted
+            long nextDay = (Math.floorDiv(ready, DAY) + 1) * DAY;
+            outForDelivery = nextDay + 8 * HOUR + r.nextLong(2 * HOUR);
+            delivered = outForDelivery + HOUR / 2 + r.nextLong(9 * HOUR);
+            int roll = r.nextInt(1000);
+            outcome = roll < 975 ? "delivered" : roll < 993 ? "returned" : "lost";
+        }
+
+        long lastEvent() {
+            return delivered;
+        }
+    }
+
+    /**
+     * Up to STOPS_PER_ROUTE deliveries from one hub on one day, written with its assignment and stops.
+     */
+    final class RouteBuilder {
+        final long routeId;
+        final int facility;
+        final long day;
+        final long driver;
+        final List<long[]> packageTimes = new ArrayList<>();
+        final StringBuilder json = new StringBuilder();
+        double distance = 0;
+        double lastLat;
+        double lastLon;
+
+        RouteBuilder(long routeId, int facility, long day, long driver) {
+            this.routeId = routeId;
+            this.facility = facility;
+            this.day = day;
+            this.driver = driver;
+            lastLat = facilityLat[facility];
+            lastLon = facilityLon[facility];
+            json.append("{\"route\":[");
+            appendLocation(facilityName(facility), lastLat, lastLon);
+        }
+
+        int size() {
+            return packageTimes.size();
+        }
+
+        void add(long packageId, String address, double lat, double lon, long departure) {
+            packageTimes.add(new long[] {packageId, departure});
+            json.append(',');
+            appendLocation(address, lat, lon);
+            distance += haversineKm(lastLat, lastLon, lat, lon);
+            lastLat = lat;
+            lastLon = lon;
+        }
+
+        void write(Tsv routes, Tsv assign, Tsv stops) throws IOException {
+            int minutes = (int) Math.round(distance / 40.0 * 60) + size() * 5;
+            json.append("],\"totalDistance\":").append(String.format(Locale.ROOT, "%.2f", distance))
+                .append(",\"estimatedDuration\":").append(minutes).append(",\"stops\":").append(size()).append('}');
+
+            long start = day * DAY + 8 * HOUR;
+            long finish = start + minutes * 60L;
+            String status = finish <= now ? "completed" : start <= now ? "in_progress" : "planned";
+            String date = LocalDate.ofEpochDay(day).toString();
+            routes.id(routeId).str(facilityName(facility) + " Route " + date + " #" + routeId).id(idBase + facility)
+                .str(date).num(minutes).num(size()).str(status).str(json.toString()).time(start - 12 * HOUR);
+            if (status.equals("completed")) routes.time(finish); else routes.nul();
+            routes.end();
+
+            assign.id(routeId).id(driver).str("VAN-" + (driver - driverBase)).time(start - 12 * HOUR);
+            if (start <= now) assign.time(start); else assign.nul();
+            if (status.equals("completed")) assign.time(finish); else assign.nul();
+            assign.end();
+
+            long perStop = Math.max(60, (finish - start) / Math.max(1, size()));
+            for (int s = 0; s < size(); s++) {
+                stops.id(routeId).id(packageTimes.get(s)[0]).num(s + 1).time(start + perStop * (s + 1)).end();
+            }
+        }
+
+        private void appendLocation(String address, double lat, double lon) {
+            json.append("{\"address\":\"").append(address.replace("\"", "\\\"")).append("\",\"lat\":")
+                .append(String.format(Locale.ROOT, "%.6f", lat)).append(",\"lon\":")
+                .append(String.format(Locale.ROOT, "%.6f", lon)).append('}');
+        }
+    }
+
+    private void history(Tsv hist, long packageId, String status, String location, long userId, String notes, long when)
+            throws IOException {
+        hist.id(packageId).str(status).str(location).id(userId).str(notes).time(when).end();
+    }
+
+    private void auditRow(Tsv audit, long when, long userId, String username, String action, String result,
+                          SplittableRandom r, String details) throws IOException {
+        audit.time(when);
+        if (userId >= 0) audit.id(userId); else audit.nul();
+        audit.str(username).str(action).str(result)
+            .str("10." + r.nextInt(256) + "." + r.nextInt(256) + "." + (1 + r.nextInt(254))).str(details).end();
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Deterministic derivations shared by all chunks
+    // ---------------------------------------------------------------------------------------------
+
+    // Packages map onto orders in index order; at 10^8 packages the products still fit in a long
+    long orderOf(long packageIndex) {
+        return packageIndex * orders / packages;
+    }
+
+    long firstPackageOf(long order) {
+        return (order * packages + orders - 1) / orders;
+    }
+
+    long addressId(long customer, int k) {
+        return idBase + customer * 2 + k;
+    }
+
+    int addressZip(long addressId) {
+        return zipZipf.sample(rng(9, addressId));
+    }
+
+    // Drivers are assigned to hubs round-robin; a hub's routes rotate through its drivers by day
+    long driverFor(int facility, long when) {
+        int perFacility = Math.max(1, (drivers - facility + facilities - 1) / facilities);
+        long day = Math.floorDiv(when, DAY);
+        return driverBase + facility + (long) facilities * Math.floorMod(day * 7 + facility, perFacility);
+    }
+
+    String zipCode(int zip) {
+        Object[] metro = METROS[zipFacility[zip] % METROS.length];
+        return metro[2] + String.format("%02d", zip % 100);
+    }
+
+    String facilityName(int f) {
+        return METROS[f % METROS.length][0] + " Hub " + (f / METROS.length + 1);
+    }
+
+    // Generated tracking numbers sit well above the PKG + 10 digit seed rows
+    static String trackingNumber(long packageIndex) {
+        return "PKG" + (5_000_000_000L + packageIndex);
+    }
+
+    static String orderStatus(String packageStatus) {
+        switch (packageStatus) {
+            case "created": return "confirmed";
+            case "delivered": return "delivered";
+            case "returned": return "returned";
+            default: return "in_transit";
+        }
+    }
+
+    SplittableRandom rng(int stream, long index) {
+        return new SplittableRandom(mix(seed * 31 + stream) ^ mix(index + 0x9E3779B97F4A7C15L * stream));
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static double gaussian(SplittableRandom r) {
+        // Box-Muller; SplittableRandom has no nextGaussian on Java 17
+        double u = 1.0 - r.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * r.nextDouble());
+    }
+
+    static String street(SplittableRandom r) {
+        return (1 + r.nextInt(9999)) + " " + STREETS[r.nextInt(STREETS.length)] + " " + SUFFIXES[r.nextInt(SUFFIXES.length)];
+    }
+
+    static String name(SplittableRandom r) {
+        return FIRST[r.nextInt(FIRST.length)] + " " + LAST[r.nextInt(LAST.length)];
+    }
+
+    static String phone(SplittableRandom r) {
+        return String.format("(%03d) 555-%04d", 200 + r.nextInt(800), r.nextInt(10000));
+    }
+
+    static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Zipf sampler over ranks 0..n-1 (rank 0 most frequent) using rejection-inversion
+     * (Hoermann and Derflinger), so it needs no per-rank table even for millions of customers.
+     */
+    static final class Zipf {
+        final long n;
+        final double s;
+        final double hIntegralX1;
+        final double hIntegralN;
+        final double threshold;
+        final double norm;
+
+        Zipf(long n, double s) {
+            this.n = n;
+            this.s = s;
+            hIntegralX1 = hIntegral(1.5) - 1;
+            hIntegralN = hIntegral(n + 0.5);
+            threshold = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+            // Approximate normalising constant, for capacity sizing only
+            norm = 1 + hIntegralN - hIntegral(1.5);
+        }
+
+        int sample(SplittableRandom r) {
+            return (int) sampleLong(r);
+        }
+
+        long sampleLong(SplittableRandom r) {
+            while (true) {
+                double u = hIntegralN + r.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = (long) (x + 0.5);
+                if (k < 1) k = 1;
+                else if (k > n) k = n;
+                if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k)) return k - 1;
+            }
+        }
+
+        double probability(long rank) {
+            return h(rank + 1) / norm;
+        }
+
+        private double h(double x) {
+            return Math.exp(-s * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - s) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = x * (1 - s);
+            if (t < -1) t = -1;
+            return Math.exp(helper1(t) * x);
+        }
+
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Output
+    // ---------------------------------------------------------------------------------------------
+
+    static final class DataFile {
+        final String table;
+        final Path path;
+        final long rows;
+
+        DataFile(String table, Path path, long rows) {
+            this.table = table;
+            this.path = path;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * Writer for one LOAD DATA file: tab-separated, newline-terminated, \N for NULL,
+     * backslash escapes for tab/newline/backslash (MySQL's defaults).
+     */
+    final class Tsv implements AutoCloseable {
+        final String table;
+        final Path path;
+        final BufferedWriter writer;
+        final StringBuilder line = new StringBuilder(256);
+        long rows = 0;
+
+        Tsv(String table, String suffix) throws IOException {
+            this.table = table;
+            this.path = out.resolve(table + "-" + suffix + ".tsv");
+            this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        private StringBuilder sep() {
+            if (line.length() > 0) line.append('\t');
+            return line;
+        }
+
+        Tsv id(long v) { sep().append(v); return this; }
+        Tsv num(long v) { sep().append(v); return this; }
+        Tsv bool(boolean v) { sep().append(v ? '1' : '0'); return this; }
+        Tsv nul() { sep().append("\\N"); return this; }
+        Tsv money(double v) { sep().append(Math.round(v * 100) / 100.0); return this; }
+
+        Tsv str(String v) {
+            if (v == null) return nul();
+            StringBuilder sb = sep();
+            for (int i = 0; i < v.length(); i++) {
+                char c = v.charAt(i);
+                if (c == '\t') sb.append("\\t");
+                else if (c == '\n') sb.append("\\n");
+                else if (c == '\\') sb.append("\\\\");
+                else sb.append(c);
+            }
+            return this;
+        }
+
+        // epoch seconds (UTC) -> yyyy-MM-dd HH:mm:ss
+        Tsv time(long epochSecond) {
+            StringBuilder sb = sep();
+            long day = Math.floorDiv(epochSecond, DAY);
+            int slot = (int) (day - firstDay);
+            sb.append(slot >= 0 && slot < dayStrings.length ? dayStrings[slot] : LocalDate.ofEpochDay(day).toString());
+            long secs = Math.floorMod(epochSecond, DAY);
+            sb.append(' ');
+            pad2(sb, secs / 3600).append(':');
+            pad2(sb, secs / 60 % 60).append(':');
+            pad2(sb, secs % 60);
+            return this;
+        }
+
+        private StringBuilder pad2(StringBuilder sb, long v) {
+            if (v < 10) sb.append('0');
+            return sb.append(v);
+        }
+
+        void end() throws IOException {
+            line.append('\n');
+            writer.append(line);
+            line.setLength(0);
+            rows++;
+        }
+
+        DataFile file() {
+            return new DataFile(table, path, rows);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    static String loadStatement(DataFile f) {
+        String path = f.path.toAbsolutePath().toString().replace('\\', '/').replace("'", "\\'");
+        return "LOAD DATA LOCAL INFILE '" + path + "' INTO TABLE " + f.table
+            + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n' ("
+            + COLUMNS.get(f.table) + ")";
+    }
+
+    static List<DataFile> inLoadOrder(List<DataFile> files) {
+        List<String> order = new ArrayList<>(COLUMNS.keySet());
+        List<DataFile> sorted = new ArrayList<>();
+        for (DataFile f : files) if (f.rows > 0) sorted.add(f);
+        sorted.sort(Comparator.comparingInt((DataFile f) -> order.indexOf(f.table)).thenComparing(f -> f.path.toString()));
+        return sorted;
+    }
+
+    static Path writeLoadScript(List<DataFile> files, Path out) throws IOException {
+        StringBuilder sql = new StringBuilder();
+        sql.append("-- Generated by com.delivery.bench.DataGenerator; run with mysql --local-infile=1 <database> < load.sql\n");
+        sql.append("SET foreign_key_checks = 0;\nSET unique_checks = 0;\n");
+        for (DataFile f : inLoadOrder(files)) sql.append(loadStatement(f)).append(";\n");
+        sql.append("SET unique_checks = 1;\nSET foreign_key_checks = 1;\n");
+        for (String table : COLUMNS.keySet()) sql.append("ANALYZE TABLE ").append(table).append(";\n");
+        Path script = out.resolve("load.sql");
+        Files.write(script, sql.toString().getBytes(StandardCharsets.UTF_8));
+        return script;
+    }
+
+    /**
+     * Run the LOAD DATA statements over several connections at once. Key checks are off per
+     * session, so files can load in any order; the server must have local_infile enabled.
+     */
+    static void loadFiles(List<DataFile> files, String dbName, int threads) throws Exception {
+        String url = "jdbc:mysql://" + EnvLoader.get("DB_HOST").unwrapOr("localhost") + ":"
+            + EnvLoader.get("DB_PORT").unwrapOr("3306") + "/" + dbName
+            + "?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true&allowLoadLocalInfile=true";
+        String user = EnvLoader.get("DB_USER").unwrapOr("root");
+        String password = EnvLoader.get("DB_PASSWORD").unwrapOr("");
+
+        List<DataFile> ordered = inLoadOrder(files);
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, 8)));
+        try {
+            List<Future<?>> loads = new ArrayList<>();
+            for (DataFile f : ordered) {
+                loads.add(pool.submit(() -> {
+                    try (Connection conn = DriverManager.getConnection(url, user, password);
+                         Statement stmt = conn.createStatement()) {
+                        stmt.execute("SET foreign_key_checks = 0");
+                        stmt.execute("SET unique_checks = 0");
+                        stmt.execute(loadStatement(f));
+                    }
+                    System.out.println("  loaded " + f.path.getFileName() + String.format(" (%,d rows)", f.rows));
+                    return null;
+                }));
+            }
+            for (Future<?> l : loads) l.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        try (Connection conn = DriverManager.getConnection(url, user, password);
+             Statement stmt = conn.createStatement()) {
+            for (String table : COLUMNS.keySet()) {
+                try (ResultSet rs = stmt.executeQuery("ANALYZE TABLE " + table)) {
+                    while (rs.next()) { /* drain */ }
+                }
+            }
+        }
+        System.out.println(String.format("Loaded %d files into %s in %.1f s", ordered.size(), dbName,
+            (System.nanoTime() - start) / 1e9));
+    }
+}
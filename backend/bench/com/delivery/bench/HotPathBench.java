@@ -0,0 +1,212 @@
+package com.delivery.bench;
+
+import com.delivery.controllers.AuthenticationController;
+import com.delivery.controllers.InventoryController;
+import com.delivery.models.InventoryItem;
+import com.delivery.models.Location;
+import com.delivery.models.RouteRequest;
+import com.delivery.security.SecurityManager.AuditLogger;
+import com.delivery.security.SecurityManager.InputSanitizer;
+import com.delivery.security.SecurityManager.RateLimiter;
+import com.delivery.security.SecurityManager.SecurityLevel;
+import com.delivery.services.RouteService;
+import com.delivery.session.SessionManager;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Micro-benchmarks for the backend's per-request hot paths, run with MicroHarness.
+ *
+ * Usage: java -cp bin;bench-bin com.delivery.bench.HotPathBench
+ *            [--filter regex] [--quick] [--save file.json] [--compare baseline.json] [--threshold pct]
+ *
+ * --save writes a JMH-format JSON result (keep it as the baseline for this machine);
+ * --compare prints the change against a baseline and exits 1 when any benchmark is slower by
+ * more than --threshold percent (default 15). Private helpers (parseJson, inventoryListToJson,
+ * the route optimizer) are reached through method handles so the production classes stay as is.
+ *
+ * AuditLogger.log runs for real: it writes to the in-memory list and, when .env has DB settings
+ * and the driver jar is on the classpath, inserts into audit_log. Its console output is discarded.
+ */
+public class HotPathBench {
+
+    public static void main(String[] args) throws Throwable {
+        Pattern filter = null;
+        MicroHarness.Config config = new MicroHarness.Config();
+        Path save = null;
+        Path compare = null;
+        double threshold = 15.0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--filter": filter = Pattern.compile(args[++i]); break;
+                case "--quick": config = MicroHarness.Config.quick(); break;
+                case "--save": save = Paths.get(args[++i]); break;
+                case "--compare": compare = Paths.get(args[++i]); break;
+                case "--threshold": threshold = Double.parseDouble(args[++i]); break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Fixtures f = new Fixtures();
+        List<MicroHarness.Score> scores = new ArrayList<>();
+        int contention = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+        run(scores, filter, config, "RouteService.calculateDistance", 1,
+            i -> f.calculateDistance.invoke(f.routeService, f.stops.get(i & 31), f.stops.get((i + 7) & 31)));
+        run(scores, filter, config, "RouteService.nearestNeighborOptimization(25)", 1,
+            i -> f.nearestNeighbor.invoke(f.routeService, f.warehouse, f.stops25));
+        run(scores, filter, config, "AuthenticationController.parseJson", 1,
+            i -> f.parseJson.invoke(f.loginBodies[i & 7]));
+        run(scores, filter, config, "RouteRequest.fromJson", 1,
+            i -> RouteRequest.fromJson(f.routeRequestJson));
+        run(scores, filter, config, "InputSanitizer.sanitizeString", 1,
+            i -> InputSanitizer.sanitizeString(f.freeText[i & 7]));
+        run(scores, filter, config, "InputSanitizer.validateEmail", 1,
+            i -> InputSanitizer.validateEmail(f.emails[i & 7]));
+        run(scores, filter, config, "SessionManager.getSession", 1,
+            i -> SessionManager.getSession(f.sessionTokens[i & 63]));
+        run(scores, filter, config, "SessionManager.getSession", contention,
+            i -> SessionManager.getSession(f.sessionTokens[i & 63]));
+        run(scores, filter, config, "RateLimiter.allowRequest", 1,
+            i -> RateLimiter.allowRequest(f.clientIps[i & 1023], "login", Integer.MAX_VALUE));
+        run(scores, filter, config, "RateLimiter.allowRequest", contention,
+            i -> RateLimiter.allowRequest(f.clientIps[i & 1023], "login", Integer.MAX_VALUE));
+        run(scores, filter, config, "InventoryController.inventoryListToJson(200)", 1,
+            i -> f.inventoryListToJson.invoke(f.inventory));
+
+        // Last, since it grows the in-memory audit list for the rest of the run
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            run(scores, filter, config, "AuditLogger.log", 1,
+                i -> AuditLogger.log(42L, "bench", "BENCH_EVENT", "success", "127.0.0.1", "bench entry " + (i & 1023)));
+        } finally {
+            System.setOut(console);
+        }
+
+        if (save != null) {
+            MicroHarness.writeJson(scores, save);
+            System.out.println("Saved " + scores.size() + " results to " + save);
+        }
+        if (compare != null && !compareWith(scores, compare, threshold)) {
+            System.exit(1);
+        }
+    }
+
+    private static void run(List<MicroHarness.Score> scores, Pattern filter, MicroHarness.Config config,
+                            String name, int threads, MicroHarness.Op op) throws Exception {
+        if (filter != null && !filter.matcher(name).find()) return;
+        scores.add(MicroHarness.measure(name, threads, config, op));
+    }
+
+    private static boolean compareWith(List<MicroHarness.Score> scores, Path baselineFile, double threshold) throws Exception {
+        Map<String, Double> baseline = MicroHarness.readScores(baselineFile);
+        System.out.println();
+        System.out.println("Against " + baselineFile + " (threshold +" + threshold + "%):");
+        boolean ok = true;
+        for (MicroHarness.Score s : scores) {
+            String key = MicroHarness.key(s.benchmark, s.threads);
+            Double base = baseline.get(key);
+            if (base == null || base <= 0) {
+                System.out.println(String.format("  %-52s %12s", key, "new"));
+                continue;
+            }
+            double change = (s.score - base) / base * 100.0;
+            boolean regressed = change > threshold;
+            if (regressed) ok = false;
+            System.out.println(String.format("  %-52s %10.1f -> %10.1f ns/op  %+7.1f%%%s",
+                key, base, s.score, change, regressed ? "  REGRESSION" : ""));
+        }
+        return ok;
+    }
+
+    /**
+     * Inputs shared by the benchmarks, built once.
+     */
+    static class Fixtures {
+        final RouteService routeService = new RouteService();
+        final MethodHandle calculateDistance;
+        final MethodHandle nearestNeighbor;
+        final MethodHandle parseJson;
+        final MethodHandle inventoryListToJson;
+
+        final Location warehouse = new Location("Warehouse", 40.4406, -79.9959);
+        final List<Location> stops = new ArrayList<>();
+        final List<Location> stops25;
+        final String[] loginBodies = new String[8];
+        final String routeRequestJson;
+        final String[] freeText = {
+            "  123 Main Street, Apt 4  ", "John O'Brien", "<b>Leave at door</b>; ring bell", "PKG1234567890",
+            "Back porch, behind the blue recycling bin", "Call (555) 123-4567 on arrival", "N/A", "Gate code #4471"
+        };
+        final String[] emails = {
+            "customer1@example.com", "a.b-c+d@ex-ample.co", "not-an-email", "driver_01@fleet.example.org",
+            "x@y", "first.last@university.edu", "@missing.local", "UPPER@EXAMPLE.COM"
+        };
+        final String[] sessionTokens = new String[64];
+        final String[] clientIps = new String[1024];
+        final List<InventoryItem> inventory = new ArrayList<>();
+
+        Fixtures() throws Exception {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            calculateDistance = lookup.unreflect(accessible(RouteService.class, "calculateDistance", Location.class, Location.class));
+            nearestNeighbor = lookup.unreflect(accessible(RouteService.class, "nearestNeighborOptimization", Location.class, List.class));
+            parseJson = lookup.unreflect(accessible(AuthenticationController.class, "parseJson", String.class));
+            inventoryListToJson = lookup.unreflect(accessible(InventoryController.class, "inventoryListToJson", List.class));
+
+            Random rnd = new Random(42);
+            for (int i = 0; i < 32; i++) {
+                stops.add(new Location("Stop " + i, 40.3 + rnd.nextDouble() * 0.3, -80.1 + rnd.nextDouble() * 0.3));
+            }
+            stops25 = new ArrayList<>(stops.subList(0, 25));
+
+            for (int i = 0; i < loginBodies.length; i++) {
+                loginBodies[i] = "{\"username\":\"customer" + i + "\",\"password\":\"cust123-" + i
+                    + "\",\"recaptchaToken\":\"03AGdBq27" + Long.toHexString(rnd.nextLong()) + "\"}";
+            }
+
+            StringBuilder rr = new StringBuilder("{\"warehouseAddress\":\"100 Industrial Pkwy, Pittsburgh, PA\",\"deliveryAddresses\":[");
+            for (int i = 0; i < 25; i++) {
+                if (i > 0) rr.append(',');
+                rr.append("\"").append(100 + i).append(" Forbes Ave, Pittsburgh, PA 15213\"");
+            }
+            rr.append("],\"driverId\":7,\"facilityId\":2,\"routeDate\":\"2026-01-15\"}");
+            routeRequestJson = rr.toString();
+
+            for (int i = 0; i < sessionTokens.length; i++) {
+                sessionTokens[i] = SessionManager.createSession("user" + i, "manager", SecurityLevel.SECRET);
+            }
+            for (int i = 0; i < clientIps.length; i++) {
+                clientIps[i] = "10.0." + (i >> 8) + "." + (i & 255);
+            }
+
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (int i = 0; i < 200; i++) {
+                inventory.add(new InventoryItem(i, 1 + (i % 4), "Facility " + (1 + i % 4), now, null, "in_stock",
+                    1000 + i, "PKG" + (1_000_000_000L + i), "in_transit", 2.5, 30, 20, 10, i % 7 == 0, i % 5 == 0,
+                    500 + i, 90 + (i % 50), "Customer " + i, "processing", "1 Pickup Rd, Pittsburgh, PA 15213",
+                    (100 + i) + " Delivery St, Pittsburgh, PA 15213", i % 3 == 0 ? "Leave at \"side\" door" : null));
+            }
+        }
+
+        private static Method accessible(Class<?> type, String name, Class<?>... params) throws Exception {
+            Method m = type.getDeclaredMethod(name, params);
+            m.setAccessible(true);
+            return m;
+        }
+    }
+}
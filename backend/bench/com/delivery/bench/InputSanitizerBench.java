@@ -0,0 +1,167 @@
+package com.delivery.bench;
+
+import com.delivery.security.SecurityManager.InputSanitizer;
+import com.delivery.security.SecurityManager.PasswordManager;
+import com.delivery.security.SecurityManager.Result;
+
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Differential fuzz check and micro-benchmark for InputSanitizer and the password policy.
+ *
+ * Every generated input is run through both the table-driven implementation and the
+ * regex chain it replaced; any difference in the returned value or error message fails
+ * the run with a non-zero exit code. Timings are then printed for both versions.
+ *
+ * Usage: java -cp bin;bench-bin com.delivery.bench.InputSanitizerBench [iterations] [seed]
+ */
+public class InputSanitizerBench {
+
+    // Characters the generator favours: everything the sanitizer or validators care about
+    private static final String INTERESTING =
+        "<>'\"\\;&|`$()@.+-_ \t\n\r\u000B\f\u0085\u2028\u2029!#%^*={}[]:,/?aZ09";
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        Random rnd = new Random(seed);
+
+        System.out.println("Fuzzing " + iterations + " inputs (seed " + seed + ")");
+        int failures = 0;
+        for (int i = 0; i < iterations && failures < 20; i++) {
+            String s = randomInput(rnd);
+            failures += compare("sanitizeString", s, InputSanitizer::sanitizeString, Legacy::sanitizeString);
+            failures += compare("validateEmail", s, InputSanitizer::validateEmail, Legacy::validateEmail);
+            failures += compare("validatePhone", s, InputSanitizer::validatePhone, Legacy::validatePhone);
+            failures += compare("validateUsername", s, InputSanitizer::validateUsername, Legacy::validateUsername);
+            failures += compare("validatePasswordStrength", s, PasswordManager::validatePasswordStrength,
+                Legacy::validatePasswordStrength);
+        }
+        if (failures > 0) {
+            System.err.println(failures + " mismatches found");
+            System.exit(1);
+        }
+        System.out.println("No mismatches");
+
+        String[] samples = {
+            "  123 Main Street, Apt 4  ", "John O'Brien", "<b>Leave at door</b>; ring bell",
+            "PKG1234567890", "customer1@example.com", "(555) 123-4567", "Sup3r$ecret!", "driver_01"
+        };
+        time("sanitizeString", samples, InputSanitizer::sanitizeString, Legacy::sanitizeString);
+        time("validateEmail", samples, InputSanitizer::validateEmail, Legacy::validateEmail);
+        time("validatePhone", samples, InputSanitizer::validatePhone, Legacy::validatePhone);
+        time("validateUsername", samples, InputSanitizer::validateUsername, Legacy::validateUsername);
+        time("validatePasswordStrength", samples, PasswordManager::validatePasswordStrength,
+            Legacy::validatePasswordStrength);
+    }
+
+    private static String randomInput(Random rnd) {
+        int shape = rnd.nextInt(4);
+        if (shape == 0) {
+            // Near-valid email / phone / username shapes so the accepting paths get exercised
+            String[] seeds = { "a.b-c+d@ex-ample.co", "(555) 123-4567", "+1555.123.45678", "user_name1", "Passw0rd!" };
+            StringBuilder sb = new StringBuilder(seeds[rnd.nextInt(seeds.length)]);
+            int edits = rnd.nextInt(3);
+            for (int e = 0; e < edits && sb.length() > 0; e++) {
+                int pos = rnd.nextInt(sb.length());
+                if (rnd.nextBoolean()) sb.setCharAt(pos, INTERESTING.charAt(rnd.nextInt(INTERESTING.length())));
+                else sb.deleteCharAt(pos);
+            }
+            return sb.toString();
+        }
+        int len = rnd.nextInt(shape == 3 ? 64 : 24);
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) {
+            int pick = rnd.nextInt(10);
+            if (pick < 6) sb.append(INTERESTING.charAt(rnd.nextInt(INTERESTING.length())));
+            else if (pick < 9) sb.append((char) (32 + rnd.nextInt(95)));
+            else sb.append((char) rnd.nextInt(0x3000));
+        }
+        return sb.toString();
+    }
+
+    private static <T> int compare(String name, String input, Function<String, Result<T, String>> actual,
+                                   Function<String, Result<T, String>> expected) {
+        String a = describe(actual.apply(input));
+        String e = describe(expected.apply(input));
+        if (a.equals(e)) return 0;
+        System.err.println(name + " mismatch for " + escape(input) + ": got " + escape(a) + ", expected " + escape(e));
+        return 1;
+    }
+
+    private static String describe(Result<?, String> r) {
+        return r.isOk() ? "ok:" + r.unwrap() : "err:" + r.unwrapErr();
+    }
+
+    private static <T> void time(String name, String[] samples, Function<String, Result<T, String>> current,
+                                 Function<String, Result<T, String>> legacy) {
+        long cur = measure(samples, current);
+        long old = measure(samples, legacy);
+        System.out.printf("%-26s current %8.1f ns/op   regex %8.1f ns/op%n", name,
+            cur / (double) (OPS * samples.length), old / (double) (OPS * samples.length));
+    }
+
+    private static final int OPS = 200_000;
+    private static volatile Object sink;
+
+    private static <T> long measure(String[] samples, Function<String, Result<T, String>> fn) {
+        // Warm up first so both versions are measured after JIT compilation
+        for (int i = 0; i < OPS; i++) sink = fn.apply(samples[i % samples.length]);
+        long start = System.nanoTime();
+        for (int i = 0; i < OPS; i++) {
+            for (String s : samples) sink = fn.apply(s);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c < 32 || c > 126) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    // The regex implementations InputSanitizer and PasswordManager used before the rewrite
+    static class Legacy {
+        static Result<String, String> sanitizeString(String input) {
+            if (input == null) return Result.err("Input cannot be null");
+            String s = input.replaceAll("[\\'\"\\\\;]", "");
+            s = s.replaceAll("<.*?>", "");
+            s = s.replaceAll("[;&|`$()]", "");
+            return Result.ok(s.trim());
+        }
+
+        static Result<Boolean, String> validateEmail(String email) {
+            if (email == null || email.trim().isEmpty()) return Result.err("Email cannot be empty");
+            if (!email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$")) return Result.err("Invalid email format");
+            return Result.ok(true);
+        }
+
+        static Result<Boolean, String> validatePhone(String phone) {
+            if (phone == null || phone.trim().isEmpty()) return Result.err("Phone cannot be empty");
+            if (!phone.matches("^[+]?[(]?[0-9]{3}[)]?[-\\s.]?[0-9]{3}[-\\s.]?[0-9]{4,6}$")) return Result.err("Invalid phone format");
+            return Result.ok(true);
+        }
+
+        static Result<Boolean, String> validateUsername(String username) {
+            if (username == null || username.trim().isEmpty()) return Result.err("Username cannot be empty");
+            if (!username.matches("^[a-zA-Z0-9_]{3,20}$")) return Result.err("Username must be 3-20 alphanumeric/_");
+            return Result.ok(true);
+        }
+
+        // The original special-character class had an unescaped '[' and threw
+        // PatternSyntaxException; this is the class it was meant to be.
+        static Result<Boolean, String> validatePasswordStrength(String password) {
+            if (password == null) return Result.err("Password cannot be null");
+            if (password.length() < 8) return Result.err("Password must be at least 8 chars");
+            if (!password.matches(".*[A-Z].*")) return Result.err("Must contain uppercase");
+            if (!password.matches(".*[a-z].*")) return Result.err("Must contain lowercase");
+            if (!password.matches(".*\\d.*")) return Result.err("Must contain digit");
+            if (!password.matches(".*[!@#$%^&*()_+\\-=\\[\\]{};':\"|,.<>/?].*")) return Result.err("Must contain special char");
+            return Result.ok(true);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.delivery.bench;
+
+import com.delivery.Main;
+import com.delivery.metrics.LatencyHistogram;
+import com.delivery.util.EnvLoader;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * Open-loop HTTP load test against the real server stack (Main + controllers + JDBC).
+ *
+ * Usage: java -cp bin;bench-bin;lib\* com.delivery.bench.LoadTest [options]
+ *   --boot                 start Main in this JVM (otherwise --target must point at a running server)
+ *   --target URL           server to drive (default http://localhost:8081, or the booted server)
+ *   --port N               port for --boot (default 18081)
+ *   --db-name NAME         database the booted server uses (default delivery_loadtest)
+ *   --load-schema          drop and recreate --db-name from database/schema.sql first
+ *   --rate a=n,b=n         requests/second per scenario (default login=20,track=100,status=20,assign=2)
+ *   --duration S           measured seconds (default 60), after --warmup S (default 10)
+ *   --max-outstanding N    client-side cap on in-flight requests (default 2000)
+ *   --tracking A,B,...     tracking numbers for the track scenario (default: the schema.sql seed rows)
+ *
+ * Scenarios: login (credential checks for the seeded users), track (public tracking lookups),
+ * status (driver delivery-status updates), assign (manager route assignment).
+ *
+ * Requests are issued on a fixed schedule regardless of how fast responses come back, and
+ * latency is measured from the scheduled send time, so a stalled server shows up as queueing
+ * delay instead of silently lowering the offered load. Requests that would exceed
+ * --max-outstanding are counted as "dropped" rather than delayed.
+ *
+ * There is no embedded MySQL or H2 on this project's classpath. --load-schema instead builds a
+ * throwaway schema (never delivery_system) on the MySQL server from .env, and DB_* settings
+ * can be overridden with -D flags, e.g. -DDB_HOST=127.0.0.1 -DDB_PORT=3307 for a local container.
+ */
+public class LoadTest {
+    private static final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private static final String[][] SEEDED_USERS = {
+        {"customer1", "cust123"}, {"driver1", "driver123"}, {"manager1", "mgr123"}, {"admin", "admin123"}
+    };
+    private static final String[] SEEDED_TRACKING = {
+        "PKG1234567890", "PKG2345678901", "PKG3456789012", "PKG4567890123",
+        "PKG5678901234", "PKG6789012345", "PKG7890123456"
+    };
+    private static final String[] STATUSES = {"in_transit", "out_for_delivery", "at_facility"};
+
+    private static final AtomicInteger outstanding = new AtomicInteger();
+    private static volatile boolean recording = false;
+
+    /**
+     * Per-scenario counters; latency in microseconds from scheduled send to response.
+     */
+    static class ScenarioStats {
+        final String name;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder sent = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final AtomicLong maxMicros = new AtomicLong();
+        final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+        ScenarioStats(String name) { this.name = name; }
+
+        void record(String outcome, long latencyNanos) {
+            latency.recordNanos(latencyNanos);
+            long micros = latencyNanos / 1000;
+            long max = maxMicros.get();
+            while (micros > max && !maxMicros.compareAndSet(max, micros)) max = maxMicros.get();
+            outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean boot = false;
+        boolean loadSchema = false;
+        String target = null;
+        int port = 18081;
+        String dbName = "delivery_loadtest";
+        String rates = "login=20,track=100,status=20,assign=2";
+        int durationSeconds = 60;
+        int warmupSeconds = 10;
+        int maxOutstanding = 2000;
+        String[] tracking = SEEDED_TRACKING;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--boot": boot = true; break;
+                case "--load-schema": loadSchema = true; break;
+                case "--target": target = args[++i]; break;
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--db-name": dbName = args[++i]; break;
+                case "--rate": rates = args[++i]; break;
+                case "--duration": durationSeconds = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmupSeconds = Integer.parseInt(args[++i]); break;
+                case "--max-outstanding": maxOutstanding = Integer.parseInt(args[++i]); break;
+                case "--tracking": tracking = args[++i].split(","); break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        if (boot) {
+            if (dbName.equals("delivery_system")) {
+                System.err.println("Refusing to load-test the main delivery_system database; pick another --db-name");
+                System.exit(2);
+            }
+            if (loadSchema) loadSchema(dbName);
+            // EnvLoader checks system properties first, so the booted server uses these
+            System.setProperty("DB_NAME", dbName);
+            System.setProperty("SERVER_PORT", String.valueOf(port));
+            Main.main(new String[0]);
+            if (target == null) target = "http://localhost:" + port;
+        } else if (loadSchema) {
+            System.err.println("--load-schema only makes sense with --boot");
+            System.exit(2);
+        }
+        if (target == null) target = "http://localhost:8081";
+
+        String driverToken = login(target, "driver1", "driver123");
+        String managerToken = login(target, "manager1", "mgr123");
+        if (driverToken == null || managerToken == null) {
+            System.err.println("Could not log in the seeded driver1/manager1 users; is the schema loaded?");
+            System.exit(1);
+        }
+
+        final String base = target;
+        final String[] trackingNumbers = tracking;
+        final String routeDate = LocalDate.now().plusDays(1).toString();
+        Map<String, IntFunction<HttpRequest>> scenarios = new LinkedHashMap<>();
+        scenarios.put("login", n -> {
+            String[] user = SEEDED_USERS[n % SEEDED_USERS.length];
+            return post(base + "/api/login", null,
+                "{\"username\":\"" + user[0] + "\",\"password\":\"" + user[1] + "\"}");
+        });
+        scenarios.put("track", n -> HttpRequest.newBuilder(
+                URI.create(base + "/api/trackPackages?trackingNumber=" + trackingNumbers[n % trackingNumbers.length]))
+            .timeout(Duration.ofSeconds(30)).GET().build());
+        scenarios.put("status", n -> post(base + "/api/driver/status", driverToken,
+            "{\"packageId\":\"" + (1 + n % SEEDED_TRACKING.length) + "\",\"status\":\"" + STATUSES[n % STATUSES.length]
+                + "\",\"location\":\"Load test\",\"notes\":\"load test update " + n + "\"}"));
+        scenarios.put("assign", n -> post(base + "/api/management/assign-routes", managerToken,
+            "{\"driverId\":\"2\",\"facilityId\":\"" + (1 + n % 3) + "\",\"routeName\":\"LT-" + n
+                + "\",\"routeDate\":\"" + routeDate + "\",\"estimatedDurationMinutes\":\"120\",\"packageIds\":\""
+                + (1 + n % SEEDED_TRACKING.length) + "\"}"));
+
+        Map<String, Double> rateByScenario = parseRates(rates, scenarios.keySet());
+        final int outstandingLimit = maxOutstanding;
+        List<ScenarioStats> allStats = new ArrayList<>();
+        List<Thread> drivers = new ArrayList<>();
+        long startNanos = System.nanoTime() + 100_000_000L;
+        long endNanos = startNanos + (warmupSeconds + (long) durationSeconds) * 1_000_000_000L;
+        for (Map.Entry<String, Double> e : rateByScenario.entrySet()) {
+            ScenarioStats stats = new ScenarioStats(e.getKey());
+            allStats.add(stats);
+            Thread t = new Thread(() -> drive(scenarios.get(stats.name), e.getValue(), stats,
+                startNanos, endNanos, outstandingLimit), "load-" + stats.name);
+            t.setDaemon(true);
+            drivers.add(t);
+        }
+
+        System.out.println("Target " + target + ", rates " + rateByScenario + " req/s, warmup "
+            + warmupSeconds + "s, measuring " + durationSeconds + "s");
+        for (Thread t : drivers) t.start();
+        LockSupport.parkNanos(startNanos + warmupSeconds * 1_000_000_000L - System.nanoTime());
+        recording = true;
+        for (Thread t : drivers) t.join();
+
+        // Let in-flight requests finish (bounded) so their latencies count
+        long drainUntil = System.nanoTime() + 30_000_000_000L;
+        while (outstanding.get() > 0 && System.nanoTime() < drainUntil) Thread.sleep(50);
+
+        report(allStats, durationSeconds);
+        System.exit(0);
+    }
+
+    // Fixed-rate schedule; each send is asynchronous so slow responses never delay the next one
+    private static void drive(IntFunction<HttpRequest> scenario, double rate, ScenarioStats stats,
+                              long startNanos, long endNanos, int maxOutstanding) {
+        long interval = (long) (1_000_000_000L / rate);
+        long next = startNanos;
+        int n = 0;
+        while (next < endNanos) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            final long scheduled = next;
+            next += interval;
+            n++;
+            // Only requests scheduled inside the measurement window count, whenever they complete
+            final boolean measured = recording;
+            if (measured) stats.sent.increment();
+            if (outstanding.incrementAndGet() > maxOutstanding) {
+                outstanding.decrementAndGet();
+                if (measured) stats.dropped.increment();
+                continue;
+            }
+            HttpRequest request = scenario.apply(n);
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((resp, err) -> {
+                outstanding.decrementAndGet();
+                if (!measured) return;
+                long latency = System.nanoTime() - scheduled;
+                if (err != null) {
+                    Throwable cause = err.getCause() != null ? err.getCause() : err;
+                    stats.record(cause.getClass().getSimpleName(), latency);
+                } else {
+                    stats.record(String.valueOf(resp.statusCode()), latency);
+                }
+            });
+        }
+    }
+
+    private static void report(List<ScenarioStats> allStats, int durationSeconds) {
+        System.out.println();
+        System.out.println(String.format("%-8s %8s %8s %8s %9s %9s %9s %9s %9s  %s",
+            "scenario", "sent", "rps", "dropped", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "outcomes"));
+        for (ScenarioStats s : allStats) {
+            Map<String, Long> outcomes = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> e : s.outcomes.entrySet()) outcomes.put(e.getKey(), e.getValue().sum());
+            System.out.println(String.format("%-8s %8d %8.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f  %s",
+                s.name, s.sent.sum(), s.latency.getCount() / (double) durationSeconds, s.dropped.sum(),
+                s.latency.quantileMicros(0.50) / 1000.0, s.latency.quantileMicros(0.90) / 1000.0,
+                s.latency.quantileMicros(0.99) / 1000.0, s.latency.quantileMicros(0.999) / 1000.0,
+                s.maxMicros.get() / 1000.0, outcomes));
+        }
+        System.out.println("Latency is measured from the scheduled send time (includes client-side queueing).");
+    }
+
+    private static Map<String, Double> parseRates(String spec, Set<String> known) {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2 || !known.contains(kv[0])) {
+                throw new IllegalArgumentException("Bad rate '" + part + "', expected one of " + known + " as name=rps");
+            }
+            double rps = Double.parseDouble(kv[1]);
+            if (rps > 0) rates.put(kv[0], rps);
+        }
+        return rates;
+    }
+
+    private static HttpRequest post(String url, String token, String json) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) b.header("Authorization", "Bearer " + token);
+        return b.build();
+    }
+
+    private static String login(String base, String username, String password) throws Exception {
+        HttpResponse<String> resp = client.send(post(base + "/api/login", null,
+            "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"), HttpResponse.BodyHandlers.ofString());
+        if (resp.statusCode() != 200) return null;
+        String body = resp.body();
+        int i = body.indexOf("\"token\":\"");
+        if (i < 0) return null;
+        int start = i + 9;
+        return body.substring(start, body.indexOf('"', start));
+    }
+
+    // Recreate the schema under another database name, using the DB_* connection settings
+    private static void loadSchema(String dbName) throws Exception {
+        Path schema = Paths.get("database", "schema.sql");
+        if (!Files.exists(schema)) schema = Paths.get("..", "database", "schema.sql");
+        String sql = new String(Files.readAllBytes(schema), StandardCharsets.UTF_8)
+            .replace("delivery_system", dbName);
+
+        String url = "jdbc:mysql://" + EnvLoader.get("DB_HOST").unwrapOr("localhost") + ":"
+            + EnvLoader.get("DB_PORT").unwrapOr("3306") + "/?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true";
+        try (Connection conn = DriverManager.getConnection(url, EnvLoader.get("DB_USER").unwrapOr("root"),
+                EnvLoader.get("DB_PASSWORD").unwrapOr(""));
+             Statement stmt = conn.createStatement()) {
+            int count = 0;
+            for (String statement : splitStatements(sql)) {
+                stmt.execute(statement);
+                count++;
+            }
+            System.out.println("Loaded " + schema + " into " + dbName + " (" + count + " statements)");
+        }
+    }
+
+    // schema.sql has no procedures or DELIMITER blocks: statements end with ';' outside quotes
+    private static List<String> splitStatements(String sql) {
+        List<String> out = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (String line : sql.split("\n")) {
+            String trimmed = line.trim();
+            if (!quoted && (trimmed.startsWith("--") || trimmed.isEmpty())) continue;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '\'') quoted = !quoted;
+                if (c == ';' && !quoted) {
+                    String s = current.toString().trim();
+                    if (!s.isEmpty()) out.add(s);
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            current.append('\n');
+        }
+        String tail = current.toString().trim();
+        if (!tail.isEmpty()) out.add(tail);
+        return out;
+    }
+}
@@ -0,0 +1,229 @@
+package com.delivery.bench;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Small average-time micro-benchmark harness (the subset of JMH this project needs, without a
+ * build tool). Each benchmark gets time-boxed warmup and measurement iterations, optionally on
+ * several threads at once; results are written in JMH's JSON result format so a saved baseline
+ * can be diffed here or with any JMH result viewer.
+ *
+ * Not a substitute for JMH's forked, isolated runs: run on a quiet machine and compare against a
+ * baseline taken on the same host.
+ */
+public class MicroHarness {
+
+    /**
+     * Benchmark body. The argument is a per-thread invocation counter for cycling inputs;
+     * the return value is consumed so the JIT cannot drop the work.
+     */
+    public interface Op {
+        Object run(int i) throws Throwable;
+    }
+
+    public static class Config {
+        int warmupIterations = 5;
+        int measurementIterations = 5;
+        long warmupMillis = 200;
+        long measurementMillis = 500;
+
+        static Config quick() {
+            Config c = new Config();
+            c.warmupIterations = 2;
+            c.measurementIterations = 3;
+            c.warmupMillis = 100;
+            c.measurementMillis = 200;
+            return c;
+        }
+    }
+
+    public static class Score {
+        public final String benchmark;
+        public final int threads;
+        public final double score;
+        public final double error;
+        final double[] samples;
+        final Config config;
+
+        Score(String benchmark, int threads, double score, double error, double[] samples, Config config) {
+            this.benchmark = benchmark;
+            this.threads = threads;
+            this.score = score;
+            this.error = error;
+            this.samples = samples;
+            this.config = config;
+        }
+    }
+
+    // Blackhole: results are compared against a volatile that never matches, which the JIT cannot fold
+    private static volatile Object marker = new Object();
+    private static volatile Object sink;
+    // Captured at startup so results still print while a benchmark silences System.out
+    private static final PrintStream console = System.out;
+
+    /**
+     * Measure average time per operation in nanoseconds.
+     * @param threads Number of threads running the op concurrently (contention benchmarks)
+     */
+    public static Score measure(String name, int threads, Config config, Op op) throws Exception {
+        for (int w = 0; w < config.warmupIterations; w++) {
+            runIteration(threads, config.warmupMillis, op);
+        }
+        double[] samples = new double[config.measurementIterations];
+        for (int m = 0; m < config.measurementIterations; m++) {
+            samples[m] = runIteration(threads, config.measurementMillis, op);
+        }
+
+        double mean = 0;
+        for (double s : samples) mean += s;
+        mean /= samples.length;
+        double var = 0;
+        for (double s : samples) var += (s - mean) * (s - mean);
+        double stddev = samples.length > 1 ? Math.sqrt(var / (samples.length - 1)) : 0;
+        // 99.9% interval, normal approximation
+        double error = 3.29 * stddev / Math.sqrt(samples.length);
+
+        Score score = new Score(name, threads, mean, error, samples, config);
+        console.println(String.format("%-48s %3dt %12.1f +- %8.1f ns/op", name, threads, mean, error));
+        return score;
+    }
+
+    // One time-boxed iteration; returns ns/op as seen by each thread
+    private static double runIteration(int threads, long millis, Op op) throws Exception {
+        long[] ops = new long[threads];
+        long[] nanos = new long[threads];
+        Throwable[] failure = new Throwable[1];
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            Thread worker = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                    long deadline = System.nanoTime() + millis * 1_000_000L;
+                    long start = System.nanoTime();
+                    long n = 0;
+                    int i = id * 1_000_003;
+                    Object m = marker;
+                    long now;
+                    do {
+                        // Check the clock once per batch so nanoTime does not dominate cheap ops
+                        for (int b = 0; b < 64; b++) {
+                            Object r = op.run(i++);
+                            if (r == m) sink = r;
+                        }
+                        n += 64;
+                        now = System.nanoTime();
+                    } while (now < deadline);
+                    ops[id] = n;
+                    nanos[id] = now - start;
+                } catch (Throwable e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            }, "bench-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        ready.await();
+        go.countDown();
+        for (Thread w : workers) w.join();
+        if (failure[0] != null) throw new IllegalStateException("Benchmark op failed", failure[0]);
+
+        double total = 0;
+        for (int t = 0; t < threads; t++) total += (double) nanos[t] / ops[t];
+        return total / threads;
+    }
+
+    /**
+     * Write scores as a JMH-style JSON result array.
+     */
+    public static void writeJson(List<Score> scores, Path file) throws IOException {
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int i = 0; i < scores.size(); i++) {
+            Score s = scores.get(i);
+            sb.append("  {\n");
+            sb.append("    \"benchmark\" : \"").append(s.benchmark).append("\",\n");
+            sb.append("    \"mode\" : \"avgt\",\n");
+            sb.append("    \"threads\" : ").append(s.threads).append(",\n");
+            sb.append("    \"forks\" : 1,\n");
+            sb.append("    \"jvm\" : \"").append(jsonEscape(System.getProperty("java.home"))).append("\",\n");
+            sb.append("    \"jdkVersion\" : \"").append(System.getProperty("java.version")).append("\",\n");
+            sb.append("    \"warmupIterations\" : ").append(s.config.warmupIterations).append(",\n");
+            sb.append("    \"warmupTime\" : \"").append(s.config.warmupMillis).append(" ms\",\n");
+            sb.append("    \"measurementIterations\" : ").append(s.config.measurementIterations).append(",\n");
+            sb.append("    \"measurementTime\" : \"").append(s.config.measurementMillis).append(" ms\",\n");
+            sb.append("    \"primaryMetric\" : {\n");
+            sb.append("      \"score\" : ").append(round(s.score)).append(",\n");
+            sb.append("      \"scoreError\" : ").append(round(s.error)).append(",\n");
+            sb.append("      \"scoreUnit\" : \"ns/op\",\n");
+            sb.append("      \"rawData\" : [ [ ");
+            for (int j = 0; j < s.samples.length; j++) {
+                if (j > 0) sb.append(", ");
+                sb.append(round(s.samples[j]));
+            }
+            sb.append(" ] ]\n");
+            sb.append("    }\n");
+            sb.append(i < scores.size() - 1 ? "  },\n" : "  }\n");
+        }
+        sb.append("]\n");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read benchmark -> score from a JSON file written by writeJson (or by JMH with -rf json).
+     */
+    public static Map<String, Double> readScores(Path file) throws IOException {
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Map<String, Double> scores = new HashMap<>();
+        int pos = 0;
+        while (true) {
+            int b = json.indexOf("\"benchmark\"", pos);
+            if (b < 0) break;
+            int q1 = json.indexOf('"', json.indexOf(':', b) + 1);
+            int q2 = json.indexOf('"', q1 + 1);
+            String name = json.substring(q1 + 1, q2);
+            int t = json.indexOf("\"threads\"", q2);
+            int s = json.indexOf("\"score\"", q2);
+            if (s < 0) break;
+            int threads = 1;
+            if (t >= 0 && t < s) threads = Integer.parseInt(numberAfter(json, t));
+            scores.put(key(name, threads), Double.parseDouble(numberAfter(json, s)));
+            pos = s;
+        }
+        return scores;
+    }
+
+    static String key(String benchmark, int threads) {
+        return threads == 1 ? benchmark : benchmark + "@" + threads + "t";
+    }
+
+    private static String numberAfter(String json, int fieldPos) {
+        int i = json.indexOf(':', fieldPos) + 1;
+        while (Character.isWhitespace(json.charAt(i))) i++;
+        int j = i;
+        while (j < json.length() && "+-.0123456789eE".indexOf(json.charAt(j)) >= 0) j++;
+        return json.substring(i, j);
+    }
+
+    private static String round(double v) {
+        return String.format(Locale.ROOT, "%.3f", v);
+    }
+
+    private static String jsonEscape(String s) {
+        return s == null ? "" : s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
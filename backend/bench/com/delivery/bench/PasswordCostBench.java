@@ -0,0 +1,80 @@
+package com.delivery.bench;
+
+import com.delivery.util.PasswordUtil;
+import com.delivery.util.Result;
+
+import java.util.Arrays;
+
+/**
+ * Picks a PBKDF2 iteration count that hits a target verification latency on this host.
+ *
+ * Starts from a small cost, doubles until a single verification exceeds the target, then
+ * narrows the range and prints the value to put in PASSWORD_PBKDF2_ITERATIONS. Also checks
+ * that the legacy schema.sql hashes still verify through PasswordUtil.
+ *
+ * Usage: java -cp bin;bench-bin com.delivery.bench.PasswordCostBench [targetMillis]
+ */
+public class PasswordCostBench {
+
+    private static final String PASSWORD = "Correct-Horse-9";
+    private static final String SALT = PasswordUtil.generateSalt();
+
+    public static void main(String[] args) {
+        double targetMs = args.length > 0 ? Double.parseDouble(args[0]) : 250.0;
+
+        // customer1 / cust123 from schema.sql
+        Result<Boolean, String> legacy = PasswordUtil.verifyPassword("cust123", "6229fb329c71be1f7b5a09098d9b7ee9",
+            "89aef0b5cf9f99948b628f896b389b0716a49a28f25d8bcd54ca8a23c9f57231");
+        if (legacy.isErr() || !legacy.unwrap()) {
+            System.err.println("Legacy SHA-256 hash did not verify");
+            System.exit(1);
+        }
+
+        System.out.println("Target: " + targetMs + " ms per verification, "
+            + Runtime.getRuntime().availableProcessors() + " cores");
+
+        // Warm up the PBKDF2 code path
+        PasswordUtil.setIterations(10_000);
+        for (int i = 0; i < 20; i++) measure();
+
+        int low = 10_000;
+        int high = low;
+        while (true) {
+            PasswordUtil.setIterations(high);
+            double ms = measure();
+            System.out.printf("  %,10d iterations  %8.1f ms%n", high, ms);
+            if (ms >= targetMs || high >= 100_000_000) break;
+            low = high;
+            high *= 2;
+        }
+
+        // Binary search between the last cost under target and the first one over it
+        while (high - low > Math.max(1_000, low / 50)) {
+            int mid = low + (high - low) / 2;
+            PasswordUtil.setIterations(mid);
+            double ms = measure();
+            System.out.printf("  %,10d iterations  %8.1f ms%n", mid, ms);
+            if (ms < targetMs) low = mid; else high = mid;
+        }
+
+        // Round down to a whole thousand so the value is easy to read in .env
+        int recommended = Math.max(1_000, (low / 1_000) * 1_000);
+        System.out.println();
+        System.out.println("PASSWORD_PBKDF2_ITERATIONS=" + recommended);
+    }
+
+    // Median of several verifications at the current cost
+    private static double measure() {
+        Result<String, String> hash = PasswordUtil.hashPassword(PASSWORD, SALT);
+        if (hash.isErr()) throw new IllegalStateException(hash.unwrapErr());
+        double[] samples = new double[5];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            Result<Boolean, String> ok = PasswordUtil.verifyPassword(PASSWORD, SALT, hash.unwrap());
+            samples[i] = (System.nanoTime() - start) / 1_000_000.0;
+            if (ok.isErr() || !ok.unwrap()) throw new IllegalStateException("PBKDF2 round trip failed");
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
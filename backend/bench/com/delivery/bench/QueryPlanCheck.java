@@ -0,0 +1,670 @@
+package com.delivery.bench;
+
+import com.delivery.util.EnvLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Query plan regression check: pulls every SQL statement out of the DAO and controller sources,
+ * runs EXPLAIN FORMAT=JSON on each against a seeded database and fails on plans that scan or
+ * sort more rows than the thresholds allow.
+ *
+ * Usage: java -cp bin;bench-bin;lib\* com.delivery.bench.QueryPlanCheck [options]
+ *   --src DIR            source tree to scan (default backend/src, or src when run from backend)
+ *   --db-name NAME       database to EXPLAIN against (default delivery_loadtest)
+ *   --max-scan-rows N    full table / full index scans estimated above N rows fail (default 1000)
+ *   --max-sort-rows N    filesorts and temporary tables over more than N rows fail (default 10000)
+ *   --list               print the extracted statements and exit (no database needed)
+ *   --verbose            print each plan's JSON
+ *
+ * Seed the database first so the optimizer sees realistic row counts, e.g.
+ *   DataGenerator --packages 1000000 --load   (after LoadTest --boot --load-schema, or schema.sql)
+ * Small seed data makes every plan look cheap and proves nothing.
+ *
+ * Statements are found by scanning string literals: a concatenation of literals and static
+ * final String constants that starts with SELECT, UPDATE or DELETE is a statement, and literal
+ * fragments later added with "+=" or append() on the same variable are included, as is the
+ * longer branch of a parenthesised ternary (so optional filters are checked switched on).
+ * Statements that splice in other runtime values (column names, joined SET lists) are listed
+ * as skipped. INSERT ... VALUES statements have no plan to check.
+ *
+ * Each "?" is bound to a real value from the column it is compared with (first non-null row),
+ * LIMIT/OFFSET placeholders to 50 and 0. Exit status is 1 when any plan fails.
+ */
+public class QueryPlanCheck {
+
+    // Plans that are expensive on purpose: "File.java" + statement prefix -> reason
+    static final Map<String, String> ALLOWED = new LinkedHashMap<>();
+    static {
+        ALLOWED.put("AdminController.java|SELECT user_id, username, email, phone, full_name, role,",
+            "admin user list returns every account");
+        ALLOWED.put("RouteDAO.java|SELECT p.package_id, p.tracking_number, p.weight_kg, p.fragile,",
+            "route generation sorts a facility's waiting parcels by delivery ZIP");
+    }
+
+    static final Pattern SQL_START = Pattern.compile("^\\s*(SELECT|UPDATE|DELETE|INSERT)\\s");
+
+    static final class Statement {
+        final String file;
+        final int line;
+        final String sql;
+        final String skipReason;
+
+        Statement(String file, int line, String sql, String skipReason) {
+            this.file = file;
+            this.line = line;
+            this.sql = sql;
+            this.skipReason = skipReason;
+        }
+
+        String where() { return file + ":" + line; }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path src = Files.isDirectory(Paths.get("backend", "src")) ? Paths.get("backend", "src") : Paths.get("src");
+        String dbName = "delivery_loadtest";
+        long maxScanRows = 1000;
+        long maxSortRows = 10000;
+        boolean list = false;
+        boolean verbose = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--src": src = Paths.get(args[++i]); break;
+                case "--db-name": dbName = args[++i]; break;
+                case "--max-scan-rows": maxScanRows = Long.parseLong(args[++i]); break;
+                case "--max-sort-rows": maxSortRows = Long.parseLong(args[++i]); break;
+                case "--list": list = true; break;
+                case "--verbose": verbose = true; break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        List<Statement> statements = extract(src);
+        if (list) {
+            for (Statement s : statements) {
+                System.out.println(s.where() + (s.skipReason != null ? "  [skip: " + s.skipReason + "]" : ""));
+                System.out.println("    " + s.sql);
+            }
+            System.out.println(statements.size() + " statements");
+            return;
+        }
+
+        String url = "jdbc:mysql://" + EnvLoader.get("DB_HOST").unwrapOr("localhost") + ":"
+            + EnvLoader.get("DB_PORT").unwrapOr("3306") + "/" + dbName
+            + "?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true";
+        int failed = 0, passed = 0, skipped = 0, allowed = 0;
+        try (Connection conn = DriverManager.getConnection(url, EnvLoader.get("DB_USER").unwrapOr("root"),
+                EnvLoader.get("DB_PASSWORD").unwrapOr(""))) {
+            Binder binder = new Binder(conn);
+            for (Statement s : statements) {
+                if (s.skipReason != null) {
+                    skipped++;
+                    System.out.println("SKIP  " + s.where() + "  " + s.skipReason);
+                    continue;
+                }
+                String plan;
+                try {
+                    plan = explain(conn, binder, s.sql);
+                } catch (SQLException e) {
+                    failed++;
+                    System.out.println("FAIL  " + s.where() + "  EXPLAIN failed: " + e.getMessage());
+                    System.out.println("      " + s.sql);
+                    continue;
+                }
+                if (verbose) System.out.println(plan);
+
+                List<String> problems = new ArrayList<>();
+                inspect(Json.parse(plan), maxScanRows, maxSortRows, problems);
+                String allowance = allowance(s);
+                if (problems.isEmpty()) {
+                    passed++;
+                    System.out.println("ok    " + s.where());
+                } else if (allowance != null) {
+                    allowed++;
+                    System.out.println("allow " + s.where() + "  " + String.join("; ", problems) + " (" + allowance + ")");
+                } else {
+                    failed++;
+                    System.out.println("FAIL  " + s.where() + "  " + String.join("; ", problems));
+                    System.out.println("      " + s.sql);
+                }
+            }
+        }
+        System.out.println(String.format("%d ok, %d allowed, %d skipped, %d failed", passed, allowed, skipped, failed));
+        if (failed > 0) System.exit(1);
+    }
+
+    static String allowance(Statement s) {
+        for (Map.Entry<String, String> e : ALLOWED.entrySet()) {
+            String[] key = e.getKey().split("\\|", 2);
+            if (s.file.equals(key[0]) && s.sql.startsWith(key[1])) return e.getValue();
+        }
+        return null;
+    }
+
+    // ---- Plan inspection ----
+
+    /**
+     * Walk an EXPLAIN FORMAT=JSON tree: a "table" node with access_type ALL (table scan) or
+     * index (full index scan) over more than maxScanRows fails, as does a filesort or temporary
+     * table under an ordering/grouping/distinct node whose input exceeds maxSortRows.
+     */
+    @SuppressWarnings("unchecked")
+    static void inspect(Object node, long maxScanRows, long maxSortRows, List<String> problems) {
+        if (node instanceof List) {
+            for (Object o : (List<Object>) node) inspect(o, maxScanRows, maxSortRows, problems);
+            return;
+        }
+        if (!(node instanceof Map)) return;
+        Map<String, Object> map = (Map<String, Object>) node;
+
+        Object table = map.get("table");
+        if (table instanceof Map) {
+            Map<String, Object> t = (Map<String, Object>) table;
+            String access = String.valueOf(t.get("access_type"));
+            long rows = number(t.get("rows_examined_per_scan"));
+            if (("ALL".equals(access) || "index".equals(access)) && rows > maxScanRows) {
+                problems.add(("ALL".equals(access) ? "full scan of " : "full index scan of ")
+                    + t.get("table_name") + " (~" + rows + " rows)");
+            }
+        }
+        if (Boolean.TRUE.equals(map.get("using_filesort")) || Boolean.TRUE.equals(map.get("using_temporary_table"))) {
+            long rows = maxRowsProduced(map);
+            if (rows > maxSortRows) {
+                problems.add((Boolean.TRUE.equals(map.get("using_filesort")) ? "filesort" : "temporary table")
+                    + " over ~" + rows + " rows");
+            }
+        }
+        for (Object child : map.values()) inspect(child, maxScanRows, maxSortRows, problems);
+    }
+
+    @SuppressWarnings("unchecked")
+    static long maxRowsProduced(Object node) {
+        long max = 0;
+        if (node instanceof List) {
+            for (Object o : (List<Object>) node) max = Math.max(max, maxRowsProduced(o));
+        } else if (node instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) node;
+            max = number(map.get("rows_produced_per_join"));
+            for (Object child : map.values()) max = Math.max(max, maxRowsProduced(child));
+        }
+        return max;
+    }
+
+    static long number(Object o) {
+        if (o instanceof Number) return ((Number) o).longValue();
+        if (o instanceof String) {
+            try { return (long) Double.parseDouble((String) o); } catch (NumberFormatException e) { return 0; }
+        }
+        return 0;
+    }
+
+    static String explain(Connection conn, Binder binder, String sql) throws SQLException {
+        // Locking clauses change nothing in the plan
+        String explainable = sql.replaceAll("(?i)\\s+FOR\\s+UPDATE\\s*$", "");
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN FORMAT=JSON " + explainable)) {
+            List<Object> values = binder.bind(explainable);
+            for (int i = 0; i < values.size(); i++) stmt.setObject(i + 1, values.get(i));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : "{}";
+            }
+        }
+    }
+
+    // ---- Parameter binding ----
+
+    /**
+     * Picks a value for each placeholder from the column it is compared with, so the optimizer
+     * estimates with data that exists (an id that matches nothing would make every plan look free).
+     */
+    static final class Binder {
+        static final Pattern TABLE_REF = Pattern.compile(
+            "\\b(?:FROM|JOIN|UPDATE|INTO)\\s+(\\w+)(?:\\s+(?:AS\\s+)?(\\w+))?", Pattern.CASE_INSENSITIVE);
+        static final Pattern COMPARED = Pattern.compile(
+            "([\\w.]+)\\s*(?:=|<>|!=|<=|>=|<|>|\\bLIKE)\\s*$", Pattern.CASE_INSENSITIVE);
+        static final Pattern IN_LIST = Pattern.compile(
+            "([\\w.]+)\\s+(?:NOT\\s+)?IN\\s*\\((?:\\s*\\?\\s*,)*\\s*$", Pattern.CASE_INSENSITIVE);
+        static final Pattern BETWEEN = Pattern.compile(
+            "([\\w.]+)\\s+BETWEEN\\s+(?:\\?\\s+AND\\s+)?$", Pattern.CASE_INSENSITIVE);
+        static final Pattern LIMIT = Pattern.compile("\\b(LIMIT|OFFSET)\\s*(?:\\?\\s*,\\s*)?$", Pattern.CASE_INSENSITIVE);
+        static final java.util.Set<String> NOT_ALIASES = new java.util.HashSet<>(java.util.Arrays.asList(
+            "WHERE", "ON", "SET", "JOIN", "LEFT", "RIGHT", "INNER", "OUTER", "CROSS", "ORDER", "GROUP",
+            "LIMIT", "VALUES", "USING", "HAVING", "FOR", "AND", "OR"));
+
+        private final Connection conn;
+        // table -> column names, from information_schema
+        private final Map<String, List<String>> columns = new HashMap<>();
+        private final Map<String, Object> samples = new HashMap<>();
+
+        Binder(Connection conn) throws SQLException {
+            this.conn = conn;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT table_name, column_name FROM information_schema.columns " +
+                    "WHERE table_schema = DATABASE() ORDER BY table_name, ordinal_position");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    columns.computeIfAbsent(rs.getString(1).toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                        .add(rs.getString(2).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+
+        List<Object> bind(String sql) throws SQLException {
+            Map<String, String> aliases = new LinkedHashMap<>();
+            Matcher t = TABLE_REF.matcher(sql);
+            while (t.find()) {
+                String table = t.group(1).toLowerCase(Locale.ROOT);
+                aliases.putIfAbsent(table, table);
+                String alias = t.group(2);
+                if (alias != null && !NOT_ALIASES.contains(alias.toUpperCase(Locale.ROOT))) {
+                    aliases.putIfAbsent(alias.toLowerCase(Locale.ROOT), table);
+                }
+            }
+
+            List<Object> values = new ArrayList<>();
+            for (int i = sql.indexOf('?'); i >= 0; i = sql.indexOf('?', i + 1)) {
+                String before = sql.substring(0, i);
+                Matcher m = LIMIT.matcher(before);
+                if (m.find()) {
+                    values.add("LIMIT".equalsIgnoreCase(m.group(1)) ? 50 : 0);
+                    continue;
+                }
+                String column = null;
+                for (Pattern p : new Pattern[] {COMPARED, IN_LIST, BETWEEN}) {
+                    m = p.matcher(before);
+                    if (m.find()) { column = m.group(1); break; }
+                }
+                values.add(column == null ? "1" : sample(column, aliases));
+            }
+            return values;
+        }
+
+        private Object sample(String column, Map<String, String> aliases) throws SQLException {
+            String col = column.toLowerCase(Locale.ROOT);
+            String table = null;
+            int dot = col.indexOf('.');
+            if (dot >= 0) {
+                table = aliases.get(col.substring(0, dot));
+                col = col.substring(dot + 1);
+            } else {
+                for (String candidate : aliases.values()) {
+                    if (columns.getOrDefault(candidate, List.of()).contains(col)) { table = candidate; break; }
+                }
+            }
+            if (table == null || !columns.getOrDefault(table, List.of()).contains(col)) return "1";
+
+            String key = table + "." + col;
+            if (!samples.containsKey(key)) {
+                Object value = "1";
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT `" + col + "` FROM `" + table + "` WHERE `" + col + "` IS NOT NULL LIMIT 1");
+                     ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) value = rs.getObject(1);
+                }
+                samples.put(key, value);
+            }
+            return samples.get(key);
+        }
+    }
+
+    // ---- Statement extraction ----
+
+    static List<Statement> extract(Path src) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(src)) {
+            files = walk.filter(p -> p.toString().endsWith(".java"))
+                .filter(p -> {
+                    String dir = p.getParent().getFileName().toString();
+                    return dir.equals("dao") || dir.equals("controllers");
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        List<Statement> out = new ArrayList<>();
+        for (Path file : files) {
+            String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            out.addAll(new Extractor(file.getFileName().toString(), Lexer.lex(source)).run());
+        }
+        return out;
+    }
+
+    static final class Token {
+        static final int STR = 0, ID = 1, SYM = 2;
+        final int kind;
+        final String text;
+        final int line;
+
+        Token(int kind, String text, int line) {
+            this.kind = kind;
+            this.text = text;
+            this.line = line;
+        }
+
+        boolean is(String s) { return kind == SYM && text.equals(s); }
+    }
+
+    /**
+     * Just enough of a Java lexer to find string literals: skips comments and char literals,
+     * unescapes strings, and reports identifiers and single-character symbols ("+=" as one).
+     */
+    static final class Lexer {
+        static List<Token> lex(String s) {
+            List<Token> tokens = new ArrayList<>();
+            int line = 1;
+            int i = 0;
+            int n = s.length();
+            while (i < n) {
+                char c = s.charAt(i);
+                if (c == '\n') { line++; i++; continue; }
+                if (Character.isWhitespace(c)) { i++; continue; }
+                if (c == '/' && i + 1 < n && s.charAt(i + 1) == '/') {
+                    while (i < n && s.charAt(i) != '\n') i++;
+                    continue;
+                }
+                if (c == '/' && i + 1 < n && s.charAt(i + 1) == '*') {
+                    int end = s.indexOf("*/", i + 2);
+                    end = end < 0 ? n : end + 2;
+                    for (int k = i; k < end; k++) if (s.charAt(k) == '\n') line++;
+                    i = end;
+                    continue;
+                }
+                if (c == '"' || c == '\'') {
+                    StringBuilder value = new StringBuilder();
+                    int j = i + 1;
+                    while (j < n && s.charAt(j) != c) {
+                        char d = s.charAt(j);
+                        if (d == '\\' && j + 1 < n) {
+                            char e = s.charAt(++j);
+                            switch (e) {
+                                case 'n': value.append('\n'); break;
+                                case 't': value.append('\t'); break;
+                                case 'r': value.append('\r'); break;
+                                default: value.append(e);
+                            }
+                        } else {
+                            value.append(d);
+                        }
+                        j++;
+                    }
+                    if (c == '"') tokens.add(new Token(Token.STR, value.toString(), line));
+                    else tokens.add(new Token(Token.SYM, "'", line));
+                    i = j + 1;
+                    continue;
+                }
+                if (Character.isJavaIdentifierStart(c)) {
+                    int j = i + 1;
+                    while (j < n && Character.isJavaIdentifierPart(s.charAt(j))) j++;
+                    tokens.add(new Token(Token.ID, s.substring(i, j), line));
+                    i = j;
+                    continue;
+                }
+                if (c == '+' && i + 1 < n && s.charAt(i + 1) == '=') {
+                    tokens.add(new Token(Token.SYM, "+=", line));
+                    i += 2;
+                    continue;
+                }
+                tokens.add(new Token(Token.SYM, String.valueOf(c), line));
+                i++;
+            }
+            return tokens;
+        }
+    }
+
+    /**
+     * Finds string-concatenation expressions in one file's tokens and keeps the ones that are SQL.
+     */
+    static final class Extractor {
+        // Value of one parsed expression; dynamic when it includes a runtime value
+        static final class Expr {
+            final StringBuilder text = new StringBuilder();
+            boolean dynamic;
+            int end;
+        }
+
+        private final String file;
+        private final List<Token> tokens;
+        private final Map<String, String> constants = new HashMap<>();
+
+        Extractor(String file, List<Token> tokens) {
+            this.file = file;
+            this.tokens = tokens;
+        }
+
+        List<Statement> run() {
+            // static final String NAME = <literals>; (in declaration order, so later ones can use earlier ones)
+            for (int i = 0; i + 4 < tokens.size(); i++) {
+                if (tokens.get(i).text.equals("final") && tokens.get(i + 1).text.equals("String")
+                        && tokens.get(i + 2).kind == Token.ID && tokens.get(i + 3).is("=")) {
+                    Expr e = parse(i + 4);
+                    if (e != null && !e.dynamic && end(e.end).is(";")) constants.put(tokens.get(i + 2).text, e.text.toString());
+                }
+            }
+
+            List<Statement> out = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                Token tok = tokens.get(i);
+                boolean startsExpr = tok.kind == Token.STR || (tok.kind == Token.ID && constants.containsKey(tok.text));
+                if (!startsExpr) continue;
+                // Only whole expressions: not the tail of one already seen, not a constant's own definition
+                Token prev = i > 0 ? tokens.get(i - 1) : null;
+                if (prev != null && (prev.is("+") || prev.is("+=") || prev.is("?") || prev.is(":"))) continue;
+                if (tok.kind == Token.ID && end(i + 1).is("=")) continue;
+                if (i >= 3 && tokens.get(i - 3).text.equals("String") && tokens.get(i - 2).kind == Token.ID
+                        && constants.containsKey(tokens.get(i - 2).text) && prev != null && prev.is("=")) continue;
+
+                Expr e = parse(i);
+                if (e == null) continue;
+                String sql = e.text.toString();
+                if (!SQL_START.matcher(sql).find()) continue;
+
+                // Fragments added later to the same variable: sql += "..."; / sql.append("...")
+                String variable = null;
+                if (prev != null && prev.is("=") && i >= 2 && tokens.get(i - 2).kind == Token.ID) {
+                    variable = tokens.get(i - 2).text;
+                } else if (prev != null && prev.is("(") && i >= 5 && tokens.get(i - 2).text.equals("StringBuilder")
+                        && tokens.get(i - 3).text.equals("new") && tokens.get(i - 4).is("=")) {
+                    variable = tokens.get(i - 5).text;
+                }
+                if (variable != null) {
+                    int depth = 0;
+                    for (int j = e.end; j < tokens.size(); j++) {
+                        Token t = tokens.get(j);
+                        if (t.is("{")) depth++;
+                        if (t.is("}") && --depth < 0) break;
+                        if (t.kind == Token.ID && t.text.equals(variable) && j + 2 < tokens.size()) {
+                            Expr more = null;
+                            if (tokens.get(j + 1).is("+=")) {
+                                more = parse(j + 2);
+                            } else if (tokens.get(j + 1).is(".") && tokens.get(j + 2).text.equals("append")
+                                    && j + 3 < tokens.size() && tokens.get(j + 3).is("(")) {
+                                more = parse(j + 4);
+                            }
+                            if (more == null) continue;
+                            e.text.append(more.text);
+                            e.dynamic |= more.dynamic;
+                            j = more.end;
+                        }
+                    }
+                }
+
+                if (sql.trim().toUpperCase(Locale.ROOT).startsWith("INSERT")) continue;
+                String normalized = e.text.toString().trim().replaceAll("\\s+", " ");
+                out.add(new Statement(file, tok.line, normalized, e.dynamic ? "built from runtime values" : null));
+                i = e.end - 1;
+            }
+            return out;
+        }
+
+        private Token end(int i) {
+            return i < tokens.size() ? tokens.get(i) : new Token(Token.SYM, "", 0);
+        }
+
+        // term ( '+' term )*  where term is a literal, a known constant or a parenthesised ternary
+        private Expr parse(int i) {
+            Expr e = new Expr();
+            while (true) {
+                if (i >= tokens.size()) return null;
+                Token t = tokens.get(i);
+                if (t.kind == Token.STR) {
+                    e.text.append(t.text);
+                    i++;
+                } else if (t.kind == Token.ID && constants.containsKey(t.text) && !end(i + 1).is(".") && !end(i + 1).is("(")) {
+                    e.text.append(constants.get(t.text));
+                    i++;
+                } else if (t.is("(")) {
+                    int close = matching(i);
+                    int question = topLevel(i + 1, close, "?");
+                    int colon = question < 0 ? -1 : topLevel(question + 1, close, ":");
+                    Expr a = question < 0 ? null : parse(question + 1);
+                    Expr b = colon < 0 ? null : parse(colon + 1);
+                    if (a == null || b == null || a.end != colon || b.end != close) {
+                        e.dynamic = true;
+                        i = close + 1;
+                    } else {
+                        Expr longer = a.text.length() >= b.text.length() ? a : b;
+                        e.text.append(longer.text);
+                        e.dynamic |= a.dynamic || b.dynamic;
+                        i = close + 1;
+                    }
+                } else {
+                    // Something evaluated at runtime; skip to the end of this term
+                    e.dynamic = true;
+                    i = skipTerm(i);
+                }
+                if (end(i).is("+")) {
+                    i++;
+                    continue;
+                }
+                e.end = i;
+                return e;
+            }
+        }
+
+        private int matching(int open) {
+            int depth = 0;
+            for (int i = open; i < tokens.size(); i++) {
+                if (tokens.get(i).is("(")) depth++;
+                if (tokens.get(i).is(")") && --depth == 0) return i;
+            }
+            return tokens.size() - 1;
+        }
+
+        private int topLevel(int from, int to, String symbol) {
+            int depth = 0;
+            for (int i = from; i < to; i++) {
+                Token t = tokens.get(i);
+                if (t.is("(")) depth++;
+                else if (t.is(")")) depth--;
+                else if (depth == 0 && t.is(symbol)) return i;
+            }
+            return -1;
+        }
+
+        // Skip a runtime term such as name, a.b(c), String.join(", ", parts)
+        private int skipTerm(int i) {
+            while (i < tokens.size()) {
+                Token t = tokens.get(i);
+                if (t.is("(")) { i = matching(i) + 1; continue; }
+                if (t.kind == Token.ID || t.is(".")) { i++; continue; }
+                return i;
+            }
+            return i;
+        }
+    }
+
+    // ---- Minimal JSON reader for EXPLAIN output ----
+
+    static final class Json {
+        private final String s;
+        private int pos;
+
+        private Json(String s) { this.s = s; }
+
+        static Object parse(String s) {
+            return new Json(s).value();
+        }
+
+        private Object value() {
+            skipSpace();
+            char c = s.charAt(pos);
+            if (c == '{') {
+                Map<String, Object> map = new LinkedHashMap<>();
+                pos++;
+                skipSpace();
+                if (s.charAt(pos) == '}') { pos++; return map; }
+                while (true) {
+                    skipSpace();
+                    String key = string();
+                    skipSpace();
+                    pos++; // ':'
+                    map.put(key, value());
+                    skipSpace();
+                    if (s.charAt(pos++) == '}') return map;
+                }
+            }
+            if (c == '[') {
+                List<Object> list = new ArrayList<>();
+                pos++;
+                skipSpace();
+                if (s.charAt(pos) == ']') { pos++; return list; }
+                while (true) {
+                    list.add(value());
+                    skipSpace();
+                    if (s.charAt(pos++) == ']') return list;
+                }
+            }
+            if (c == '"') return string();
+            if (s.startsWith("true", pos)) { pos += 4; return Boolean.TRUE; }
+            if (s.startsWith("false", pos)) { pos += 5; return Boolean.FALSE; }
+            if (s.startsWith("null", pos)) { pos += 4; return null; }
+            int start = pos;
+            while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) pos++;
+            return Double.parseDouble(s.substring(start, pos));
+        }
+
+        private String string() {
+            StringBuilder out = new StringBuilder();
+            pos++; // opening quote
+            while (s.charAt(pos) != '"') {
+                char c = s.charAt(pos++);
+                if (c == '\\') {
+                    char e = s.charAt(pos++);
+                    if (e == 'u') {
+                        out.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    } else {
+                        out.append(e == 'n' ? '\n' : e == 't' ? '\t' : e);
+                    }
+                } else {
+                    out.append(c);
+                }
+            }
+            pos++;
+            return out.toString();
+        }
+
+        private void skipSpace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+    }
+}
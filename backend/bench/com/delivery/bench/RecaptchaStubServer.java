@@ -0,0 +1,106 @@
+package com.delivery.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for Google's siteverify endpoint so login throughput can be measured offline.
+ *
+ * Point the backend at it with RECAPTCHA_VERIFY_URL=http://localhost:&lt;port&gt;/recaptcha/api/siteverify.
+ * Tokens equal to "fail" are rejected with invalid-input-response; everything else passes.
+ * An artificial latency and a rate of HTTP 500s can be added to exercise the timeout and the
+ * circuit breaker in RecaptchaVerifier.
+ *
+ * Usage: java -cp bin;bench-bin com.delivery.bench.RecaptchaStubServer [port] [latencyMillis] [errorRate0to1]
+ */
+public class RecaptchaStubServer {
+
+    private static final AtomicLong requests = new AtomicLong();
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9099;
+        long latencyMs = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        double errorRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.0;
+
+        HttpServer server = start(port, latencyMs, errorRate);
+        System.out.println("reCAPTCHA stub listening on http://localhost:" + server.getAddress().getPort()
+            + "/recaptcha/api/siteverify (latency " + latencyMs + "ms, error rate " + errorRate + ")");
+    }
+
+    /**
+     * Start the stub in-process (used by the load-test harness). Port 0 picks a free port.
+     */
+    public static HttpServer start(int port, long latencyMs, double errorRate) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/recaptcha/api/siteverify", exchange -> handle(exchange, latencyMs, errorRate));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    public static long requestCount() {
+        return requests.get();
+    }
+
+    private static void handle(HttpExchange exchange, long latencyMs, double errorRate) throws IOException {
+        requests.incrementAndGet();
+        String body;
+        try (InputStream is = exchange.getRequestBody()) {
+            body = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            respond(exchange, 500, "{\"error\":\"stub upstream failure\"}");
+            return;
+        }
+
+        String token = formValue(body, "response");
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod()) || formValue(body, "secret") == null) {
+            respond(exchange, 200, "{\n  \"success\": false,\n  \"error-codes\": [\"missing-input-secret\"]\n}");
+        } else if (token == null || token.isEmpty()) {
+            respond(exchange, 200, "{\n  \"success\": false,\n  \"error-codes\": [\"missing-input-response\"]\n}");
+        } else if ("fail".equals(token)) {
+            respond(exchange, 200, "{\n  \"success\": false,\n  \"error-codes\": [\"invalid-input-response\"]\n}");
+        } else {
+            respond(exchange, 200, "{\n  \"success\": true,\n  \"challenge_ts\": \"2024-01-01T00:00:00Z\",\n"
+                + "  \"hostname\": \"localhost\"\n}");
+        }
+    }
+
+    private static String formValue(String body, String key) {
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(key)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+# run-bench.ps1 - compile the backend plus the bench sources and run a benchmark
+# Usage: Open PowerShell at repo root and run: .\backend\run-bench.ps1 [BenchClass] [args...]
+# Default: InputSanitizerBench (differential fuzz check + timings)
+
+$src = Join-Path $PSScriptRoot 'src'
+$bench = Join-Path $PSScriptRoot 'bench'
+$bin = Join-Path $PSScriptRoot 'bin'
+$benchBin = Join-Path $PSScriptRoot 'bench-bin'
+$lib = Join-Path $PSScriptRoot 'lib'
+
+$class = 'InputSanitizerBench'
+$benchArgs = @()
+if ($args.Count -gt 0) { $class = $args[0]; $benchArgs = $args[1..($args.Count - 1)] }
+
+New-Item -ItemType Directory -Force -Path $bin | Out-Null
+New-Item -ItemType Directory -Force -Path $benchBin | Out-Null
+
+# Compile backend, then the bench sources against it
+$files = Get-ChildItem -Path $src -Recurse -Filter *.java | ForEach-Object { $_.FullName }
+javac -d $bin $files
+$benchFiles = Get-ChildItem -Path $bench -Recurse -Filter *.java | ForEach-Object { $_.FullName }
+javac -cp $bin -d $benchBin $benchFiles
+
+# Build classpath including libs
+$cp = "$bin;$benchBin"
+if (Test-Path $lib) {
+    $jars = Get-ChildItem -Path $lib -Filter *.jar | ForEach-Object { $_.FullName }
+    if ($jars) { $cp += ";" + ($jars -join ";") }
+}
+
+# Run
+java -cp $cp "com.delivery.bench.$class" $benchArgs
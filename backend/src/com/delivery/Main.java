@@ -4,22 +4,37 @@ import com.delivery.controllers.AdminController;
 import com.delivery.controllers.AuthenticationController;
 import com.delivery.controllers.CustomerController;
 import com.delivery.controllers.DriverController;
+import com.delivery.controllers.EventsController;
+import com.delivery.controllers.ExportController;
 import com.delivery.controllers.InventoryController;
 import com.delivery.controllers.ManagementController;
 import com.delivery.controllers.OrdersController;
 import com.delivery.controllers.PackageController;
 import com.delivery.controllers.RouteController;
 import com.delivery.controllers.TransferController; // <-- ADDED
+import com.delivery.driver.RouteManifestCache;
+import com.delivery.inventory.FacilityInventoryCounters;
+import com.delivery.jfr.ContinuousRecording;
+import com.delivery.metrics.Metrics;
+import com.delivery.metrics.RequestMetricsFilter;
+import com.delivery.push.PushHub;
 import com.delivery.security.SecurityManager.AuditLogger;
 import com.delivery.session.SessionManager;
+import com.delivery.tracing.TracingFilter;
+import com.delivery.tracking.TrackingCache;
+import com.delivery.tracking.TrackingNumberGenerator;
 import com.delivery.util.EnvLoader;
 import com.delivery.util.Result;
 import com.delivery.util.StaticFileHandler;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 
 public class Main {
     public static void main(String[] args) throws IOException {
@@ -31,20 +46,23 @@ public class Main {
             } catch (NumberFormatException ignored) {}
         }
 
+        // JFR_CONTINUOUS=true keeps a low-overhead flight recording running (see ContinuousRecording)
+        ContinuousRecording.startFromEnv();
+
         HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
 
         // API endpoint for login (POST requests)
-        server.createContext("/api/login", (exchange) -> {
+        createContext(server, "/api/login", (exchange) -> {
             AuthenticationController.handleLogin(exchange);
         });
 
         // Customer registration endpoint - Use Case 1: Create new customer account
-        server.createContext("/api/customer/register", (exchange) -> {
+        createContext(server, "/api/customer/register", (exchange) -> {
             CustomerController.handleRegistration(exchange);
         });
 
         // Protected endpoint for session verification - demonstrates BLP clearance levels in response
-        server.createContext("/whoami", (exchange) -> {
+        createContext(server, "/whoami", (exchange) -> {
             // Capture client IP for audit logging
             String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
 
@@ -96,8 +114,11 @@ public class Main {
         });
 
         // Admin endpoints - require TOP_SECRET clearance (admin role)
-        server.createContext("/admin/logs", AdminController::handleGetLogs);
-        server.createContext("/admin/users", (exchange) -> {
+        createContext(server, "/admin/logs", AdminController::handleGetLogs);
+        createContext(server, "/admin/metrics", AdminController::handleGetMetrics);
+        createContext(server, "/admin/queries", AdminController::handleGetQueryStats);
+        createContext(server, "/admin/traces", AdminController::handleGetTraces);
+        createContext(server, "/admin/users", (exchange) -> {
             String path = exchange.getRequestURI().getPath();
             String method = exchange.getRequestMethod();
 
@@ -115,7 +136,7 @@ public class Main {
         });
 
         // Inventory endpoints - require SECRET clearance (manager or admin)
-        server.createContext("/api/inventory", (exchange) -> {
+        createContext(server, "/api/inventory", (exchange) -> {
             String path = exchange.getRequestURI().getPath();
 
             if (path.equals("/api/inventory")) {
@@ -133,7 +154,10 @@ public class Main {
         });
 
         // Facilities endpoint - require CONFIDENTIAL clearance (driver or above)
-        server.createContext("/api/facilities", InventoryController::handleGetFacilities);
+        createContext(server, "/api/facilities", InventoryController::handleGetFacilities);
+
+        // Bulk exports - audit log requires TOP_SECRET, inventory and routes SECRET
+        createContext(server, "/api/export/", ExportController::handleExport);
 
         // Determine frontend directory path - go up from backend to find frontend
         String backendDir = Paths.get("").toAbsolutePath().toString();
@@ -149,12 +173,21 @@ public class Main {
         }
 
         // Order endpoints
-        server.createContext("/api/order", (exchange) -> {
+        createContext(server, "/api/order", (exchange) -> {
             String path = exchange.getRequestURI().getPath();
 
             if (path.equals("/api/order/place/")) {
                 // POST /api/order/place - Place an order
                 PackageController.handleCreatePackage(exchange);
+            } else if (path.equals("/api/order/create/")) {
+                // POST /api/order/create - Place an order with several packages
+                OrdersController.handleCreateOrder(exchange);
+            } else if (path.equals("/api/order/import/")) {
+                // POST /api/order/import - Create packages from a CSV manifest
+                OrdersController.handleImportOrders(exchange);
+            } else if (path.startsWith("/api/order/import/") && path.endsWith("/result")) {
+                // GET /api/order/import/:id/result - Per-row import result (CSV)
+                OrdersController.handleGetImportResult(exchange);
             } else if (path.startsWith("/api/order/edit/")) {
                 // POST /api/order/edit/:id - Edit order by ID
                 PackageController.handleOrderEdit(exchange);
@@ -168,7 +201,7 @@ public class Main {
 
         // Transfer endpoints - require SECRET clearance (manager or admin)
         // Use Case 6: Transfer packages between facilities
-        server.createContext("/api/transfers", (exchange) -> {
+        createContext(server, "/api/transfers", (exchange) -> {
             String path = exchange.getRequestURI().getPath();
 
             if (path.equals("/api/transfers/initiate")) {
@@ -188,52 +221,76 @@ public class Main {
             }
         });
 
-        server.createContext("/api/trackPackages", (exchange) -> {
+        createContext(server, "/api/trackPackages", (exchange) -> {
             PackageController.handleTrackPackage(exchange);
         });
 
         // Package management endpoints
-        server.createContext("/api/package/edit", (exchange) -> {
+        createContext(server, "/api/package/edit", (exchange) -> {
             PackageController.handleEditPackage(exchange);
         });
-        server.createContext("/api/package/create", PackageController::handleCreatePackage);
-        server.createContext("/api/package/edit-address", PackageController::handleEditAddress);
+        createContext(server, "/api/package/create", PackageController::handleCreatePackage);
+        createContext(server, "/api/package/edit-address", PackageController::handleEditAddress);
 
         // Driver endpoints - require CONFIDENTIAL clearance (driver role)
-        server.createContext("/api/driver/route", (exchange) -> {
+        createContext(server, "/api/driver/route", (exchange) -> {
             DriverController.handleGetRoute(exchange);
         });
 
-        server.createContext("/api/driver/status", (exchange) -> {
+        createContext(server, "/api/driver/status", (exchange) -> {
             DriverController.handleUpdateDeliveryStatus(exchange);
         });
 
+        createContext(server, "/api/driver/sync", (exchange) -> {
+            DriverController.handleSyncDeliveryStatus(exchange);
+        });
+
+        // Live updates (Server-Sent Events) for tracking, driver and management pages
+        createContext(server, "/api/events", (exchange) -> {
+            EventsController.handleEvents(exchange);
+        });
+
         // Management endpoints - require SECRET clearance (manager or admin)
-        server.createContext("/api/management/assign-routes", (exchange) -> {
+        createContext(server, "/api/management/assign-routes", (exchange) -> {
             ManagementController.handleAssignRoutes(exchange);
         });
 
-        server.createContext("/api/management/inventory-report", (exchange) -> {
+        createContext(server, "/api/management/inventory-report", (exchange) -> {
             ManagementController.handleInventoryReport(exchange);
         });
 
-        server.createContext("/api/management/drivers", (exchange) -> {
+        createContext(server, "/api/management/drivers", (exchange) -> {
             ManagementController.handleGetDrivers(exchange);
         });
 
         // Route optimization endpoints
         // POST /api/routes/optimize - Optimize and save route
-        server.createContext("/api/routes/optimize", RouteController::handleOptimizeRoute);
+        createContext(server, "/api/routes/optimize", RouteController::handleOptimizeRoute);
 
         // GET /api/routes/driver/:id - Get optimized routes for a driver
-        server.createContext("/api/routes/driver", RouteController::handleGetDriverRoute);
+        createContext(server, "/api/routes/driver", RouteController::handleGetDriverRoute);
 
         // Static file handler - serves HTML, CSS, JS files from frontend directory
         // This must be registered LAST as it's a catch-all for unmatched routes
-        server.createContext("/", new StaticFileHandler(frontendPath));
+        createContext(server, "/", new StaticFileHandler(frontendPath));
 
         // Thread pool sized for moderate concurrent load - adjust based on production needs
-        server.setExecutor(Executors.newFixedThreadPool(8));
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(8);
+        Metrics.registerPool("http", executor);
+        server.setExecutor(executor);
+
+        // Read now so a bad TRACKING_NODE_ID stops startup instead of the first package creation
+        long trackingNodeId = TrackingNumberGenerator.getNodeId();
+
+        // Inventory report counters: initial load plus periodic reconciliation (INVENTORY_RECONCILE_SECONDS)
+        FacilityInventoryCounters.startReconciler();
+
+        // Caches and live update streams follow committed changes through the EventBus
+        RouteManifestCache.subscribeToEvents();
+        SessionManager.subscribeToEvents();
+        TrackingCache.start();
+        PushHub.start();
+
         server.start();
 
         System.out.println("========================================");
@@ -241,6 +298,7 @@ public class Main {
         System.out.println("========================================");
         System.out.println("Server listening on: http://localhost:" + port);
         System.out.println("Frontend directory: " + frontendPath);
+        System.out.println("Tracking number node id: " + trackingNodeId);
         System.out.println("");
         System.out.println("Web Interface:");
         System.out.println("  http://localhost:" + port + "/");
@@ -249,7 +307,10 @@ public class Main {
         System.out.println("  POST /api/login                        - User authentication");
         System.out.println("  POST /api/customer/register            - Customer registration");
         System.out.println("  GET  /whoami                           - Check session status");
-        System.out.println("  GET  /admin/logs                       - View audit logs (Admin only)");
+        System.out.println("  GET  /admin/logs                       - View audit logs, filtered and cursor-paged (Admin only)");
+        System.out.println("  GET  /admin/metrics                    - Prometheus metrics (Admin only)");
+        System.out.println("  GET  /admin/queries                    - Top SQL statements and slow queries (Admin only)");
+        System.out.println("  GET  /admin/traces                     - Slow request traces with span breakdown (Admin only)");
         System.out.println("  GET  /admin/users                      - List all users (Admin only)");
         System.out.println("  PUT  /admin/users/:id/role             - Update user role (Admin only)");
         System.out.println("  PUT  /admin/users/:id/status           - Update account status (Admin only)");
@@ -257,12 +318,20 @@ public class Main {
         System.out.println("  GET  /api/inventory/facility/:id       - Get facility inventory (Manager+)");
         System.out.println("  GET  /api/inventory/search/:tracking   - Search by tracking number (Manager+)");
         System.out.println("  GET  /api/facilities                   - Get all facilities (Driver+)");
+        System.out.println("  GET  /api/export/audit-log             - Export the audit log as CSV/NDJSON (Admin only)");
+        System.out.println("  GET  /api/export/inventory             - Export inventory records as CSV/NDJSON (Manager+)");
+        System.out.println("  GET  /api/export/routes                - Export route history as CSV/NDJSON (Manager+)");
         System.out.println("  GET  /api/trackPackages                - Get Package tracking information (Customer+)");
         System.out.println("  POST /api/order/place/                 - Place a new package (Customer+)");
+        System.out.println("  POST /api/order/create/                - Place an order with several packages (Customer+)");
+        System.out.println("  POST /api/order/import/                - Import packages from a CSV manifest (Customer+)");
+        System.out.println("  GET  /api/order/import/:id/result      - Download an import's per-row result (Customer+)");
         System.out.println("  POST /api/order/edit/                  - Edit package details (Customer+)");
         System.out.println("  POST /api/package/edit                 - Edit package details (Manager+)");
         System.out.println("  GET  /api/driver/route                 - Get driver's assigned route (Driver)");
         System.out.println("  POST /api/driver/status                - Update delivery status (Driver)");
+        System.out.println("  POST /api/driver/sync                  - Sync queued offline status updates (Driver)");
+        System.out.println("  GET  /api/events                       - Live update stream (tracking public, driver/facility by role)");
         System.out.println("  POST /api/management/assign-routes     - Assign routes to drivers (Manager+)");
         System.out.println("  GET  /api/management/inventory-report  - Get inventory reports (Manager+)");
         System.out.println("  POST /api/transfers/initiate           - Initiate facility transfer (Manager+)");
@@ -277,4 +346,11 @@ public class Main {
         System.out.println("  admin / admin123      (Clearance: 3)");
         System.out.println("========================================");
     }
+
+    // Register a route context with request tracing and latency/status metrics attached
+    private static void createContext(HttpServer server, String path, HttpHandler handler) {
+        List<Filter> filters = server.createContext(path, handler).getFilters();
+        filters.add(new TracingFilter(path));
+        filters.add(new RequestMetricsFilter(path));
+    }
 }
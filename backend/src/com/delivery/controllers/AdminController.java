@@ -1,7 +1,12 @@
 package com.delivery.controllers;
 
 import com.delivery.database.DatabaseConnection;
+import com.delivery.database.QueryStats;
+import com.delivery.events.EventBus;
+import com.delivery.events.UserRoleChanged;
+import com.delivery.metrics.Metrics;
 import com.delivery.session.SessionManager;
+import com.delivery.tracing.Tracer;
 import com.delivery.util.Result;
 import com.delivery.security.SecurityManager;
 import static com.delivery.security.SecurityManager.AuditLogger;
@@ -13,13 +18,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import com.sun.net.httpserver.HttpExchange;
 
@@ -61,23 +75,55 @@ public class AdminController {
             return;
         }
 
-        String query = exchange.getRequestURI().getQuery();
+        Map<String, String> params = parseQueryString(exchange.getRequestURI().getRawQuery());
         int limit = 100;
-        int offset = 0;
+        if (params.containsKey("limit")) {
+            try {
+                limit = Math.max(1, Math.min(1000, Integer.parseInt(params.get("limit"))));
+            } catch (NumberFormatException ignored) {}
+        }
+        if (params.containsKey("offset")) {
+            // Offset paging rescanned every skipped row; pages now follow nextCursor
+            respondJson(exchange, 400, "{\"error\":\"offset is not supported, use cursor\"}");
+            return;
+        }
 
-        if (query != null) {
-            Map<String, String> params = parseQueryString(query);
-            if (params.containsKey("limit")) {
-                try {
-                    limit = Integer.parseInt(params.get("limit"));
-                    if (limit > 1000) limit = 1000;
-                } catch (NumberFormatException ignored) {}
-            }
-            if (params.containsKey("offset")) {
-                try {
-                    offset = Integer.parseInt(params.get("offset"));
-                } catch (NumberFormatException ignored) {}
+        String username = decodeParam(params.get("username"));
+        String action = decodeParam(params.get("action"));
+        String result = decodeParam(params.get("result"));
+        if ((username != null && username.length() > 50) || (action != null && action.length() > 50)) {
+            respondJson(exchange, 400, "{\"error\":\"username and action are at most 50 characters\"}");
+            return;
+        }
+        if (result != null && !result.equals("success") && !result.equals("denied") && !result.equals("error")) {
+            respondJson(exchange, 400, "{\"error\":\"result must be success, denied or error\"}");
+            return;
+        }
+
+        // Time range [from, to); from defaults to the epoch so the range condition is always there
+        Timestamp from = new Timestamp(0);
+        Timestamp to = null;
+        try {
+            String fromParam = decodeParam(params.get("from"));
+            String toParam = decodeParam(params.get("to"));
+            if (fromParam != null) from = parseTime(fromParam);
+            if (toParam != null) to = parseTime(toParam);
+        } catch (DateTimeParseException e) {
+            respondJson(exchange, 400, "{\"error\":\"from and to must be ISO-8601 times or dates\"}");
+            return;
+        }
+
+        // Key (timestamp, audit_id) of the last row of the previous page
+        Timestamp afterTime = null;
+        long afterId = 0;
+        if (params.containsKey("cursor")) {
+            long[] cursor = decodeLogCursor(params.get("cursor"));
+            if (cursor == null) {
+                respondJson(exchange, 400, "{\"error\":\"Invalid cursor\"}");
+                return;
             }
+            afterTime = new Timestamp(cursor[0]);
+            afterId = cursor[1];
         }
 
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
@@ -89,25 +135,54 @@ public class AdminController {
             return;
         }
 
-        try (Connection conn = connResult.unwrap()) {
-            String sql = "SELECT audit_id, timestamp, user_id, username, action, result, ip_address, details " +
-                        "FROM audit_log ORDER BY timestamp DESC LIMIT ? OFFSET ?";
+        // Newest first, keyset on (timestamp, audit_id): every page is one range scan of
+        // idx_timestamp_id, or of idx_username/idx_action/idx_result (which end in timestamp)
+        // when filtered, so a deep page costs the same as the first
+        String sql = "SELECT audit_id, timestamp, user_id, username, action, result, ip_address, details " +
+                    "FROM audit_log " +
+                    "WHERE timestamp >= ? " +
+                    (to == null ? "" : "AND timestamp < ? ") +
+                    (username == null ? "" : "AND username = ? ") +
+                    (action == null ? "" : "AND action = ? ") +
+                    (result == null ? "" : "AND result = ? ") +
+                    (afterTime == null ? "" : "AND (timestamp < ? OR (timestamp = ? AND audit_id < ?)) ") +
+                    "ORDER BY timestamp DESC, audit_id DESC " +
+                    "LIMIT ?";
 
+        try (Connection conn = connResult.unwrap()) {
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setInt(1, limit);
-                stmt.setInt(2, offset);
+                int idx = bindLogFilters(stmt, from, to, username, action, result);
+                if (afterTime != null) {
+                    stmt.setTimestamp(idx++, afterTime);
+                    stmt.setTimestamp(idx++, afterTime);
+                    stmt.setLong(idx++, afterId);
+                }
+                // One extra row tells us whether there is a next page
+                stmt.setInt(idx, limit + 1);
 
                 try (ResultSet rs = stmt.executeQuery()) {
                     StringBuilder json = new StringBuilder("{\"logs\":[");
-                    boolean first = true;
+                    int rows = 0;
+                    String nextCursor = null;
+                    Timestamp lastTime = null;
+                    long lastId = 0;
 
                     while (rs.next()) {
-                        if (!first) json.append(",");
-                        first = false;
+                        if (rows == limit) {
+                            nextCursor = encodeLogCursor(lastTime, lastId);
+                            break;
+                        }
+                        if (rows > 0) json.append(",");
+                        rows++;
+
+                        Timestamp timestamp = rs.getTimestamp("timestamp");
+                        long auditId = rs.getLong("audit_id");
+                        lastTime = timestamp;
+                        lastId = auditId;
 
                         json.append("{");
-                        json.append("\"audit_id\":").append(rs.getLong("audit_id")).append(",");
-                        json.append("\"timestamp\":\"").append(escapeJson(rs.getTimestamp("timestamp").toString())).append("\",");
+                        json.append("\"audit_id\":").append(auditId).append(",");
+                        json.append("\"timestamp\":\"").append(escapeJson(timestamp.toString())).append("\",");
 
                         Object userId = rs.getObject("user_id");
                         if (userId != null) {
@@ -137,10 +212,24 @@ public class AdminController {
                         json.append("}");
                     }
 
-                    json.append("]}");
+                    json.append("],\"nextCursor\":");
+                    json.append(nextCursor == null ? "null" : "\"" + nextCursor + "\"");
+                    if (afterTime == null) {
+                        // First page only; later pages keep the figure the client already has
+                        // The page query without ORDER BY/LIMIT selects exactly the filtered rows
+                        String countSql = sql.substring(0, sql.indexOf("ORDER BY"));
+                        json.append(",\"approximateTotal\":").append(estimateLogCount(conn, countSql, from, to,
+                                                                                        username, action, result));
+                    }
+                    json.append("}");
 
                     AuditLogger.log(null, session.username, "ADMIN_LOGS_VIEWED", "success", clientIp,
-                        "Audit logs accessed (limit: " + limit + ", offset: " + offset + ")");
+                        "Audit logs accessed (limit: " + limit +
+                        (username == null ? "" : ", username: " + username) +
+                        (action == null ? "" : ", action: " + action) +
+                        (result == null ? "" : ", result: " + result) +
+                        (from.getTime() != 0 || to != null ? ", time range" : "") +
+                        (afterTime == null ? "" : ", after cursor") + ")");
 
                     respondJson(exchange, 200, json.toString());
                 }
@@ -154,6 +243,279 @@ public class AdminController {
         }
     }
 
+    // GET /admin/metrics - Prometheus text format, TOP_SECRET only
+    public static void handleGetMetrics(HttpExchange exchange) throws IOException {
+        String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
+
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        Result<SessionManager.Session, String> sessionResult = getSessionFromRequest(exchange);
+        if (sessionResult.isErr()) {
+            AuditLogger.log(null, "UNKNOWN", "ADMIN_METRICS_ACCESS", "denied", clientIp,
+                "Unauthorized access attempt - no valid session");
+            respondJson(exchange, 401, "{\"error\":\"unauthorized\"}");
+            return;
+        }
+
+        SessionManager.Session session = sessionResult.unwrap();
+
+        if (!BLPAccessControl.checkReadAccess(session.clearance, SecurityLevel.TOP_SECRET)) {
+            AuditLogger.log(null, session.username, "ADMIN_METRICS_ACCESS", "denied", clientIp,
+                "BLP violation: " + session.clearance + " attempted to read TOP_SECRET metrics");
+            respondJson(exchange, 403, "{\"error\":\"insufficient clearance\"}");
+            return;
+        }
+
+        // Scrapes are frequent, so successful reads are not audited
+        respondText(exchange, 200, Metrics.render());
+    }
+
+    // GET /admin/queries?top=20&sort=total|avg|max|count|rows|errors - JDBC statement stats, TOP_SECRET only
+    public static void handleGetQueryStats(HttpExchange exchange) throws IOException {
+        String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
+
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        Result<SessionManager.Session, String> sessionResult = getSessionFromRequest(exchange);
+        if (sessionResult.isErr()) {
+            AuditLogger.log(null, "UNKNOWN", "ADMIN_QUERIES_ACCESS", "denied", clientIp,
+                "Unauthorized access attempt - no valid session");
+            respondJson(exchange, 401, "{\"error\":\"unauthorized\"}");
+            return;
+        }
+
+        SessionManager.Session session = sessionResult.unwrap();
+
+        if (!BLPAccessControl.checkReadAccess(session.clearance, SecurityLevel.TOP_SECRET)) {
+            AuditLogger.log(null, session.username, "ADMIN_QUERIES_ACCESS", "denied", clientIp,
+                "BLP violation: " + session.clearance + " attempted to read TOP_SECRET query statistics");
+            respondJson(exchange, 403, "{\"error\":\"insufficient clearance\"}");
+            return;
+        }
+
+        int top = 20;
+        String sort = "total";
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            Map<String, String> params = parseQueryString(query);
+            if (params.containsKey("top")) {
+                try {
+                    top = Math.max(1, Math.min(200, Integer.parseInt(params.get("top"))));
+                } catch (NumberFormatException ignored) {}
+            }
+            if (params.containsKey("sort")) sort = params.get("sort");
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"slowQueryThresholdMs\":").append(QueryStats.getSlowQueryThresholdMillis());
+        json.append(",\"sort\":\"").append(escapeJson(sort)).append("\",\"queries\":[");
+        boolean first = true;
+        for (QueryStats.Entry e : QueryStats.top(sort, top)) {
+            if (!first) json.append(",");
+            first = false;
+            json.append("{\"sql\":\"").append(escapeJson(e.sql)).append("\"");
+            json.append(",\"executions\":").append(e.getExecutions());
+            json.append(",\"errors\":").append(e.getErrors());
+            json.append(",\"totalMs\":").append(String.format("%.3f", e.getTotalMicros() / 1000.0));
+            json.append(",\"avgMs\":").append(String.format("%.3f", e.getAvgMicros() / 1000.0));
+            json.append(",\"p95Ms\":").append(String.format("%.3f", e.getP95Micros() / 1000.0));
+            json.append(",\"maxMs\":").append(String.format("%.3f", e.getMaxMicros() / 1000.0));
+            json.append(",\"rowsFetched\":").append(e.getRowsFetched());
+            json.append(",\"rowsUpdated\":").append(e.getRowsUpdated());
+            json.append(",\"batches\":").append(e.getBatches());
+            json.append(",\"batchItems\":").append(e.getBatchItems());
+            json.append("}");
+        }
+        json.append("],\"slowQueries\":[");
+        first = true;
+        for (QueryStats.SlowQuery q : QueryStats.recentSlowQueries()) {
+            if (!first) json.append(",");
+            first = false;
+            json.append("{\"timestamp\":").append(q.timestamp);
+            json.append(",\"durationMs\":").append(String.format("%.3f", q.micros / 1000.0));
+            json.append(",\"params\":\"").append(escapeJson(q.params)).append("\"");
+            json.append(",\"sql\":\"").append(escapeJson(q.sql)).append("\"}");
+        }
+        json.append("]}");
+
+        respondJson(exchange, 200, json.toString());
+    }
+
+    // GET /admin/traces?limit=20&all=false&id=<requestId>&format=json|folded
+    public static void handleGetTraces(HttpExchange exchange) throws IOException {
+        String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
+
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        Result<SessionManager.Session, String> sessionResult = getSessionFromRequest(exchange);
+        if (sessionResult.isErr()) {
+            AuditLogger.log(null, "UNKNOWN", "ADMIN_TRACES_ACCESS", "denied", clientIp,
+                "Unauthorized access attempt - no valid session");
+            respondJson(exchange, 401, "{\"error\":\"unauthorized\"}");
+            return;
+        }
+
+        SessionManager.Session session = sessionResult.unwrap();
+
+        if (!BLPAccessControl.checkReadAccess(session.clearance, SecurityLevel.TOP_SECRET)) {
+            AuditLogger.log(null, session.username, "ADMIN_TRACES_ACCESS", "denied", clientIp,
+                "BLP violation: " + session.clearance + " attempted to read TOP_SECRET request traces");
+            respondJson(exchange, 403, "{\"error\":\"insufficient clearance\"}");
+            return;
+        }
+
+        int limit = 20;
+        boolean all = false;
+        boolean folded = false;
+        String id = null;
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            Map<String, String> params = parseQueryString(query);
+            if (params.containsKey("limit")) {
+                try {
+                    limit = Math.max(1, Math.min(200, Integer.parseInt(params.get("limit"))));
+                } catch (NumberFormatException ignored) {}
+            }
+            all = "true".equalsIgnoreCase(params.get("all"));
+            folded = "folded".equalsIgnoreCase(params.get("format"));
+            id = params.get("id");
+        }
+
+        List<Tracer.Trace> traces;
+        if (id != null) {
+            Tracer.Trace t = Tracer.find(id);
+            if (t == null) {
+                respondJson(exchange, 404, "{\"error\":\"trace not found (not sampled or evicted)\"}");
+                return;
+            }
+            traces = List.of(t);
+        } else {
+            traces = all ? Tracer.recentTraces() : Tracer.slowTraces();
+            if (traces.size() > limit) traces = traces.subList(0, limit);
+        }
+
+        // Folded stacks ("root;child;leaf selfMicros") feed straight into flamegraph.pl / speedscope
+        if (folded) {
+            StringBuilder out = new StringBuilder();
+            for (Tracer.Trace t : traces) {
+                for (int i = 0; i < t.getSpanCount(); i++) {
+                    long self = t.getSpanSelfMicros(i);
+                    if (self == 0) continue;
+                    appendStack(out, t, i);
+                    out.append(' ').append(self).append('\n');
+                }
+            }
+            respondText(exchange, 200, out.toString());
+            return;
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"samplePercent\":").append(Tracer.getSamplePercent());
+        json.append(",\"slowTraceThresholdMs\":").append(Tracer.getSlowTraceThresholdMillis());
+        json.append(",\"traces\":[");
+        boolean first = true;
+        for (Tracer.Trace t : traces) {
+            if (!first) json.append(",");
+            first = false;
+            json.append("{\"requestId\":\"").append(escapeJson(t.requestId)).append("\"");
+            json.append(",\"name\":\"").append(escapeJson(t.name)).append("\"");
+            json.append(",\"status\":").append(t.getStatus());
+            json.append(",\"startTime\":").append(t.startMillis);
+            json.append(",\"durationMs\":").append(String.format("%.3f", t.getDurationMicros() / 1000.0));
+            json.append(",\"droppedSpans\":").append(t.getDroppedSpans());
+
+            // Self time per layer answers "was it geocoding, the algorithm or the database"
+            Map<String, Long> byKind = new TreeMap<>();
+            for (int i = 0; i < t.getSpanCount(); i++) {
+                byKind.merge(t.getSpanKind(i), t.getSpanSelfMicros(i), Long::sum);
+            }
+            byKind.put("untraced", t.getUntracedMicros());
+            json.append(",\"breakdownMs\":{");
+            boolean firstKind = true;
+            for (Map.Entry<String, Long> e : byKind.entrySet()) {
+                if (!firstKind) json.append(",");
+                firstKind = false;
+                json.append("\"").append(escapeJson(e.getKey())).append("\":")
+                    .append(String.format("%.3f", e.getValue() / 1000.0));
+            }
+            json.append("},\"spans\":[");
+            boolean firstSpan = true;
+            for (int i = 0; i < t.getSpanCount(); i++) {
+                if (t.getSpanParent(i) != -1) continue;
+                if (!firstSpan) json.append(",");
+                firstSpan = false;
+                appendSpan(json, t, i);
+            }
+            json.append("]}");
+        }
+        json.append("]}");
+
+        respondJson(exchange, 200, json.toString());
+    }
+
+    private static void appendSpan(StringBuilder json, Tracer.Trace t, int i) {
+        json.append("{\"kind\":\"").append(escapeJson(t.getSpanKind(i))).append("\"");
+        json.append(",\"name\":\"").append(escapeJson(t.getSpanName(i))).append("\"");
+        json.append(",\"startMs\":").append(String.format("%.3f", t.getSpanStartMicros(i) / 1000.0));
+        json.append(",\"durationMs\":").append(String.format("%.3f", t.getSpanDurationMicros(i) / 1000.0));
+        json.append(",\"selfMs\":").append(String.format("%.3f", t.getSpanSelfMicros(i) / 1000.0));
+        json.append(",\"children\":[");
+        boolean first = true;
+        for (int j = i + 1; j < t.getSpanCount(); j++) {
+            if (t.getSpanParent(j) != i) continue;
+            if (!first) json.append(",");
+            first = false;
+            appendSpan(json, t, j);
+        }
+        json.append("]}");
+    }
+
+    private static void appendStack(StringBuilder out, Tracer.Trace t, int i) {
+        int parent = t.getSpanParent(i);
+        if (parent == -1) {
+            out.append(t.name.replace(';', ':').replace(' ', '_'));
+        } else {
+            appendStack(out, t, parent);
+        }
+        out.append(';').append(t.getSpanName(i).replace(';', ':').replace(' ', '_'));
+    }
+
     // GET /admin/users
     public static void handleGetUsers(HttpExchange exchange) throws IOException {
         String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
@@ -356,6 +718,9 @@ public class AdminController {
                         int updated = updateStmt.executeUpdate();
 
                         if (updated > 0) {
+                            // Ends the user's sessions, which still carry the old role
+                            EventBus.publish(new UserRoleChanged(targetUserId, targetUsername, currentRole, newRole));
+
                             AuditLogger.log(null, session.username, "ADMIN_ROLE_UPDATED", "success", clientIp,
                                 String.format("User %s (ID: %d) role changed from %s to %s (clearance: %d)",
                                     targetUsername, targetUserId, currentRole, newRole, newClearanceLevel));
@@ -555,6 +920,71 @@ public class AdminController {
         return map;
     }
 
+    // Binds the filter placeholders of the audit log query in order; returns the next index
+    private static int bindLogFilters(PreparedStatement stmt, Timestamp from, Timestamp to, String username,
+                                      String action, String result) throws SQLException {
+        int idx = 1;
+        stmt.setTimestamp(idx++, from);
+        if (to != null) stmt.setTimestamp(idx++, to);
+        if (username != null) stmt.setString(idx++, username);
+        if (action != null) stmt.setString(idx++, action);
+        if (result != null) stmt.setString(idx++, result);
+        return idx;
+    }
+
+    // Optimizer's row estimate for the filtered audit log (index dives, no rows are read);
+    // -1 when the server gives no estimate
+    private static long estimateLogCount(Connection conn, String selectSql, Timestamp from, Timestamp to,
+                                         String username, String action, String result) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + selectSql)) {
+            bindLogFilters(stmt, from, to, username, action, result);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return -1;
+                long rows = rs.getLong("rows");
+                double filtered = rs.getDouble("filtered");
+                return filtered > 0 ? Math.round(rows * filtered / 100.0) : rows;
+            }
+        }
+    }
+
+    // ISO-8601 instant (2025-01-31T12:00:00Z) or date (2025-01-31, midnight UTC)
+    private static Timestamp parseTime(String value) {
+        if (value.length() == 10) {
+            return Timestamp.from(LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant());
+        }
+        return Timestamp.from(Instant.parse(value));
+    }
+
+    // Audit log page cursor: the (timestamp, audit_id) key of the last row, as an opaque URL-safe token
+    private static String encodeLogCursor(Timestamp timestamp, long auditId) {
+        String raw = "v1:" + timestamp.getTime() + ":" + auditId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns {millis, auditId}, or null for a malformed token
+    private static long[] decodeLogCursor(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3 || !parts[0].equals("v1")) return null;
+            return new long[] {Long.parseLong(parts[1]), Long.parseLong(parts[2])};
+        } catch (IllegalArgumentException e) {
+            // Covers bad base64 and NumberFormatException
+            return null;
+        }
+    }
+
+    // Query values arrive percent-encoded; empty means not given
+    private static String decodeParam(String value) {
+        if (value == null) return null;
+        try {
+            value = URLDecoder.decode(value, StandardCharsets.UTF_8).trim();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return value.isEmpty() ? null : value;
+    }
+
     private static Map<String, String> parseQueryString(String query) {
         Map<String, String> params = new HashMap<>();
         if (query == null) return params;
@@ -579,6 +1009,15 @@ public class AdminController {
         }
     }
 
+    private static void respondText(HttpExchange exchange, int code, String body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
     private static String escapeJson(String str) {
         if (str == null) return "";
         return str.replace("\\", "\\\\")
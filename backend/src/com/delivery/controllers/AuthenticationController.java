@@ -117,17 +117,24 @@ public class AuthenticationController {
                         return;
                     }
 
-                    // Password verification using SHA-256(password + salt) - matches schema.sql generation
-                    Result<String, String> hashResult = PasswordUtil.hashPassword(password, salt);
-                    if (hashResult.isErr()) {
-                        System.err.println("Password hashing error: " + hashResult.unwrapErr());
+                    // Password verification (PBKDF2, or legacy SHA-256(password + salt) from schema.sql)
+                    // runs on the bounded password pool; this thread waits for it, but logins past the
+                    // pool's capacity are turned away at once instead of all hashing concurrently
+                    Result<Boolean, String> verifyResult = PasswordUtil.verifyPasswordBounded(password, salt, hash);
+                    if (verifyResult.isErr()) {
+                        if (PasswordUtil.VERIFY_BUSY.equals(verifyResult.unwrapErr())) {
+                            AuditLogger.log(id, username, "LOGIN", "error", clientIp, "Password verification pool saturated");
+                            exchange.getResponseHeaders().add("Retry-After", "1");
+                            respondJson(exchange, 503, "{\"message\":\"server busy, try again\"}");
+                            return;
+                        }
+                        System.err.println("Password hashing error: " + verifyResult.unwrapErr());
                         AuditLogger.log(id, username, "LOGIN", "error", clientIp, "Password hashing failed");
                         respondJson(exchange, 500, "{\"message\":\"internal error\"}");
                         return;
                     }
 
-                    String computed = hashResult.unwrap();
-                    if (!computed.equalsIgnoreCase(hash)) {
+                    if (!verifyResult.unwrap()) {
                         // Increment failed attempt counter (will lock account after 3 failures)
                         LoginLockout.recordFailedAttempt(username, clientIp);
                         AuditLogger.log(id, username, "LOGIN", "denied", clientIp, "Invalid password");
@@ -135,6 +142,12 @@ public class AuthenticationController {
                         return;
                     }
 
+                    // Upgrade legacy or under-cost hashes now that we have the plain-text password;
+                    // queued in the background so the login response does not wait for a second PBKDF2
+                    if (PasswordUtil.needsRehash(hash)) {
+                        rehashPassword(id, username, password, salt, hash);
+                    }
+
                     // Convert integer clearance (0-3) to SecurityLevel enum for BLP enforcement
                     SecurityManager.Result<SecurityLevel, String> clearanceResult = SecurityLevel.fromInt(clearanceLevel);
                     if (clearanceResult.isErr()) {
@@ -175,6 +188,37 @@ public class AuthenticationController {
         }
     }
 
+    // Replace the stored hash with one at the current PBKDF2 cost, on the password pool after the
+    // login has been answered. Failures (or a saturated pool) are logged but never block the login;
+    // the hash is simply upgraded on a later attempt.
+    private static void rehashPassword(long userId, String username, String password,
+                                       String salt, String oldHash) {
+        boolean queued = PasswordUtil.hashPasswordInBackground(password, salt, newHash -> {
+            Result<Connection, String> connResult = DatabaseConnection.getConnection();
+            if (connResult.isErr()) {
+                System.err.println("Password rehash failed for " + username + ": " + connResult.unwrapErr());
+                return;
+            }
+            // Guard on the old hash so a concurrent password change is never overwritten
+            String sql = "UPDATE users SET password_hash = ? WHERE user_id = ? AND password_hash = ?";
+            try (Connection c = connResult.unwrap();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, newHash);
+                ps.setLong(2, userId);
+                ps.setString(3, oldHash);
+                if (ps.executeUpdate() == 1) {
+                    AuditLogger.log(userId, username, "PASSWORD_REHASH", "success", null,
+                        "Password hash upgraded to PBKDF2 (" + PasswordUtil.getIterations() + " iterations)");
+                }
+            } catch (SQLException e) {
+                System.err.println("Password rehash failed for " + username + ": " + e.getMessage());
+            }
+        });
+        if (!queued) {
+            System.err.println("Password rehash skipped for " + username + ": " + PasswordUtil.VERIFY_BUSY);
+        }
+    }
+
     private static String readStream(InputStream is) throws IOException {
         StringBuilder sb = new StringBuilder();
         try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
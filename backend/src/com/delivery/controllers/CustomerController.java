@@ -153,7 +153,7 @@ public class CustomerController {
 
             // Generate salt and hash password
             String salt = PasswordManager.generateSalt();
-            Result<String, String> hashResult = PasswordUtil.hashPassword(password, salt);
+            Result<String, String> hashResult = PasswordUtil.hashPasswordBounded(password, salt);
 
             if (hashResult.isErr()) {
                 System.err.println("Password hashing error: " + hashResult.unwrapErr());
@@ -1,6 +1,13 @@
 package com.delivery.controllers;
 
+import com.delivery.dao.DeliveryStatusDAO;
+import com.delivery.dao.InventoryDAO;
 import com.delivery.database.DatabaseConnection;
+import com.delivery.driver.RouteManifestCache;
+import com.delivery.driver.RouteSnapshot;
+import com.delivery.events.EventBus;
+import com.delivery.events.PackageStatusChanged;
+import com.delivery.inventory.FacilityInventoryCounters;
 import com.delivery.models.User;
 import com.delivery.security.SecurityManager;
 import com.delivery.security.SecurityManager.AuditLogger;
@@ -19,16 +26,42 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import com.sun.net.httpserver.HttpExchange;
 
 // DriverController - endpoints for delivery drivers (routes, status updates)
 public class DriverController {
 
+    // Stop details shown in the manifest; callers add WHERE/ORDER BY
+    private static final String ROUTE_STOP_SELECT =
+        "SELECT p.package_id, p.tracking_number, p.package_status, " +
+        "       p.weight_kg, p.fragile, p.signature_required, " +
+        "       rp.stop_sequence, rp.estimated_arrival, " +
+        "       a.street_address, a.city, a.state, a.zip_code, " +
+        "       a.delivery_instructions, " +
+        "       u.full_name AS customer_name, u.phone AS customer_phone " +
+        "FROM route_packages rp " +
+        "JOIN packages p ON rp.package_id = p.package_id " +
+        "JOIN orders o ON p.order_id = o.order_id " +
+        "JOIN addresses a ON o.delivery_address_id = a.address_id " +
+        "JOIN users u ON o.customer_id = u.user_id ";
+
+    private static final List<String> VALID_STATUSES = List.of("created", "at_facility", "in_transit",
+        "out_for_delivery", "delivered", "returned", "lost", "exception");
+    private static final int MAX_SYNC_EVENTS = 500;
+    private static final Pattern EVENT_ID_PATTERN = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+
     // GET /driver/route
     public static void handleGetRoute(HttpExchange exchange) throws IOException {
         String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
@@ -36,7 +69,7 @@ public class DriverController {
         // CORS headers
         exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
         exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization, If-None-Match");
 
         if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
             exchange.sendResponseHeaders(204, -1);
@@ -70,6 +103,23 @@ public class DriverController {
             return;
         }
 
+        // GET /driver/route?since=<X-Manifest-Version> asks for only the changes since that version
+        String since = queryParam(exchange, "since");
+        if (since != null && respondRouteDelta(exchange, session, clientIp, since)) {
+            return;
+        }
+
+        // Unchanged manifests are served from the cache without any database work, including the
+        // audit insert; only manifests built from the database are audited
+        Long cachedDriverId = RouteManifestCache.driverIdFor(session.username);
+        if (cachedDriverId != null) {
+            RouteManifestCache.Manifest cached = RouteManifestCache.get(cachedDriverId);
+            if (cached != null) {
+                respondManifest(exchange, cached);
+                return;
+            }
+        }
+
         // Get database connection
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
@@ -84,13 +134,17 @@ public class DriverController {
 
         try {
             // Get driver's user_id
-            long driverId = getUserId(conn, session.username);
+            long driverId = cachedDriverId != null ? cachedDriverId : getUserId(conn, session.username);
             if (driverId == -1) {
                 AuditLogger.log(null, session.username, "GET_ROUTE", "error", clientIp,
                     "Driver user not found");
                 respondJson(exchange, 404, "{\"error\":\"Driver not found\"}");
                 return;
             }
+            RouteManifestCache.rememberDriver(session.username, driverId);
+
+            // Taken before reading, so a change committed meanwhile keeps this manifest out of the cache
+            long manifestVersion = RouteManifestCache.currentVersion(driverId);
 
             // Query for today's assigned route
             String routeQuery =
@@ -111,10 +165,11 @@ public class DriverController {
 
                 try (ResultSet routeRs = routeStmt.executeQuery()) {
                     if (!routeRs.next()) {
+                        RouteManifestCache.Manifest manifest = RouteManifestCache.put(driverId, manifestVersion,
+                            "{\"message\":\"No route assigned for today\",\"route\":null}", null);
                         AuditLogger.log(driverId, session.username, "GET_ROUTE", "success", clientIp,
                             "No route assigned for today");
-                        respondJson(exchange, 200,
-                            "{\"message\":\"No route assigned for today\",\"route\":null}");
+                        respondManifest(exchange, manifest);
                         return;
                     }
 
@@ -130,18 +185,7 @@ public class DriverController {
                     String facilityAddress = routeRs.getString("facility_address");
 
                     // Query for packages in this route
-                    String packagesQuery =
-                        "SELECT p.package_id, p.tracking_number, p.package_status, " +
-                        "       p.weight_kg, p.fragile, p.signature_required, " +
-                        "       rp.stop_sequence, rp.estimated_arrival, " +
-                        "       a.street_address, a.city, a.state, a.zip_code, " +
-                        "       a.delivery_instructions, " +
-                        "       u.full_name AS customer_name, u.phone AS customer_phone " +
-                        "FROM route_packages rp " +
-                        "JOIN packages p ON rp.package_id = p.package_id " +
-                        "JOIN orders o ON p.order_id = o.order_id " +
-                        "JOIN addresses a ON o.delivery_address_id = a.address_id " +
-                        "JOIN users u ON o.customer_id = u.user_id " +
+                    String packagesQuery = ROUTE_STOP_SELECT +
                         "WHERE rp.route_id = ? " +
                         "ORDER BY rp.stop_sequence";
 
@@ -152,23 +196,7 @@ public class DriverController {
 
                         try (ResultSet packagesRs = packagesStmt.executeQuery()) {
                             while (packagesRs.next()) {
-                                Map<String, Object> pkg = new HashMap<>();
-                                pkg.put("packageId", packagesRs.getLong("package_id"));
-                                pkg.put("trackingNumber", packagesRs.getString("tracking_number"));
-                                pkg.put("status", packagesRs.getString("package_status"));
-                                pkg.put("weightKg", packagesRs.getDouble("weight_kg"));
-                                pkg.put("fragile", packagesRs.getBoolean("fragile"));
-                                pkg.put("signatureRequired", packagesRs.getBoolean("signature_required"));
-                                pkg.put("stopSequence", packagesRs.getInt("stop_sequence"));
-                                pkg.put("estimatedArrival", packagesRs.getTimestamp("estimated_arrival"));
-                                pkg.put("streetAddress", packagesRs.getString("street_address"));
-                                pkg.put("city", packagesRs.getString("city"));
-                                pkg.put("state", packagesRs.getString("state"));
-                                pkg.put("zipCode", packagesRs.getString("zip_code"));
-                                pkg.put("deliveryInstructions", packagesRs.getString("delivery_instructions"));
-                                pkg.put("customerName", packagesRs.getString("customer_name"));
-                                pkg.put("customerPhone", packagesRs.getString("customer_phone"));
-                                packages.add(pkg);
+                                packages.add(readStop(packagesRs));
                             }
                         }
                     }
@@ -189,33 +217,19 @@ public class DriverController {
                     json.append("\"packages\":[");
 
                     for (int i = 0; i < packages.size(); i++) {
-                        Map<String, Object> pkg = packages.get(i);
                         if (i > 0) json.append(",");
-                        json.append("{");
-                        json.append("\"packageId\":").append(pkg.get("packageId")).append(",");
-                        json.append("\"trackingNumber\":\"").append(escapeJson((String)pkg.get("trackingNumber"))).append("\",");
-                        json.append("\"status\":\"").append(escapeJson((String)pkg.get("status"))).append("\",");
-                        json.append("\"weightKg\":").append(pkg.get("weightKg")).append(",");
-                        json.append("\"fragile\":").append(pkg.get("fragile")).append(",");
-                        json.append("\"signatureRequired\":").append(pkg.get("signatureRequired")).append(",");
-                        json.append("\"stopSequence\":").append(pkg.get("stopSequence")).append(",");
-                        json.append("\"estimatedArrival\":").append(pkg.get("estimatedArrival") != null ? "\"" + pkg.get("estimatedArrival").toString() + "\"" : "null").append(",");
-                        json.append("\"streetAddress\":\"").append(escapeJson((String)pkg.get("streetAddress"))).append("\",");
-                        json.append("\"city\":\"").append(escapeJson((String)pkg.get("city"))).append("\",");
-                        json.append("\"state\":\"").append(escapeJson((String)pkg.get("state"))).append("\",");
-                        json.append("\"zipCode\":\"").append(escapeJson((String)pkg.get("zipCode"))).append("\",");
-                        json.append("\"deliveryInstructions\":\"").append(escapeJson((String)pkg.get("deliveryInstructions"))).append("\",");
-                        json.append("\"customerName\":\"").append(escapeJson((String)pkg.get("customerName"))).append("\",");
-                        json.append("\"customerPhone\":\"").append(escapeJson((String)pkg.get("customerPhone"))).append("\"");
-                        json.append("}");
+                        appendStopJson(json, packages.get(i));
                     }
 
                     json.append("]}}");
 
+                    RouteManifestCache.Manifest manifest = RouteManifestCache.put(driverId, manifestVersion,
+                        json.toString(), snapshotOf(routeId, packages));
+
                     AuditLogger.log(driverId, session.username, "GET_ROUTE", "success", clientIp,
                         String.format("Retrieved route %d with %d packages", routeId, packages.size()));
 
-                    respondJson(exchange, 200, json.toString());
+                    respondManifest(exchange, manifest);
                 }
             }
 
@@ -234,6 +248,166 @@ public class DriverController {
         }
     }
 
+    // Answers GET /driver/route?since=<token> with what changed on the driver's route since
+    // that version: {"since":"...","version":"...","routeId":N,"added":[stops as in the manifest],
+    // "removed":[packageIds],"resequenced":[{packageId,stopSequence}],"statusChanged":[{packageId,status}]}.
+    // Returns false without responding when the token cannot be diffed against (not kept, another
+    // day or route, or a package/address edit since); the caller then sends the full manifest,
+    // which clients tell apart by its "route" field.
+    private static boolean respondRouteDelta(HttpExchange exchange, SessionManager.Session session,
+                                             String clientIp, String since) throws IOException {
+        // Snapshots are only kept for drivers who fetched a manifest in this server run
+        Long driverId = RouteManifestCache.driverIdFor(session.username);
+        if (driverId == null) return false;
+
+        long sinceVersion = RouteManifestCache.parseToken(since);
+        RouteSnapshot base = RouteManifestCache.getSnapshot(driverId, since);
+        if (sinceVersion < 0 || base == null || !base.getDay().equals(LocalDate.now())
+                || RouteManifestCache.invalidatedAllSince(sinceVersion)) {
+            return false;
+        }
+
+        // Nothing on the route changed since: answer without touching the database, unless the
+        // snapshot is past the manifest TTL and may have missed writes from outside this server
+        if (sinceVersion == RouteManifestCache.currentVersion(driverId) && RouteManifestCache.isFresh(base)) {
+            respondJson(exchange, 200,
+                deltaJson(since, since, base.getRouteId(), new RouteSnapshot.Delta(), List.of()));
+            return true;
+        }
+
+        Result<Connection, String> connResult = DatabaseConnection.getConnection();
+        if (connResult.isErr()) {
+            // The full manifest path reports the failure
+            return false;
+        }
+
+        try (Connection conn = connResult.unwrap()) {
+            // Taken before reading, as for the full manifest
+            long version = RouteManifestCache.currentVersion(driverId);
+
+            String routeQuery =
+                "SELECT r.route_id " +
+                "FROM route_assignments ra " +
+                "JOIN routes r ON ra.route_id = r.route_id " +
+                "WHERE ra.driver_id = ? " +
+                "  AND r.route_date = CURDATE() " +
+                "  AND r.route_status IN ('planned', 'in_progress') " +
+                "ORDER BY r.route_date DESC, r.created_at DESC " +
+                "LIMIT 1";
+
+            try (PreparedStatement routeStmt = conn.prepareStatement(routeQuery)) {
+                routeStmt.setLong(1, driverId);
+                try (ResultSet routeRs = routeStmt.executeQuery()) {
+                    // A different (or no) route replaces the whole manifest
+                    if (!routeRs.next() || routeRs.getLong("route_id") != base.getRouteId()) {
+                        return false;
+                    }
+                }
+            }
+
+            // Current stop list from route_packages and package status; no address or customer joins
+            String stopsQuery =
+                "SELECT rp.package_id, rp.stop_sequence, p.package_status " +
+                "FROM route_packages rp " +
+                "JOIN packages p ON rp.package_id = p.package_id " +
+                "WHERE rp.route_id = ? " +
+                "ORDER BY rp.stop_sequence";
+
+            List<Long> packageIds = new ArrayList<>();
+            List<Integer> stopSequences = new ArrayList<>();
+            List<String> statuses = new ArrayList<>();
+            try (PreparedStatement stopsStmt = conn.prepareStatement(stopsQuery)) {
+                stopsStmt.setLong(1, base.getRouteId());
+                try (ResultSet stopsRs = stopsStmt.executeQuery()) {
+                    while (stopsRs.next()) {
+                        packageIds.add(stopsRs.getLong("package_id"));
+                        stopSequences.add(stopsRs.getInt("stop_sequence"));
+                        statuses.add(stopsRs.getString("package_status"));
+                    }
+                }
+            }
+
+            RouteSnapshot current = new RouteSnapshot(base.getRouteId(), LocalDate.now(),
+                packageIds.stream().mapToLong(Long::longValue).toArray(),
+                stopSequences.stream().mapToInt(Integer::intValue).toArray(),
+                statuses.toArray(new String[0]));
+            RouteSnapshot.Delta delta = base.diff(current);
+
+            // Full details only for stops the client has not seen
+            List<Map<String, Object>> addedStops = new ArrayList<>();
+            if (!delta.added.isEmpty()) {
+                StringBuilder addedQuery = new StringBuilder(ROUTE_STOP_SELECT);
+                addedQuery.append("WHERE rp.route_id = ? AND rp.package_id IN (");
+                for (int i = 0; i < delta.added.size(); i++) {
+                    addedQuery.append(i > 0 ? ", ?" : "?");
+                }
+                addedQuery.append(") ORDER BY rp.stop_sequence");
+
+                try (PreparedStatement addedStmt = conn.prepareStatement(addedQuery.toString())) {
+                    addedStmt.setLong(1, base.getRouteId());
+                    for (int i = 0; i < delta.added.size(); i++) {
+                        addedStmt.setLong(i + 2, delta.added.get(i));
+                    }
+                    try (ResultSet addedRs = addedStmt.executeQuery()) {
+                        while (addedRs.next()) {
+                            addedStops.add(readStop(addedRs));
+                        }
+                    }
+                }
+            }
+
+            String token = RouteManifestCache.putSnapshot(driverId, version, current);
+
+            AuditLogger.log(driverId, session.username, "GET_ROUTE", "success", clientIp,
+                String.format("Retrieved changes to route %d: %d added, %d removed, %d resequenced, %d status changes",
+                    base.getRouteId(), delta.added.size(), delta.removed.size(),
+                    delta.resequenced.size(), delta.statusChanged.size()));
+
+            respondJson(exchange, 200, deltaJson(since, token, base.getRouteId(), delta, addedStops));
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("SQL error during route delta: " + e.getMessage());
+            e.printStackTrace();
+            AuditLogger.log(null, session.username, "GET_ROUTE", "error", clientIp,
+                "Database error: " + e.getMessage());
+            respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+            return true;
+        }
+    }
+
+    private static String deltaJson(String since, String version, long routeId, RouteSnapshot.Delta delta,
+                                    List<Map<String, Object>> addedStops) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"since\":\"").append(escapeJson(since)).append("\",");
+        json.append("\"version\":\"").append(escapeJson(version)).append("\",");
+        json.append("\"routeId\":").append(routeId).append(",");
+        json.append("\"added\":[");
+        for (int i = 0; i < addedStops.size(); i++) {
+            if (i > 0) json.append(",");
+            appendStopJson(json, addedStops.get(i));
+        }
+        json.append("],\"removed\":[");
+        for (int i = 0; i < delta.removed.size(); i++) {
+            if (i > 0) json.append(",");
+            json.append(delta.removed.get(i));
+        }
+        json.append("],\"resequenced\":[");
+        for (int i = 0; i < delta.resequenced.size(); i++) {
+            if (i > 0) json.append(",");
+            json.append("{\"packageId\":").append(delta.resequenced.get(i));
+            json.append(",\"stopSequence\":").append(delta.resequencedTo.get(i)).append("}");
+        }
+        json.append("],\"statusChanged\":[");
+        for (int i = 0; i < delta.statusChanged.size(); i++) {
+            if (i > 0) json.append(",");
+            json.append("{\"packageId\":").append(delta.statusChanged.get(i));
+            json.append(",\"status\":\"").append(escapeJson(delta.statusChangedTo.get(i))).append("\"}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
     // Update delivery status
     public static void handleUpdateDeliveryStatus(HttpExchange exchange) throws IOException {
         String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
@@ -303,9 +477,7 @@ public class DriverController {
         }
 
         // Validate status value
-        List<String> validStatuses = List.of("created", "at_facility", "in_transit",
-            "out_for_delivery", "delivered", "returned", "lost", "exception");
-        if (!validStatuses.contains(status)) {
+        if (!VALID_STATUSES.contains(status)) {
             AuditLogger.log(null, session.username, "UPDATE_DELIVERY_STATUS", "denied", clientIp,
                 "Invalid status value: " + status);
             respondJson(exchange, 400, "{\"error\":\"Invalid status value\"}");
@@ -358,7 +530,7 @@ public class DriverController {
             try {
                 // Verify package exists and driver is assigned to its route
                 String verifyQuery =
-                    "SELECT p.package_id, p.tracking_number, p.package_status " +
+                    "SELECT p.package_id, p.tracking_number, p.package_status, p.current_facility_id " +
                     "FROM packages p " +
                     "JOIN route_packages rp ON p.package_id = rp.package_id " +
                     "JOIN routes r ON rp.route_id = r.route_id " +
@@ -368,6 +540,7 @@ public class DriverController {
 
                 String trackingNumber;
                 String currentStatus;
+                Long facilityId;
 
                 try (PreparedStatement verifyStmt = conn.prepareStatement(verifyQuery)) {
                     verifyStmt.setLong(1, packageId);
@@ -385,6 +558,8 @@ public class DriverController {
 
                         trackingNumber = verifyRs.getString("tracking_number");
                         currentStatus = verifyRs.getString("package_status");
+                        facilityId = verifyRs.getLong("current_facility_id");
+                        if (verifyRs.wasNull()) facilityId = null;
                     }
                 }
 
@@ -403,6 +578,14 @@ public class DriverController {
                     }
                 }
 
+                // Keep the package's inventory record in step (checked out, restocked or closed)
+                FacilityInventoryCounters.Changes counterChanges = new FacilityInventoryCounters.Changes();
+                Result<Void, String> inventoryResult =
+                    InventoryDAO.applyPackageStatus(conn, packageId, sanitizedStatus, counterChanges);
+                if (inventoryResult.isErr()) {
+                    throw new SQLException(inventoryResult.unwrapErr());
+                }
+
                 // Insert into delivery status history
                 String historyQuery =
                     "INSERT INTO delivery_status_history (package_id, status, location, updated_by, notes) " +
@@ -433,6 +616,9 @@ public class DriverController {
 
                 // Commit transaction
                 conn.commit();
+                counterChanges.apply();
+                EventBus.publish(new PackageStatusChanged(packageId, trackingNumber, sanitizedStatus,
+                    facilityId, driverId));
 
                 AuditLogger.log(driverId, session.username, "UPDATE_DELIVERY_STATUS", "success", clientIp,
                     String.format("Updated package %s (ID: %d) from '%s' to '%s'",
@@ -467,8 +653,374 @@ public class DriverController {
         }
     }
 
+    // POST /driver/sync - apply status updates a driver queued while offline
+    // Body: {"events":[{"eventId":"...","packageId":123,"status":"delivered","clientTime":"2026-01-01T10:02:00Z",
+    //                   "notes":"...","location":"..."}, ...]}
+    // eventId is generated on the device and makes retries safe: an event already applied is
+    // reported as a duplicate instead of being applied again. Accepted events are applied in
+    // clientTime order in one transaction; each gets its own result. An event older than the
+    // package's latest status is recorded in its history only and reported as stale.
+    public static void handleSyncDeliveryStatus(HttpExchange exchange) throws IOException {
+        String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        // CORS headers
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
+
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        // Get session token
+        String token = extractToken(exchange);
+
+        // Validate session
+        Result<SessionManager.Session, String> sessionResult = SessionManager.getSession(token);
+        if (sessionResult.isErr()) {
+            AuditLogger.log(null, null, "SYNC_DELIVERY_STATUS", "denied", clientIp,
+                "Session validation failed: " + sessionResult.unwrapErr());
+            respondJson(exchange, 401, "{\"error\":\"Unauthorized - Please log in\"}");
+            return;
+        }
+
+        SessionManager.Session session = sessionResult.unwrap();
+
+        // Verify user has driver role
+        if (!"driver".equals(session.role)) {
+            AuditLogger.log(null, session.username, "SYNC_DELIVERY_STATUS", "denied", clientIp,
+                "Access denied - requires driver role");
+            respondJson(exchange, 403, "{\"error\":\"Forbidden - Driver access required\"}");
+            return;
+        }
+
+        // Parse request body
+        String body = readStream(exchange.getRequestBody());
+        List<String> eventBodies = jsonArrayObjects(body, "events");
+        if (eventBodies == null || eventBodies.isEmpty() || eventBodies.size() > MAX_SYNC_EVENTS) {
+            AuditLogger.log(null, session.username, "SYNC_DELIVERY_STATUS", "denied", clientIp,
+                "Invalid event count: " + (eventBodies == null ? 0 : eventBodies.size()));
+            respondJson(exchange, 400,
+                "{\"error\":\"Between 1 and " + MAX_SYNC_EVENTS + " events can be synced per request\"}");
+            return;
+        }
+
+        // Validate each event on its own; a bad event is rejected without failing the batch
+        int count = eventBodies.size();
+        String[] eventIds = new String[count];
+        long[] packageIds = new long[count];
+        String[] outcomes = new String[count];
+        String[] errors = new String[count];
+        DeliveryStatusDAO.StatusEvent[] events = new DeliveryStatusDAO.StatusEvent[count];
+        Set<String> seenEventIds = new HashSet<>();
+        Timestamp receivedAt = new Timestamp(System.currentTimeMillis());
+
+        for (int i = 0; i < count; i++) {
+            Map<String, String> parsed = parseJson(eventBodies.get(i));
+            eventIds[i] = parsed.get("eventId");
+            Result<DeliveryStatusDAO.StatusEvent, String> eventResult = parseStatusEvent(parsed, receivedAt);
+            if (eventResult.isErr()) {
+                outcomes[i] = "rejected";
+                errors[i] = eventResult.unwrapErr();
+                try {
+                    packageIds[i] = Long.parseLong(parsed.getOrDefault("packageId", ""));
+                } catch (NumberFormatException e) {
+                    packageIds[i] = -1;
+                }
+                continue;
+            }
+            events[i] = eventResult.unwrap();
+            packageIds[i] = events[i].packageId;
+            if (!seenEventIds.add(events[i].eventId)) {
+                // Same event queued twice in one batch
+                outcomes[i] = "duplicate";
+                events[i] = null;
+            }
+        }
+
+        // Get database connection
+        Result<Connection, String> connResult = DatabaseConnection.getConnection();
+        if (connResult.isErr()) {
+            System.err.println("Database connection error: " + connResult.unwrapErr());
+            AuditLogger.log(null, session.username, "SYNC_DELIVERY_STATUS", "error", clientIp,
+                "Database connection failed");
+            respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+            return;
+        }
+
+        Connection conn = connResult.unwrap();
+
+        try {
+            // Get driver's user_id
+            Long cachedDriverId = RouteManifestCache.driverIdFor(session.username);
+            long driverId = cachedDriverId != null ? cachedDriverId : getUserId(conn, session.username);
+            if (driverId == -1) {
+                AuditLogger.log(null, session.username, "SYNC_DELIVERY_STATUS", "error", clientIp,
+                    "Driver user not found");
+                respondJson(exchange, 404, "{\"error\":\"Driver not found\"}");
+                return;
+            }
+            RouteManifestCache.rememberDriver(session.username, driverId);
+
+            // Begin transaction
+            conn.setAutoCommit(false);
+
+            try {
+                Result<Void, String> lockResult = DeliveryStatusDAO.lockDriver(conn, driverId);
+                if (lockResult.isErr()) {
+                    throw new SQLException(lockResult.unwrapErr());
+                }
+
+                // Drop events an earlier sync already applied (the retry after a lost response)
+                List<String> newEventIds = new ArrayList<>();
+                for (DeliveryStatusDAO.StatusEvent e : events) {
+                    if (e != null) newEventIds.add(e.eventId);
+                }
+                Result<Set<String>, String> recordedResult =
+                    DeliveryStatusDAO.findRecordedEvents(conn, driverId, newEventIds);
+                if (recordedResult.isErr()) {
+                    throw new SQLException(recordedResult.unwrapErr());
+                }
+                Set<String> recorded = recordedResult.unwrap();
+
+                List<DeliveryStatusDAO.StatusEvent> pending = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    if (events[i] == null) continue;
+                    if (recorded.contains(events[i].eventId)) {
+                        outcomes[i] = "duplicate";
+                        events[i] = null;
+                    } else {
+                        pending.add(events[i]);
+                    }
+                }
+
+                // Verify every package against the driver's route for today in one query
+                Result<Set<Long>, String> routeResult = DeliveryStatusDAO.findRoutePackages(conn, driverId, pending);
+                if (routeResult.isErr()) {
+                    throw new SQLException(routeResult.unwrapErr());
+                }
+                Set<Long> onRoute = routeResult.unwrap();
+
+                List<DeliveryStatusDAO.StatusEvent> accepted = new ArrayList<>(pending.size());
+                for (int i = 0; i < count; i++) {
+                    if (events[i] == null) continue;
+                    if (onRoute.contains(events[i].packageId)) {
+                        outcomes[i] = "applied";
+                        accepted.add(events[i]);
+                    } else {
+                        outcomes[i] = "rejected";
+                        errors[i] = "Package not found in your assigned route";
+                    }
+                }
+
+                // Apply in the order the driver recorded them (stable, so ties keep queue order)
+                accepted.sort(Comparator.comparing(e -> e.occurredAt));
+
+                FacilityInventoryCounters.Changes counterChanges = new FacilityInventoryCounters.Changes();
+                Result<Void, String> applyResult =
+                    DeliveryStatusDAO.applyStatusEvents(conn, driverId, accepted, counterChanges);
+                if (applyResult.isErr()) {
+                    throw new SQLException(applyResult.unwrapErr());
+                }
+
+                // Commit transaction
+                conn.commit();
+                counterChanges.apply();
+                for (DeliveryStatusDAO.StatusEvent e : accepted) {
+                    if (e.stale) continue;
+                    EventBus.publish(new PackageStatusChanged(e.packageId, e.trackingNumber, e.status,
+                        e.facilityId, driverId));
+                }
+                for (int i = 0; i < count; i++) {
+                    if (events[i] != null && events[i].stale) outcomes[i] = "stale";
+                }
+
+                int applied = 0, stale = 0, duplicates = 0, rejected = 0;
+                StringBuilder json = new StringBuilder();
+                json.append("{\"success\":true,\"results\":[");
+                for (int i = 0; i < count; i++) {
+                    if ("applied".equals(outcomes[i])) applied++;
+                    else if ("stale".equals(outcomes[i])) stale++;
+                    else if ("duplicate".equals(outcomes[i])) duplicates++;
+                    else rejected++;
+
+                    if (i > 0) json.append(",");
+                    json.append("{\"eventId\":");
+                    json.append(eventIds[i] != null ? "\"" + escapeJson(eventIds[i]) + "\"" : "null");
+                    json.append(",\"packageId\":").append(packageIds[i]);
+                    json.append(",\"result\":\"").append(outcomes[i]).append("\"");
+                    if (events[i] != null && events[i].trackingNumber != null) {
+                        json.append(",\"trackingNumber\":\"").append(escapeJson(events[i].trackingNumber)).append("\"");
+                    }
+                    if (errors[i] != null) {
+                        json.append(",\"error\":\"").append(escapeJson(errors[i])).append("\"");
+                    }
+                    json.append("}");
+                }
+                json.append("],\"applied\":").append(applied);
+                json.append(",\"stale\":").append(stale);
+                json.append(",\"duplicates\":").append(duplicates);
+                json.append(",\"rejected\":").append(rejected).append("}");
+
+                // One audit entry for the batch rather than one per event
+                AuditLogger.log(driverId, session.username, "SYNC_DELIVERY_STATUS", "success", clientIp,
+                    String.format("Synced %d events: %d applied, %d stale, %d duplicate, %d rejected",
+                        count, applied, stale, duplicates, rejected));
+
+                respondJson(exchange, 200, json.toString());
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("SQL error during status sync: " + e.getMessage());
+            e.printStackTrace();
+            AuditLogger.log(null, session.username, "SYNC_DELIVERY_STATUS", "error", clientIp,
+                "Database error: " + e.getMessage());
+            respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing connection: " + e.getMessage());
+            }
+        }
+    }
+
     // Helper methods
 
+    // Validates one queued status event; clientTime (ISO-8601 instant, optional) defaults to
+    // when the sync arrived and is capped there, since a device clock can run ahead
+    private static Result<DeliveryStatusDAO.StatusEvent, String> parseStatusEvent(Map<String, String> parsed,
+                                                                               Timestamp receivedAt) {
+        String eventId = parsed.get("eventId");
+        if (eventId == null || !EVENT_ID_PATTERN.matcher(eventId).matches()) {
+            return Result.err("eventId is required (1-64 letters, digits, '-', '_', '.' or ':')");
+        }
+
+        String packageIdStr = parsed.get("packageId");
+        String status = parsed.get("status");
+        if (packageIdStr == null || status == null) {
+            return Result.err("packageId and status are required");
+        }
+
+        long packageId;
+        try {
+            packageId = Long.parseLong(packageIdStr);
+        } catch (NumberFormatException e) {
+            return Result.err("Invalid packageId format");
+        }
+
+        if (!VALID_STATUSES.contains(status)) {
+            return Result.err("Invalid status value");
+        }
+
+        Timestamp occurredAt = receivedAt;
+        String clientTime = parsed.get("clientTime");
+        if (clientTime != null && !clientTime.isEmpty()) {
+            try {
+                Timestamp parsedTime = Timestamp.from(Instant.parse(clientTime));
+                if (parsedTime.before(receivedAt)) occurredAt = parsedTime;
+            } catch (DateTimeParseException e) {
+                return Result.err("Invalid clientTime format");
+            }
+        }
+
+        String notes = parsed.get("notes");
+        String location = parsed.get("location");
+        SecurityManager.Result<String, String> notesResult = notes != null ?
+            InputSanitizer.sanitizeString(notes) : SecurityManager.Result.ok("");
+        SecurityManager.Result<String, String> locationResult = location != null ?
+            InputSanitizer.sanitizeString(location) : SecurityManager.Result.ok("");
+        if (notesResult.isErr() || locationResult.isErr()) {
+            return Result.err("Invalid input format");
+        }
+
+        String sanitizedNotes = notesResult.unwrap();
+        String sanitizedLocation = locationResult.unwrap();
+        return Result.ok(new DeliveryStatusDAO.StatusEvent(eventId, packageId, status,
+            sanitizedNotes.isEmpty() ? null : sanitizedNotes,
+            sanitizedLocation.isEmpty() ? null : sanitizedLocation,
+            occurredAt));
+    }
+
+    // One stop of a ROUTE_STOP_SELECT result
+    private static Map<String, Object> readStop(ResultSet rs) throws SQLException {
+        Map<String, Object> pkg = new HashMap<>();
+        pkg.put("packageId", rs.getLong("package_id"));
+        pkg.put("trackingNumber", rs.getString("tracking_number"));
+        pkg.put("status", rs.getString("package_status"));
+        pkg.put("weightKg", rs.getDouble("weight_kg"));
+        pkg.put("fragile", rs.getBoolean("fragile"));
+        pkg.put("signatureRequired", rs.getBoolean("signature_required"));
+        pkg.put("stopSequence", rs.getInt("stop_sequence"));
+        pkg.put("estimatedArrival", rs.getTimestamp("estimated_arrival"));
+        pkg.put("streetAddress", rs.getString("street_address"));
+        pkg.put("city", rs.getString("city"));
+        pkg.put("state", rs.getString("state"));
+        pkg.put("zipCode", rs.getString("zip_code"));
+        pkg.put("deliveryInstructions", rs.getString("delivery_instructions"));
+        pkg.put("customerName", rs.getString("customer_name"));
+        pkg.put("customerPhone", rs.getString("customer_phone"));
+        return pkg;
+    }
+
+    private static void appendStopJson(StringBuilder json, Map<String, Object> pkg) {
+        json.append("{");
+        json.append("\"packageId\":").append(pkg.get("packageId")).append(",");
+        json.append("\"trackingNumber\":\"").append(escapeJson((String)pkg.get("trackingNumber"))).append("\",");
+        json.append("\"status\":\"").append(escapeJson((String)pkg.get("status"))).append("\",");
+        json.append("\"weightKg\":").append(pkg.get("weightKg")).append(",");
+        json.append("\"fragile\":").append(pkg.get("fragile")).append(",");
+        json.append("\"signatureRequired\":").append(pkg.get("signatureRequired")).append(",");
+        json.append("\"stopSequence\":").append(pkg.get("stopSequence")).append(",");
+        json.append("\"estimatedArrival\":").append(pkg.get("estimatedArrival") != null ? "\"" + pkg.get("estimatedArrival").toString() + "\"" : "null").append(",");
+        json.append("\"streetAddress\":\"").append(escapeJson((String)pkg.get("streetAddress"))).append("\",");
+        json.append("\"city\":\"").append(escapeJson((String)pkg.get("city"))).append("\",");
+        json.append("\"state\":\"").append(escapeJson((String)pkg.get("state"))).append("\",");
+        json.append("\"zipCode\":\"").append(escapeJson((String)pkg.get("zipCode"))).append("\",");
+        json.append("\"deliveryInstructions\":\"").append(escapeJson((String)pkg.get("deliveryInstructions"))).append("\",");
+        json.append("\"customerName\":\"").append(escapeJson((String)pkg.get("customerName"))).append("\",");
+        json.append("\"customerPhone\":\"").append(escapeJson((String)pkg.get("customerPhone"))).append("\"");
+        json.append("}");
+    }
+
+    // Stop list of a manifest, kept so later requests can be answered with a delta
+    private static RouteSnapshot snapshotOf(long routeId, List<Map<String, Object>> packages) {
+        long[] packageIds = new long[packages.size()];
+        int[] stopSequences = new int[packages.size()];
+        String[] statuses = new String[packages.size()];
+        for (int i = 0; i < packages.size(); i++) {
+            packageIds[i] = (Long) packages.get(i).get("packageId");
+            stopSequences[i] = (Integer) packages.get(i).get("stopSequence");
+            statuses[i] = (String) packages.get(i).get("status");
+        }
+        return new RouteSnapshot(routeId, LocalDate.now(), packageIds, stopSequences, statuses);
+    }
+
+    // Value of one query string parameter, or null
+    private static String queryParam(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null) return null;
+        for (String param : query.split("&")) {
+            String[] keyValue = param.split("=", 2);
+            if (keyValue.length == 2 && name.equals(keyValue[0]) && !keyValue[1].isEmpty()) {
+                return keyValue[1];
+            }
+        }
+        return null;
+    }
+
     // Extracts authentication token from cookie or Authorization header
     private static String extractToken(HttpExchange exchange) {
         // Try Authorization header first
@@ -523,7 +1075,28 @@ public class DriverController {
         s = s.trim();
         if (s.startsWith("{")) s = s.substring(1);
         if (s.endsWith("}")) s = s.substring(0, s.length()-1);
-        String[] parts = s.split(",");
+
+        // Split by comma but respect quoted strings (notes often contain commas)
+        List<String> parts = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+                current.append(c);
+            } else if (c == ',' && !inQuotes) {
+                parts.add(current.toString());
+                current = new StringBuilder();
+            } else {
+                current.append(c);
+            }
+        }
+        if (current.length() > 0) {
+            parts.add(current.toString());
+        }
+
         for (String p : parts) {
             int idx = p.indexOf(":");
             if (idx <= 0) continue;
@@ -534,6 +1107,58 @@ public class DriverController {
         return map;
     }
 
+    // Raw text of each object in a top-level array field ("key":[{...},{...}]), or null if the
+    // field is absent; each object can then go through parseJson
+    private static List<String> jsonArrayObjects(String s, String key) {
+        if (s == null) return null;
+        int keyAt = s.indexOf("\"" + key + "\"");
+        if (keyAt < 0) return null;
+        int i = keyAt + key.length() + 2;
+        while (i < s.length() && (Character.isWhitespace(s.charAt(i)) || s.charAt(i) == ':')) i++;
+        if (i >= s.length() || s.charAt(i) != '[') return null;
+
+        List<String> objects = new ArrayList<>();
+        int depth = 0;
+        int start = -1;
+        boolean inQuotes = false;
+        for (i = i + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (inQuotes) {
+                if (c == '\\') i++;
+                else if (c == '"') inQuotes = false;
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == '{') {
+                if (depth++ == 0) start = i;
+            } else if (c == '}') {
+                if (--depth == 0) objects.add(s.substring(start, i + 1));
+            } else if (c == ']' && depth == 0) {
+                break;
+            }
+        }
+        return objects;
+    }
+
+    // Sends a route manifest, or 304 when the client's If-None-Match already names it
+    private static void respondManifest(HttpExchange exchange, RouteManifestCache.Manifest manifest) throws IOException {
+        exchange.getResponseHeaders().add("ETag", manifest.getEtag());
+        exchange.getResponseHeaders().add("X-Manifest-Version", manifest.getToken());
+        exchange.getResponseHeaders().add("Cache-Control", "private, no-cache");
+        exchange.getResponseHeaders().add("Access-Control-Expose-Headers", "ETag, X-Manifest-Version");
+
+        if (manifest.matches(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        byte[] bytes = manifest.getJson();
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
     private static void respondJson(HttpExchange exchange, int code, String body) throws IOException {
         exchange.getResponseHeaders().add("Content-Type", "application/json");
         byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
@@ -0,0 +1,278 @@
+package com.delivery.controllers;
+
+import com.delivery.database.DatabaseConnection;
+import com.delivery.driver.RouteManifestCache;
+import com.delivery.push.PushHub;
+import com.delivery.security.SecurityManager.AuditLogger;
+import com.delivery.session.SessionManager;
+import com.delivery.util.Result;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * EventsController - Server-Sent Events stream for live updates (see PushHub)
+ *
+ * GET /api/events?tracking=TN1,TN2    package status and transfer events (public, like tracking)
+ * GET /api/events?driver=1            the logged-in driver's route changes (Driver)
+ * GET /api/events?facility=3,4        status, transfer and inventory events per facility (Manager+)
+ *
+ * Parameters can be combined; each event is sent once even if several of them match it.
+ */
+public class EventsController {
+    private static final int MAX_TRACKING_NUMBERS = 20;
+    private static final int MAX_FACILITIES = 50;
+    private static final Pattern TRACKING_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    public static void handleEvents(HttpExchange exchange) throws IOException {
+        String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        // CORS headers
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization, Last-Event-ID");
+
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        List<String> trackingNumbers = listParam(exchange, "tracking");
+        List<String> facilityParams = listParam(exchange, "facility");
+        boolean wantsDriver = "1".equals(queryParam(exchange, "driver"))
+            || "true".equals(queryParam(exchange, "driver"));
+
+        if (trackingNumbers.isEmpty() && facilityParams.isEmpty() && !wantsDriver) {
+            respondJson(exchange, 400, "{\"error\":\"tracking, driver or facility parameter is required\"}");
+            return;
+        }
+
+        if (trackingNumbers.size() > MAX_TRACKING_NUMBERS || facilityParams.size() > MAX_FACILITIES) {
+            respondJson(exchange, 400, "{\"error\":\"Too many tracking numbers or facilities\"}");
+            return;
+        }
+
+        for (String trackingNumber : trackingNumbers) {
+            if (!TRACKING_PATTERN.matcher(trackingNumber).matches()) {
+                respondJson(exchange, 400, "{\"error\":\"Invalid tracking number format\"}");
+                return;
+            }
+        }
+
+        List<Long> facilityIds = new ArrayList<>(facilityParams.size());
+        for (String facility : facilityParams) {
+            try {
+                facilityIds.add(Long.parseLong(facility));
+            } catch (NumberFormatException e) {
+                respondJson(exchange, 400, "{\"error\":\"Invalid facility format\"}");
+                return;
+            }
+        }
+
+        // Driver and facility streams need a session; tracking alone is public
+        SessionManager.Session session = null;
+        if (wantsDriver || !facilityIds.isEmpty()) {
+            Result<SessionManager.Session, String> sessionResult = SessionManager.getSession(extractToken(exchange));
+            if (sessionResult.isErr()) {
+                AuditLogger.log(null, null, "SUBSCRIBE_EVENTS", "denied", clientIp,
+                    "Session validation failed: " + sessionResult.unwrapErr());
+                respondJson(exchange, 401, "{\"error\":\"Unauthorized - Please log in\"}");
+                return;
+            }
+            session = sessionResult.unwrap();
+
+            if (wantsDriver && !"driver".equals(session.role)) {
+                AuditLogger.log(null, session.username, "SUBSCRIBE_EVENTS", "denied", clientIp,
+                    "Access denied - driver stream requires driver role");
+                respondJson(exchange, 403, "{\"error\":\"Forbidden - Driver access required\"}");
+                return;
+            }
+            if (!facilityIds.isEmpty() && !"manager".equals(session.role) && !"admin".equals(session.role)) {
+                AuditLogger.log(null, session.username, "SUBSCRIBE_EVENTS", "denied", clientIp,
+                    "Access denied - facility stream requires manager role");
+                respondJson(exchange, 403, "{\"error\":\"Forbidden - Manager access required\"}");
+                return;
+            }
+        }
+
+        // Signed-out tracking streams count against their own cap as well
+        boolean publicStream = session == null;
+        if (!PushHub.reserve(publicStream)) {
+            respondJson(exchange, 503, "{\"error\":\"Too many open event streams. Please try again later.\"}");
+            return;
+        }
+
+        boolean subscribed = false;
+        try {
+            Set<String> topics = new LinkedHashSet<>();
+            Long driverId = null;
+
+            // Resolve the database ids the events are keyed by
+            if (!trackingNumbers.isEmpty() || wantsDriver) {
+                Result<Connection, String> connResult = DatabaseConnection.getConnection();
+                if (connResult.isErr()) {
+                    System.err.println("Database connection error: " + connResult.unwrapErr());
+                    respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+                    return;
+                }
+
+                try (Connection conn = connResult.unwrap()) {
+                    for (long packageId : findPackageIds(conn, trackingNumbers)) {
+                        topics.add(PushHub.packageTopic(packageId));
+                    }
+                    if (wantsDriver) {
+                        driverId = RouteManifestCache.driverIdFor(session.username);
+                        if (driverId == null) {
+                            long id = getUserId(conn, session.username);
+                            if (id == -1) {
+                                respondJson(exchange, 404, "{\"error\":\"Driver not found\"}");
+                                return;
+                            }
+                            RouteManifestCache.rememberDriver(session.username, id);
+                            driverId = id;
+                        }
+                        topics.add(PushHub.driverTopic(driverId));
+                    }
+                } catch (SQLException e) {
+                    System.err.println("SQL error opening event stream: " + e.getMessage());
+                    respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+                    return;
+                }
+            }
+
+            for (long facilityId : facilityIds) {
+                topics.add(PushHub.facilityTopic(facilityId));
+            }
+
+            if (topics.isEmpty()) {
+                respondJson(exchange, 404, "{\"error\":\"No matching packages found\"}");
+                return;
+            }
+
+            if (session != null) {
+                AuditLogger.log(driverId, session.username, "SUBSCRIBE_EVENTS", "success", clientIp,
+                    "Opened event stream for " + String.join(",", topics));
+            }
+
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().add("X-Accel-Buffering", "no");
+            exchange.sendResponseHeaders(200, 0);
+
+            // The stream stays open after this handler returns; PushHub closes it
+            PushHub.subscribe(exchange, new ArrayList<>(topics), publicStream);
+            subscribed = true;
+        } finally {
+            if (!subscribed) {
+                PushHub.release(publicStream);
+            }
+        }
+    }
+
+    // Package ids for the tracking numbers that exist; unknown ones are ignored
+    private static List<Long> findPackageIds(Connection conn, List<String> trackingNumbers) throws SQLException {
+        List<Long> packageIds = new ArrayList<>();
+        if (trackingNumbers.isEmpty()) return packageIds;
+
+        StringBuilder query = new StringBuilder("SELECT package_id FROM packages WHERE tracking_number IN (");
+        for (int i = 0; i < trackingNumbers.size(); i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(")");
+
+        try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < trackingNumbers.size(); i++) {
+                stmt.setString(i + 1, trackingNumbers.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    packageIds.add(rs.getLong("package_id"));
+                }
+            }
+        }
+        return packageIds;
+    }
+
+    private static long getUserId(Connection conn, String username) throws SQLException {
+        String query = "SELECT user_id FROM users WHERE username = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong("user_id");
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Comma-separated query parameter, without blanks or repeats
+    private static List<String> listParam(HttpExchange exchange, String name) {
+        String value = queryParam(exchange, name);
+        Set<String> values = new LinkedHashSet<>();
+        if (value != null) {
+            for (String part : value.split(",")) {
+                part = part.trim();
+                if (!part.isEmpty()) values.add(part);
+            }
+        }
+        return new ArrayList<>(values);
+    }
+
+    private static String queryParam(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return null;
+        for (String param : query.split("&")) {
+            String[] keyValue = param.split("=", 2);
+            if (keyValue.length == 2 && name.equals(keyValue[0])) {
+                return URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String extractToken(HttpExchange exchange) {
+        // Try Authorization header first
+        String authHeader = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+
+        // Fall back to cookie (EventSource cannot set headers)
+        String cookieHeader = exchange.getRequestHeaders().getFirst("Cookie");
+        if (cookieHeader != null) {
+            for (String cookie : cookieHeader.split(";")) {
+                String[] parts = cookie.trim().split("=", 2);
+                if (parts.length == 2 && "SESSION".equals(parts[0])) {
+                    return parts[1];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void respondJson(HttpExchange exchange, int code, String body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.delivery.controllers;
+
+import com.delivery.dao.ExportDAO.Dataset;
+import com.delivery.security.SecurityManager.AuditLogger;
+import com.delivery.services.ExportService;
+import com.delivery.session.SessionManager;
+import com.delivery.util.Result;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+// ExportController - bulk CSV/NDJSON downloads of the audit log, inventory and route history
+public class ExportController {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Handle GET /api/export/{audit-log|inventory|routes}?format=csv|ndjson&after=<key>
+     * The export is streamed (chunked, gzipped when the client accepts gzip) as ExportService
+     * produces it. If it fails after the first rows have gone out, the connection is dropped
+     * rather than ended cleanly, so the client knows the file is incomplete and can ask again
+     * with after=<key of the last complete row>.
+     */
+    public static void handleExport(HttpExchange exchange) throws IOException {
+        String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        // CORS headers
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
+
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        // Extract dataset from path: /api/export/audit-log
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        Dataset dataset = parts.length == 4 ? Dataset.fromSlug(parts[3]) : null;
+        if (dataset == null) {
+            respondJson(exchange, 404, "{\"error\":\"Unknown export\"}");
+            return;
+        }
+        String action = "EXPORT_" + dataset.name();
+
+        // Get session and verify authentication
+        Result<SessionManager.Session, String> sessionResult = getSessionFromRequest(exchange);
+        if (sessionResult.isErr()) {
+            AuditLogger.log(null, "<unknown>", action, "denied", clientIp, sessionResult.unwrapErr());
+            respondJson(exchange, 401, "{\"error\":\"Unauthorized\"}");
+            return;
+        }
+
+        SessionManager.Session session = sessionResult.unwrap();
+
+        Map<String, String> params = parseQueryString(exchange.getRequestURI().getRawQuery());
+        ExportService.Format format;
+        if (!params.containsKey("format") || "csv".equalsIgnoreCase(params.get("format"))) {
+            format = ExportService.Format.CSV;
+        } else if ("ndjson".equalsIgnoreCase(params.get("format"))) {
+            format = ExportService.Format.NDJSON;
+        } else {
+            respondJson(exchange, 400, "{\"error\":\"format must be csv or ndjson\"}");
+            return;
+        }
+
+        long after = 0;
+        if (params.containsKey("after")) {
+            try {
+                after = Long.parseLong(params.get("after"));
+            } catch (NumberFormatException e) {
+                after = -1;
+            }
+            if (after < 0) {
+                respondJson(exchange, 400, "{\"error\":\"Invalid after\"}");
+                return;
+            }
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        String fileName = "export-" + dataset.getSlug() + (after > 0 ? "-after-" + after : "") + "." +
+                          format.getExtension();
+
+        // Headers go out with the first batch, so errors before that still get a proper status code
+        OutputStream[] out = new OutputStream[1];
+        Result<Long, String> exportResult;
+        try {
+            exportResult = ExportService.export(dataset, format, after, (bytes, length) -> {
+                if (out[0] == null) {
+                    exchange.getResponseHeaders().add("Content-Type", format.getContentType());
+                    exchange.getResponseHeaders().add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+                    exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+                    if (gzip) exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                    exchange.sendResponseHeaders(200, 0);
+                    // Sync flush: every batch reaches the client as soon as it is written
+                    out[0] = gzip ? new GZIPOutputStream(exchange.getResponseBody(), GZIP_BUFFER_SIZE, true)
+                                  : exchange.getResponseBody();
+                }
+                out[0].write(bytes, 0, length);
+                out[0].flush();
+            }, session.clearance);
+        } catch (IOException e) {
+            AuditLogger.log(null, session.username, action, "error", clientIp,
+                           "Client stopped reading: " + e.getMessage());
+            throw e;
+        }
+
+        if (exportResult.isErr()) {
+            String error = exportResult.unwrapErr();
+            if (out[0] != null) {
+                // Already committed to a 200; throwing drops the connection mid-body
+                AuditLogger.log(null, session.username, action, "error", clientIp, error);
+                throw new IOException("Export failed after headers were sent: " + error);
+            } else if (error.contains("Access denied")) {
+                AuditLogger.log(null, session.username, action, "denied", clientIp,
+                              "Insufficient clearance: " + session.clearance.name());
+                respondJson(exchange, 403, "{\"error\":\"" + escapeJson(error) + "\"}");
+            } else if (ExportService.BUSY.equals(error)) {
+                respondJson(exchange, 503, "{\"error\":\"" + error + "\"}");
+            } else {
+                System.err.println("Export error: " + error);
+                AuditLogger.log(null, session.username, action, "error", clientIp, "Export failed");
+                respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+            }
+            return;
+        }
+
+        if (out[0] == null) {
+            // Nothing after the cursor (NDJSON has no header line)
+            exchange.getResponseHeaders().add("Content-Type", format.getContentType());
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        } else {
+            out[0].close();
+        }
+        AuditLogger.log(null, session.username, action, "success", clientIp,
+                       "Exported " + exportResult.unwrap() + " rows as " + format.getExtension() +
+                       (after > 0 ? " after " + after : ""));
+    }
+
+    private static Result<SessionManager.Session, String> getSessionFromRequest(HttpExchange exchange) {
+        String token = null;
+
+        // Try cookie first
+        if (exchange.getRequestHeaders().containsKey("Cookie")) {
+            String cookies = exchange.getRequestHeaders().getFirst("Cookie");
+            for (String c : cookies.split(";")) {
+                c = c.trim();
+                if (c.startsWith("SESSION=")) {
+                    token = c.substring("SESSION=".length());
+                    break;
+                }
+            }
+        }
+
+        // Try Authorization header if no cookie
+        if (token == null && exchange.getRequestHeaders().containsKey("Authorization")) {
+            String auth = exchange.getRequestHeaders().getFirst("Authorization");
+            if (auth.startsWith("Bearer ")) {
+                token = auth.substring(7);
+            }
+        }
+
+        if (token == null) {
+            return Result.err("No session token provided");
+        }
+
+        return SessionManager.getSession(token);
+    }
+
+    // Parse query string into map
+    private static Map<String, String> parseQueryString(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) return params;
+        String[] pairs = query.split("&");
+        for (String pair : pairs) {
+            int idx = pair.indexOf("=");
+            if (idx > 0) {
+                String key = pair.substring(0, idx);
+                String value = pair.substring(idx + 1);
+                params.put(key, value);
+            }
+        }
+        return params;
+    }
+
+    // Prevents JSON injection attacks
+    private static String escapeJson(String str) {
+        if (str == null) return "";
+        return str.replace("\\", "\\\\")
+                 .replace("\"", "\\\"")
+                 .replace("\n", "\\n")
+                 .replace("\r", "\\r")
+                 .replace("\t", "\\t");
+    }
+
+    // Response helpers
+    private static void respondJson(HttpExchange exchange, int code, String body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.delivery.controllers;
 
 import com.delivery.models.Facility;
 import com.delivery.models.InventoryItem;
+import com.delivery.models.InventoryPage;
 import com.delivery.security.SecurityManager.AuditLogger;
 import com.delivery.services.InventoryService;
 import com.delivery.session.SessionManager;
@@ -9,15 +10,26 @@ import com.delivery.util.Result;
 
 import com.sun.net.httpserver.HttpExchange;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 // InventoryController - inventory-related endpoints
 public class InventoryController {
 
+    // Page size for GET /api/inventory?cursor=... when no limit is given
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     // Handle GET /api/inventory - Get all inventory
+    // With ?limit=N and/or ?cursor=X returns one keyset page plus nextCursor; without them the
+    // full listing is streamed
     public static void handleGetAllInventory(HttpExchange exchange) throws IOException {
         String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
 
@@ -46,9 +58,26 @@ public class InventoryController {
 
         SessionManager.Session session = sessionResult.unwrap();
 
-        // Get inventory from service (includes BLP check)
-        Result<List<InventoryItem>, String> inventoryResult =
-            InventoryService.getAllInventory(session.clearance, session.username);
+        Map<String, String> params = parseQueryString(exchange.getRequestURI().getRawQuery());
+        if (!params.containsKey("limit") && !params.containsKey("cursor")) {
+            // No paging requested: stream the full listing instead of building it in memory
+            streamAllInventory(exchange, session, clientIp);
+            return;
+        }
+
+        int limit = DEFAULT_PAGE_SIZE;
+        if (params.containsKey("limit")) {
+            try {
+                limit = Integer.parseInt(params.get("limit"));
+            } catch (NumberFormatException e) {
+                respondJson(exchange, 400, "{\"error\":\"Invalid limit\"}");
+                return;
+            }
+        }
+
+        // Get inventory page from service (includes BLP check)
+        Result<InventoryPage, String> inventoryResult =
+            InventoryService.getAllInventory(params.get("cursor"), limit, session.clearance, session.username);
 
         if (inventoryResult.isErr()) {
             String error = inventoryResult.unwrapErr();
@@ -56,6 +85,8 @@ public class InventoryController {
                 AuditLogger.log(null, session.username, "VIEW_INVENTORY", "denied", clientIp,
                               "Insufficient clearance: " + session.clearance.name());
                 respondJson(exchange, 403, "{\"error\":\"" + error + "\"}");
+            } else if (error.startsWith("Invalid")) {
+                respondJson(exchange, 400, "{\"error\":\"" + escapeJson(error) + "\"}");
             } else {
                 AuditLogger.log(null, session.username, "VIEW_INVENTORY", "error", clientIp, error);
                 respondJson(exchange, 500, "{\"error\":\"" + error + "\"}");
@@ -63,15 +94,65 @@ public class InventoryController {
             return;
         }
 
-        // Convert inventory items to JSON object with inventory array
-        List<InventoryItem> items = inventoryResult.unwrap();
-        String json = "{\"inventory\":" + inventoryListToJson(items) + "}";
+        // Convert the page to JSON object with inventory array and the cursor for the next page
+        InventoryPage page = inventoryResult.unwrap();
+        List<InventoryItem> items = page.getItems();
+        String nextCursor = page.getNextCursor();
+        String json = "{\"inventory\":" + inventoryListToJson(items) +
+                      ",\"nextCursor\":" + (nextCursor == null ? "null" : "\"" + nextCursor + "\"") + "}";
 
         AuditLogger.log(null, session.username, "VIEW_INVENTORY", "success", clientIp,
-                       "Retrieved " + items.size() + " inventory items");
+                       "Retrieved " + items.size() + " inventory items (page)");
         respondJson(exchange, 200, json);
     }
 
+    // Full listing as {"inventory":[...]}, written row by row as the database returns them.
+    // Headers go out with the first row, so errors before that still get a proper status code.
+    private static void streamAllInventory(HttpExchange exchange, SessionManager.Session session,
+                                           String clientIp) throws IOException {
+        Writer[] out = new Writer[1];
+        Result<Long, String> streamResult = InventoryService.streamAllInventory(item -> {
+            if (out[0] == null) {
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, 0);
+                out[0] = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+                                            STREAM_BUFFER_SIZE);
+                out[0].write("{\"inventory\":[");
+            } else {
+                out[0].write(',');
+            }
+            out[0].write(item.toJson());
+        }, session.clearance, session.username);
+
+        if (streamResult.isErr()) {
+            String error = streamResult.unwrapErr();
+            if (out[0] != null) {
+                // Already committed to a 200; throwing drops the connection mid-body, where closing
+                // the exchange would end the chunked body cleanly and hide the truncation
+                AuditLogger.log(null, session.username, "VIEW_INVENTORY", "error", clientIp, error);
+                throw new IOException("Inventory listing failed after headers were sent: " + error);
+            } else if (error.contains("Access denied")) {
+                AuditLogger.log(null, session.username, "VIEW_INVENTORY", "denied", clientIp,
+                              "Insufficient clearance: " + session.clearance.name());
+                respondJson(exchange, 403, "{\"error\":\"" + error + "\"}");
+            } else {
+                System.err.println("Inventory listing error: " + error);
+                AuditLogger.log(null, session.username, "VIEW_INVENTORY", "error", clientIp, "Inventory listing failed");
+                respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+            }
+            return;
+        }
+
+        if (out[0] == null) {
+            respondJson(exchange, 200, "{\"inventory\":[]}");
+        } else {
+            out[0].write("]}");
+            out[0].close();
+        }
+        AuditLogger.log(null, session.username, "VIEW_INVENTORY", "success", clientIp,
+                       "Streamed " + streamResult.unwrap() + " inventory items");
+    }
+
     // Handle GET /api/inventory/facility/:facilityId - Get inventory for a specific facility
     public static void handleGetInventoryByFacility(HttpExchange exchange) throws IOException {
         String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
@@ -336,6 +417,22 @@ public class InventoryController {
         return json.toString();
     }
 
+    // Parse query string into map
+    private static Map<String, String> parseQueryString(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) return params;
+        String[] pairs = query.split("&");
+        for (String pair : pairs) {
+            int idx = pair.indexOf("=");
+            if (idx > 0) {
+                String key = pair.substring(0, idx);
+                String value = pair.substring(idx + 1);
+                params.put(key, value);
+            }
+        }
+        return params;
+    }
+
    // Prevents JSON injection attacks
     private static String escapeJson(String str) {
         if (str == null) return "";
@@ -1,6 +1,13 @@
 package com.delivery.controllers;
 
+import com.delivery.dao.InventoryDAO;
+import com.delivery.dao.RouteDAO;
 import com.delivery.database.DatabaseConnection;
+import com.delivery.events.EventBus;
+import com.delivery.events.PackageStatusChanged;
+import com.delivery.events.RouteAssigned;
+import com.delivery.inventory.FacilityInventoryCounters;
+import com.delivery.models.FacilityInventory;
 import com.delivery.security.SecurityManager;
 import com.delivery.security.SecurityManager.AuditLogger;
 import com.delivery.security.SecurityManager.InputSanitizer;
@@ -19,12 +26,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import com.sun.net.httpserver.HttpExchange;
 
 public class ManagementController {
+    // Limits for one assign-routes request (all routes are written in one transaction)
+    private static final int MAX_ROUTES_PER_REQUEST = 100;
+    private static final int MAX_PACKAGES_PER_REQUEST = 10000;
 
     public static void handleAssignRoutes(HttpExchange exchange) throws IOException {
         String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
@@ -66,78 +79,59 @@ public class ManagementController {
             return;
         }
 
-        // Parse request body
+        // Parse request body: a single route, or {"routes":[{...},{...}]} to assign several at once
         String body = readStream(exchange.getRequestBody());
-        Map<String, String> parsed = parseJson(body);
-
-        String driverIdStr = parsed.get("driverId");
-        String facilityIdStr = parsed.get("facilityId");
-        String routeName = parsed.get("routeName");
-        String routeDate = parsed.get("routeDate");
-        String estimatedDurationStr = parsed.get("estimatedDurationMinutes");
-        String vehicleId = parsed.get("vehicleId");
-        String packageIdsStr = parsed.get("packageIds");
-
-        // Validate inputs
-        if (driverIdStr == null || facilityIdStr == null || routeName == null ||
-            routeDate == null || estimatedDurationStr == null) {
-            AuditLogger.log(null, session.username, "ASSIGN_ROUTE", "denied", clientIp,
-                "Missing required fields");
-            respondJson(exchange, 400,
-                "{\"error\":\"driverId, facilityId, routeName, routeDate, and estimatedDurationMinutes are required\"}");
-            return;
+        List<String> routeBodies = jsonArrayObjects(body, "routes");
+        boolean bulk = routeBodies != null;
+        if (!bulk) {
+            routeBodies = List.of(body);
         }
 
-        long driverId, facilityId;
-        int estimatedDuration;
-        try {
-            driverId = Long.parseLong(driverIdStr);
-            facilityId = Long.parseLong(facilityIdStr);
-            estimatedDuration = Integer.parseInt(estimatedDurationStr);
-        } catch (NumberFormatException e) {
+        if (routeBodies.isEmpty() || routeBodies.size() > MAX_ROUTES_PER_REQUEST) {
             AuditLogger.log(null, session.username, "ASSIGN_ROUTE", "denied", clientIp,
-                "Invalid number format");
-            respondJson(exchange, 400, "{\"error\":\"Invalid number format\"}");
+                "Invalid route count: " + routeBodies.size());
+            respondJson(exchange, 400,
+                "{\"error\":\"Between 1 and " + MAX_ROUTES_PER_REQUEST + " routes can be assigned per request\"}");
             return;
         }
 
-        // Parse package IDs
-        List<Long> packageIds = new ArrayList<>();
-        System.out.println("DEBUG: Received packageIdsStr = '" + packageIdsStr + "'");
-        if (packageIdsStr != null && !packageIdsStr.trim().isEmpty()) {
-            try {
-                for (String idStr : packageIdsStr.split(",")) {
-                    Long id = Long.parseLong(idStr.trim());
-                    packageIds.add(id);
-                    System.out.println("DEBUG: Parsed package ID: " + id);
-                }
-            } catch (NumberFormatException e) {
-                System.err.println("DEBUG: Failed to parse package IDs from: " + packageIdsStr);
+        List<RouteDAO.RouteAssignment> routes = new ArrayList<>(routeBodies.size());
+        for (String routeBody : routeBodies) {
+            Result<RouteDAO.RouteAssignment, String> routeResult = parseRouteAssignment(routeBody);
+            if (routeResult.isErr()) {
                 AuditLogger.log(null, session.username, "ASSIGN_ROUTE", "denied", clientIp,
-                    "Invalid package ID format");
-                respondJson(exchange, 400, "{\"error\":\"Invalid package ID format\"}");
+                    routeResult.unwrapErr());
+                respondJson(exchange, 400, "{\"error\":\"" + escapeJson(routeResult.unwrapErr()) + "\"}");
                 return;
             }
+            routes.add(routeResult.unwrap());
+        }
+
+        // A package can only go on one route
+        Set<Long> allPackageIds = new TreeSet<>();
+        Set<Long> driverIds = new HashSet<>();
+        Set<Long> facilityIds = new HashSet<>();
+        for (RouteDAO.RouteAssignment route : routes) {
+            driverIds.add(route.driverId);
+            facilityIds.add(route.facilityId);
+            for (Long packageId : route.packageIds) {
+                if (!allPackageIds.add(packageId)) {
+                    AuditLogger.log(null, session.username, "ASSIGN_ROUTE", "denied", clientIp,
+                        "Package " + packageId + " listed more than once");
+                    respondJson(exchange, 400,
+                        "{\"error\":\"Package " + packageId + " is listed more than once\"}");
+                    return;
+                }
+            }
         }
-        System.out.println("DEBUG: Total package IDs parsed: " + packageIds.size() + " - " + packageIds);
-
-        // Sanitize string inputs
-        SecurityManager.Result<String, String> routeNameResult = InputSanitizer.sanitizeString(routeName);
-        SecurityManager.Result<String, String> routeDateResult = InputSanitizer.sanitizeString(routeDate);
-        SecurityManager.Result<String, String> vehicleIdResult = vehicleId != null ?
-            InputSanitizer.sanitizeString(vehicleId) : SecurityManager.Result.ok("");
-
-        if (routeNameResult.isErr() || routeDateResult.isErr() || vehicleIdResult.isErr()) {
-            AuditLogger.log(null, session.username, "ASSIGN_ROUTE", "error", clientIp,
-                "Input sanitization failed");
-            respondJson(exchange, 400, "{\"error\":\"Invalid input format\"}");
+        if (allPackageIds.size() > MAX_PACKAGES_PER_REQUEST) {
+            AuditLogger.log(null, session.username, "ASSIGN_ROUTE", "denied", clientIp,
+                "Too many packages: " + allPackageIds.size());
+            respondJson(exchange, 400,
+                "{\"error\":\"At most " + MAX_PACKAGES_PER_REQUEST + " packages can be assigned per request\"}");
             return;
         }
 
-        String sanitizedRouteName = routeNameResult.unwrap();
-        String sanitizedRouteDate = routeDateResult.unwrap();
-        String sanitizedVehicleId = vehicleIdResult.unwrap();
-
         // Get database connection
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
@@ -156,10 +150,12 @@ public class ManagementController {
 
             // Begin transaction
             conn.setAutoCommit(false);
+            FacilityInventoryCounters.Changes counterChanges = new FacilityInventoryCounters.Changes();
 
             try {
-                // Verify driver exists and has driver role
-                if (!verifyDriverRole(conn, driverId)) {
+                // Verify every driver exists and has driver role (one query for the whole request)
+                if (!missingIds(conn, "SELECT user_id FROM users WHERE role = 'driver' AND user_id IN ",
+                        driverIds).isEmpty()) {
                     conn.rollback();
                     AuditLogger.log(managerId, session.username, "ASSIGN_ROUTE", "denied", clientIp,
                         "Invalid driver ID or user is not a driver");
@@ -167,8 +163,9 @@ public class ManagementController {
                     return;
                 }
 
-                // Verify facility exists
-                if (!verifyFacilityExists(conn, facilityId)) {
+                // Verify every facility exists
+                if (!missingIds(conn, "SELECT facility_id FROM facilities WHERE facility_id IN ",
+                        facilityIds).isEmpty()) {
                     conn.rollback();
                     AuditLogger.log(managerId, session.username, "ASSIGN_ROUTE", "denied", clientIp,
                         "Invalid facility ID");
@@ -176,86 +173,83 @@ public class ManagementController {
                     return;
                 }
 
-                // Create route
-                String insertRouteQuery =
-                    "INSERT INTO routes (route_name, facility_id, route_date, estimated_duration_minutes, " +
-                    "                    total_stops, route_status) " +
-                    "VALUES (?, ?, ?, ?, ?, 'planned')";
-
-                long routeId;
-                try (PreparedStatement routeStmt = conn.prepareStatement(insertRouteQuery,
-                        PreparedStatement.RETURN_GENERATED_KEYS)) {
-
-                    routeStmt.setString(1, sanitizedRouteName);
-                    routeStmt.setLong(2, facilityId);
-                    routeStmt.setString(3, sanitizedRouteDate);
-                    routeStmt.setInt(4, estimatedDuration);
-                    routeStmt.setInt(5, packageIds.size());
-
-                    routeStmt.executeUpdate();
-
-                    try (ResultSet generatedKeys = routeStmt.getGeneratedKeys()) {
-                        if (!generatedKeys.next()) {
-                            conn.rollback();
-                            AuditLogger.log(managerId, session.username, "ASSIGN_ROUTE", "error", clientIp,
-                                "Failed to create route");
-                            respondJson(exchange, 500, "{\"error\":\"Failed to create route\"}");
-                            return;
-                        }
-                        routeId = generatedKeys.getLong(1);
+                if (!allPackageIds.isEmpty()) {
+                    // Claim packages FIRST to avoid lock escalation with foreign key constraint
+                    // (route_packages has FK to packages, INSERT takes shared lock, UPDATE needs exclusive lock).
+                    // Set-based and guarded by status: a package another assignment claimed first is not
+                    // updated, which shows up as a short count.
+                    List<Long> packageList = new ArrayList<>(allPackageIds);
+                    Result<Integer, String> claimResult = RouteDAO.claimPackages(conn, packageList);
+                    if (claimResult.isErr()) {
+                        throw new SQLException(claimResult.unwrapErr());
                     }
-                }
 
-                // Create route assignment
-                String assignmentQuery =
-                    "INSERT INTO route_assignments (route_id, driver_id, vehicle_id) " +
-                    "VALUES (?, ?, ?)";
-
-                try (PreparedStatement assignStmt = conn.prepareStatement(assignmentQuery)) {
-                    assignStmt.setLong(1, routeId);
-                    assignStmt.setLong(2, driverId);
-                    assignStmt.setString(3, sanitizedVehicleId.isEmpty() ? null : sanitizedVehicleId);
-                    assignStmt.executeUpdate();
-                }
-
-                // Add packages to route
-                if (!packageIds.isEmpty()) {
-                    // Update package status FIRST to avoid lock escalation with foreign key constraint
-                    // (route_packages has FK to packages, INSERT takes shared lock, UPDATE needs exclusive lock)
-                    String updatePackageQuery = "UPDATE packages SET package_status = 'out_for_delivery' WHERE package_id = ?";
-                    try (PreparedStatement updateStmt = conn.prepareStatement(updatePackageQuery)) {
-                        for (Long packageId : packageIds) {
-                            updateStmt.setLong(1, packageId);
-                            updateStmt.executeUpdate();
+                    if (claimResult.unwrap() != packageList.size()) {
+                        // Undo the partial claim, then see which packages were taken (or never existed)
+                        conn.rollback();
+                        Result<List<Long>, String> unclaimable = RouteDAO.findUnclaimablePackages(conn, packageList);
+                        if (unclaimable.isErr()) {
+                            throw new SQLException(unclaimable.unwrapErr());
                         }
+                        AuditLogger.log(managerId, session.username, "ASSIGN_ROUTE", "denied", clientIp,
+                            "Packages not available for assignment: " + unclaimable.unwrap());
+                        respondJson(exchange, 409,
+                            "{\"error\":\"Some packages are no longer available for assignment\",\"packageIds\":"
+                            + unclaimable.unwrap() + "}");
+                        return;
                     }
 
-                    // Now insert into route_packages
-                    String routePackageQuery =
-                        "INSERT INTO route_packages (route_id, package_id, stop_sequence) " +
-                        "VALUES (?, ?, ?)";
-
-                    try (PreparedStatement packageStmt = conn.prepareStatement(routePackageQuery)) {
-                        for (int i = 0; i < packageIds.size(); i++) {
-                            packageStmt.setLong(1, routeId);
-                            packageStmt.setLong(2, packageIds.get(i));
-                            packageStmt.setInt(3, i + 1);
-                            packageStmt.executeUpdate();
-                        }
+                    // Parcels leaving with the driver are checked out of facility inventory
+                    Result<Void, String> inventoryResult =
+                        InventoryDAO.checkOutPackages(conn, packageList, counterChanges);
+                    if (inventoryResult.isErr()) {
+                        throw new SQLException(inventoryResult.unwrapErr());
                     }
                 }
 
+                // Create routes, driver assignments and stops, one batch each
+                Result<Void, String> writeResult = RouteDAO.createRoutes(conn, routes);
+                if (writeResult.isOk()) writeResult = RouteDAO.assignDrivers(conn, routes);
+                if (writeResult.isOk()) writeResult = RouteDAO.addRouteStops(conn, routes);
+                if (writeResult.isErr()) {
+                    throw new SQLException(writeResult.unwrapErr());
+                }
+
                 // Commit transaction
                 conn.commit();
+                counterChanges.apply();
 
-                AuditLogger.log(managerId, session.username, "ASSIGN_ROUTE", "success", clientIp,
-                    String.format("Created route %d and assigned to driver %d with %d packages",
-                        routeId, driverId, packageIds.size()));
+                for (RouteDAO.RouteAssignment route : routes) {
+                    for (Long packageId : route.packageIds) {
+                        EventBus.publish(new PackageStatusChanged(packageId, null, "out_for_delivery",
+                            route.facilityId, route.driverId));
+                    }
+                    EventBus.publish(new RouteAssigned(route.routeId, route.driverId, route.facilityId,
+                        route.packageIds, "assigned"));
+                    AuditLogger.log(managerId, session.username, "ASSIGN_ROUTE", "success", clientIp,
+                        String.format("Created route %d and assigned to driver %d with %d packages",
+                            route.routeId, route.driverId, route.packageIds.size()));
+                }
 
-                String response = String.format(
-                    "{\"success\":true,\"message\":\"Route assigned successfully\",\"routeId\":%d,\"driverId\":%d,\"packageCount\":%d}",
-                    routeId, driverId, packageIds.size()
-                );
+                String response;
+                if (!bulk) {
+                    RouteDAO.RouteAssignment route = routes.get(0);
+                    response = String.format(
+                        "{\"success\":true,\"message\":\"Route assigned successfully\",\"routeId\":%d,\"driverId\":%d,\"packageCount\":%d}",
+                        route.routeId, route.driverId, route.packageIds.size()
+                    );
+                } else {
+                    StringBuilder json = new StringBuilder();
+                    json.append("{\"success\":true,\"message\":\"Routes assigned successfully\",\"routes\":[");
+                    for (int i = 0; i < routes.size(); i++) {
+                        RouteDAO.RouteAssignment route = routes.get(i);
+                        if (i > 0) json.append(",");
+                        json.append(String.format("{\"routeId\":%d,\"driverId\":%d,\"packageCount\":%d}",
+                            route.routeId, route.driverId, route.packageIds.size()));
+                    }
+                    json.append("],\"packageCount\":").append(allPackageIds.size()).append("}");
+                    response = json.toString();
+                }
 
                 respondJson(exchange, 201, response);
 
@@ -281,6 +275,60 @@ public class ManagementController {
         }
     }
 
+    // Parse and validate one route of an assignment request
+    private static Result<RouteDAO.RouteAssignment, String> parseRouteAssignment(String body) {
+        Map<String, String> parsed = parseJson(body);
+
+        String driverIdStr = parsed.get("driverId");
+        String facilityIdStr = parsed.get("facilityId");
+        String routeName = parsed.get("routeName");
+        String routeDate = parsed.get("routeDate");
+        String estimatedDurationStr = parsed.get("estimatedDurationMinutes");
+        String vehicleId = parsed.get("vehicleId");
+        String packageIdsStr = parsed.get("packageIds");
+
+        // Validate inputs
+        if (driverIdStr == null || facilityIdStr == null || routeName == null ||
+            routeDate == null || estimatedDurationStr == null) {
+            return Result.err("driverId, facilityId, routeName, routeDate, and estimatedDurationMinutes are required");
+        }
+
+        long driverId, facilityId;
+        int estimatedDuration;
+        try {
+            driverId = Long.parseLong(driverIdStr);
+            facilityId = Long.parseLong(facilityIdStr);
+            estimatedDuration = Integer.parseInt(estimatedDurationStr);
+        } catch (NumberFormatException e) {
+            return Result.err("Invalid number format");
+        }
+
+        // Parse package IDs (comma-separated string, in stop order)
+        List<Long> packageIds = new ArrayList<>();
+        if (packageIdsStr != null && !packageIdsStr.trim().isEmpty()) {
+            try {
+                for (String idStr : packageIdsStr.split(",")) {
+                    packageIds.add(Long.parseLong(idStr.trim()));
+                }
+            } catch (NumberFormatException e) {
+                return Result.err("Invalid package ID format");
+            }
+        }
+
+        // Sanitize string inputs
+        SecurityManager.Result<String, String> routeNameResult = InputSanitizer.sanitizeString(routeName);
+        SecurityManager.Result<String, String> routeDateResult = InputSanitizer.sanitizeString(routeDate);
+        SecurityManager.Result<String, String> vehicleIdResult = vehicleId != null ?
+            InputSanitizer.sanitizeString(vehicleId) : SecurityManager.Result.ok("");
+
+        if (routeNameResult.isErr() || routeDateResult.isErr() || vehicleIdResult.isErr()) {
+            return Result.err("Invalid input format");
+        }
+
+        return Result.ok(new RouteDAO.RouteAssignment(routeNameResult.unwrap(), facilityId,
+            routeDateResult.unwrap(), estimatedDuration, driverId, vehicleIdResult.unwrap(), packageIds));
+    }
+
     public static void handleInventoryReport(HttpExchange exchange) throws IOException {
         String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
 
@@ -339,76 +387,49 @@ public class ManagementController {
             }
         }
 
-        // Get database connection
-        Result<Connection, String> connResult = DatabaseConnection.getConnection();
-        if (connResult.isErr()) {
-            System.err.println("Database connection error: " + connResult.unwrapErr());
-            AuditLogger.log(null, session.username, "INVENTORY_REPORT", "error", clientIp,
-                "Database connection failed");
-            respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
-            return;
-        }
-
-        Connection conn = connResult.unwrap();
-
-        try {
-            long managerId = getUserId(conn, session.username);
-
-            // Build query based on whether facilityId is specified
-            String inventoryQuery;
-            if (facilityId != null) {
-                inventoryQuery =
-                    "SELECT f.facility_id, f.facility_name, f.address, f.city, f.state, " +
-                    "       f.capacity, " +
-                    "       COUNT(DISTINCT i.package_id) as package_count, " +
-                    "       SUM(CASE WHEN i.inventory_status = 'in_stock' THEN 1 ELSE 0 END) as in_stock_count, " +
-                    "       SUM(CASE WHEN i.inventory_status = 'checked_out' THEN 1 ELSE 0 END) as checked_out_count " +
-                    "FROM facilities f " +
-                    "LEFT JOIN inventory i ON f.facility_id = i.facility_id AND i.departure_time IS NULL " +
-                    "WHERE f.facility_id = ? " +
-                    "GROUP BY f.facility_id, f.facility_name, f.address, f.city, f.state, f.capacity";
-            } else {
-                inventoryQuery =
-                    "SELECT f.facility_id, f.facility_name, f.address, f.city, f.state, " +
-                    "       f.capacity, " +
-                    "       COUNT(DISTINCT i.package_id) as package_count, " +
-                    "       SUM(CASE WHEN i.inventory_status = 'in_stock' THEN 1 ELSE 0 END) as in_stock_count, " +
-                    "       SUM(CASE WHEN i.inventory_status = 'checked_out' THEN 1 ELSE 0 END) as checked_out_count " +
-                    "FROM facilities f " +
-                    "LEFT JOIN inventory i ON f.facility_id = i.facility_id AND i.departure_time IS NULL " +
-                    "GROUP BY f.facility_id, f.facility_name, f.address, f.city, f.state, f.capacity " +
-                    "ORDER BY f.facility_name";
+        // Facility totals come from the in-memory counters; only the drill-down hits the database
+        List<FacilityInventory> totals;
+        if (facilityId != null) {
+            Result<FacilityInventory, String> one = FacilityInventoryCounters.get(facilityId);
+            if (one.isErr() && !"Facility not found".equals(one.unwrapErr())) {
+                System.err.println("Inventory counters unavailable: " + one.unwrapErr());
+                AuditLogger.log(null, session.username, "INVENTORY_REPORT", "error", clientIp,
+                    "Inventory counters unavailable");
+                respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+                return;
+            }
+            totals = one.isOk() ? List.of(one.unwrap()) : List.of();
+        } else {
+            Result<List<FacilityInventory>, String> all = FacilityInventoryCounters.getAll();
+            if (all.isErr()) {
+                System.err.println("Inventory counters unavailable: " + all.unwrapErr());
+                AuditLogger.log(null, session.username, "INVENTORY_REPORT", "error", clientIp,
+                    "Inventory counters unavailable");
+                respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+                return;
             }
+            totals = all.unwrap();
+        }
 
-            List<Map<String, Object>> facilities = new ArrayList<>();
+        List<Map<String, Object>> facilities = new ArrayList<>();
+        for (FacilityInventory f : totals) {
+            Map<String, Object> facility = new HashMap<>();
+            facility.put("facilityId", f.getFacilityId());
+            facility.put("facilityName", f.getFacilityName());
+            facility.put("address", f.getAddress());
+            facility.put("city", f.getCity());
+            facility.put("state", f.getState());
+            facility.put("capacity", f.getCapacity());
+            facility.put("packageCount", f.getPackageCount());
+            facility.put("inStockCount", f.getInStockCount());
+            facility.put("checkedOutCount", f.getCheckedOutCount());
+            facility.put("utilizationPercent", f.getUtilizationPercent());
+            facilities.add(facility);
+        }
 
-            try (PreparedStatement stmt = conn.prepareStatement(inventoryQuery)) {
-                if (facilityId != null) {
-                    stmt.setLong(1, facilityId);
-                }
-
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        Map<String, Object> facility = new HashMap<>();
-                        facility.put("facilityId", rs.getLong("facility_id"));
-                        facility.put("facilityName", rs.getString("facility_name"));
-                        facility.put("address", rs.getString("address"));
-                        facility.put("city", rs.getString("city"));
-                        facility.put("state", rs.getString("state"));
-                        facility.put("capacity", rs.getInt("capacity"));
-                        facility.put("packageCount", rs.getInt("package_count"));
-                        facility.put("inStockCount", rs.getInt("in_stock_count"));
-                        facility.put("checkedOutCount", rs.getInt("checked_out_count"));
-
-                        int capacity = rs.getInt("capacity");
-                        int packageCount = rs.getInt("package_count");
-                        facility.put("utilizationPercent", capacity > 0 ? (packageCount * 100.0 / capacity) : 0);
-
-                        facilities.add(facility);
-                    }
-                }
-            }
+        Connection conn = null;
 
+        try {
             // Get detailed package information if specific facility requested
             if (facilityId != null && !facilities.isEmpty()) {
                 String packagesQuery =
@@ -423,6 +444,16 @@ public class ManagementController {
                     "ORDER BY i.arrival_time DESC " +
                     "LIMIT 100";
 
+                Result<Connection, String> connResult = DatabaseConnection.getConnection();
+                if (connResult.isErr()) {
+                    System.err.println("Database connection error: " + connResult.unwrapErr());
+                    AuditLogger.log(null, session.username, "INVENTORY_REPORT", "error", clientIp,
+                        "Database connection failed");
+                    respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+                    return;
+                }
+                conn = connResult.unwrap();
+
                 List<Map<String, Object>> packages = new ArrayList<>();
 
                 try (PreparedStatement packagesStmt = conn.prepareStatement(packagesQuery)) {
@@ -497,7 +528,7 @@ public class ManagementController {
 
             json.append("]}");
 
-            AuditLogger.log(managerId, session.username, "INVENTORY_REPORT", "success", clientIp,
+            AuditLogger.log(null, session.username, "INVENTORY_REPORT", "success", clientIp,
                 String.format("Retrieved inventory report for %d facilities", facilities.size()));
 
             respondJson(exchange, 200, json.toString());
@@ -509,10 +540,12 @@ public class ManagementController {
                 "Database error: " + e.getMessage());
             respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
         } finally {
-            try {
-                conn.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing connection: " + e.getMessage());
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing connection: " + e.getMessage());
+                }
             }
         }
     }
@@ -555,29 +588,27 @@ public class ManagementController {
         return -1;
     }
 
-    // Verifies that a user exists and has driver role
-    private static boolean verifyDriverRole(Connection conn, long userId) throws SQLException {
-        String query = "SELECT role FROM users WHERE user_id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setLong(1, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return "driver".equals(rs.getString("role"));
-                }
+    // Ids from the set that the query (ending in "IN ") does not return
+    private static Set<Long> missingIds(Connection conn, String queryPrefix, Set<Long> ids) throws SQLException {
+        Set<Long> missing = new HashSet<>(ids);
+        if (ids.isEmpty()) return missing;
+        StringBuilder query = new StringBuilder(queryPrefix).append("(");
+        for (int i = 0; i < ids.size(); i++) {
+            query.append(i > 0 ? ", ?" : "?");
+        }
+        query.append(")");
+        try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            int idx = 1;
+            for (Long id : ids) {
+                stmt.setLong(idx++, id);
             }
-        }
-        return false;
-    }
-
-    // Verifies that a facility exists
-    private static boolean verifyFacilityExists(Connection conn, long facilityId) throws SQLException {
-        String query = "SELECT facility_id FROM facilities WHERE facility_id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setLong(1, facilityId);
             try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next();
+                while (rs.next()) {
+                    missing.remove(rs.getLong(1));
+                }
             }
         }
+        return missing;
     }
 
     private static String readStream(InputStream is) throws IOException {
@@ -629,6 +660,38 @@ public class ManagementController {
         return map;
     }
 
+    // Raw text of each object in a top-level array field ("key":[{...},{...}]), or null if the
+    // field is absent; each object can then go through parseJson
+    private static List<String> jsonArrayObjects(String s, String key) {
+        if (s == null) return null;
+        int keyAt = s.indexOf("\"" + key + "\"");
+        if (keyAt < 0) return null;
+        int i = keyAt + key.length() + 2;
+        while (i < s.length() && (Character.isWhitespace(s.charAt(i)) || s.charAt(i) == ':')) i++;
+        if (i >= s.length() || s.charAt(i) != '[') return null;
+
+        List<String> objects = new ArrayList<>();
+        int depth = 0;
+        int start = -1;
+        boolean inQuotes = false;
+        for (i = i + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (inQuotes) {
+                if (c == '\\') i++;
+                else if (c == '"') inQuotes = false;
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == '{') {
+                if (depth++ == 0) start = i;
+            } else if (c == '}') {
+                if (--depth == 0) objects.add(s.substring(start, i + 1));
+            } else if (c == ']' && depth == 0) {
+                break;
+            }
+        }
+        return objects;
+    }
+
     // GET /api/management/drivers - Get all active drivers for route assignment
     public static void handleGetDrivers(HttpExchange exchange) throws IOException {
         String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
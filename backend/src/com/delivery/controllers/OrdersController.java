@@ -1,18 +1,495 @@
 package com.delivery.controllers;
 
+import com.delivery.dao.OrderDAO;
+import com.delivery.security.SecurityManager;
+import com.delivery.security.SecurityManager.AuditLogger;
+import com.delivery.security.SecurityManager.InputSanitizer;
+import com.delivery.services.OrderImportService;
+import com.delivery.services.OrderService;
+import com.delivery.session.SessionManager;
+import com.delivery.util.Result;
 import com.sun.net.httpserver.HttpExchange;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 
 // OrdersController - handles order creation, payment and order-related operations
 public class OrdersController {
 
+    /**
+     * POST /api/order/create/ - one order with several packages to the same delivery address
+     *
+     * Body: {"deliveryAddress":{"streetAddress":..,"city":..,"state":..,"zipCode":..,"deliveryInstructions":..},
+     *        "packages":[{"weight":..,"length":..,"width":..,"height":..,"fragile":false,"signatureRequired":false}, ...]}
+     *
+     * All packages are created in one transaction or none are; the response lists each
+     * package's tracking number in request order.
+     */
     public static void handleCreateOrder(HttpExchange exchange) throws IOException {
-    
+        String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        // CORS headers
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
+
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        // Get session to identify customer
+        Result<SessionManager.Session, String> sessionResult = SessionManager.getSession(extractToken(exchange));
+        if (sessionResult.isErr()) {
+            AuditLogger.log(null, null, "CREATE_ORDER", "denied", clientIp,
+                "Session validation failed: " + sessionResult.unwrapErr());
+            respondJson(exchange, 401, "{\"error\":\"Unauthorized - Please log in\"}");
+            return;
+        }
+
+        SessionManager.Session session = sessionResult.unwrap();
+
+        // Parse request body
+        String body = readStream(exchange.getRequestBody());
+        Map<String, String> address = parseJson(jsonObject(body, "deliveryAddress"));
+        List<String> packageBodies = jsonArrayObjects(body, "packages");
+
+        if (packageBodies == null || packageBodies.isEmpty() || packageBodies.size() > OrderService.MAX_PACKAGES_PER_ORDER) {
+            AuditLogger.log(null, session.username, "CREATE_ORDER", "denied", clientIp,
+                "Invalid package count: " + (packageBodies == null ? 0 : packageBodies.size()));
+            respondJson(exchange, 400, "{\"error\":\"An order must have between 1 and "
+                + OrderService.MAX_PACKAGES_PER_ORDER + " packages\"}");
+            return;
+        }
+
+        String street = address.get("streetAddress");
+        String city = address.get("city");
+        String state = address.get("state");
+        String zip = address.get("zipCode");
+        String instructions = address.getOrDefault("deliveryInstructions", "");
+
+        if (street == null || city == null || state == null || zip == null) {
+            AuditLogger.log(null, session.username, "CREATE_ORDER", "denied", clientIp,
+                "Missing delivery address fields");
+            respondJson(exchange, 400, "{\"error\":\"All delivery address fields required\"}");
+            return;
+        }
+
+        // Sanitize inputs
+        var streetRes = InputSanitizer.sanitizeString(street);
+        var cityRes = InputSanitizer.sanitizeString(city);
+        var stateRes = InputSanitizer.sanitizeString(state);
+        var zipRes = InputSanitizer.sanitizeString(zip);
+        var instrRes = instructions.isEmpty() ? SecurityManager.Result.ok("") : InputSanitizer.sanitizeString(instructions);
+
+        if (streetRes.isErr() || cityRes.isErr() || stateRes.isErr() || zipRes.isErr() || instrRes.isErr()) {
+            AuditLogger.log(null, session.username, "CREATE_ORDER", "error", clientIp,
+                "Sanitization failed");
+            respondJson(exchange, 400, "{\"error\":\"Invalid input format\"}");
+            return;
+        }
+
+        // Validate every package before writing any
+        List<OrderDAO.NewPackage> packages = new ArrayList<>(packageBodies.size());
+        for (int i = 0; i < packageBodies.size(); i++) {
+            Result<OrderDAO.NewPackage, String> pkgResult = parsePackage(parseJson(packageBodies.get(i)));
+            if (pkgResult.isErr()) {
+                AuditLogger.log(null, session.username, "CREATE_ORDER", "denied", clientIp,
+                    "Package " + (i + 1) + ": " + pkgResult.unwrapErr());
+                respondJson(exchange, 400, "{\"error\":\"Package " + (i + 1) + ": "
+                    + escapeJson(pkgResult.unwrapErr()) + "\"}");
+                return;
+            }
+            packages.add(pkgResult.unwrap());
+        }
+
+        Result<OrderDAO.NewOrder, String> orderResult = OrderService.createOrder(new OrderDAO.NewOrder(
+            session.username, streetRes.unwrap(), cityRes.unwrap(), stateRes.unwrap(), zipRes.unwrap(),
+            instrRes.unwrap(), packages));
+
+        if (orderResult.isErr()) {
+            String error = orderResult.unwrapErr();
+            if ("User not found".equals(error)) {
+                respondJson(exchange, 404, "{\"error\":\"User not found\"}");
+                return;
+            }
+            System.err.println("Create order failed: " + error);
+            AuditLogger.log(null, session.username, "CREATE_ORDER", "error", clientIp, error);
+            respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+            return;
+        }
+
+        OrderDAO.NewOrder order = orderResult.unwrap();
+
+        AuditLogger.log(order.customerId, session.username, "CREATE_ORDER", "success", clientIp,
+            "Created order " + order.orderId + " with " + packages.size() + " packages to "
+                + order.city + ", " + order.state);
+
+        // Build JSON response
+        StringBuilder json = new StringBuilder(128 + packages.size() * 96);
+        json.append("{\"success\":true,\"order\":{");
+        json.append("\"orderId\":").append(order.orderId).append(",");
+        json.append("\"packageCount\":").append(packages.size()).append(",");
+        json.append("\"deliveryAddress\":{");
+        json.append("\"streetAddress\":\"").append(escapeJson(order.streetAddress)).append("\",");
+        json.append("\"city\":\"").append(escapeJson(order.city)).append("\",");
+        json.append("\"state\":\"").append(escapeJson(order.state)).append("\",");
+        json.append("\"zipCode\":\"").append(escapeJson(order.zipCode)).append("\"");
+        json.append("},\"packages\":[");
+        for (int i = 0; i < packages.size(); i++) {
+            OrderDAO.NewPackage pkg = packages.get(i);
+            if (i > 0) json.append(",");
+            json.append("{\"packageId\":").append(pkg.packageId);
+            json.append(",\"trackingNumber\":\"").append(escapeJson(pkg.trackingNumber)).append("\"");
+            json.append(",\"status\":\"created\"");
+            json.append(",\"weightKg\":").append(pkg.weightKg).append("}");
+        }
+        json.append("]}}");
+
+        respondJson(exchange, 201, json.toString());
+    }
+
+    /**
+     * POST /api/order/import/ - bulk package creation from a CSV manifest (see OrderImportService)
+     *
+     * The body is the CSV itself (text/csv, optionally Content-Encoding: gzip), read as it
+     * arrives. Responds when the import finishes with counts and the URL of the per-row result.
+     */
+    public static void handleImportOrders(HttpExchange exchange) throws IOException {
+        String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        // CORS headers
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Content-Encoding, Authorization");
+
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        Result<SessionManager.Session, String> sessionResult = SessionManager.getSession(extractToken(exchange));
+        if (sessionResult.isErr()) {
+            AuditLogger.log(null, null, "IMPORT_ORDERS", "denied", clientIp,
+                "Session validation failed: " + sessionResult.unwrapErr());
+            respondJson(exchange, 401, "{\"error\":\"Unauthorized - Please log in\"}");
+            return;
+        }
+
+        SessionManager.Session session = sessionResult.unwrap();
+
+        InputStream body = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            try {
+                body = new GZIPInputStream(body, 64 * 1024);
+            } catch (IOException e) {
+                respondJson(exchange, 400, "{\"error\":\"Body is not valid gzip\"}");
+                return;
+            }
+        }
+
+        Result<OrderImportService.Report, String> importResult = OrderImportService.importCsv(session.username, body);
+        if (importResult.isErr()) {
+            String error = importResult.unwrapErr();
+            AuditLogger.log(null, session.username, "IMPORT_ORDERS", "error", clientIp, error);
+            if (OrderImportService.BUSY.equals(error)) {
+                respondJson(exchange, 503, "{\"error\":\"" + escapeJson(error) + ". Please try again later.\"}");
+            } else if ("User not found".equals(error)) {
+                respondJson(exchange, 404, "{\"error\":\"User not found\"}");
+            } else if (error.startsWith("Database")) {
+                System.err.println("Order import failed: " + error);
+                respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
+            } else {
+                respondJson(exchange, 400, "{\"error\":\"" + escapeJson(error) + "\"}");
+            }
+            return;
+        }
+
+        OrderImportService.Report report = importResult.unwrap();
+        long millis = Math.max(1, report.getDurationMillis());
+
+        AuditLogger.log(null, session.username, "IMPORT_ORDERS", report.getError() == null ? "success" : "error", clientIp,
+            "Import " + report.getId() + ": " + report.getImported() + " of " + report.getRowsRead()
+                + " rows imported in " + report.getDurationMillis() + " ms"
+                + (report.getError() != null ? " (" + report.getError() + ")" : ""));
+
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"success\":").append(report.getError() == null).append(",");
+        json.append("\"importId\":\"").append(report.getId()).append("\",");
+        json.append("\"rowsRead\":").append(report.getRowsRead()).append(",");
+        json.append("\"imported\":").append(report.getImported()).append(",");
+        json.append("\"failed\":").append(report.getFailed()).append(",");
+        json.append("\"orders\":").append(report.getOrders()).append(",");
+        json.append("\"addressesCreated\":").append(report.getAddressesCreated()).append(",");
+        json.append("\"addressesReused\":").append(report.getAddressesReused()).append(",");
+        json.append("\"durationMs\":").append(report.getDurationMillis()).append(",");
+        json.append("\"rowsPerSecond\":").append(report.getRowsRead() * 1000 / millis).append(",");
+        if (report.getError() != null) {
+            json.append("\"error\":\"").append(escapeJson(report.getError())).append("\",");
+        }
+        json.append("\"resultUrl\":\"/api/order/import/").append(report.getId()).append("/result\"}");
+
+        respondJson(exchange, 200, json.toString());
+    }
+
+    /**
+     * GET /api/order/import/{id}/result - per-row outcome of an import as CSV
+     * (line, reference, status, tracking_number, order_id, error). Only for the user who ran it,
+     * or an admin.
+     */
+    public static void handleGetImportResult(HttpExchange exchange) throws IOException {
+        String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        // CORS headers
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
+
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        Result<SessionManager.Session, String> sessionResult = SessionManager.getSession(extractToken(exchange));
+        if (sessionResult.isErr()) {
+            AuditLogger.log(null, null, "GET_IMPORT_RESULT", "denied", clientIp,
+                "Session validation failed: " + sessionResult.unwrapErr());
+            respondJson(exchange, 401, "{\"error\":\"Unauthorized - Please log in\"}");
+            return;
+        }
+
+        SessionManager.Session session = sessionResult.unwrap();
+
+        // /api/order/import/{id}/result
+        String path = exchange.getRequestURI().getPath();
+        int idStart = "/api/order/import/".length();
+        int idEnd = path.length() - "/result".length();
+        String importId = idEnd > idStart ? path.substring(idStart, idEnd) : "";
+
+        OrderImportService.Report report = OrderImportService.getReport(importId);
+        // Someone else's import looks the same as an unknown one
+        if (report == null || (!report.getUsername().equals(session.username) && !"admin".equals(session.role))) {
+            respondJson(exchange, 404, "{\"error\":\"Import not found or expired\"}");
+            return;
+        }
+
+        byte[] gzipped = report.getResultGzip();
+        exchange.getResponseHeaders().add("Content-Type", "text/csv; charset=utf-8");
+        exchange.getResponseHeaders().add("Content-Disposition", "attachment; filename=\"import-" + importId + ".csv\"");
+        exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            // Kept gzipped; sent as is
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, gzipped.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(gzipped);
+            }
+        } else {
+            exchange.sendResponseHeaders(200, 0);
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped));
+                 OutputStream os = exchange.getResponseBody()) {
+                in.transferTo(os);
+            }
+        }
     }
 
     public static void handleGetOrder(HttpExchange exchange) throws IOException {
         // TODO: Return order details and tracking information
         exchange.sendResponseHeaders(501, -1);
     }
+
+    private static Result<OrderDAO.NewPackage, String> parsePackage(Map<String, String> parsed) {
+        double[] values = new double[4];
+        String[] fields = {"weight", "length", "width", "height"};
+        for (int i = 0; i < fields.length; i++) {
+            String value = parsed.get(fields[i]);
+            if (value == null || value.isEmpty()) {
+                return Result.err(fields[i] + " is required");
+            }
+            try {
+                values[i] = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return Result.err(fields[i] + " must be a number");
+            }
+            if (!(values[i] > 0) || Double.isInfinite(values[i])) {
+                return Result.err(fields[i] + " must be greater than 0");
+            }
+        }
+        return Result.ok(new OrderDAO.NewPackage(values[0], values[1], values[2], values[3],
+            "true".equalsIgnoreCase(parsed.get("fragile")),
+            "true".equalsIgnoreCase(parsed.get("signatureRequired"))));
+    }
+
+    private static String extractToken(HttpExchange exchange) {
+        // Try Authorization header first
+        String authHeader = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+
+        // Fall back to cookie
+        String cookieHeader = exchange.getRequestHeaders().getFirst("Cookie");
+        if (cookieHeader != null) {
+            for (String cookie : cookieHeader.split(";")) {
+                String[] parts = cookie.trim().split("=", 2);
+                if (parts.length == 2 && "SESSION".equals(parts[0])) {
+                    return parts[1];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String readStream(InputStream is) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                sb.append(line);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, String> parseJson(String s) {
+        Map<String, String> map = new HashMap<>();
+        if (s == null) return map;
+        s = s.trim();
+        if (s.startsWith("{")) s = s.substring(1);
+        if (s.endsWith("}")) s = s.substring(0, s.length()-1);
+
+        // Split by comma but respect quoted strings (addresses often contain commas)
+        List<String> parts = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+                current.append(c);
+            } else if (c == ',' && !inQuotes) {
+                parts.add(current.toString());
+                current = new StringBuilder();
+            } else {
+                current.append(c);
+            }
+        }
+        if (current.length() > 0) {
+            parts.add(current.toString());
+        }
+
+        for (String p : parts) {
+            int idx = p.indexOf(":");
+            if (idx <= 0) continue;
+            String k = p.substring(0, idx).trim().replaceAll("\"", "");
+            String v = p.substring(idx+1).trim().replaceAll("\"", "");
+            map.put(k, v);
+        }
+        return map;
+    }
+
+    // Raw text of a top-level object field ("key":{...}), or null if the field is absent
+    private static String jsonObject(String s, String key) {
+        if (s == null) return null;
+        int keyAt = s.indexOf("\"" + key + "\"");
+        if (keyAt < 0) return null;
+        int i = keyAt + key.length() + 2;
+        while (i < s.length() && (Character.isWhitespace(s.charAt(i)) || s.charAt(i) == ':')) i++;
+        if (i >= s.length() || s.charAt(i) != '{') return null;
+
+        int depth = 0;
+        boolean inQuotes = false;
+        for (int start = i; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (inQuotes) {
+                if (c == '\\') i++;
+                else if (c == '"') inQuotes = false;
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return s.substring(start, i + 1);
+            }
+        }
+        return null;
+    }
+
+    // Raw text of each object in a top-level array field ("key":[{...},{...}]), or null if the
+    // field is absent; each object can then go through parseJson
+    private static List<String> jsonArrayObjects(String s, String key) {
+        if (s == null) return null;
+        int keyAt = s.indexOf("\"" + key + "\"");
+        if (keyAt < 0) return null;
+        int i = keyAt + key.length() + 2;
+        while (i < s.length() && (Character.isWhitespace(s.charAt(i)) || s.charAt(i) == ':')) i++;
+        if (i >= s.length() || s.charAt(i) != '[') return null;
+
+        List<String> objects = new ArrayList<>();
+        int depth = 0;
+        int start = -1;
+        boolean inQuotes = false;
+        for (i = i + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (inQuotes) {
+                if (c == '\\') i++;
+                else if (c == '"') inQuotes = false;
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == '{') {
+                if (depth++ == 0) start = i;
+            } else if (c == '}') {
+                if (--depth == 0) objects.add(s.substring(start, i + 1));
+            } else if (c == ']' && depth == 0) {
+                break;
+            }
+        }
+        return objects;
+    }
+
+    private static void respondJson(HttpExchange exchange, int code, String body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static String escapeJson(String str) {
+        if (str == null) return "";
+        return str.replace("\\", "\\\\")
+                  .replace("\"", "\\\"")
+                  .replace("\n", "\\n")
+                  .replace("\r", "\\r")
+                  .replace("\t", "\\t");
+    }
 }
@@ -1,10 +1,16 @@
 package com.delivery.controllers;
 
+import com.delivery.dao.OrderDAO;
 import com.delivery.database.DatabaseConnection;
+import com.delivery.events.EventBus;
+import com.delivery.events.PackageDetailsChanged;
 import com.delivery.security.SecurityManager;
 import com.delivery.security.SecurityManager.AuditLogger;
 import com.delivery.security.SecurityManager.InputSanitizer;
 import com.delivery.session.SessionManager;
+import com.delivery.services.OrderService;
+import com.delivery.tracking.TrackingCache;
+import com.delivery.tracking.TrackingNumberGenerator;
 import com.delivery.util.Result;
 import com.sun.net.httpserver.HttpExchange;
 import java.io.BufferedReader;
@@ -76,19 +82,52 @@ public class PackageController {
 
         String sanitizedTrackingNumber = sanitizeResult.unwrap();
 
-        // Get database connection
-        Result<Connection, String> connResult = DatabaseConnection.getConnection();
-        if (connResult.isErr()) {
-            System.err.println("Database connection error: " + connResult.unwrapErr());
+        // A generated number with a wrong check digit is a typo; no need to look it up
+        if (!TrackingNumberGenerator.isWellFormed(sanitizedTrackingNumber)) {
+            AuditLogger.log(null, null, "TRACK_PACKAGE", "denied", clientIp,
+                "Check digit mismatch: " + sanitizedTrackingNumber);
+            respondJson(exchange, 404, "{\"error\":\"Package not found\"}");
+            return;
+        }
+
+        // Served from TrackingCache; unknown numbers are mostly answered by its Bloom filter
+        TrackingCache.View view;
+        try {
+            view = TrackingCache.get(sanitizedTrackingNumber, PackageController::loadTrackingView);
+        } catch (SQLException e) {
+            System.err.println("SQL error during package tracking: " + e.getMessage());
             AuditLogger.log(null, null, "TRACK_PACKAGE", "error", clientIp,
-                "Database connection failed");
+                "Database error: " + e.getMessage());
             respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
             return;
         }
 
-        Connection conn = connResult.unwrap();
+        if (!view.isFound()) {
+            AuditLogger.log(null, null, "TRACK_PACKAGE", "denied", clientIp,
+                "Package not found: " + sanitizedTrackingNumber);
+            respondJson(exchange, 404, "{\"error\":\"Package not found\"}");
+            return;
+        }
 
-        try {
+        AuditLogger.log(null, null, "TRACK_PACKAGE", "success", clientIp,
+            "Tracked package: " + sanitizedTrackingNumber);
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        byte[] bytes = view.getJson();
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    // Read a package's tracking response (details and latest status history) from the database
+    private static TrackingCache.View loadTrackingView(String trackingNumber) throws SQLException {
+        Result<Connection, String> connResult = DatabaseConnection.getConnection();
+        if (connResult.isErr()) {
+            throw new SQLException("Database connection failed: " + connResult.unwrapErr());
+        }
+
+        try (Connection conn = connResult.unwrap()) {
             // Query package information
             String packageQuery =
                 "SELECT p.package_id, p.tracking_number, p.package_status, p.weight_kg, " +
@@ -111,7 +150,7 @@ public class PackageController {
             long packageId = -1;
 
             try (PreparedStatement packageStmt = conn.prepareStatement(packageQuery)) {
-                packageStmt.setString(1, sanitizedTrackingNumber);
+                packageStmt.setString(1, trackingNumber);
 
                 try (ResultSet rs = packageStmt.executeQuery()) {
                     if (rs.next()) {
@@ -145,10 +184,7 @@ public class PackageController {
             }
 
             if (packageData == null) {
-                AuditLogger.log(null, null, "TRACK_PACKAGE", "denied", clientIp,
-                    "Package not found: " + sanitizedTrackingNumber);
-                respondJson(exchange, 404, "{\"error\":\"Package not found\"}");
-                return;
+                return TrackingCache.View.notFound();
             }
 
             // Query delivery status history
@@ -226,23 +262,7 @@ public class PackageController {
 
             json.append("]}}");
 
-            AuditLogger.log(null, null, "TRACK_PACKAGE", "success", clientIp,
-                "Tracked package: " + sanitizedTrackingNumber);
-
-            respondJson(exchange, 200, json.toString());
-
-        } catch (SQLException e) {
-            System.err.println("SQL error during package tracking: " + e.getMessage());
-            e.printStackTrace();
-            AuditLogger.log(null, null, "TRACK_PACKAGE", "error", clientIp,
-                "Database error: " + e.getMessage());
-            respondJson(exchange, 500, "{\"error\":\"Server error. Please try again later.\"}");
-        } finally {
-            try {
-                conn.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing connection: " + e.getMessage());
-            }
+            return TrackingCache.View.found(packageId, json.toString().getBytes(StandardCharsets.UTF_8));
         }
     }
 
@@ -281,7 +301,6 @@ public static void handleCreatePackage(HttpExchange exchange) throws IOException
     String body = readStream(exchange.getRequestBody());
     
     // Parse nested JSON manually
-    String tracking = extractJsonField(body, "trackingNumber");
     String weight = extractJsonField(body, "weight");
     String length = extractJsonField(body, "length");
     String width = extractJsonField(body, "width");
@@ -295,7 +314,7 @@ public static void handleCreatePackage(HttpExchange exchange) throws IOException
     String deliveryInstructions = extractNestedJsonField(body, "deliveryAddress", "deliveryInstructions");
 
     // Validate required fields
-    if (tracking == null || weight == null || length == null || width == null || height == null ||
+    if (weight == null || length == null || width == null || height == null ||
         deliveryStreet == null || deliveryCity == null || deliveryState == null || deliveryZip == null) {
         AuditLogger.log(null, session.username, "CREATE_PACKAGE", "denied", clientIp,
             "Missing required fields");
@@ -304,7 +323,6 @@ public static void handleCreatePackage(HttpExchange exchange) throws IOException
     }
 
     // Sanitize inputs
-    var tRes = InputSanitizer.sanitizeString(tracking);
     var wRes = InputSanitizer.sanitizeString(weight);
     var lRes = InputSanitizer.sanitizeString(length);
     var wiRes = InputSanitizer.sanitizeString(width);
@@ -316,7 +334,7 @@ public static void handleCreatePackage(HttpExchange exchange) throws IOException
     var instrRes = deliveryInstructions != null ? InputSanitizer.sanitizeString(deliveryInstructions) : 
                    SecurityManager.Result.ok("");
 
-    if (tRes.isErr() || wRes.isErr() || lRes.isErr() || wiRes.isErr() || hRes.isErr() ||
+    if (wRes.isErr() || lRes.isErr() || wiRes.isErr() || hRes.isErr() ||
         streetRes.isErr() || cityRes.isErr() || stateRes.isErr() || zipRes.isErr() || instrRes.isErr()) {
         AuditLogger.log(null, session.username, "CREATE_PACKAGE", "error", clientIp,
             "Sanitization failed");
@@ -324,7 +342,6 @@ public static void handleCreatePackage(HttpExchange exchange) throws IOException
         return;
     }
 
-    String trackingNumber = tRes.unwrap();
     String sanitizedStreet = streetRes.unwrap();
     String sanitizedCity = cityRes.unwrap();
     String sanitizedState = stateRes.unwrap();
@@ -343,152 +360,51 @@ public static void handleCreatePackage(HttpExchange exchange) throws IOException
         return;
     }
 
-    // DB connection
-    Result<Connection, String> connRes = DatabaseConnection.getConnection();
-    if (connRes.isErr()) {
-        AuditLogger.log(null, session.username, "CREATE_PACKAGE", "error", clientIp,
-            "DB connection failed");
-        respondJson(exchange, 500, "{\"error\":\"Server error\"}");
-        return;
-    }
-
-    Connection conn = connRes.unwrap();
-
-    try {
-        conn.setAutoCommit(false);
+    // A one-package order; the address, order, package and history rows are written in one
+    // transaction and the tracking number is generated server-side (see OrderService.createOrder)
+    OrderDAO.NewPackage pkg = new OrderDAO.NewPackage(weightKg, lengthCm, widthCm, heightCm, false, false);
+    Result<OrderDAO.NewOrder, String> orderResult = OrderService.createOrder(new OrderDAO.NewOrder(
+        session.username, sanitizedStreet, sanitizedCity, sanitizedState, sanitizedZip, sanitizedInstr, List.of(pkg)));
 
-        // Get customer ID from session
-        long customerId = getUserId(conn, session.username);
-        if (customerId == -1) {
-            conn.rollback();
+    if (orderResult.isErr()) {
+        String error = orderResult.unwrapErr();
+        if ("User not found".equals(error)) {
             respondJson(exchange, 404, "{\"error\":\"User not found\"}");
             return;
         }
-
-        // 1. Create delivery address
-// 1. Create delivery address
-String insertAddress =
-    "INSERT INTO addresses (user_id, address_type, street_address, city, state, zip_code, delivery_instructions) " +
-    "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-long deliveryAddressId;
-try (PreparedStatement addrStmt = conn.prepareStatement(insertAddress, PreparedStatement.RETURN_GENERATED_KEYS)) {
-    addrStmt.setLong(1, customerId);                // user_id
-    addrStmt.setString(2, "delivery");              // address_type
-    addrStmt.setString(3, sanitizedStreet);         // street_address
-    addrStmt.setString(4, sanitizedCity);           // city
-    addrStmt.setString(5, sanitizedState);          // state
-    addrStmt.setString(6, sanitizedZip);            // zip_code
-    addrStmt.setString(7, sanitizedInstr.isEmpty() ? null : sanitizedInstr); // delivery_instructions
-    addrStmt.executeUpdate();
-
-    try (ResultSet keys = addrStmt.getGeneratedKeys()) {
-        if (!keys.next()) {
-            conn.rollback();
-            respondJson(exchange, 500, "{\"error\":\"Failed to create address\"}");
-            return;
-        }
-        deliveryAddressId = keys.getLong(1);
-    }
-}
-
-// 2. Create order - use East Coast Hub (facility_id = 3) as default pickup
-// First, get or create the pickup address for East Coast Hub
-// 2. Create order - use East Coast Hub as default pickup
-long defaultPickupAddressId = 1; // Update this with your actual address_id
-
-String insertOrder =
-    "INSERT INTO orders (customer_id, pickup_address_id, delivery_address_id, order_status, total_cost) " +
-    "VALUES (?, ?, ?, 'pending', 0.00)";
-
-long orderId;
-try (PreparedStatement orderStmt = conn.prepareStatement(insertOrder, PreparedStatement.RETURN_GENERATED_KEYS)) {
-    orderStmt.setLong(1, customerId);
-    orderStmt.setLong(2, defaultPickupAddressId);  // East Coast Hub pickup address
-    orderStmt.setLong(3, deliveryAddressId);
-    orderStmt.executeUpdate();
-
-    try (ResultSet keys = orderStmt.getGeneratedKeys()) {
-        if (!keys.next()) {
-            conn.rollback();
-            respondJson(exchange, 500, "{\"error\":\"Failed to create order\"}");
-            return;
-        }
-        orderId = keys.getLong(1);
-    }
-}
-
-        // 3. Create package
-// 3. Create package
-String insertPackage =
-    "INSERT INTO packages (order_id, tracking_number, weight_kg, length_cm, width_cm, height_cm, package_status) " +
-    "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-long packageId;
-try (PreparedStatement pkgStmt = conn.prepareStatement(insertPackage, PreparedStatement.RETURN_GENERATED_KEYS)) {
-    pkgStmt.setLong(1, orderId);                    // order_id
-    pkgStmt.setString(2, trackingNumber);           // tracking_number
-    pkgStmt.setDouble(3, weightKg);                 // weight_kg
-    pkgStmt.setDouble(4, lengthCm);                 // length_cm
-    pkgStmt.setDouble(5, widthCm);                  // width_cm
-    pkgStmt.setDouble(6, heightCm);                 // height_cm
-    pkgStmt.setString(7, "pending");                // package_status
-    pkgStmt.executeUpdate();
-
-    try (ResultSet keys = pkgStmt.getGeneratedKeys()) {
-        if (!keys.next()) {
-            conn.rollback();
-            respondJson(exchange, 500, "{\"error\":\"Failed to create package\"}");
-            return;
-        }
-        packageId = keys.getLong(1);
-    }
-}
-
-        // 4. Create initial status history
-        String insertHistory =
-            "INSERT INTO delivery_status_history (package_id, status, location, notes) " +
-            "VALUES (?, 'created', 'Awaiting Pickup', 'Package created by customer')";
-        
-        try (PreparedStatement histStmt = conn.prepareStatement(insertHistory)) {
-            histStmt.setLong(1, packageId);
-            histStmt.executeUpdate();
-        }
-
-        conn.commit();
-
-        AuditLogger.log(customerId, session.username, "CREATE_PACKAGE", "success", clientIp,
-            "Created package " + trackingNumber + " with delivery to " + sanitizedCity + ", " + sanitizedState);
-
-        // Build JSON response
-        StringBuilder json = new StringBuilder();
-        json.append("{\"success\":true,");
-        json.append("\"package\":{");
-        json.append("\"packageId\":").append(packageId).append(",");
-        json.append("\"trackingNumber\":\"").append(escapeJson(trackingNumber)).append("\",");
-        json.append("\"status\":\"created\",");
-        json.append("\"weightKg\":").append(weightKg).append(",");
-        json.append("\"dimensions\":{");
-        json.append("\"lengthCm\":").append(lengthCm).append(",");
-        json.append("\"widthCm\":").append(widthCm).append(",");
-        json.append("\"heightCm\":").append(heightCm);
-        json.append("},");
-        json.append("\"deliveryAddress\":{");
-        json.append("\"streetAddress\":\"").append(escapeJson(sanitizedStreet)).append("\",");
-        json.append("\"city\":\"").append(escapeJson(sanitizedCity)).append("\",");
-        json.append("\"state\":\"").append(escapeJson(sanitizedState)).append("\",");
-        json.append("\"zipCode\":\"").append(escapeJson(sanitizedZip)).append("\"");
-        json.append("}}}");
-
-        respondJson(exchange, 201, json.toString());
-
-    } catch (SQLException e) {
-        try { conn.rollback(); } catch (Exception ignored) {}
+        System.err.println("Create package failed: " + error);
+        AuditLogger.log(null, session.username, "CREATE_PACKAGE", "error", clientIp, error);
         respondJson(exchange, 500, "{\"error\":\"Database error\"}");
-        e.printStackTrace();
-    } finally {
-        try { conn.setAutoCommit(true); conn.close(); } catch (SQLException ignored) {}
+        return;
     }
+
+    OrderDAO.NewOrder order = orderResult.unwrap();
+    String trackingNumber = pkg.trackingNumber;
+
+    AuditLogger.log(order.customerId, session.username, "CREATE_PACKAGE", "success", clientIp,
+        "Created package " + trackingNumber + " with delivery to " + sanitizedCity + ", " + sanitizedState);
+
+    // Build JSON response
+    StringBuilder json = new StringBuilder();
+    json.append("{\"success\":true,");
+    json.append("\"package\":{");
+    json.append("\"packageId\":").append(pkg.packageId).append(",");
+    json.append("\"trackingNumber\":\"").append(escapeJson(trackingNumber)).append("\",");
+    json.append("\"status\":\"created\",");
+    json.append("\"weightKg\":").append(weightKg).append(",");
+    json.append("\"dimensions\":{");
+    json.append("\"lengthCm\":").append(lengthCm).append(",");
+    json.append("\"widthCm\":").append(widthCm).append(",");
+    json.append("\"heightCm\":").append(heightCm);
+    json.append("},");
+    json.append("\"deliveryAddress\":{");
+    json.append("\"streetAddress\":\"").append(escapeJson(sanitizedStreet)).append("\",");
+    json.append("\"city\":\"").append(escapeJson(sanitizedCity)).append("\",");
+    json.append("\"state\":\"").append(escapeJson(sanitizedState)).append("\",");
+    json.append("\"zipCode\":\"").append(escapeJson(sanitizedZip)).append("\"");
+    json.append("}}}");
+
+    respondJson(exchange, 201, json.toString());
 }
 
 // Helper method to extract simple JSON fields
@@ -708,6 +624,7 @@ private static String extractNestedJsonField(String json, String objectName, Str
 
                 // Commit transaction
                 conn.commit();
+                EventBus.publish(new PackageDetailsChanged(packageId));
 
                 AuditLogger.log(userId, session.username, "EDIT_PACKAGE", "success", clientIp,
                     String.format("Edited package %s (ID: %d): %s changed from '%s' to '%s'",
@@ -996,6 +913,7 @@ private static String extractNestedJsonField(String json, String objectName, Str
             }
 
             conn.commit();
+            EventBus.publish(new PackageDetailsChanged(packageId));
 
             AuditLogger.log(userId, session.username, "API_ORDER_EDIT", "success", clientIp,
                 String.format("User %s edited package %s (ID %d)", session.username, outTracking, packageId));
@@ -1155,44 +1073,63 @@ public static void handleEditAddress(HttpExchange exchange) throws IOException {
             return;
         }
 
-        // Build dynamic update for address
-        List<String> setParts = new ArrayList<>();
-        List<Object> params = new ArrayList<>();
-
-        if (sanitizedStreet != null && !sanitizedStreet.isEmpty()) {
-            setParts.add("street_address = ?");
-            params.add(sanitizedStreet);
-        }
-        if (sanitizedCity != null && !sanitizedCity.isEmpty()) {
-            setParts.add("city = ?");
-            params.add(sanitizedCity);
-        }
-        if (sanitizedState != null && !sanitizedState.isEmpty()) {
-            setParts.add("state = ?");
-            params.add(sanitizedState);
-        }
-        if (sanitizedZip != null && !sanitizedZip.isEmpty()) {
-            setParts.add("zip_code = ?");
-            params.add(sanitizedZip);
+        // Fields left out (or empty) keep their current value
+        String[] newValues = {sanitizedStreet, sanitizedCity, sanitizedState, sanitizedZip};
+        boolean hasValidField = false;
+        for (int i = 0; i < newValues.length; i++) {
+            if (newValues[i] != null && newValues[i].isEmpty()) newValues[i] = null;
+            if (newValues[i] != null) hasValidField = true;
         }
 
-        if (setParts.isEmpty()) {
+        if (!hasValidField) {
             conn.rollback();
             respondJson(exchange, 400, "{\"error\":\"No valid address fields to update\"}");
             return;
         }
 
-        // Update the address
-        String updateSql = "UPDATE addresses SET " + String.join(", ", setParts) + " WHERE address_id = ?";
-        try (PreparedStatement upd = conn.prepareStatement(updateSql)) {
-            int idx = 1;
-            for (Object p : params) {
-                upd.setObject(idx++, p);
+        // Copy on write: repeat orders and imports share a customer's address row, so the
+        // edited address becomes a new row that only this order points to
+        String copySql =
+            "INSERT INTO addresses (user_id, address_type, street_address, city, state, zip_code, delivery_instructions) " +
+            "SELECT user_id, 'delivery', COALESCE(?, street_address), COALESCE(?, city), " +
+            "COALESCE(?, state), COALESCE(?, zip_code), delivery_instructions " +
+            "FROM addresses WHERE address_id = ?";
+        try (PreparedStatement copy = conn.prepareStatement(copySql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < newValues.length; i++) {
+                copy.setString(i + 1, newValues[i]);
+            }
+            copy.setLong(5, addressId);
+            if (copy.executeUpdate() == 0) {
+                conn.rollback();
+                respondJson(exchange, 404, "{\"error\":\"Delivery address not found\"}");
+                return;
             }
-            upd.setLong(idx, addressId);
+            try (ResultSet keys = copy.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Failed to retrieve generated address ID");
+                }
+                addressId = keys.getLong(1);
+            }
+        }
+
+        try (PreparedStatement upd = conn.prepareStatement(
+                "UPDATE orders SET delivery_address_id = ? WHERE order_id = ?")) {
+            upd.setLong(1, addressId);
+            upd.setLong(2, orderId);
             upd.executeUpdate();
         }
 
+        // Every package of the order shows the new address
+        List<Long> orderPackageIds = new ArrayList<>();
+        try (PreparedStatement pkgs = conn.prepareStatement("SELECT package_id FROM packages WHERE order_id = ?")) {
+            pkgs.setLong(1, orderId);
+            try (ResultSet rs = pkgs.executeQuery()) {
+                while (rs.next()) {
+                    orderPackageIds.add(rs.getLong("package_id"));
+                }
+            }
+        }
+
         // Log the change in package_edit_history
         String historySql = 
             "INSERT INTO package_edit_history (package_id, edited_by, field_name, old_value, new_value, edit_reason) " +
@@ -1229,6 +1166,9 @@ public static void handleEditAddress(HttpExchange exchange) throws IOException {
         }
 
         conn.commit();
+        for (long changedPackageId : orderPackageIds) {
+            EventBus.publish(new PackageDetailsChanged(changedPackageId));
+        }
 
         AuditLogger.log(userId, session.username, "EDIT_ADDRESS", "success", clientIp,
             String.format("Updated delivery address for package %s", sanitizedTracking));
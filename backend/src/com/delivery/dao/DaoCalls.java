@@ -0,0 +1,35 @@
+package com.delivery.dao;
+
+import com.delivery.jfr.DaoCallEvent;
+import com.delivery.metrics.LatencyHistogram;
+import java.util.function.Supplier;
+
+/**
+ * DaoCalls - Times a DAO method into its latency histogram and a DaoCallEvent
+ * The public DAO method hands its body over as a lambda, so the body itself does not need
+ * the start/try/finally bookkeeping.
+ */
+final class DaoCalls {
+
+    private DaoCalls() {
+    }
+
+    /**
+     * Run a DAO method body, recording how long it took (including when it throws)
+     *
+     * @param histogram Latency histogram of the method (see Metrics.dao)
+     * @param method Method name for the JFR event, e.g. "RouteDAO.getRouteDetails"
+     * @param body The method body
+     * @return Whatever the body returns
+     */
+    static <T> T timed(LatencyHistogram histogram, String method, Supplier<T> body) {
+        long start = System.nanoTime();
+        DaoCallEvent event = DaoCallEvent.start(method);
+        try {
+            return body.get();
+        } finally {
+            histogram.recordSince(start);
+            event.finish();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.delivery.dao;
+
+import com.delivery.inventory.FacilityInventoryCounters;
+import com.delivery.metrics.LatencyHistogram;
+import com.delivery.metrics.Metrics;
+import com.delivery.util.Result;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DeliveryStatusDAO - Batched delivery status updates for driver offline sync
+ * Every method runs inside the caller's transaction. Callers keep batches to a few hundred
+ * events, so each id list goes out as a single IN (...) and a single executeBatch.
+ */
+public class DeliveryStatusDAO {
+
+    // Per-method latency, exported at /admin/metrics (and as DaoCallEvent to JFR)
+    private static final LatencyHistogram LOCK_DRIVER = Metrics.dao("DeliveryStatusDAO.lockDriver");
+    private static final LatencyHistogram FIND_RECORDED_EVENTS = Metrics.dao("DeliveryStatusDAO.findRecordedEvents");
+    private static final LatencyHistogram FIND_ROUTE_PACKAGES = Metrics.dao("DeliveryStatusDAO.findRoutePackages");
+    private static final LatencyHistogram APPLY_STATUS_EVENTS = Metrics.dao("DeliveryStatusDAO.applyStatusEvents");
+
+    /**
+     * One status change recorded on a driver's device, identified by a client-generated event id
+     */
+    public static class StatusEvent {
+        public final String eventId;
+        public final long packageId;
+        public final String status;
+        public final String notes;
+        public final String location;
+        // When the driver recorded it; becomes the history timestamp (and delivered_at)
+        public final Timestamp occurredAt;
+        // Filled in by findRoutePackages
+        public String trackingNumber;
+        public Long facilityId;
+        // Set by applyStatusEvents: older than the package's latest status, so recorded in history only
+        public boolean stale;
+
+        public StatusEvent(String eventId, long packageId, String status, String notes, String location,
+                           Timestamp occurredAt) {
+            this.eventId = eventId;
+            this.packageId = packageId;
+            this.status = status;
+            this.notes = notes;
+            this.location = location;
+            this.occurredAt = occurredAt;
+        }
+    }
+
+    /**
+     * Lock the driver's user row so two syncs from the same driver run one after the other;
+     * otherwise both could see an event id as new and apply it twice.
+     */
+    public static Result<Void, String> lockDriver(Connection conn, long driverId) {
+        return DaoCalls.timed(LOCK_DRIVER, "DeliveryStatusDAO.lockDriver",
+                              () -> lockDriverImpl(conn, driverId));
+    }
+
+    private static Result<Void, String> lockDriverImpl(Connection conn, long driverId) {
+        try {
+            String query = "SELECT user_id FROM users WHERE user_id = ? FOR UPDATE";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setLong(1, driverId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return Result.err("Driver not found");
+                    }
+                }
+            }
+            return Result.ok(null);
+
+        } catch (SQLException e) {
+            return Result.err("Database error while locking driver: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Event ids from this driver that an earlier sync already applied
+     */
+    public static Result<Set<String>, String> findRecordedEvents(Connection conn, long driverId,
+                                                                 List<String> eventIds) {
+        return DaoCalls.timed(FIND_RECORDED_EVENTS, "DeliveryStatusDAO.findRecordedEvents",
+                              () -> findRecordedEventsImpl(conn, driverId, eventIds));
+    }
+
+    private static Result<Set<String>, String> findRecordedEventsImpl(Connection conn, long driverId,
+                                                                      List<String> eventIds) {
+        try {
+            Set<String> recorded = new HashSet<>();
+            if (eventIds.isEmpty()) return Result.ok(recorded);
+
+            String query =
+                "SELECT client_event_id FROM delivery_status_history " +
+                "WHERE updated_by = ? AND client_event_id IN (" + placeholders(eventIds.size()) + ")";
+
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setLong(1, driverId);
+                for (int i = 0; i < eventIds.size(); i++) {
+                    stmt.setString(i + 2, eventIds.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        recorded.add(rs.getString("client_event_id"));
+                    }
+                }
+            }
+            return Result.ok(recorded);
+
+        } catch (SQLException e) {
+            return Result.err("Database error while checking sync events: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check the events' packages against the driver's route for today in one query, filling in
+     * each matching event's tracking number and current facility.
+     * @return Ids of the packages that are on the driver's route
+     */
+    public static Result<Set<Long>, String> findRoutePackages(Connection conn, long driverId,
+                                                              List<StatusEvent> events) {
+        return DaoCalls.timed(FIND_ROUTE_PACKAGES, "DeliveryStatusDAO.findRoutePackages",
+                              () -> findRoutePackagesImpl(conn, driverId, events));
+    }
+
+    private static Result<Set<Long>, String> findRoutePackagesImpl(Connection conn, long driverId,
+                                                                   List<StatusEvent> events) {
+        try {
+            Map<Long, String> trackingNumbers = new HashMap<>();
+            Map<Long, Long> facilityIds = new HashMap<>();
+            if (events.isEmpty()) return Result.ok(trackingNumbers.keySet());
+
+            Set<Long> packageIds = new HashSet<>();
+            for (StatusEvent e : events) packageIds.add(e.packageId);
+
+            String query =
+                "SELECT DISTINCT p.package_id, p.tracking_number, p.current_facility_id " +
+                "FROM packages p " +
+                "JOIN route_packages rp ON p.package_id = rp.package_id " +
+                "JOIN routes r ON rp.route_id = r.route_id " +
+                "JOIN route_assignments ra ON r.route_id = ra.route_id " +
+                "WHERE ra.driver_id = ? AND r.route_date = CURDATE() " +
+                "  AND p.package_id IN (" + placeholders(packageIds.size()) + ")";
+
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setLong(1, driverId);
+                int idx = 2;
+                for (Long id : packageIds) {
+                    stmt.setLong(idx++, id);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        long packageId = rs.getLong("package_id");
+                        trackingNumbers.put(packageId, rs.getString("tracking_number"));
+                        long facilityId = rs.getLong("current_facility_id");
+                        if (!rs.wasNull()) facilityIds.put(packageId, facilityId);
+                    }
+                }
+            }
+
+            for (StatusEvent e : events) {
+                e.trackingNumber = trackingNumbers.get(e.packageId);
+                e.facilityId = facilityIds.get(e.packageId);
+            }
+            return Result.ok(trackingNumbers.keySet());
+
+        } catch (SQLException e) {
+            return Result.err("Database error while verifying route packages: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Apply status events in list order: package status, inventory record, status history and
+     * order status, as DriverController.handleUpdateDeliveryStatus does for one package.
+     * The package, history and order writes each go out as one JDBC batch. Inventory is moved
+     * per event, because each move depends on the record's state after the previous one.
+     *
+     * An event that happened before the package's latest recorded status (say an offline
+     * 'out_for_delivery' synced after the package was marked delivered online) only goes into
+     * the history, and is marked stale. The list must be in occurredAt order.
+     *
+     * @param conn Connection with the caller's open transaction
+     * @param driverId Driver the events came from; recorded as updated_by with each event id
+     * @param events Verified, not yet recorded events
+     * @param changes Collects the counter changes to apply once the caller commits
+     * @return Result with nothing on success or error message
+     */
+    public static Result<Void, String> applyStatusEvents(Connection conn, long driverId, List<StatusEvent> events,
+                                                         FacilityInventoryCounters.Changes changes) {
+        return DaoCalls.timed(APPLY_STATUS_EVENTS, "DeliveryStatusDAO.applyStatusEvents",
+                              () -> applyStatusEventsImpl(conn, driverId, events, changes));
+    }
+
+    private static Result<Void, String> applyStatusEventsImpl(Connection conn, long driverId, List<StatusEvent> events,
+                                                              FacilityInventoryCounters.Changes changes) {
+        try {
+            if (events.isEmpty()) return Result.ok(null);
+
+            // Latest status time per package; a locking read, so it sees updates committed while
+            // this transaction was waiting and holds off new ones until it commits
+            Set<Long> packageIds = new HashSet<>();
+            for (StatusEvent e : events) packageIds.add(e.packageId);
+            String latestSql =
+                "SELECT package_id, MAX(timestamp) AS latest FROM delivery_status_history " +
+                "WHERE package_id IN (" + placeholders(packageIds.size()) + ") AND status <> 'exception' " +
+                "GROUP BY package_id FOR SHARE";
+            Map<Long, Timestamp> latest = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(latestSql)) {
+                int idx = 1;
+                for (Long id : packageIds) {
+                    stmt.setLong(idx++, id);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        latest.put(rs.getLong("package_id"), rs.getTimestamp("latest"));
+                    }
+                }
+            }
+            for (StatusEvent e : events) {
+                // 'exception' never changes the package, so it is neither stale nor newer
+                if ("exception".equals(e.status)) continue;
+                Timestamp current = latest.get(e.packageId);
+                e.stale = current != null && e.occurredAt.before(current);
+                if (!e.stale) latest.put(e.packageId, e.occurredAt);
+            }
+
+            // 'exception' is a history-only status; it does not exist on packages
+            String packageSql =
+                "UPDATE packages SET package_status = ?, " +
+                "       delivered_at = IF(? = 'delivered', ?, delivered_at) " +
+                "WHERE package_id = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(packageSql)) {
+                int batched = 0;
+                for (StatusEvent e : events) {
+                    if ("exception".equals(e.status) || e.stale) continue;
+                    stmt.setString(1, e.status);
+                    stmt.setString(2, e.status);
+                    stmt.setTimestamp(3, e.occurredAt);
+                    stmt.setLong(4, e.packageId);
+                    stmt.addBatch();
+                    batched++;
+                }
+                if (batched > 0) stmt.executeBatch();
+            }
+
+            for (StatusEvent e : events) {
+                if (e.stale) continue;
+                Result<Void, String> inventoryResult =
+                    InventoryDAO.applyPackageStatus(conn, e.packageId, e.status, changes);
+                if (inventoryResult.isErr()) {
+                    return inventoryResult;
+                }
+            }
+
+            String historySql =
+                "INSERT INTO delivery_status_history " +
+                "(package_id, status, location, updated_by, notes, timestamp, client_event_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement stmt = conn.prepareStatement(historySql)) {
+                for (StatusEvent e : events) {
+                    stmt.setLong(1, e.packageId);
+                    stmt.setString(2, e.status);
+                    stmt.setString(3, e.location);
+                    stmt.setLong(4, driverId);
+                    stmt.setString(5, e.notes);
+                    stmt.setTimestamp(6, e.occurredAt);
+                    stmt.setString(7, e.eventId);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            String orderSql =
+                "UPDATE orders o " +
+                "JOIN packages p ON o.order_id = p.order_id " +
+                "SET o.order_status = 'delivered' " +
+                "WHERE p.package_id = ? AND o.order_status = 'in_transit'";
+            try (PreparedStatement stmt = conn.prepareStatement(orderSql)) {
+                int batched = 0;
+                for (StatusEvent e : events) {
+                    if (!"delivered".equals(e.status) || e.stale) continue;
+                    stmt.setLong(1, e.packageId);
+                    stmt.addBatch();
+                    batched++;
+                }
+                if (batched > 0) stmt.executeBatch();
+            }
+
+            return Result.ok(null);
+
+        } catch (SQLException e) {
+            return Result.err("Database error while applying status events: " + e.getMessage());
+        }
+    }
+
+    // "?, ?, ?" for an IN list of n values
+    private static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 3);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
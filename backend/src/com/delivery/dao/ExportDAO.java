@@ -0,0 +1,155 @@
+package com.delivery.dao;
+
+import com.delivery.database.DatabaseConnection;
+import com.delivery.metrics.LatencyHistogram;
+import com.delivery.metrics.Metrics;
+import com.delivery.util.Result;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * ExportDAO - Reads whole tables for export, one keyset batch at a time
+ * Every dataset is ordered by its primary key, so a batch (or a resumed export) starts with an
+ * index range scan right after the last key seen, however far into the table it is.
+ */
+public class ExportDAO {
+
+    // Per-method latency, exported at /admin/metrics (and as DaoCallEvent to JFR)
+    private static final LatencyHistogram READ_BATCH = Metrics.dao("ExportDAO.readBatch");
+
+    /**
+     * Tables that can be exported. The first column is always the key; columns lists the
+     * output names of the SELECT, in order.
+     */
+    public enum Dataset {
+        AUDIT_LOG("audit-log",
+            "SELECT audit_id, timestamp, user_id, username, action, result, ip_address, details " +
+            "FROM audit_log " +
+            "WHERE audit_id > ? " +
+            "ORDER BY audit_id " +
+            "LIMIT ?",
+            "audit_id", "timestamp", "user_id", "username", "action", "result", "ip_address", "details"),
+
+        INVENTORY("inventory",
+            "SELECT i.inventory_id, i.facility_id, f.facility_name, i.package_id, p.tracking_number, " +
+            "p.package_status, i.inventory_status, i.arrival_time, i.departure_time " +
+            "FROM inventory i " +
+            "INNER JOIN facilities f ON i.facility_id = f.facility_id " +
+            "INNER JOIN packages p ON i.package_id = p.package_id " +
+            "WHERE i.inventory_id > ? " +
+            "ORDER BY i.inventory_id " +
+            "LIMIT ?",
+            "inventory_id", "facility_id", "facility_name", "package_id", "tracking_number",
+            "package_status", "inventory_status", "arrival_time", "departure_time"),
+
+        // Route history without the stored route_json; drivers are the assigned usernames, ';'-separated
+        ROUTES("routes",
+            "SELECT r.route_id, r.route_name, r.facility_id, f.facility_name, r.route_date, r.route_status, " +
+            "r.total_stops, r.estimated_duration_minutes, r.created_at, r.completed_at, " +
+            "(SELECT GROUP_CONCAT(u.username ORDER BY ra.assigned_at SEPARATOR ';') " +
+            " FROM route_assignments ra INNER JOIN users u ON ra.driver_id = u.user_id " +
+            " WHERE ra.route_id = r.route_id) AS drivers " +
+            "FROM routes r " +
+            "INNER JOIN facilities f ON r.facility_id = f.facility_id " +
+            "WHERE r.route_id > ? " +
+            "ORDER BY r.route_id " +
+            "LIMIT ?",
+            "route_id", "route_name", "facility_id", "facility_name", "route_date", "route_status",
+            "total_stops", "estimated_duration_minutes", "created_at", "completed_at", "drivers");
+
+        private final String slug;
+        private final String sql;
+        private final String[] columns;
+
+        Dataset(String slug, String sql, String... columns) {
+            this.slug = slug;
+            this.sql = sql;
+            this.columns = columns;
+        }
+
+        // Name used in URLs and file names
+        public String getSlug() { return slug; }
+
+        public String[] getColumns() { return columns.clone(); }
+
+        public static Dataset fromSlug(String slug) {
+            for (Dataset dataset : values()) {
+                if (dataset.slug.equals(slug)) return dataset;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Receives the rows of a batch one at a time
+     */
+    public interface RowSink {
+        /**
+         * @param row Column values in Dataset order: Number, Boolean or String (timestamps as
+         *            ISO-8601 UTC), null for SQL NULL; row[0] is the key
+         * @return false to end the batch after this row
+         */
+        boolean accept(Object[] row);
+    }
+
+    /**
+     * Read up to maxRows rows with a key greater than afterKey, in key order
+     * Rows come from a forward-only, read-only result set that the driver streams row by row.
+     * The connection is held only while this batch is read.
+     *
+     * @param dataset Table to read
+     * @param afterKey Key of the last row already read (0 to start from the beginning)
+     * @param maxRows Batch size
+     * @param sink Receives each row; may end the batch early
+     * @return Result containing the number of rows handed to the sink or error message
+     */
+    public static Result<Integer, String> readBatch(Dataset dataset, long afterKey, int maxRows, RowSink sink) {
+        return DaoCalls.timed(READ_BATCH, "ExportDAO.readBatch",
+                              () -> readBatchImpl(dataset, afterKey, maxRows, sink));
+    }
+
+    private static Result<Integer, String> readBatchImpl(Dataset dataset, long afterKey, int maxRows, RowSink sink) {
+        Result<Connection, String> connResult = DatabaseConnection.getConnection();
+        if (connResult.isErr()) {
+            return Result.err("Database connection failed: " + connResult.unwrapErr());
+        }
+
+        try (Connection conn = connResult.unwrap();
+             PreparedStatement stmt = conn.prepareStatement(dataset.sql, ResultSet.TYPE_FORWARD_ONLY,
+                                                            ResultSet.CONCUR_READ_ONLY)) {
+            // MySQL Connector/J streams rows one at a time instead of buffering the whole
+            // result only for forward-only, read-only statements with this fetch size
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            stmt.setLong(1, afterKey);
+            stmt.setInt(2, maxRows);
+
+            int count = 0;
+            int width = dataset.columns.length;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Object[] row = new Object[width];
+                    for (int i = 0; i < width; i++) {
+                        row[i] = readValue(rs.getObject(i + 1));
+                    }
+                    count++;
+                    // Closing the result set reads the rest of the batch; it is at most maxRows
+                    if (!sink.accept(row)) break;
+                }
+            }
+            return Result.ok(count);
+
+        } catch (SQLException e) {
+            return Result.err("SQL error: " + e.getMessage());
+        }
+    }
+
+    private static Object readValue(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean) return value;
+        if (value instanceof Timestamp) return ((Timestamp) value).toInstant().toString();
+        // DATE columns come back as java.sql.Date, which prints as yyyy-mm-dd
+        return value.toString();
+    }
+}
@@ -1,9 +1,15 @@
 package com.delivery.dao;
 
 import com.delivery.database.DatabaseConnection;
+import com.delivery.inventory.FacilityInventoryCounters;
+import com.delivery.metrics.LatencyHistogram;
+import com.delivery.metrics.Metrics;
 import com.delivery.models.Facility;
+import com.delivery.models.FacilityInventory;
 import com.delivery.models.InventoryItem;
+import com.delivery.models.InventoryPage;
 import com.delivery.util.Result;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -17,6 +23,44 @@ import java.util.List;
  */
 public class InventoryDAO {
 
+    // Per-method latency, exported at /admin/metrics (and as DaoCallEvent to JFR)
+    private static final LatencyHistogram GET_INVENTORY_BY_FACILITY = Metrics.dao("InventoryDAO.getInventoryByFacility");
+    private static final LatencyHistogram GET_ALL_INVENTORY = Metrics.dao("InventoryDAO.getAllInventory");
+    private static final LatencyHistogram STREAM_ALL_INVENTORY = Metrics.dao("InventoryDAO.streamAllInventory");
+    private static final LatencyHistogram GET_ALL_FACILITIES = Metrics.dao("InventoryDAO.getAllFacilities");
+    private static final LatencyHistogram GET_INVENTORY_BY_TRACKING_NUMBER = Metrics.dao("InventoryDAO.getInventoryByTrackingNumber");
+    private static final LatencyHistogram GET_INVENTORY_COUNT = Metrics.dao("InventoryDAO.getInventoryCount");
+    private static final LatencyHistogram GET_FACILITY_INVENTORY_COUNTS = Metrics.dao("InventoryDAO.getFacilityInventoryCounts");
+    private static final LatencyHistogram APPLY_PACKAGE_STATUS = Metrics.dao("InventoryDAO.applyPackageStatus");
+    private static final LatencyHistogram CHECK_OUT_PACKAGES = Metrics.dao("InventoryDAO.checkOutPackages");
+
+    // Ids per IN (...) list in the bulk statements
+    private static final int ID_CHUNK = 1000;
+
+    // Inventory rows joined with their package, order, facility, customer and both addresses
+    private static final String INVENTORY_SELECT = "SELECT " +
+                        "i.inventory_id, i.facility_id, i.arrival_time, i.departure_time, i.inventory_status, " +
+                        "p.package_id, p.tracking_number, p.package_status, p.weight_kg, p.length_cm, " +
+                        "p.width_cm, p.height_cm, p.fragile, p.signature_required, " +
+                        "o.order_id, o.customer_id, o.order_status, " +
+                        "f.facility_name, " +
+                        "u.full_name AS customer_name, " +
+                        "CONCAT(pickup.street_address, ', ', pickup.city, ', ', pickup.state, ' ', pickup.zip_code) AS pickup_address, " +
+                        "CONCAT(delivery.street_address, ', ', delivery.city, ', ', delivery.state, ' ', delivery.zip_code) AS delivery_address, " +
+                        "delivery.delivery_instructions " +
+                        "FROM inventory i " +
+                        "INNER JOIN packages p ON i.package_id = p.package_id " +
+                        "INNER JOIN orders o ON p.order_id = o.order_id " +
+                        "INNER JOIN facilities f ON i.facility_id = f.facility_id " +
+                        "INNER JOIN users u ON o.customer_id = u.user_id " +
+                        "INNER JOIN addresses pickup ON o.pickup_address_id = pickup.address_id " +
+                        "INNER JOIN addresses delivery ON o.delivery_address_id = delivery.address_id ";
+
+    // Listing order for the all-facility view; matches idx_inventory_listing, and inventory_id
+    // breaks ties so the keyset is unique
+    private static final String ALL_INVENTORY_ORDER =
+                        "ORDER BY i.facility_id, i.arrival_time DESC, i.inventory_id DESC ";
+
     /**
      * Get all inventory items for a specific facility
      * Joins inventory, packages, orders, facilities, addresses, and users tables
@@ -25,6 +69,11 @@ public class InventoryDAO {
      * @return Result containing list of InventoryItems or error message
      */
     public static Result<List<InventoryItem>, String> getInventoryByFacility(long facilityId) {
+        return DaoCalls.timed(GET_INVENTORY_BY_FACILITY, "InventoryDAO.getInventoryByFacility",
+                              () -> getInventoryByFacilityImpl(facilityId));
+    }
+
+    private static Result<List<InventoryItem>, String> getInventoryByFacilityImpl(long facilityId) {
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
             return Result.err("Database connection failed: " + connResult.unwrapErr());
@@ -34,23 +83,7 @@ public class InventoryDAO {
         List<InventoryItem> items = new ArrayList<>();
 
         // Complex join query to get all related data
-        String sql = "SELECT " +
-                    "i.inventory_id, i.facility_id, i.arrival_time, i.departure_time, i.inventory_status, " +
-                    "p.package_id, p.tracking_number, p.package_status, p.weight_kg, p.length_cm, " +
-                    "p.width_cm, p.height_cm, p.fragile, p.signature_required, " +
-                    "o.order_id, o.customer_id, o.order_status, " +
-                    "f.facility_name, " +
-                    "u.full_name AS customer_name, " +
-                    "CONCAT(pickup.street_address, ', ', pickup.city, ', ', pickup.state, ' ', pickup.zip_code) AS pickup_address, " +
-                    "CONCAT(delivery.street_address, ', ', delivery.city, ', ', delivery.state, ' ', delivery.zip_code) AS delivery_address, " +
-                    "delivery.delivery_instructions " +
-                    "FROM inventory i " +
-                    "INNER JOIN packages p ON i.package_id = p.package_id " +
-                    "INNER JOIN orders o ON p.order_id = o.order_id " +
-                    "INNER JOIN facilities f ON i.facility_id = f.facility_id " +
-                    "INNER JOIN users u ON o.customer_id = u.user_id " +
-                    "INNER JOIN addresses pickup ON o.pickup_address_id = pickup.address_id " +
-                    "INNER JOIN addresses delivery ON o.delivery_address_id = delivery.address_id " +
+        String sql = INVENTORY_SELECT +
                     "WHERE i.facility_id = ? " +
                     "ORDER BY i.arrival_time DESC";
 
@@ -59,39 +92,7 @@ public class InventoryDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    InventoryItem item = new InventoryItem();
-
-                    // Inventory fields
-                    item.setInventoryId(rs.getLong("inventory_id"));
-                    item.setFacilityId(rs.getLong("facility_id"));
-                    item.setFacilityName(rs.getString("facility_name"));
-                    item.setArrivalTime(rs.getTimestamp("arrival_time"));
-                    item.setDepartureTime(rs.getTimestamp("departure_time"));
-                    item.setInventoryStatus(rs.getString("inventory_status"));
-
-                    // Package fields
-                    item.setPackageId(rs.getLong("package_id"));
-                    item.setTrackingNumber(rs.getString("tracking_number"));
-                    item.setPackageStatus(rs.getString("package_status"));
-                    item.setWeightKg(rs.getDouble("weight_kg"));
-                    item.setLengthCm(rs.getDouble("length_cm"));
-                    item.setWidthCm(rs.getDouble("width_cm"));
-                    item.setHeightCm(rs.getDouble("height_cm"));
-                    item.setFragile(rs.getBoolean("fragile"));
-                    item.setSignatureRequired(rs.getBoolean("signature_required"));
-
-                    // Order fields
-                    item.setOrderId(rs.getLong("order_id"));
-                    item.setCustomerId(rs.getLong("customer_id"));
-                    item.setCustomerName(rs.getString("customer_name"));
-                    item.setOrderStatus(rs.getString("order_status"));
-
-                    // Address fields
-                    item.setPickupAddress(rs.getString("pickup_address"));
-                    item.setDeliveryAddress(rs.getString("delivery_address"));
-                    item.setDeliveryInstructions(rs.getString("delivery_instructions"));
-
-                    items.add(item);
+                    items.add(readItem(rs));
                 }
             }
 
@@ -103,79 +104,117 @@ public class InventoryDAO {
     }
 
     /**
-     * Get all inventory items across all facilities (for admin/manager overview)
+     * Get one page of in-stock inventory across all facilities (for admin/manager overview)
+     * Keyset pagination on (facility_id, arrival_time DESC, inventory_id DESC), so every page
+     * costs the same index range scan no matter how deep the client has paged
      *
-     * @return Result containing list of all InventoryItems or error message
+     * @param after Cursor from the previous page, or null for the first page
+     * @param limit Maximum number of items to return
+     * @return Result containing the page (with the cursor for the next one) or error message
      */
-    public static Result<List<InventoryItem>, String> getAllInventory() {
+    public static Result<InventoryPage, String> getAllInventory(InventoryPage.Cursor after, int limit) {
+        return DaoCalls.timed(GET_ALL_INVENTORY, "InventoryDAO.getAllInventory",
+                              () -> getAllInventoryImpl(after, limit));
+    }
+
+    private static Result<InventoryPage, String> getAllInventoryImpl(InventoryPage.Cursor after, int limit) {
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
             return Result.err("Database connection failed: " + connResult.unwrapErr());
         }
 
-        Connection conn = connResult.unwrap();
-        List<InventoryItem> items = new ArrayList<>();
-
-        String sql = "SELECT " +
-                    "i.inventory_id, i.facility_id, i.arrival_time, i.departure_time, i.inventory_status, " +
-                    "p.package_id, p.tracking_number, p.package_status, p.weight_kg, p.length_cm, " +
-                    "p.width_cm, p.height_cm, p.fragile, p.signature_required, " +
-                    "o.order_id, o.customer_id, o.order_status, " +
-                    "f.facility_name, " +
-                    "u.full_name AS customer_name, " +
-                    "CONCAT(pickup.street_address, ', ', pickup.city, ', ', pickup.state, ' ', pickup.zip_code) AS pickup_address, " +
-                    "CONCAT(delivery.street_address, ', ', delivery.city, ', ', delivery.state, ' ', delivery.zip_code) AS delivery_address, " +
-                    "delivery.delivery_instructions " +
-                    "FROM inventory i " +
-                    "INNER JOIN packages p ON i.package_id = p.package_id " +
-                    "INNER JOIN orders o ON p.order_id = o.order_id " +
-                    "INNER JOIN facilities f ON i.facility_id = f.facility_id " +
-                    "INNER JOIN users u ON o.customer_id = u.user_id " +
-                    "INNER JOIN addresses pickup ON o.pickup_address_id = pickup.address_id " +
-                    "INNER JOIN addresses delivery ON o.delivery_address_id = delivery.address_id " +
+        String sql = INVENTORY_SELECT +
                     "WHERE i.inventory_status = 'in_stock' " +
-                    "ORDER BY i.facility_id, i.arrival_time DESC";
+                    (after == null ? "" :
+                    "AND (i.facility_id > ? OR (i.facility_id = ? AND (i.arrival_time < ? OR " +
+                    "(i.arrival_time = ? AND i.inventory_id < ?)))) ") +
+                    ALL_INVENTORY_ORDER +
+                    "LIMIT ?";
+
+        try (Connection conn = connResult.unwrap();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            if (after != null) {
+                stmt.setLong(idx++, after.facilityId);
+                stmt.setLong(idx++, after.facilityId);
+                stmt.setTimestamp(idx++, after.arrivalTime);
+                stmt.setTimestamp(idx++, after.arrivalTime);
+                stmt.setLong(idx++, after.inventoryId);
+            }
+            // One extra row tells us whether there is a next page
+            stmt.setInt(idx, limit + 1);
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+            List<InventoryItem> items = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(readItem(rs));
+                }
+            }
 
-            while (rs.next()) {
-                InventoryItem item = new InventoryItem();
-
-                // Inventory fields
-                item.setInventoryId(rs.getLong("inventory_id"));
-                item.setFacilityId(rs.getLong("facility_id"));
-                item.setFacilityName(rs.getString("facility_name"));
-                item.setArrivalTime(rs.getTimestamp("arrival_time"));
-                item.setDepartureTime(rs.getTimestamp("departure_time"));
-                item.setInventoryStatus(rs.getString("inventory_status"));
-
-                // Package fields
-                item.setPackageId(rs.getLong("package_id"));
-                item.setTrackingNumber(rs.getString("tracking_number"));
-                item.setPackageStatus(rs.getString("package_status"));
-                item.setWeightKg(rs.getDouble("weight_kg"));
-                item.setLengthCm(rs.getDouble("length_cm"));
-                item.setWidthCm(rs.getDouble("width_cm"));
-                item.setHeightCm(rs.getDouble("height_cm"));
-                item.setFragile(rs.getBoolean("fragile"));
-                item.setSignatureRequired(rs.getBoolean("signature_required"));
-
-                // Order fields
-                item.setOrderId(rs.getLong("order_id"));
-                item.setCustomerId(rs.getLong("customer_id"));
-                item.setCustomerName(rs.getString("customer_name"));
-                item.setOrderStatus(rs.getString("order_status"));
-
-                // Address fields
-                item.setPickupAddress(rs.getString("pickup_address"));
-                item.setDeliveryAddress(rs.getString("delivery_address"));
-                item.setDeliveryInstructions(rs.getString("delivery_instructions"));
-
-                items.add(item);
+            String nextCursor = null;
+            if (items.size() > limit) {
+                items.remove(limit);
+                nextCursor = InventoryPage.Cursor.after(items.get(limit - 1)).encode();
             }
+            return Result.ok(new InventoryPage(items, nextCursor));
 
-            return Result.ok(items);
+        } catch (SQLException e) {
+            return Result.err("SQL error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Receives inventory rows one at a time from streamAllInventory
+     */
+    public interface ItemSink {
+        void accept(InventoryItem item) throws IOException;
+    }
+
+    /**
+     * Stream every in-stock inventory item across all facilities, in listing order
+     * Rows come from a forward-only, read-only result set that the driver streams row by row,
+     * so memory stays flat however large the inventory is. The connection is held until the
+     * last row has been handed to the sink.
+     *
+     * @param sink Receives each item as it is read; an IOException (client went away) stops the stream
+     * @return Result containing the number of items streamed or error message
+     */
+    public static Result<Long, String> streamAllInventory(ItemSink sink) {
+        return DaoCalls.timed(STREAM_ALL_INVENTORY, "InventoryDAO.streamAllInventory",
+                              () -> streamAllInventoryImpl(sink));
+    }
+
+    private static Result<Long, String> streamAllInventoryImpl(ItemSink sink) {
+        Result<Connection, String> connResult = DatabaseConnection.getConnection();
+        if (connResult.isErr()) {
+            return Result.err("Database connection failed: " + connResult.unwrapErr());
+        }
+
+        String sql = INVENTORY_SELECT +
+                    "WHERE i.inventory_status = 'in_stock' " +
+                    ALL_INVENTORY_ORDER;
+
+        try (Connection conn = connResult.unwrap();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                                                            ResultSet.CONCUR_READ_ONLY)) {
+            // MySQL Connector/J streams rows one at a time instead of buffering the whole
+            // result only for forward-only, read-only statements with this fetch size
+            stmt.setFetchSize(Integer.MIN_VALUE);
+
+            long count = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    try {
+                        sink.accept(readItem(rs));
+                    } catch (IOException e) {
+                        // Closing a streaming result set reads the remaining rows; cancel the query first
+                        stmt.cancel();
+                        return Result.err("Stream aborted after " + count + " items: " + e.getMessage());
+                    }
+                    count++;
+                }
+            }
+            return Result.ok(count);
 
         } catch (SQLException e) {
             return Result.err("SQL error: " + e.getMessage());
@@ -188,6 +227,10 @@ public class InventoryDAO {
      * @return Result containing list of facilities or error message
      */
     public static Result<List<Facility>, String> getAllFacilities() {
+        return DaoCalls.timed(GET_ALL_FACILITIES, "InventoryDAO.getAllFacilities", InventoryDAO::getAllFacilitiesImpl);
+    }
+
+    private static Result<List<Facility>, String> getAllFacilitiesImpl() {
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
             return Result.err("Database connection failed: " + connResult.unwrapErr());
@@ -228,6 +271,11 @@ public class InventoryDAO {
      * @return Result containing InventoryItem or error message
      */
     public static Result<InventoryItem, String> getInventoryByTrackingNumber(String trackingNumber) {
+        return DaoCalls.timed(GET_INVENTORY_BY_TRACKING_NUMBER, "InventoryDAO.getInventoryByTrackingNumber",
+                              () -> getInventoryByTrackingNumberImpl(trackingNumber));
+    }
+
+    private static Result<InventoryItem, String> getInventoryByTrackingNumberImpl(String trackingNumber) {
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
             return Result.err("Database connection failed: " + connResult.unwrapErr());
@@ -235,23 +283,7 @@ public class InventoryDAO {
 
         Connection conn = connResult.unwrap();
 
-        String sql = "SELECT " +
-                    "i.inventory_id, i.facility_id, i.arrival_time, i.departure_time, i.inventory_status, " +
-                    "p.package_id, p.tracking_number, p.package_status, p.weight_kg, p.length_cm, " +
-                    "p.width_cm, p.height_cm, p.fragile, p.signature_required, " +
-                    "o.order_id, o.customer_id, o.order_status, " +
-                    "f.facility_name, " +
-                    "u.full_name AS customer_name, " +
-                    "CONCAT(pickup.street_address, ', ', pickup.city, ', ', pickup.state, ' ', pickup.zip_code) AS pickup_address, " +
-                    "CONCAT(delivery.street_address, ', ', delivery.city, ', ', delivery.state, ' ', delivery.zip_code) AS delivery_address, " +
-                    "delivery.delivery_instructions " +
-                    "FROM inventory i " +
-                    "INNER JOIN packages p ON i.package_id = p.package_id " +
-                    "INNER JOIN orders o ON p.order_id = o.order_id " +
-                    "INNER JOIN facilities f ON i.facility_id = f.facility_id " +
-                    "INNER JOIN users u ON o.customer_id = u.user_id " +
-                    "INNER JOIN addresses pickup ON o.pickup_address_id = pickup.address_id " +
-                    "INNER JOIN addresses delivery ON o.delivery_address_id = delivery.address_id " +
+        String sql = INVENTORY_SELECT +
                     "WHERE p.tracking_number = ?";
 
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -259,39 +291,7 @@ public class InventoryDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    InventoryItem item = new InventoryItem();
-
-                    // Inventory fields
-                    item.setInventoryId(rs.getLong("inventory_id"));
-                    item.setFacilityId(rs.getLong("facility_id"));
-                    item.setFacilityName(rs.getString("facility_name"));
-                    item.setArrivalTime(rs.getTimestamp("arrival_time"));
-                    item.setDepartureTime(rs.getTimestamp("departure_time"));
-                    item.setInventoryStatus(rs.getString("inventory_status"));
-
-                    // Package fields
-                    item.setPackageId(rs.getLong("package_id"));
-                    item.setTrackingNumber(rs.getString("tracking_number"));
-                    item.setPackageStatus(rs.getString("package_status"));
-                    item.setWeightKg(rs.getDouble("weight_kg"));
-                    item.setLengthCm(rs.getDouble("length_cm"));
-                    item.setWidthCm(rs.getDouble("width_cm"));
-                    item.setHeightCm(rs.getDouble("height_cm"));
-                    item.setFragile(rs.getBoolean("fragile"));
-                    item.setSignatureRequired(rs.getBoolean("signature_required"));
-
-                    // Order fields
-                    item.setOrderId(rs.getLong("order_id"));
-                    item.setCustomerId(rs.getLong("customer_id"));
-                    item.setCustomerName(rs.getString("customer_name"));
-                    item.setOrderStatus(rs.getString("order_status"));
-
-                    // Address fields
-                    item.setPickupAddress(rs.getString("pickup_address"));
-                    item.setDeliveryAddress(rs.getString("delivery_address"));
-                    item.setDeliveryInstructions(rs.getString("delivery_instructions"));
-
-                    return Result.ok(item);
+                    return Result.ok(readItem(rs));
                 } else {
                     return Result.err("Package not found in inventory");
                 }
@@ -309,6 +309,11 @@ public class InventoryDAO {
      * @return Result containing count or error message
      */
     public static Result<Integer, String> getInventoryCount(long facilityId) {
+        return DaoCalls.timed(GET_INVENTORY_COUNT, "InventoryDAO.getInventoryCount",
+                              () -> getInventoryCountImpl(facilityId));
+    }
+
+    private static Result<Integer, String> getInventoryCountImpl(long facilityId) {
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
             return Result.err("Database connection failed: " + connResult.unwrapErr());
@@ -332,4 +337,230 @@ public class InventoryDAO {
             return Result.err("SQL error: " + e.getMessage());
         }
     }
+
+    /**
+     * Get open-inventory totals for every facility, ordered by facility name
+     * Used to load and reconcile FacilityInventoryCounters, not on the request path
+     *
+     * @return Result containing one FacilityInventory per facility or error message
+     */
+    public static Result<List<FacilityInventory>, String> getFacilityInventoryCounts() {
+        return DaoCalls.timed(GET_FACILITY_INVENTORY_COUNTS, "InventoryDAO.getFacilityInventoryCounts",
+                              InventoryDAO::getFacilityInventoryCountsImpl);
+    }
+
+    private static Result<List<FacilityInventory>, String> getFacilityInventoryCountsImpl() {
+        Result<Connection, String> connResult = DatabaseConnection.getConnection();
+        if (connResult.isErr()) {
+            return Result.err("Database connection failed: " + connResult.unwrapErr());
+        }
+
+        String sql = "SELECT f.facility_id, f.facility_name, f.address, f.city, f.state, f.capacity, " +
+                    "SUM(CASE WHEN i.inventory_status = 'in_stock' THEN 1 ELSE 0 END) AS in_stock_count, " +
+                    "SUM(CASE WHEN i.inventory_status = 'checked_out' THEN 1 ELSE 0 END) AS checked_out_count " +
+                    "FROM facilities f " +
+                    "LEFT JOIN inventory i ON f.facility_id = i.facility_id AND i.departure_time IS NULL " +
+                    "GROUP BY f.facility_id, f.facility_name, f.address, f.city, f.state, f.capacity " +
+                    "ORDER BY f.facility_name";
+
+        try (Connection conn = connResult.unwrap();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            List<FacilityInventory> facilities = new ArrayList<>();
+            while (rs.next()) {
+                facilities.add(new FacilityInventory(
+                    rs.getLong("facility_id"),
+                    rs.getString("facility_name"),
+                    rs.getString("address"),
+                    rs.getString("city"),
+                    rs.getString("state"),
+                    rs.getInt("capacity"),
+                    rs.getLong("in_stock_count"),
+                    rs.getLong("checked_out_count")));
+            }
+            return Result.ok(facilities);
+
+        } catch (SQLException e) {
+            return Result.err("SQL error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Move a package's open inventory record to match a new delivery status, inside the
+     * caller's transaction:
+     * out_for_delivery checks it out to the driver, at_facility puts a checked-out parcel back
+     * in stock, and delivered/returned/lost close the record (departure_time). Other statuses
+     * leave inventory alone.
+     *
+     * @param conn Connection with the caller's open transaction
+     * @param packageId The package whose status changed
+     * @param newStatus The new package status
+     * @param changes Collects the counter changes to apply once the caller commits
+     * @return Result with nothing on success or error message
+     */
+    public static Result<Void, String> applyPackageStatus(Connection conn, long packageId, String newStatus,
+                                                          FacilityInventoryCounters.Changes changes) {
+        boolean closes = "delivered".equals(newStatus) || "returned".equals(newStatus) || "lost".equals(newStatus);
+        if (!closes && !"out_for_delivery".equals(newStatus) && !"at_facility".equals(newStatus)) {
+            return Result.ok(null);
+        }
+        return DaoCalls.timed(APPLY_PACKAGE_STATUS, "InventoryDAO.applyPackageStatus",
+                              () -> applyPackageStatusImpl(conn, packageId, newStatus, closes, changes));
+    }
+
+    private static Result<Void, String> applyPackageStatusImpl(Connection conn, long packageId, String newStatus,
+                                                               boolean closes,
+                                                               FacilityInventoryCounters.Changes changes) {
+        try {
+            String selectSql = "SELECT inventory_id, facility_id, inventory_status FROM inventory " +
+                              "WHERE package_id = ? AND departure_time IS NULL FOR UPDATE";
+            String checkOutSql = "UPDATE inventory SET inventory_status = 'checked_out' WHERE inventory_id = ?";
+            String restockSql = "UPDATE inventory SET inventory_status = 'in_stock' WHERE inventory_id = ?";
+            String closeSql = "UPDATE inventory SET departure_time = NOW(), inventory_status = 'checked_out' " +
+                             "WHERE inventory_id = ?";
+
+            List<long[]> open = new ArrayList<>(1);
+            List<String> openStatus = new ArrayList<>(1);
+            try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                stmt.setLong(1, packageId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        open.add(new long[] {rs.getLong("inventory_id"), rs.getLong("facility_id")});
+                        openStatus.add(rs.getString("inventory_status"));
+                    }
+                }
+            }
+
+            for (int i = 0; i < open.size(); i++) {
+                long inventoryId = open.get(i)[0];
+                long facilityId = open.get(i)[1];
+                String status = openStatus.get(i);
+
+                String sql = null;
+                if (closes) {
+                    sql = closeSql;
+                    changes.departed(facilityId, status);
+                } else if ("out_for_delivery".equals(newStatus) && "in_stock".equals(status)) {
+                    sql = checkOutSql;
+                    changes.checkedOut(facilityId);
+                } else if ("at_facility".equals(newStatus) && "checked_out".equals(status)) {
+                    sql = restockSql;
+                    changes.restocked(facilityId);
+                }
+                if (sql == null) continue;
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setLong(1, inventoryId);
+                    stmt.executeUpdate();
+                }
+            }
+            return Result.ok(null);
+
+        } catch (SQLException e) {
+            return Result.err("Database error while updating inventory: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Bulk form of applyPackageStatus(..., "out_for_delivery", ...) for route assignment:
+     * checks out the open in-stock records of many packages with one locking read and one
+     * UPDATE per chunk of ids, inside the caller's transaction.
+     *
+     * @param conn Connection with the caller's open transaction
+     * @param packageIds Packages handed to drivers
+     * @param changes Collects the counter changes to apply once the caller commits
+     * @return Result with nothing on success or error message
+     */
+    public static Result<Void, String> checkOutPackages(Connection conn, List<Long> packageIds,
+                                                        FacilityInventoryCounters.Changes changes) {
+        return DaoCalls.timed(CHECK_OUT_PACKAGES, "InventoryDAO.checkOutPackages",
+                              () -> checkOutPackagesImpl(conn, packageIds, changes));
+    }
+
+    private static Result<Void, String> checkOutPackagesImpl(Connection conn, List<Long> packageIds,
+                                                             FacilityInventoryCounters.Changes changes) {
+        try {
+            for (int from = 0; from < packageIds.size(); from += ID_CHUNK) {
+                List<Long> chunk = packageIds.subList(from, Math.min(from + ID_CHUNK, packageIds.size()));
+                String selectSql = "SELECT inventory_id, facility_id FROM inventory " +
+                                  "WHERE package_id IN (" + placeholders(chunk.size()) + ") " +
+                                  "AND departure_time IS NULL AND inventory_status = 'in_stock' FOR UPDATE";
+
+                List<Long> inventoryIds = new ArrayList<>(chunk.size());
+                try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            inventoryIds.add(rs.getLong("inventory_id"));
+                            changes.checkedOut(rs.getLong("facility_id"));
+                        }
+                    }
+                }
+                if (inventoryIds.isEmpty()) continue;
+
+                String updateSql = "UPDATE inventory SET inventory_status = 'checked_out' " +
+                                  "WHERE inventory_id IN (" + placeholders(inventoryIds.size()) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(updateSql)) {
+                    for (int i = 0; i < inventoryIds.size(); i++) {
+                        stmt.setLong(i + 1, inventoryIds.get(i));
+                    }
+                    stmt.executeUpdate();
+                }
+            }
+            return Result.ok(null);
+
+        } catch (SQLException e) {
+            return Result.err("Database error while updating inventory: " + e.getMessage());
+        }
+    }
+
+    // "?, ?, ?" for an IN list of n values
+    private static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 3);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    // Map the current row of an INVENTORY_SELECT query
+    private static InventoryItem readItem(ResultSet rs) throws SQLException {
+        InventoryItem item = new InventoryItem();
+
+        // Inventory fields
+        item.setInventoryId(rs.getLong("inventory_id"));
+        item.setFacilityId(rs.getLong("facility_id"));
+        item.setFacilityName(rs.getString("facility_name"));
+        item.setArrivalTime(rs.getTimestamp("arrival_time"));
+        item.setDepartureTime(rs.getTimestamp("departure_time"));
+        item.setInventoryStatus(rs.getString("inventory_status"));
+
+        // Package fields
+        item.setPackageId(rs.getLong("package_id"));
+        item.setTrackingNumber(rs.getString("tracking_number"));
+        item.setPackageStatus(rs.getString("package_status"));
+        item.setWeightKg(rs.getDouble("weight_kg"));
+        item.setLengthCm(rs.getDouble("length_cm"));
+        item.setWidthCm(rs.getDouble("width_cm"));
+        item.setHeightCm(rs.getDouble("height_cm"));
+        item.setFragile(rs.getBoolean("fragile"));
+        item.setSignatureRequired(rs.getBoolean("signature_required"));
+
+        // Order fields
+        item.setOrderId(rs.getLong("order_id"));
+        item.setCustomerId(rs.getLong("customer_id"));
+        item.setCustomerName(rs.getString("customer_name"));
+        item.setOrderStatus(rs.getString("order_status"));
+
+        // Address fields
+        item.setPickupAddress(rs.getString("pickup_address"));
+        item.setDeliveryAddress(rs.getString("delivery_address"));
+        item.setDeliveryInstructions(rs.getString("delivery_instructions"));
+
+        return item;
+    }
 }
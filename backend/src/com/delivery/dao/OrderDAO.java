@@ -1,8 +1,389 @@
 package com.delivery.dao;
 
+import com.delivery.database.DatabaseConnection;
+import com.delivery.metrics.LatencyHistogram;
+import com.delivery.metrics.Metrics;
 import com.delivery.util.Result;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
-// OrderDAO - DB access for orders (placeholder)
+/**
+ * OrderDAO - Database access for orders
+ * An order is one delivery address and any number of packages, written in one transaction
+ */
 public class OrderDAO {
-    // TODO: Implement createOrder, findOrderById, findOrdersByCustomer
+
+    // Per-method latency, exported at /admin/metrics (and as DaoCallEvent to JFR)
+    private static final LatencyHistogram CREATE_ORDER = Metrics.dao("OrderDAO.createOrder");
+    private static final LatencyHistogram FIND_DELIVERY_ADDRESSES = Metrics.dao("OrderDAO.findDeliveryAddresses");
+    private static final LatencyHistogram INSERT_ADDRESSES = Metrics.dao("OrderDAO.insertAddresses");
+    private static final LatencyHistogram INSERT_ORDERS = Metrics.dao("OrderDAO.insertOrders");
+    private static final LatencyHistogram INSERT_PACKAGES = Metrics.dao("OrderDAO.insertPackages");
+
+    // East Coast Hub pickup address; update this with your actual address_id
+    private static final long DEFAULT_PICKUP_ADDRESS_ID = 1;
+
+    /**
+     * One package of a new order; createOrder or insertPackages sets packageId
+     */
+    public static class NewPackage {
+        public String trackingNumber;
+        public double weightKg;
+        public double lengthCm;
+        public double widthCm;
+        public double heightCm;
+        public boolean fragile;
+        public boolean signatureRequired;
+        public long packageId;
+
+        public NewPackage(double weightKg, double lengthCm, double widthCm, double heightCm,
+                          boolean fragile, boolean signatureRequired) {
+            this.weightKg = weightKg;
+            this.lengthCm = lengthCm;
+            this.widthCm = widthCm;
+            this.heightCm = heightCm;
+            this.fragile = fragile;
+            this.signatureRequired = signatureRequired;
+        }
+    }
+
+    /**
+     * A new order; createOrder sets customerId, deliveryAddressId and orderId (the insert
+     * methods set the ids they create)
+     */
+    public static class NewOrder {
+        public String customerUsername;
+        public String streetAddress;
+        public String city;
+        public String state;
+        public String zipCode;
+        public String deliveryInstructions;
+        public List<NewPackage> packages;
+        public long customerId;
+        public long deliveryAddressId;
+        public long orderId;
+
+        public NewOrder(String customerUsername, String streetAddress, String city, String state,
+                        String zipCode, String deliveryInstructions, List<NewPackage> packages) {
+            this.customerUsername = customerUsername;
+            this.streetAddress = streetAddress;
+            this.city = city;
+            this.state = state;
+            this.zipCode = zipCode;
+            this.deliveryInstructions = deliveryInstructions;
+            this.packages = packages;
+        }
+    }
+
+    /**
+     * Create an order with all of its packages in one transaction:
+     * 1. Reuses the customer's matching delivery address, or creates it
+     * 2. Creates the order
+     * 3. Creates the packages in one JDBC batch (a single multi-row INSERT with
+     *    rewriteBatchedStatements), reading their ids from the generated keys
+     * 4. Creates each package's 'created' status history row in one batch
+     *
+     * Tracking numbers must already be set on the packages.
+     *
+     * @param order The order; its id fields are filled in on success
+     * @return Result with the order or error message ("User not found" for an unknown customer)
+     */
+    public static Result<NewOrder, String> createOrder(NewOrder order) {
+        return DaoCalls.timed(CREATE_ORDER, "OrderDAO.createOrder", () -> createOrderImpl(order));
+    }
+
+    private static Result<NewOrder, String> createOrderImpl(NewOrder order) {
+        Result<Connection, String> connResult = DatabaseConnection.getConnection();
+        if (connResult.isErr()) {
+            return Result.err("Database connection failed: " + connResult.unwrapErr());
+        }
+
+        try (Connection conn = connResult.unwrap()) {
+            try {
+                conn.setAutoCommit(false);
+
+                order.customerId = findUserId(conn, order.customerUsername);
+                if (order.customerId == -1) {
+                    conn.rollback();
+                    return Result.err("User not found");
+                }
+
+                // 1. Delivery address: repeat orders to the same place share one row (an address
+                //    edit copies it, see PackageController.handleEditAddress)
+                order.deliveryAddressId = findAddress(conn, order);
+                if (order.deliveryAddressId == -1) {
+                    Result<Void, String> addressResult = insertAddresses(conn, order.customerId, List.of(order));
+                    if (addressResult.isErr()) {
+                        conn.rollback();
+                        return Result.err(addressResult.unwrapErr());
+                    }
+                }
+
+                // 2. Order
+                Result<Void, String> orderResult = insertOrders(conn, List.of(order));
+                if (orderResult.isErr()) {
+                    conn.rollback();
+                    return Result.err(orderResult.unwrapErr());
+                }
+
+                // 3-4. Packages and their history
+                Result<Void, String> packageResult = insertPackages(conn, List.of(order));
+                if (packageResult.isErr()) {
+                    conn.rollback();
+                    return Result.err(packageResult.unwrapErr());
+                }
+
+                conn.commit();
+                return Result.ok(order);
+
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    return Result.err("Rollback failed: " + rollbackEx.getMessage());
+                }
+                return Result.err("Database error creating order: " + e.getMessage());
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            return Result.err("Database error creating order: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Key under which findDeliveryAddresses reports an address: every field that must match
+     * for an address to be reused, case-folded like the column collation
+     */
+    public static String addressKey(String streetAddress, String city, String state, String zipCode,
+                                    String deliveryInstructions) {
+        String instructions = blankToNull(deliveryInstructions);
+        return (streetAddress + '\u0000' + city + '\u0000' + state + '\u0000' + zipCode
+            + '\u0000' + (instructions == null ? "" : instructions)).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A customer's delivery addresses, keyed by addressKey(); the oldest row wins when there are
+     * duplicates. Rows are streamed, not buffered by the driver. The ids stay valid for reuse
+     * across orders as long as the caller likes, since edits copy a row rather than update it.
+     */
+    public static Result<Map<String, Long>, String> findDeliveryAddresses(Connection conn, long customerId) {
+        return DaoCalls.timed(FIND_DELIVERY_ADDRESSES, "OrderDAO.findDeliveryAddresses",
+                              () -> findDeliveryAddressesImpl(conn, customerId));
+    }
+
+    private static Result<Map<String, Long>, String> findDeliveryAddressesImpl(Connection conn, long customerId) {
+        try {
+            String query =
+                "SELECT address_id, street_address, city, state, zip_code, delivery_instructions " +
+                "FROM addresses " +
+                "WHERE user_id = ? AND address_type IN ('delivery', 'both') " +
+                "ORDER BY address_id";
+
+            Map<String, Long> addresses = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(Integer.MIN_VALUE);
+                stmt.setLong(1, customerId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        addresses.putIfAbsent(addressKey(rs.getString("street_address"), rs.getString("city"),
+                            rs.getString("state"), rs.getString("zip_code"), rs.getString("delivery_instructions")),
+                            rs.getLong("address_id"));
+                    }
+                }
+            }
+            return Result.ok(addresses);
+
+        } catch (SQLException e) {
+            return Result.err("Database error while reading addresses: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create one delivery address per order in one batch, setting each order's deliveryAddressId.
+     * Runs in the caller's transaction.
+     */
+    public static Result<Void, String> insertAddresses(Connection conn, long customerId, List<NewOrder> orders) {
+        return DaoCalls.timed(INSERT_ADDRESSES, "OrderDAO.insertAddresses",
+                              () -> insertAddressesImpl(conn, customerId, orders));
+    }
+
+    private static Result<Void, String> insertAddressesImpl(Connection conn, long customerId, List<NewOrder> orders) {
+        try {
+            String query =
+                "INSERT INTO addresses (user_id, address_type, street_address, city, state, zip_code, delivery_instructions) " +
+                "VALUES (?, 'delivery', ?, ?, ?, ?, ?)";
+
+            try (PreparedStatement stmt = conn.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                for (NewOrder order : orders) {
+                    stmt.setLong(1, customerId);
+                    stmt.setString(2, order.streetAddress);
+                    stmt.setString(3, order.city);
+                    stmt.setString(4, order.state);
+                    stmt.setString(5, order.zipCode);
+                    stmt.setString(6, blankToNull(order.deliveryInstructions));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    for (NewOrder order : orders) {
+                        if (!keys.next()) {
+                            return Result.err("Failed to retrieve generated address ID");
+                        }
+                        order.deliveryAddressId = keys.getLong(1);
+                    }
+                }
+                return Result.ok(null);
+            }
+        } catch (SQLException e) {
+            return Result.err("Database error while creating addresses: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create the orders in one batch, setting each orderId. customerId and deliveryAddressId must
+     * be set. Runs in the caller's transaction.
+     */
+    public static Result<Void, String> insertOrders(Connection conn, List<NewOrder> orders) {
+        return DaoCalls.timed(INSERT_ORDERS, "OrderDAO.insertOrders", () -> insertOrdersImpl(conn, orders));
+    }
+
+    private static Result<Void, String> insertOrdersImpl(Connection conn, List<NewOrder> orders) {
+        try {
+            String query =
+                "INSERT INTO orders (customer_id, pickup_address_id, delivery_address_id, order_status, total_cost) " +
+                "VALUES (?, ?, ?, 'pending', 0.00)";
+
+            try (PreparedStatement stmt = conn.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                for (NewOrder order : orders) {
+                    stmt.setLong(1, order.customerId);
+                    stmt.setLong(2, DEFAULT_PICKUP_ADDRESS_ID);
+                    stmt.setLong(3, order.deliveryAddressId);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    for (NewOrder order : orders) {
+                        if (!keys.next()) {
+                            return Result.err("Failed to retrieve generated order ID");
+                        }
+                        order.orderId = keys.getLong(1);
+                    }
+                }
+                return Result.ok(null);
+            }
+        } catch (SQLException e) {
+            return Result.err("Database error while creating orders: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create every package of the orders in one batch (a single multi-row INSERT with
+     * rewriteBatchedStatements), setting each packageId from the generated keys, then their
+     * 'created' status history rows in a second batch. orderId and tracking numbers must be set.
+     * Runs in the caller's transaction.
+     */
+    public static Result<Void, String> insertPackages(Connection conn, List<NewOrder> orders) {
+        return DaoCalls.timed(INSERT_PACKAGES, "OrderDAO.insertPackages",
+                              () -> insertPackagesImpl(conn, orders));
+    }
+
+    private static Result<Void, String> insertPackagesImpl(Connection conn, List<NewOrder> orders) {
+        try {
+            String insertPackage =
+                "INSERT INTO packages (order_id, tracking_number, weight_kg, length_cm, width_cm, height_cm, " +
+                "                      fragile, signature_required, package_status) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 'created')";
+            try (PreparedStatement stmt = conn.prepareStatement(insertPackage, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                for (NewOrder order : orders) {
+                    for (NewPackage pkg : order.packages) {
+                        stmt.setLong(1, order.orderId);
+                        stmt.setString(2, pkg.trackingNumber);
+                        stmt.setDouble(3, pkg.weightKg);
+                        stmt.setDouble(4, pkg.lengthCm);
+                        stmt.setDouble(5, pkg.widthCm);
+                        stmt.setDouble(6, pkg.heightCm);
+                        stmt.setBoolean(7, pkg.fragile);
+                        stmt.setBoolean(8, pkg.signatureRequired);
+                        stmt.addBatch();
+                    }
+                }
+                stmt.executeBatch();
+
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    for (NewOrder order : orders) {
+                        for (NewPackage pkg : order.packages) {
+                            if (!keys.next()) {
+                                return Result.err("Failed to retrieve generated package ID");
+                            }
+                            pkg.packageId = keys.getLong(1);
+                        }
+                    }
+                }
+            }
+
+            String insertHistory =
+                "INSERT INTO delivery_status_history (package_id, status, location, notes) " +
+                "VALUES (?, 'created', 'Awaiting Pickup', 'Package created by customer')";
+            try (PreparedStatement stmt = conn.prepareStatement(insertHistory)) {
+                for (NewOrder order : orders) {
+                    for (NewPackage pkg : order.packages) {
+                        stmt.setLong(1, pkg.packageId);
+                        stmt.addBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+            return Result.ok(null);
+
+        } catch (SQLException e) {
+            return Result.err("Database error while creating packages: " + e.getMessage());
+        }
+    }
+
+    /**
+     * user_id for a username, or -1
+     */
+    public static long findUserId(Connection conn, String username) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT user_id FROM users WHERE username = ?")) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong("user_id") : -1;
+            }
+        }
+    }
+
+    // The customer's delivery address with exactly these fields, or -1
+    private static long findAddress(Connection conn, NewOrder order) throws SQLException {
+        String query =
+            "SELECT address_id FROM addresses " +
+            "WHERE user_id = ? AND address_type IN ('delivery', 'both') " +
+            "  AND street_address = ? AND city = ? AND state = ? AND zip_code = ? " +
+            "  AND delivery_instructions <=> ? " +
+            "ORDER BY address_id LIMIT 1";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setLong(1, order.customerId);
+            stmt.setString(2, order.streetAddress);
+            stmt.setString(3, order.city);
+            stmt.setString(4, order.state);
+            stmt.setString(5, order.zipCode);
+            stmt.setString(6, blankToNull(order.deliveryInstructions));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong("address_id") : -1;
+            }
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
 }
@@ -1,5 +1,7 @@
 package com.delivery.dao;
 
+import com.delivery.metrics.LatencyHistogram;
+import com.delivery.metrics.Metrics;
 import com.delivery.util.Result;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -7,8 +9,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * RouteDAO - Database access object for route generation and management
@@ -16,6 +20,23 @@ import java.util.Map;
  */
 public class RouteDAO {
 
+    // Per-method latency, exported at /admin/metrics (and as DaoCallEvent to JFR)
+    private static final LatencyHistogram GET_PACKAGES_READY_FOR_DELIVERY = Metrics.dao("RouteDAO.getPackagesReadyForDelivery");
+    private static final LatencyHistogram GET_AVAILABLE_DRIVERS = Metrics.dao("RouteDAO.getAvailableDrivers");
+    private static final LatencyHistogram CLAIM_PACKAGES = Metrics.dao("RouteDAO.claimPackages");
+    private static final LatencyHistogram FIND_UNCLAIMABLE_PACKAGES = Metrics.dao("RouteDAO.findUnclaimablePackages");
+    private static final LatencyHistogram CREATE_ROUTES = Metrics.dao("RouteDAO.createRoutes");
+    private static final LatencyHistogram ASSIGN_DRIVERS = Metrics.dao("RouteDAO.assignDrivers");
+    private static final LatencyHistogram ADD_ROUTE_STOPS = Metrics.dao("RouteDAO.addRouteStops");
+    private static final LatencyHistogram GET_FACILITY_NAME = Metrics.dao("RouteDAO.getFacilityName");
+    private static final LatencyHistogram FACILITY_EXISTS = Metrics.dao("RouteDAO.facilityExists");
+    private static final LatencyHistogram SAVE_OPTIMIZED_ROUTE = Metrics.dao("RouteDAO.saveOptimizedRoute");
+    private static final LatencyHistogram GET_DRIVER_OPTIMIZED_ROUTES = Metrics.dao("RouteDAO.getDriverOptimizedRoutes");
+    private static final LatencyHistogram GET_ROUTE_DETAILS = Metrics.dao("RouteDAO.getRouteDetails");
+
+    // Ids per IN (...) list, and rows per executeBatch, in the bulk assignment statements
+    private static final int IN_LIST_CHUNK = 1000;
+
     /**
      * Package info needed for route generation
      */
@@ -60,13 +81,45 @@ public class RouteDAO {
         }
     }
 
+    /**
+     * A route to create and hand to a driver, with its packages in stop order
+     * routeId is filled in by createRoutes
+     */
+    public static class RouteAssignment {
+        public String routeName;
+        public long facilityId;
+        public String routeDate;
+        public int estimatedDurationMinutes;
+        public long driverId;
+        public String vehicleId;
+        public List<Long> packageIds;
+        public long routeId;
+
+        public RouteAssignment(String routeName, long facilityId, String routeDate,
+                               int estimatedDurationMinutes, long driverId, String vehicleId,
+                               List<Long> packageIds) {
+            this.routeName = routeName;
+            this.facilityId = facilityId;
+            this.routeDate = routeDate;
+            this.estimatedDurationMinutes = estimatedDurationMinutes;
+            this.driverId = driverId;
+            this.vehicleId = vehicleId;
+            this.packageIds = packageIds;
+        }
+    }
+
     /**
      * Get all packages at a facility ready for delivery
      * Status must be 'at_facility' and not already on a route
      */
     public static Result<List<DeliveryPackage>, String> getPackagesReadyForDelivery(
             Connection conn, long facilityId) {
+        return DaoCalls.timed(GET_PACKAGES_READY_FOR_DELIVERY, "RouteDAO.getPackagesReadyForDelivery",
+                              () -> getPackagesReadyForDeliveryImpl(conn, facilityId));
+    }
 
+    private static Result<List<DeliveryPackage>, String> getPackagesReadyForDeliveryImpl(
+            Connection conn, long facilityId) {
         String query =
             "SELECT p.package_id, p.tracking_number, p.weight_kg, p.fragile, p.signature_required, " +
             "       a.zip_code, a.city, a.state, a.street_address " +
@@ -75,7 +128,7 @@ public class RouteDAO {
             "JOIN addresses a ON o.delivery_address_id = a.address_id " +
             "WHERE p.current_facility_id = ? " +
             "  AND p.package_status = 'at_facility' " +
-            "  AND p.package_id NOT IN (SELECT package_id FROM route_packages) " +
+            "  AND NOT EXISTS (SELECT 1 FROM route_packages rp WHERE rp.package_id = p.package_id) " +
             "ORDER BY a.zip_code, a.city";
 
         List<DeliveryPackage> packages = new ArrayList<>();
@@ -111,17 +164,22 @@ public class RouteDAO {
      */
     public static Result<List<AvailableDriver>, String> getAvailableDrivers(
             Connection conn, long facilityId, String routeDate) {
+        return DaoCalls.timed(GET_AVAILABLE_DRIVERS, "RouteDAO.getAvailableDrivers",
+                              () -> getAvailableDriversImpl(conn, facilityId, routeDate));
+    }
 
+    private static Result<List<AvailableDriver>, String> getAvailableDriversImpl(
+            Connection conn, long facilityId, String routeDate) {
         String query =
             "SELECT u.user_id, u.username, u.full_name " +
             "FROM users u " +
             "WHERE u.role = 'driver' " +
             "  AND u.account_status = 'active' " +
-            "  AND u.user_id NOT IN ( " +
-            "    SELECT ra.driver_id " +
+            "  AND NOT EXISTS ( " +
+            "    SELECT 1 " +
             "    FROM route_assignments ra " +
             "    JOIN routes r ON ra.route_id = r.route_id " +
-            "    WHERE r.facility_id = ? AND r.route_date = ? " +
+            "    WHERE ra.driver_id = u.user_id AND r.facility_id = ? AND r.route_date = ? " +
             "  ) " +
             "ORDER BY u.username";
 
@@ -149,75 +207,143 @@ public class RouteDAO {
     }
 
     /**
-     * Create a new route
-     * Returns the generated route_id
+     * Claim packages for delivery with one set-based UPDATE per chunk of ids. Only packages still
+     * waiting for a route ('created' or 'at_facility') move to 'out_for_delivery', so a package
+     * claimed by a concurrent assignment is left alone and the count comes back short; the
+     * caller should then roll back.
+     *
+     * @return Number of packages claimed
      */
-    public static Result<Long, String> createRoute(Connection conn, String routeName,
-                                                   long facilityId, String routeDate,
-                                                   int estimatedDurationMinutes, int totalStops) {
+    public static Result<Integer, String> claimPackages(Connection conn, List<Long> packageIds) {
+        return DaoCalls.timed(CLAIM_PACKAGES, "RouteDAO.claimPackages",
+                              () -> claimPackagesImpl(conn, packageIds));
+    }
 
-        String query =
-            "INSERT INTO routes (route_name, facility_id, route_date, estimated_duration_minutes, " +
-            "                    total_stops, route_status) " +
-            "VALUES (?, ?, ?, ?, ?, 'planned')";
+    private static Result<Integer, String> claimPackagesImpl(Connection conn, List<Long> packageIds) {
+        try {
+            int claimed = 0;
+            for (int from = 0; from < packageIds.size(); from += IN_LIST_CHUNK) {
+                List<Long> chunk = packageIds.subList(from, Math.min(from + IN_LIST_CHUNK, packageIds.size()));
+                String query =
+                    "UPDATE packages SET package_status = 'out_for_delivery' " +
+                    "WHERE package_id IN (" + placeholders(chunk.size()) + ") " +
+                    "  AND package_status IN ('created', 'at_facility')";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setLong(i + 1, chunk.get(i));
+                    }
+                    claimed += stmt.executeUpdate();
+                }
+            }
+            return Result.ok(claimed);
 
-        try (PreparedStatement stmt = conn.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS)) {
-            stmt.setString(1, routeName);
-            stmt.setLong(2, facilityId);
-            stmt.setString(3, routeDate);
-            stmt.setInt(4, estimatedDurationMinutes);
-            stmt.setInt(5, totalStops);
+        } catch (SQLException e) {
+            return Result.err("Database error while claiming packages: " + e.getMessage());
+        }
+    }
 
-            stmt.executeUpdate();
+    /**
+     * Packages from the list that cannot be claimed for a route: already out for delivery,
+     * delivered, in transit between facilities, or not found
+     */
+    public static Result<List<Long>, String> findUnclaimablePackages(Connection conn, List<Long> packageIds) {
+        return DaoCalls.timed(FIND_UNCLAIMABLE_PACKAGES, "RouteDAO.findUnclaimablePackages",
+                              () -> findUnclaimablePackagesImpl(conn, packageIds));
+    }
 
-            try (ResultSet keys = stmt.getGeneratedKeys()) {
-                if (keys.next()) {
-                    return Result.ok(keys.getLong(1));
-                } else {
-                    return Result.err("Failed to retrieve generated route ID");
+    private static Result<List<Long>, String> findUnclaimablePackagesImpl(Connection conn, List<Long> packageIds) {
+        try {
+            Set<Long> claimable = new HashSet<>();
+            for (int from = 0; from < packageIds.size(); from += IN_LIST_CHUNK) {
+                List<Long> chunk = packageIds.subList(from, Math.min(from + IN_LIST_CHUNK, packageIds.size()));
+                String query =
+                    "SELECT package_id FROM packages " +
+                    "WHERE package_id IN (" + placeholders(chunk.size()) + ") " +
+                    "  AND package_status IN ('created', 'at_facility')";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            claimable.add(rs.getLong("package_id"));
+                        }
+                    }
                 }
             }
 
+            List<Long> unclaimable = new ArrayList<>();
+            for (Long packageId : packageIds) {
+                if (!claimable.contains(packageId)) unclaimable.add(packageId);
+            }
+            return Result.ok(unclaimable);
+
         } catch (SQLException e) {
-            return Result.err("Database error while creating route: " + e.getMessage());
+            return Result.err("Database error while checking packages: " + e.getMessage());
         }
     }
 
     /**
-     * Assign packages to a route
+     * Create routes in one JDBC batch (a single multi-row INSERT with rewriteBatchedStatements)
+     * Sets routeId on each RouteAssignment from the generated keys
      */
-    public static Result<Void, String> assignPackagesToRoute(Connection conn, long routeId,
-                                                             List<Long> packageIds) {
+    public static Result<Void, String> createRoutes(Connection conn, List<RouteAssignment> routes) {
+        return DaoCalls.timed(CREATE_ROUTES, "RouteDAO.createRoutes", () -> createRoutesImpl(conn, routes));
+    }
 
-        String query = "INSERT INTO route_packages (route_id, package_id) VALUES (?, ?)";
+    private static Result<Void, String> createRoutesImpl(Connection conn, List<RouteAssignment> routes) {
+        String query =
+            "INSERT INTO routes (route_name, facility_id, route_date, estimated_duration_minutes, " +
+            "                    total_stops, route_status) " +
+            "VALUES (?, ?, ?, ?, ?, 'planned')";
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            for (Long packageId : packageIds) {
-                stmt.setLong(1, routeId);
-                stmt.setLong(2, packageId);
+        try (PreparedStatement stmt = conn.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            for (RouteAssignment route : routes) {
+                stmt.setString(1, route.routeName);
+                stmt.setLong(2, route.facilityId);
+                stmt.setString(3, route.routeDate);
+                stmt.setInt(4, route.estimatedDurationMinutes);
+                stmt.setInt(5, route.packageIds.size());
                 stmt.addBatch();
             }
 
             stmt.executeBatch();
+
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                for (RouteAssignment route : routes) {
+                    if (!keys.next()) {
+                        return Result.err("Failed to retrieve generated route ID");
+                    }
+                    route.routeId = keys.getLong(1);
+                }
+            }
             return Result.ok(null);
 
         } catch (SQLException e) {
-            return Result.err("Database error while assigning packages to route: " + e.getMessage());
+            return Result.err("Database error while creating routes: " + e.getMessage());
         }
     }
 
     /**
-     * Update package status to 'out_for_delivery'
+     * Assign each route to its driver, in one batch
      */
-    public static Result<Void, String> updatePackageStatus(Connection conn, List<Long> packageIds,
-                                                           String newStatus) {
+    public static Result<Void, String> assignDrivers(Connection conn, List<RouteAssignment> routes) {
+        return DaoCalls.timed(ASSIGN_DRIVERS, "RouteDAO.assignDrivers",
+                              () -> assignDriversImpl(conn, routes));
+    }
 
-        String query = "UPDATE packages SET package_status = ? WHERE package_id = ?";
+    private static Result<Void, String> assignDriversImpl(Connection conn, List<RouteAssignment> routes) {
+        String query =
+            "INSERT INTO route_assignments (route_id, driver_id, vehicle_id) " +
+            "VALUES (?, ?, ?)";
 
         try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            for (Long packageId : packageIds) {
-                stmt.setString(1, newStatus);
-                stmt.setLong(2, packageId);
+            for (RouteAssignment route : routes) {
+                stmt.setLong(1, route.routeId);
+                stmt.setLong(2, route.driverId);
+                stmt.setString(3, route.vehicleId == null || route.vehicleId.isEmpty() ? null : route.vehicleId);
                 stmt.addBatch();
             }
 
@@ -225,30 +351,44 @@ public class RouteDAO {
             return Result.ok(null);
 
         } catch (SQLException e) {
-            return Result.err("Database error while updating package status: " + e.getMessage());
+            return Result.err("Database error while assigning drivers: " + e.getMessage());
         }
     }
 
     /**
-     * Assign a driver to a route
+     * Add every route's packages as stops, numbered in list order, in batches of IN_LIST_CHUNK rows
      */
-    public static Result<Void, String> assignDriverToRoute(Connection conn, long routeId,
-                                                           long driverId, String vehicleId) {
+    public static Result<Void, String> addRouteStops(Connection conn, List<RouteAssignment> routes) {
+        return DaoCalls.timed(ADD_ROUTE_STOPS, "RouteDAO.addRouteStops",
+                              () -> addRouteStopsImpl(conn, routes));
+    }
 
+    private static Result<Void, String> addRouteStopsImpl(Connection conn, List<RouteAssignment> routes) {
         String query =
-            "INSERT INTO route_assignments (route_id, driver_id, vehicle_id) " +
+            "INSERT INTO route_packages (route_id, package_id, stop_sequence) " +
             "VALUES (?, ?, ?)";
 
         try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setLong(1, routeId);
-            stmt.setLong(2, driverId);
-            stmt.setString(3, vehicleId);
-
-            stmt.executeUpdate();
+            int pending = 0;
+            for (RouteAssignment route : routes) {
+                for (int i = 0; i < route.packageIds.size(); i++) {
+                    stmt.setLong(1, route.routeId);
+                    stmt.setLong(2, route.packageIds.get(i));
+                    stmt.setInt(3, i + 1);
+                    stmt.addBatch();
+                    if (++pending == IN_LIST_CHUNK) {
+                        stmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
             return Result.ok(null);
 
         } catch (SQLException e) {
-            return Result.err("Database error while assigning driver: " + e.getMessage());
+            return Result.err("Database error while adding route stops: " + e.getMessage());
         }
     }
 
@@ -256,6 +396,11 @@ public class RouteDAO {
      * Get facility name by ID
      */
     public static Result<String, String> getFacilityName(Connection conn, long facilityId) {
+        return DaoCalls.timed(GET_FACILITY_NAME, "RouteDAO.getFacilityName",
+                              () -> getFacilityNameImpl(conn, facilityId));
+    }
+
+    private static Result<String, String> getFacilityNameImpl(Connection conn, long facilityId) {
         String query = "SELECT facility_name FROM facilities WHERE facility_id = ?";
 
         try (PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -278,6 +423,10 @@ public class RouteDAO {
      * Verify facility exists
      */
     public static boolean facilityExists(Connection conn, long facilityId) {
+        return DaoCalls.timed(FACILITY_EXISTS, "RouteDAO.facilityExists", () -> facilityExistsImpl(conn, facilityId));
+    }
+
+    private static boolean facilityExistsImpl(Connection conn, long facilityId) {
         String query = "SELECT 1 FROM facilities WHERE facility_id = ?";
 
         try (PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -300,7 +449,15 @@ public static Result<Long, String> saveOptimizedRoute(Connection conn, long driv
                                                       String warehouseAddress, String routeJson,
                                                       double totalDistance, int estimatedDuration,
                                                       long facilityId, String routeDate) {
+    return DaoCalls.timed(SAVE_OPTIMIZED_ROUTE, "RouteDAO.saveOptimizedRoute",
+                          () -> saveOptimizedRouteImpl(conn, driverId, warehouseAddress, routeJson,
+                                                       totalDistance, estimatedDuration, facilityId, routeDate));
+}
     
+private static Result<Long, String> saveOptimizedRouteImpl(Connection conn, long driverId, 
+                                                           String warehouseAddress, String routeJson,
+                                                           double totalDistance, int estimatedDuration,
+                                                           long facilityId, String routeDate) {
     String insertRoute = 
         "INSERT INTO routes (route_name, facility_id, route_date, estimated_duration_minutes, " +
         "                    total_stops, route_status) " +
@@ -354,7 +511,12 @@ public static Result<Long, String> saveOptimizedRoute(Connection conn, long driv
  */
 public static Result<List<Map<String, Object>>, String> getDriverOptimizedRoutes(
         Connection conn, long driverId) {
+    return DaoCalls.timed(GET_DRIVER_OPTIMIZED_ROUTES, "RouteDAO.getDriverOptimizedRoutes",
+                          () -> getDriverOptimizedRoutesImpl(conn, driverId));
+}
     
+private static Result<List<Map<String, Object>>, String> getDriverOptimizedRoutesImpl(
+        Connection conn, long driverId) {
     String query = 
         "SELECT r.route_id, r.route_name, r.route_date, r.estimated_duration_minutes, " +
         "       r.total_stops, r.route_status, f.facility_name " +
@@ -394,7 +556,10 @@ public static Result<List<Map<String, Object>>, String> getDriverOptimizedRoutes
  * Get route details including packages
  */
 public static Result<Map<String, Object>, String> getRouteDetails(Connection conn, long routeId) {
+    return DaoCalls.timed(GET_ROUTE_DETAILS, "RouteDAO.getRouteDetails", () -> getRouteDetailsImpl(conn, routeId));
+}
     
+private static Result<Map<String, Object>, String> getRouteDetailsImpl(Connection conn, long routeId) {
     String routeQuery = 
         "SELECT r.route_id, r.route_name, r.route_date, r.estimated_duration_minutes, " +
         "       r.total_stops, r.route_status, f.facility_name, f.street_address as warehouse_address " +
@@ -409,7 +574,7 @@ public static Result<Map<String, Object>, String> getRouteDetails(Connection con
         "JOIN orders o ON p.order_id = o.order_id " +
         "JOIN addresses a ON o.delivery_address_id = a.address_id " +
         "WHERE rp.route_id = ? " +
-        "ORDER BY rp.stop_order";
+        "ORDER BY rp.stop_sequence";
     
     try {
         Map<String, Object> routeDetails = new HashMap<>();
@@ -460,4 +625,14 @@ public static Result<Map<String, Object>, String> getRouteDetails(Connection con
         return Result.err("Database error while fetching route details: " + e.getMessage());
     }
 }
+
+// "?, ?, ?" for an IN list of n values
+private static String placeholders(int n) {
+    StringBuilder sb = new StringBuilder(n * 3);
+    for (int i = 0; i < n; i++) {
+        if (i > 0) sb.append(", ");
+        sb.append('?');
+    }
+    return sb.toString();
+}
 }
@@ -1,6 +1,12 @@
 package com.delivery.dao;
 
 import com.delivery.database.DatabaseConnection;
+import com.delivery.events.EventBus;
+import com.delivery.events.TransferCompleted;
+import com.delivery.events.TransferInitiated;
+import com.delivery.inventory.FacilityInventoryCounters;
+import com.delivery.metrics.LatencyHistogram;
+import com.delivery.metrics.Metrics;
 import com.delivery.util.Result;
 
 import java.sql.Connection;
@@ -19,6 +25,12 @@ import java.util.Map;
  */
 public class TransferDAO {
 
+    // Per-method latency, exported at /admin/metrics (and as DaoCallEvent to JFR)
+    private static final LatencyHistogram INITIATE_TRANSFER = Metrics.dao("TransferDAO.initiateTransfer");
+    private static final LatencyHistogram COMPLETE_TRANSFER = Metrics.dao("TransferDAO.completeTransfer");
+    private static final LatencyHistogram GET_PENDING_TRANSFERS = Metrics.dao("TransferDAO.getPendingTransfers");
+    private static final LatencyHistogram GET_TRANSFER_BY_TRACKING = Metrics.dao("TransferDAO.getTransferByTracking");
+
     /**
      * Initiate a transfer for a package from one facility to another
      * Creates a record in package_transfers table with 'pending' status
@@ -31,6 +43,12 @@ public class TransferDAO {
      */
     public static Result<Long, String> initiateTransfer(long packageId, long fromFacilityId,
                                                         long toFacilityId, long initiatedBy) {
+        return DaoCalls.timed(INITIATE_TRANSFER, "TransferDAO.initiateTransfer",
+                              () -> initiateTransferImpl(packageId, fromFacilityId, toFacilityId, initiatedBy));
+    }
+
+    private static Result<Long, String> initiateTransferImpl(long packageId, long fromFacilityId,
+                                                             long toFacilityId, long initiatedBy) {
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
             return Result.err("Database connection failed: " + connResult.unwrapErr());
@@ -39,7 +57,8 @@ public class TransferDAO {
         Connection conn = connResult.unwrap();
 
         // First verify package is at the source facility
-        String verifySQL = "SELECT current_facility_id FROM packages WHERE package_id = ?";
+        String verifySQL = "SELECT current_facility_id, tracking_number FROM packages WHERE package_id = ?";
+        String trackingNumber;
         try (PreparedStatement verifyStmt = conn.prepareStatement(verifySQL)) {
             verifyStmt.setLong(1, packageId);
             try (ResultSet rs = verifyStmt.executeQuery()) {
@@ -53,6 +72,7 @@ public class TransferDAO {
                 if (currentFacility != fromFacilityId) {
                     return Result.err("Package is not at the source facility");
                 }
+                trackingNumber = rs.getString("tracking_number");
             }
         } catch (SQLException e) {
             return Result.err("Error verifying package location: " + e.getMessage());
@@ -79,6 +99,8 @@ public class TransferDAO {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     long transferId = generatedKeys.getLong(1);
+                    EventBus.publish(new TransferInitiated(transferId, packageId, trackingNumber,
+                                                           fromFacilityId, toFacilityId));
                     return Result.ok(transferId);
                 } else {
                     return Result.err("Failed to retrieve transfer ID");
@@ -101,6 +123,11 @@ public class TransferDAO {
      * @return Result with success message or error
      */
     public static Result<String, String> completeTransfer(long transferId) {
+        return DaoCalls.timed(COMPLETE_TRANSFER, "TransferDAO.completeTransfer",
+                              () -> completeTransferImpl(transferId));
+    }
+
+    private static Result<String, String> completeTransferImpl(long transferId) {
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
             return Result.err("Database connection failed: " + connResult.unwrapErr());
@@ -113,9 +140,13 @@ public class TransferDAO {
             conn.setAutoCommit(false);
 
             // Get transfer details
-            String getTransferSQL = "SELECT package_id, from_facility_id, to_facility_id, transfer_status " +
-                                   "FROM package_transfers WHERE transfer_id = ?";
+            String getTransferSQL = "SELECT t.package_id, t.from_facility_id, t.to_facility_id, t.transfer_status, " +
+                                   "p.tracking_number " +
+                                   "FROM package_transfers t " +
+                                   "INNER JOIN packages p ON t.package_id = p.package_id " +
+                                   "WHERE t.transfer_id = ?";
             long packageId;
+            String trackingNumber;
             long fromFacilityId;
             long toFacilityId;
             String status;
@@ -131,6 +162,7 @@ public class TransferDAO {
                     fromFacilityId = rs.getLong("from_facility_id");
                     toFacilityId = rs.getLong("to_facility_id");
                     status = rs.getString("transfer_status");
+                    trackingNumber = rs.getString("tracking_number");
 
                     if ("completed".equals(status)) {
                         conn.rollback();
@@ -164,10 +196,14 @@ public class TransferDAO {
             String updateInventorySQL = "UPDATE inventory " +
                                        "SET departure_time = NOW(), inventory_status = 'transferred' " +
                                        "WHERE package_id = ? AND facility_id = ? AND inventory_status = 'in_stock'";
+            FacilityInventoryCounters.Changes counterChanges = new FacilityInventoryCounters.Changes();
             try (PreparedStatement stmt = conn.prepareStatement(updateInventorySQL)) {
                 stmt.setLong(1, packageId);
                 stmt.setLong(2, fromFacilityId);
-                stmt.executeUpdate();
+                int closed = stmt.executeUpdate();
+                for (int i = 0; i < closed; i++) {
+                    counterChanges.departed(fromFacilityId, "in_stock");
+                }
             }
 
             // 4. Create new inventory record at destination
@@ -179,10 +215,14 @@ public class TransferDAO {
                 stmt.setLong(2, packageId);
                 stmt.executeUpdate();
             }
+            counterChanges.arrived(toFacilityId);
 
             // Commit transaction
             conn.commit();
             conn.setAutoCommit(true);
+            counterChanges.apply();
+            EventBus.publish(new TransferCompleted(transferId, packageId, trackingNumber,
+                                                   fromFacilityId, toFacilityId));
 
             return Result.ok("Transfer completed successfully");
 
@@ -203,6 +243,11 @@ public class TransferDAO {
      * @return Result containing list of transfer details or error message
      */
     public static Result<List<Map<String, Object>>, String> getPendingTransfers() {
+        return DaoCalls.timed(GET_PENDING_TRANSFERS, "TransferDAO.getPendingTransfers",
+                              TransferDAO::getPendingTransfersImpl);
+    }
+
+    private static Result<List<Map<String, Object>>, String> getPendingTransfersImpl() {
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
             return Result.err("Database connection failed: " + connResult.unwrapErr());
@@ -254,6 +299,11 @@ public class TransferDAO {
      * @return Result containing transfer details or error message
      */
     public static Result<Map<String, Object>, String> getTransferByTracking(String trackingNumber) {
+        return DaoCalls.timed(GET_TRANSFER_BY_TRACKING, "TransferDAO.getTransferByTracking",
+                              () -> getTransferByTrackingImpl(trackingNumber));
+    }
+
+    private static Result<Map<String, Object>, String> getTransferByTrackingImpl(String trackingNumber) {
         Result<Connection, String> connResult = DatabaseConnection.getConnection();
         if (connResult.isErr()) {
             return Result.err("Database connection failed: " + connResult.unwrapErr());
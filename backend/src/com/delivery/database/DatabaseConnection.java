@@ -1,5 +1,6 @@
 package com.delivery.database;
 
+import com.delivery.tracing.Tracer;
 import com.delivery.util.EnvLoader;
 import com.delivery.util.Result;
 
@@ -11,6 +12,9 @@ public class DatabaseConnection {
     private static String cachedUrl = null;
     private static String cachedUser = null;
     private static String cachedPassword = null;
+    // JDBC_INSTRUMENTATION=false hands out raw driver connections (no per-statement stats)
+    private static final boolean instrument = !"false".equalsIgnoreCase(
+        EnvLoader.get("JDBC_INSTRUMENTATION").unwrapOr("true").trim());
 
     public static Result<Connection, String> getConnection() {
         if (cachedUrl == null) {
@@ -26,15 +30,18 @@ public class DatabaseConnection {
             if (userResult.isErr()) return Result.err("DB_USER not configured");
             if (passwordResult.isErr()) return Result.err("DB_PASSWORD not configured");
 
+            // rewriteBatchedStatements: executeBatch() on an INSERT sends one multi-row statement
             cachedUrl = "jdbc:mysql://" + hostResult.unwrap() + ":" + portResult.unwrap() + "/" +
-                         nameResult.unwrap() + "?serverTimezone=UTC&useSSL=false";
+                         nameResult.unwrap() + "?serverTimezone=UTC&useSSL=false&rewriteBatchedStatements=true";
             cachedUser = userResult.unwrap();
             cachedPassword = passwordResult.unwrap();
         }
 
+        // No pool yet: every call opens a new physical connection, so it gets its own span
         try {
-            Connection conn = DriverManager.getConnection(cachedUrl, cachedUser, cachedPassword);
-            return Result.ok(conn);
+            Connection conn = Tracer.inSpan("jdbc", "connect",
+                () -> DriverManager.getConnection(cachedUrl, cachedUser, cachedPassword));
+            return Result.ok(instrument ? InstrumentedJdbc.wrap(conn) : conn);
         } catch (SQLException e) {
             return Result.err("Database connection failed: " + e.getMessage());
         }
@@ -0,0 +1,196 @@
+package com.delivery.database;
+
+import com.delivery.tracing.Tracer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Dynamic-proxy wrappers around Connection / Statement, and a delegating ResultSet
+ * (CountingResultSet), that feed QueryStats.
+ *
+ * Only execute*, addBatch, set* (parameter shapes) and ResultSet.next() do any work; every
+ * other call is forwarded straight to the driver. Result sets, including generated keys, are
+ * not proxied, so reading columns costs no reflection. The normalized-SQL entry is resolved once
+ * when a statement is prepared, so per-execution cost is a nanoTime pair and a few adders.
+ */
+public class InstrumentedJdbc {
+    // Rows fetched + updated by statements on each thread; read as a before/after delta by DaoCallEvent
+    private static final ThreadLocal<long[]> threadRows = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Wrap a driver connection so statements created from it are instrumented.
+     */
+    public static Connection wrap(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, new ConnectionHandler(conn));
+    }
+
+    /**
+     * Running total of rows fetched and updated on the current thread.
+     */
+    public static long rowsOnCurrentThread() {
+        return threadRows.get()[0];
+    }
+
+    // Unwraps reflection exceptions so callers see the driver's SQLException
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+
+        ConnectionHandler(Connection conn) { this.conn = conn; }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") && args != null && args[0] == Connection.class) return proxy;
+            Object result = forward(conn, method, args);
+            if (result instanceof CallableStatement) {
+                return wrapStatement(result, CallableStatement.class, (String) args[0]);
+            }
+            if (result instanceof PreparedStatement) {
+                return wrapStatement(result, PreparedStatement.class, (String) args[0]);
+            }
+            if (result instanceof Statement) {
+                return wrapStatement(result, Statement.class, null);
+            }
+            return result;
+        }
+    }
+
+    private static Object wrapStatement(Object stmt, Class<?> type, String sql) {
+        return Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(),
+            new Class<?>[] { type }, new StatementHandler(stmt, sql));
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private static final int MAX_SHAPE_PARAMS = 32;
+
+        private final Object stmt;
+        // Prepared statements know their SQL up front; plain Statements pass it to execute*
+        private final QueryStats.Entry preparedEntry;
+        // Setter used per parameter index (e.g. "setString") and string lengths; only turned
+        // into text when an execution is slow, so binding stays allocation-free
+        private String[] paramSetters;
+        private int[] paramLengths;
+        private int pendingBatchItems = 0;
+        // Entry of the last execution, for result sets fetched after it
+        private QueryStats.Entry lastEntry;
+
+        StatementHandler(Object stmt, String sql) {
+            this.stmt = stmt;
+            this.preparedEntry = sql == null ? null : QueryStats.entryFor(sql);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                recordShape((Integer) args[0], name, args[1]);
+                return forward(stmt, method, args);
+            }
+            if (name.equals("addBatch")) {
+                pendingBatchItems++;
+                return forward(stmt, method, args);
+            }
+            if (name.equals("clearParameters") && paramSetters != null) {
+                Arrays.fill(paramSetters, null);
+                return forward(stmt, method, args);
+            }
+            if (name.equals("clearBatch")) {
+                pendingBatchItems = 0;
+                return forward(stmt, method, args);
+            }
+            if (!name.startsWith("execute")) {
+                Object result = forward(stmt, method, args);
+                if ((name.equals("getResultSet") || name.equals("getGeneratedKeys"))
+                        && result instanceof ResultSet && lastEntry != null) {
+                    return wrapResultSet((ResultSet) result, lastEntry);
+                }
+                return result;
+            }
+
+            QueryStats.Entry entry = preparedEntry;
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                entry = QueryStats.entryFor((String) args[0]);
+            }
+            if (entry == null) return forward(stmt, method, args);
+            lastEntry = entry;
+
+            long start = System.nanoTime();
+            boolean failed = true;
+            Object result = null;
+            Tracer.Span span = Tracer.span("jdbc", entry.sql);
+            try {
+                result = forward(stmt, method, args);
+                failed = false;
+            } finally {
+                span.close();
+                long elapsed = System.nanoTime() - start;
+                if (name.startsWith("executeBatch") || name.startsWith("executeLargeBatch")) {
+                    entry.batches.increment();
+                    entry.batchItems.add(pendingBatchItems);
+                    pendingBatchItems = 0;
+                }
+                // The parameter shape string is only built for executions that will be logged as slow
+                QueryStats.recordExecution(entry, elapsed, failed, QueryStats.isSlow(elapsed) ? describeShapes() : null);
+            }
+
+            if (result instanceof ResultSet) return wrapResultSet((ResultSet) result, entry);
+            long updated = 0;
+            if (result instanceof Integer) updated = Math.max(0, (Integer) result);
+            else if (result instanceof Long) updated = Math.max(0, (Long) result);
+            else if (result instanceof int[]) { for (int n : (int[]) result) if (n > 0) updated += n; }
+            else if (result instanceof long[]) { for (long n : (long[]) result) if (n > 0) updated += n; }
+            if (updated > 0) {
+                entry.rowsUpdated.add(updated);
+                threadRows.get()[0] += updated;
+            }
+            return result;
+        }
+
+        private void recordShape(int index, String setter, Object value) {
+            if (index < 1 || index > MAX_SHAPE_PARAMS) return;
+            if (paramSetters == null) {
+                paramSetters = new String[MAX_SHAPE_PARAMS + 1];
+                paramLengths = new int[MAX_SHAPE_PARAMS + 1];
+            }
+            paramSetters[index] = value == null ? "setNull" : setter;
+            paramLengths[index] = value instanceof String ? ((String) value).length() : -1;
+        }
+
+        // e.g. "[1:Long, 2:String(12), 3:NULL]"
+        private String describeShapes() {
+            if (paramSetters == null) return null;
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 1; i < paramSetters.length; i++) {
+                if (paramSetters[i] == null) continue;
+                if (sb.length() > 1) sb.append(", ");
+                String type = paramSetters[i].substring(3);
+                sb.append(i).append(':').append(type.equals("Null") ? "NULL" : type);
+                if (paramLengths[i] >= 0) sb.append('(').append(paramLengths[i]).append(')');
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    private static ResultSet wrapResultSet(ResultSet rs, QueryStats.Entry entry) {
+        return new CountingResultSet(rs, entry, threadRows.get());
+    }
+}
@@ -0,0 +1,249 @@
+package com.delivery.database;
+
+import com.delivery.metrics.LatencyHistogram;
+import com.delivery.util.EnvLoader;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-statement JDBC statistics, keyed by normalized SQL text.
+ *
+ * Filled in by InstrumentedJdbc for every statement executed on a connection handed out by
+ * DatabaseConnection. Executions slower than SLOW_QUERY_MS are printed to the slow-query log
+ * with the shape of their bound parameters (types and string lengths, never values) and kept
+ * in a small ring for /admin/queries.
+ */
+public class QueryStats {
+    private static final long SLOW_QUERY_MICROS = EnvLoader.getInt("SLOW_QUERY_MS", 200) * 1000L;
+    private static final int MAX_TRACKED_STATEMENTS = 2000;
+    private static final int SLOW_LOG_SIZE = 100;
+
+    private static final Map<String, Entry> statements = new ConcurrentHashMap<>();
+    // Raw SQL -> normalized SQL; DAO SQL strings are constants so this is almost always a hit
+    private static final Map<String, String> normalizedCache = new ConcurrentHashMap<>();
+    private static final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    /**
+     * Aggregated numbers for one normalized statement.
+     */
+    public static class Entry {
+        public final String sql;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder executions = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rowsFetched = new LongAdder();
+        final LongAdder rowsUpdated = new LongAdder();
+        final LongAdder batches = new LongAdder();
+        final LongAdder batchItems = new LongAdder();
+        final AtomicLong maxMicros = new AtomicLong();
+
+        Entry(String sql) { this.sql = sql; }
+
+        public long getExecutions() { return executions.sum(); }
+        public long getErrors() { return errors.sum(); }
+        public long getRowsFetched() { return rowsFetched.sum(); }
+        public long getRowsUpdated() { return rowsUpdated.sum(); }
+        public long getBatches() { return batches.sum(); }
+        public long getBatchItems() { return batchItems.sum(); }
+        public long getTotalMicros() { return latency.getSumMicros(); }
+        public long getMaxMicros() { return maxMicros.get(); }
+        public long getP95Micros() { return latency.quantileMicros(0.95); }
+
+        public long getAvgMicros() {
+            long n = latency.getCount();
+            return n == 0 ? 0 : latency.getSumMicros() / n;
+        }
+    }
+
+    /**
+     * One execution that crossed the slow-query threshold.
+     */
+    public static class SlowQuery {
+        public final long timestamp;
+        public final String sql;
+        public final long micros;
+        public final String params;
+
+        SlowQuery(long timestamp, String sql, long micros, String params) {
+            this.timestamp = timestamp;
+            this.sql = sql;
+            this.micros = micros;
+            this.params = params;
+        }
+    }
+
+    /**
+     * Resolve the stats entry for a raw SQL string. Called once per prepared statement.
+     */
+    static Entry entryFor(String rawSql) {
+        String normalized = normalizedCache.get(rawSql);
+        if (normalized == null) {
+            normalized = normalize(rawSql);
+            if (normalizedCache.size() < MAX_TRACKED_STATEMENTS) normalizedCache.put(rawSql, normalized);
+        }
+        Entry e = statements.get(normalized);
+        if (e != null) return e;
+        if (statements.size() >= MAX_TRACKED_STATEMENTS) {
+            // Unbounded distinct SQL (string-built literals) collapses into one bucket
+            return statements.computeIfAbsent("<other>", Entry::new);
+        }
+        return statements.computeIfAbsent(normalized, Entry::new);
+    }
+
+    static boolean isSlow(long nanos) {
+        return nanos / 1000 >= SLOW_QUERY_MICROS;
+    }
+
+    static void recordExecution(Entry e, long nanos, boolean failed, String paramShape) {
+        long micros = nanos / 1000;
+        e.latency.recordNanos(nanos);
+        e.executions.increment();
+        if (failed) e.errors.increment();
+        long max = e.maxMicros.get();
+        while (micros > max && !e.maxMicros.compareAndSet(max, micros)) max = e.maxMicros.get();
+
+        if (micros >= SLOW_QUERY_MICROS) {
+            String params = paramShape == null ? "[]" : paramShape;
+            System.out.println("SLOW QUERY " + (micros / 1000) + "ms" + (failed ? " (failed)" : "")
+                + " params=" + params + " sql=" + e.sql);
+            synchronized (slowQueries) {
+                if (slowQueries.size() >= SLOW_LOG_SIZE) slowQueries.removeFirst();
+                slowQueries.addLast(new SlowQuery(System.currentTimeMillis(), e.sql, micros, params));
+            }
+        }
+    }
+
+    /**
+     * Top statements ordered by the given key.
+     * @param sortBy "total" (default), "avg", "max", "count", "rows" or "errors"
+     * @param limit Maximum number of entries
+     */
+    public static List<Entry> top(String sortBy, int limit) {
+        Comparator<Entry> order;
+        switch (sortBy == null ? "total" : sortBy) {
+            case "avg": order = Comparator.comparingLong(Entry::getAvgMicros); break;
+            case "max": order = Comparator.comparingLong(Entry::getMaxMicros); break;
+            case "count": order = Comparator.comparingLong(Entry::getExecutions); break;
+            case "rows": order = Comparator.comparingLong(Entry::getRowsFetched); break;
+            case "errors": order = Comparator.comparingLong(Entry::getErrors); break;
+            default: order = Comparator.comparingLong(Entry::getTotalMicros);
+        }
+        List<Entry> all = new ArrayList<>(statements.values());
+        all.sort(order.reversed());
+        return all.size() > limit ? all.subList(0, limit) : all;
+    }
+
+    /**
+     * Most recent slow queries, newest first.
+     */
+    public static List<SlowQuery> recentSlowQueries() {
+        List<SlowQuery> out;
+        synchronized (slowQueries) {
+            out = new ArrayList<>(slowQueries);
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    public static long getSlowQueryThresholdMillis() {
+        return SLOW_QUERY_MICROS / 1000;
+    }
+
+    public static void reset() {
+        statements.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    /**
+     * Collapse whitespace, replace literals with '?', and fold IN lists so the same query
+     * built with different values or list lengths maps to one entry.
+     */
+    static String normalize(String sql) {
+        if (sql == null) return "";
+        StringBuilder sb = new StringBuilder(sql.length());
+        int n = sql.length();
+        boolean space = false;
+        for (int i = 0; i < n; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                // Quoted literal
+                int j = i + 1;
+                while (j < n) {
+                    char d = sql.charAt(j);
+                    if (d == '\\') { j += 2; continue; }
+                    if (d == c) {
+                        if (j + 1 < n && sql.charAt(j + 1) == c) { j += 2; continue; }
+                        break;
+                    }
+                    j++;
+                }
+                appendToken(sb, space, "?");
+                space = false;
+                i = Math.min(j, n - 1);
+            } else if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+            } else if (Character.isDigit(c) && (sb.length() == 0 || !isIdentifierChar(sb.charAt(sb.length() - 1)) || space)) {
+                // Numeric literal (not part of an identifier like t1 or idx_2)
+                int j = i;
+                while (j + 1 < n && (Character.isDigit(sql.charAt(j + 1)) || sql.charAt(j + 1) == '.')) j++;
+                appendToken(sb, space, "?");
+                space = false;
+                i = j;
+            } else {
+                if (space) sb.append(' ');
+                space = false;
+                sb.append(c);
+            }
+        }
+        return foldInLists(sb.toString());
+    }
+
+    private static void appendToken(StringBuilder sb, boolean space, String token) {
+        if (space) sb.append(' ');
+        sb.append(token);
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    // "(?, ?, ?)" and "(?,?)" -> "(?+)"
+    private static String foldInLists(String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (c == '(') {
+                int j = i + 1;
+                int items = 0;
+                boolean ok = true;
+                while (j < s.length()) {
+                    while (j < s.length() && s.charAt(j) == ' ') j++;
+                    if (j < s.length() && s.charAt(j) == '?') { items++; j++; } else { ok = false; break; }
+                    while (j < s.length() && s.charAt(j) == ' ') j++;
+                    if (j < s.length() && s.charAt(j) == ',') { j++; continue; }
+                    break;
+                }
+                if (ok && items > 1 && j < s.length() && s.charAt(j) == ')') {
+                    out.append("(?+)");
+                    i = j + 1;
+                    continue;
+                }
+            }
+            out.append(c);
+            i++;
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,257 @@
+package com.delivery.driver;
+
+import com.delivery.events.EventBus;
+import com.delivery.events.PackageDetailsChanged;
+import com.delivery.events.PackageStatusChanged;
+import com.delivery.events.RouteAssigned;
+import com.delivery.util.EnvLoader;
+import com.delivery.util.PasswordUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-driver cache of today's route manifest (the GET /driver/route response body).
+ *
+ * Each entry holds the serialized JSON bytes, a per-driver version and an ETag derived from the
+ * bytes, so a driver app polling with If-None-Match gets a 304 without touching the database.
+ * Entries are invalidated from committed domain events (see subscribeToEvents()): status
+ * changes and route assignment drop the affected driver's entry, package and address edits drop
+ * every entry. Entries also lapse when the date changes and after ROUTE_MANIFEST_TTL_SECONDS
+ * (default 300, 0 disables caching) to pick up writes made outside the server.
+ *
+ * Versions go to clients as tokens that also name this server run, and the stop list behind
+ * each of a driver's last few versions is kept as a RouteSnapshot, so a client can ask for the
+ * changes since the version it holds instead of the whole manifest. A snapshot stands in for
+ * the database only for the same TTL as a manifest (see isFresh).
+ */
+public class RouteManifestCache {
+    private static final long TTL_NANOS =
+        TimeUnit.SECONDS.toNanos(Math.max(0, EnvLoader.getInt("ROUTE_MANIFEST_TTL_SECONDS", 300)));
+    // Stop-list snapshots kept per driver, newest versions first out of the window
+    private static final int SNAPSHOTS_PER_DRIVER = 4;
+    // Versions restart with the server; a token from another run must not match
+    private static final String RUN_ID = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * One serialized manifest; immutable once built.
+     */
+    public static final class Manifest {
+        private final long driverId;
+        private final long version;
+        private final LocalDate day;
+        private final long builtAt;
+        private final byte[] json;
+        private final String etag;
+        private final String token;
+
+        private Manifest(long driverId, long version, LocalDate day, byte[] json, String token) {
+            this.driverId = driverId;
+            this.version = version;
+            this.day = day;
+            this.builtAt = System.nanoTime();
+            this.json = json;
+            this.etag = "\"" + hash(json) + "\"";
+            this.token = token;
+        }
+
+        public long getDriverId() { return driverId; }
+        public long getVersion() { return version; }
+        public String getEtag() { return etag; }
+
+        // Version token for X-Manifest-Version; the client sends it back to ask for changes
+        public String getToken() { return token; }
+
+        // Shared array; callers write it out and must not modify it
+        public byte[] getJson() { return json; }
+
+        /**
+         * Whether an If-None-Match header names this manifest (weak comparison, as for GET).
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) return false;
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*")) return true;
+                if (tag.startsWith("W/")) tag = tag.substring(2);
+                if (tag.equals(etag)) return true;
+            }
+            return false;
+        }
+    }
+
+    // Driver id -> cached manifest
+    private static final Map<Long, Manifest> manifests = new ConcurrentHashMap<>();
+    // Username -> user_id, so a cache hit needs no lookup either; user ids never change
+    private static final Map<String, Long> driverIds = new ConcurrentHashMap<>();
+    // Driver id -> clock value of the driver's last invalidation
+    private static final Map<Long, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private static final AtomicLong clock = new AtomicLong();
+    private static final AtomicLong allInvalidatedAt = new AtomicLong();
+    // Driver id -> recent token -> stop list sent under it
+    private static final Map<Long, Map<String, RouteSnapshot>> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Cached user_id for a driver's username, or null if not seen yet.
+     */
+    public static Long driverIdFor(String username) {
+        return username == null ? null : driverIds.get(username);
+    }
+
+    public static void rememberDriver(String username, long driverId) {
+        if (username != null) driverIds.put(username, driverId);
+    }
+
+    /**
+     * The driver's current manifest version. Read it before querying the database and pass it to
+     * put(), so an invalidation that lands while the manifest is being built is not lost.
+     */
+    public static long currentVersion(long driverId) {
+        return Math.max(allInvalidatedAt.get(), invalidatedAt.getOrDefault(driverId, 0L));
+    }
+
+    /**
+     * Version token sent to clients: server run, version and, when the manifest has a route,
+     * the fingerprint of its stop list.
+     */
+    public static String token(long version, RouteSnapshot snapshot) {
+        return RUN_ID + "-" + version + (snapshot != null ? "-" + snapshot.fingerprint() : "");
+    }
+
+    /**
+     * Version named by a client token, or -1 if it is malformed or from an earlier server run.
+     */
+    public static long parseToken(String token) {
+        if (token == null || !token.startsWith(RUN_ID + "-")) return -1;
+        String rest = token.substring(RUN_ID.length() + 1);
+        int dash = rest.indexOf('-');
+        try {
+            return Long.parseLong(dash < 0 ? rest : rest.substring(0, dash));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Whether a manifest-wide invalidation (a package or address edit, whose drivers are not
+     * known) happened after the given version; changes since then cannot be sent as a delta.
+     */
+    public static boolean invalidatedAllSince(long version) {
+        return allInvalidatedAt.get() > version;
+    }
+
+    /**
+     * Remember the stop list sent to a client under a version.
+     * @return The token naming it; only the latest few per driver are kept
+     */
+    public static String putSnapshot(long driverId, long version, RouteSnapshot snapshot) {
+        String token = token(version, snapshot);
+        Map<String, RouteSnapshot> recent = snapshots.computeIfAbsent(driverId, id ->
+            Collections.synchronizedMap(new LinkedHashMap<String, RouteSnapshot>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, RouteSnapshot> eldest) {
+                    return size() > SNAPSHOTS_PER_DRIVER;
+                }
+            }));
+        recent.put(token, snapshot);
+        return token;
+    }
+
+    /**
+     * Stop list behind a token from this driver, or null if it is not (or no longer) kept.
+     */
+    public static RouteSnapshot getSnapshot(long driverId, String token) {
+        Map<String, RouteSnapshot> recent = snapshots.get(driverId);
+        return recent == null || token == null ? null : recent.get(token);
+    }
+
+    /**
+     * Whether a snapshot is recent enough to answer "nothing changed" without reading the
+     * database. Events only cover writes made by this process, so past ROUTE_MANIFEST_TTL_SECONDS
+     * the stop list has to be read again to pick up changes from other nodes or direct fixes.
+     */
+    public static boolean isFresh(RouteSnapshot snapshot) {
+        return TTL_NANOS > 0 && System.nanoTime() - snapshot.getTakenAt() <= TTL_NANOS;
+    }
+
+    /**
+     * Cached manifest for the driver, or null when there is none or it is out of date.
+     */
+    public static Manifest get(long driverId) {
+        if (TTL_NANOS == 0) return null;
+        Manifest m = manifests.get(driverId);
+        if (m == null) return null;
+        if (m.version != currentVersion(driverId) || !m.day.equals(LocalDate.now())
+                || System.nanoTime() - m.builtAt > TTL_NANOS) {
+            manifests.remove(driverId, m);
+            return null;
+        }
+        return m;
+    }
+
+    /**
+     * Store a freshly built manifest.
+     * @param version Value of currentVersion() taken before the manifest was read from the database
+     * @param snapshot Its stop list, or null when the driver has no route today
+     * @return The manifest, for responding with; it is cached only if still current
+     */
+    public static Manifest put(long driverId, long version, String json, RouteSnapshot snapshot) {
+        String token = snapshot != null ? putSnapshot(driverId, version, snapshot) : token(version, null);
+        Manifest m = new Manifest(driverId, version, LocalDate.now(), json.getBytes(StandardCharsets.UTF_8), token);
+        if (TTL_NANOS > 0 && version == currentVersion(driverId)) {
+            manifests.put(driverId, m);
+        }
+        return m;
+    }
+
+    /**
+     * Invalidate manifests from EventBus events. Inline, so a driver's next request after their
+     * own status update never gets the manifest from before it.
+     */
+    public static void subscribeToEvents() {
+        EventBus.inlineSubscriber("route-manifest-cache")
+            .on(PackageStatusChanged.class, e -> {
+                if (e.driverId != null) invalidateDriver(e.driverId);
+            })
+            .on(RouteAssigned.class, e -> invalidateDriver(e.driverId))
+            .on(PackageDetailsChanged.class, e -> invalidateAll())
+            .start();
+    }
+
+    /**
+     * Drop a driver's manifest; call after committing a change to their route or its packages.
+     */
+    public static void invalidateDriver(long driverId) {
+        invalidatedAt.merge(driverId, clock.incrementAndGet(), Math::max);
+        manifests.remove(driverId);
+    }
+
+    /**
+     * Drop every manifest; for changes whose drivers are not known (package and address edits).
+     */
+    public static void invalidateAll() {
+        long now = clock.incrementAndGet();
+        allInvalidatedAt.accumulateAndGet(now, Math::max);
+        manifests.clear();
+    }
+
+    private static String hash(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            // The first 128 bits are plenty for an ETag
+            return PasswordUtil.bytesToHex(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.delivery.driver;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The stop list of a driver's route as one manifest version showed it: package, stop sequence
+ * and status per stop. Kept for recent versions so a client holding one can be sent only what
+ * changed since (see diff).
+ */
+public class RouteSnapshot {
+    private final long routeId;
+    private final LocalDate day;
+    private final long[] packageIds;
+    private final int[] stopSequences;
+    private final String[] statuses;
+    // System.nanoTime() when the stop list was read
+    private final long takenAt;
+
+    public RouteSnapshot(long routeId, LocalDate day, long[] packageIds, int[] stopSequences, String[] statuses) {
+        this.routeId = routeId;
+        this.day = day;
+        this.packageIds = packageIds;
+        this.stopSequences = stopSequences;
+        this.statuses = statuses;
+        this.takenAt = System.nanoTime();
+    }
+
+    public long getRouteId() { return routeId; }
+    public LocalDate getDay() { return day; }
+    public long getTakenAt() { return takenAt; }
+
+    /**
+     * Short hash of the stop list, so two snapshots taken under the same version (a build that
+     * raced with a change) can be told apart.
+     */
+    public String fingerprint() {
+        long h = routeId * 31 + day.toEpochDay();
+        for (int i = 0; i < packageIds.length; i++) {
+            h = h * 1_000_003 + packageIds[i];
+            h = h * 1_000_003 + stopSequences[i];
+            h = h * 1_000_003 + Objects.hashCode(statuses[i]);
+        }
+        return Long.toString(h & Long.MAX_VALUE, 36);
+    }
+
+    /**
+     * Stop-level changes between two snapshots of the same route
+     */
+    public static final class Delta {
+        public final List<Long> added = new ArrayList<>();
+        public final List<Long> removed = new ArrayList<>();
+        // Package ids whose stop moved, with the new sequence in resequencedTo
+        public final List<Long> resequenced = new ArrayList<>();
+        public final List<Integer> resequencedTo = new ArrayList<>();
+        // Package ids whose status changed, with the new status in statusChangedTo
+        public final List<Long> statusChanged = new ArrayList<>();
+        public final List<String> statusChangedTo = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && resequenced.isEmpty() && statusChanged.isEmpty();
+        }
+    }
+
+    /**
+     * What changed from this snapshot to a newer one. A stop that was added is only listed under
+     * added; its sequence and status come with its full details.
+     */
+    public Delta diff(RouteSnapshot newer) {
+        Map<Long, Integer> oldIndex = new HashMap<>(packageIds.length * 2);
+        for (int i = 0; i < packageIds.length; i++) oldIndex.put(packageIds[i], i);
+
+        Delta delta = new Delta();
+        for (int j = 0; j < newer.packageIds.length; j++) {
+            long packageId = newer.packageIds[j];
+            Integer i = oldIndex.remove(packageId);
+            if (i == null) {
+                delta.added.add(packageId);
+                continue;
+            }
+            if (stopSequences[i] != newer.stopSequences[j]) {
+                delta.resequenced.add(packageId);
+                delta.resequencedTo.add(newer.stopSequences[j]);
+            }
+            if (!Objects.equals(statuses[i], newer.statuses[j])) {
+                delta.statusChanged.add(packageId);
+                delta.statusChangedTo.add(newer.statuses[j]);
+            }
+        }
+        // Whatever is left was on the old route only
+        for (long packageId : packageIds) {
+            if (oldIndex.containsKey(packageId)) delta.removed.add(packageId);
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,15 @@
+package com.delivery.events;
+
+import java.time.Instant;
+
+/**
+ * Base class for the events published on the EventBus. Events describe a change that has
+ * already been committed; they are immutable and shared by every subscriber.
+ */
+public abstract class DomainEvent {
+    public final Instant occurredAt;
+
+    protected DomainEvent() {
+        this.occurredAt = Instant.now();
+    }
+}
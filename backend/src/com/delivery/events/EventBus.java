@@ -0,0 +1,132 @@
+package com.delivery.events;
+
+import com.delivery.metrics.Metrics;
+import com.delivery.util.EnvLoader;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process bus for DomainEvents.
+ *
+ * Code that commits a change publishes an event after the commit; caches, live update streams
+ * and other side effects subscribe to the event types they care about instead of being called
+ * from every place that makes the change.
+ *
+ * Subscribers are either:
+ * - asynchronous (subscriber()): a bounded queue (EVENT_QUEUE_LIMIT, default 10000) drained
+ *   by the subscriber's own daemon thread, in publish order. When the queue is full the event
+ *   is dropped for that subscriber and counted, so a slow subscriber never holds up a request.
+ * - inline (inlineSubscriber()): run on the publishing thread before publish() returns; for
+ *   invalidations the response that follows must already see (manifest cache, sessions).
+ *
+ * Queue depth, deliveries, drops, failures and handler latency per subscriber are exported at
+ * /admin/metrics.
+ */
+public class EventBus {
+    private static final int QUEUE_LIMIT = Math.max(1, EnvLoader.getInt("EVENT_QUEUE_LIMIT", 10000));
+
+    private static final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * A named set of handlers, one per event type. Register with on(), then start().
+     */
+    public static final class Subscriber {
+        private final String name;
+        private final boolean inline;
+        private final Map<Class<?>, Consumer<DomainEvent>> handlers = new ConcurrentHashMap<>();
+        private final BlockingQueue<DomainEvent> queue;
+        private final Metrics.EventSubscriberStats stats;
+
+        private Subscriber(String name, boolean inline) {
+            this.name = name;
+            this.inline = inline;
+            this.queue = inline ? null : new ArrayBlockingQueue<>(QUEUE_LIMIT);
+            this.stats = Metrics.eventSubscriber(name, () -> queue == null ? 0 : queue.size());
+        }
+
+        @SuppressWarnings("unchecked")
+        public <E extends DomainEvent> Subscriber on(Class<E> type, Consumer<? super E> handler) {
+            handlers.put(type, event -> handler.accept((E) event));
+            return this;
+        }
+
+        /**
+         * Start receiving events (and, for an asynchronous subscriber, its delivery thread).
+         */
+        public void start() {
+            if (!inline) {
+                Thread t = new Thread(this::run, "event-" + name);
+                t.setDaemon(true);
+                t.start();
+            }
+            subscribers.add(this);
+        }
+
+        private void deliver(DomainEvent event) {
+            if (!handlers.containsKey(event.getClass())) return;
+            if (inline) {
+                handle(event);
+            } else if (!queue.offer(event)) {
+                stats.dropped.increment();
+            }
+        }
+
+        private void run() {
+            while (true) {
+                DomainEvent event;
+                try {
+                    event = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                handle(event);
+            }
+        }
+
+        private void handle(DomainEvent event) {
+            long start = System.nanoTime();
+            try {
+                handlers.get(event.getClass()).accept(event);
+                stats.delivered.increment();
+            } catch (RuntimeException e) {
+                // One bad event must not stop the subscriber
+                stats.failed.increment();
+                System.err.println("Event subscriber " + name + " failed on "
+                    + event.getClass().getSimpleName() + ": " + e);
+            } finally {
+                stats.latency.recordSince(start);
+            }
+        }
+    }
+
+    /**
+     * New asynchronous subscriber with its own queue and thread.
+     */
+    public static Subscriber subscriber(String name) {
+        return new Subscriber(name, false);
+    }
+
+    /**
+     * New subscriber whose handlers run on the publishing thread. Handlers must be quick and
+     * must not block.
+     */
+    public static Subscriber inlineSubscriber(String name) {
+        return new Subscriber(name, true);
+    }
+
+    /**
+     * Hand a committed change to every subscriber with a handler for its type. Call after the
+     * transaction commits, never inside it.
+     */
+    public static void publish(DomainEvent event) {
+        for (Subscriber s : subscribers) {
+            s.deliver(event);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.delivery.events;
+
+/**
+ * A new package (and its tracking number) was committed
+ */
+public final class PackageCreated extends DomainEvent {
+    public final long packageId;
+    public final String trackingNumber;
+
+    public PackageCreated(long packageId, String trackingNumber) {
+        this.packageId = packageId;
+        this.trackingNumber = trackingNumber;
+    }
+}
@@ -0,0 +1,13 @@
+package com.delivery.events;
+
+/**
+ * A package's details or its delivery address were edited. The drivers whose routes show it
+ * are not known to the editor.
+ */
+public final class PackageDetailsChanged extends DomainEvent {
+    public final long packageId;
+
+    public PackageDetailsChanged(long packageId) {
+        this.packageId = packageId;
+    }
+}
@@ -0,0 +1,23 @@
+package com.delivery.events;
+
+/**
+ * A package's delivery status changed (driver update, offline sync, route assignment)
+ */
+public final class PackageStatusChanged extends DomainEvent {
+    public final long packageId;
+    // Null when the publisher did not have it at hand
+    public final String trackingNumber;
+    public final String status;
+    public final Long facilityId;
+    // Driver whose route the package is on, if any
+    public final Long driverId;
+
+    public PackageStatusChanged(long packageId, String trackingNumber, String status,
+                                Long facilityId, Long driverId) {
+        this.packageId = packageId;
+        this.trackingNumber = trackingNumber;
+        this.status = status;
+        this.facilityId = facilityId;
+        this.driverId = driverId;
+    }
+}
@@ -0,0 +1,24 @@
+package com.delivery.events;
+
+import java.util.List;
+
+/**
+ * A route was created for a driver: assigned by a manager (its packages were checked out of
+ * the facility) or saved by the route optimizer (no packages listed)
+ */
+public final class RouteAssigned extends DomainEvent {
+    public final long routeId;
+    public final long driverId;
+    public final long facilityId;
+    public final List<Long> packageIds;
+    // "assigned" or "optimized"
+    public final String reason;
+
+    public RouteAssigned(long routeId, long driverId, long facilityId, List<Long> packageIds, String reason) {
+        this.routeId = routeId;
+        this.driverId = driverId;
+        this.facilityId = facilityId;
+        this.packageIds = List.copyOf(packageIds);
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,22 @@
+package com.delivery.events;
+
+/**
+ * A transfer completed: the package left the source facility's inventory and is in stock at
+ * the destination
+ */
+public final class TransferCompleted extends DomainEvent {
+    public final long transferId;
+    public final long packageId;
+    public final String trackingNumber;
+    public final long fromFacilityId;
+    public final long toFacilityId;
+
+    public TransferCompleted(long transferId, long packageId, String trackingNumber,
+                             long fromFacilityId, long toFacilityId) {
+        this.transferId = transferId;
+        this.packageId = packageId;
+        this.trackingNumber = trackingNumber;
+        this.fromFacilityId = fromFacilityId;
+        this.toFacilityId = toFacilityId;
+    }
+}
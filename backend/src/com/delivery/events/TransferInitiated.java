@@ -0,0 +1,21 @@
+package com.delivery.events;
+
+/**
+ * A package transfer between facilities was created (status 'pending')
+ */
+public final class TransferInitiated extends DomainEvent {
+    public final long transferId;
+    public final long packageId;
+    public final String trackingNumber;
+    public final long fromFacilityId;
+    public final long toFacilityId;
+
+    public TransferInitiated(long transferId, long packageId, String trackingNumber,
+                             long fromFacilityId, long toFacilityId) {
+        this.transferId = transferId;
+        this.packageId = packageId;
+        this.trackingNumber = trackingNumber;
+        this.fromFacilityId = fromFacilityId;
+        this.toFacilityId = toFacilityId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.delivery.events;
+
+/**
+ * An administrator changed a user's role (and with it their clearance)
+ */
+public final class UserRoleChanged extends DomainEvent {
+    public final long userId;
+    public final String username;
+    public final String oldRole;
+    public final String newRole;
+
+    public UserRoleChanged(long userId, String username, String oldRole, String newRole) {
+        this.userId = userId;
+        this.username = username;
+        this.oldRole = oldRole;
+        this.newRole = newRole;
+    }
+}
@@ -0,0 +1,218 @@
+package com.delivery.inventory;
+
+import com.delivery.dao.InventoryDAO;
+import com.delivery.models.FacilityInventory;
+import com.delivery.util.EnvLoader;
+import com.delivery.util.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory per-facility inventory counters behind the manager inventory report.
+ *
+ * Loaded from the database on first use, then kept current by the code paths that change
+ * inventory records (transfer completion, delivery status updates, route assignment): each
+ * collects its changes in a {@link Changes} inside its transaction and applies them after the
+ * commit, so rolled-back work never shows up. A background task reconciles against the
+ * database every INVENTORY_RECONCILE_SECONDS (default 300, 0 disables) to pick up writes made
+ * outside the server and new facilities.
+ */
+public class FacilityInventoryCounters {
+    private static final int RECONCILE_SECONDS = EnvLoader.getInt("INVENTORY_RECONCILE_SECONDS", 300);
+    // A reload is discarded if counters moved while it ran; after this many tries it is used anyway
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    private static final class Entry {
+        final FacilityInventory facility;
+        final AtomicLong inStock;
+        final AtomicLong checkedOut;
+
+        Entry(FacilityInventory facility) {
+            this.facility = facility;
+            this.inStock = new AtomicLong(facility.getInStockCount());
+            this.checkedOut = new AtomicLong(facility.getCheckedOutCount());
+        }
+
+        FacilityInventory snapshot() {
+            return facility.withCounts(inStock.get(), checkedOut.get());
+        }
+    }
+
+    // Facility id -> counters, in report order (facility name); null until first loaded
+    private static volatile Map<Long, Entry> facilities = null;
+    // Bumped by every applied change, so a reload can tell whether it raced with one
+    private static final AtomicLong version = new AtomicLong();
+    // Changes apply under the read lock (they only touch atomics); swapping in a reload takes the write lock
+    private static final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private static final Object reloadLock = new Object();
+    private static volatile boolean stale = false;
+    private static ScheduledExecutorService reconciler;
+
+    /**
+     * Counter changes made inside a database transaction; call apply() after the commit.
+     */
+    public static final class Changes {
+        private final List<long[]> deltas = new ArrayList<>(2);
+
+        // Parcel placed on the shelf at a facility
+        public void arrived(long facilityId) { add(facilityId, 1, 0); }
+
+        // Parcel handed to a driver; still assigned to the facility
+        public void checkedOut(long facilityId) { add(facilityId, -1, 1); }
+
+        // Parcel back on the shelf after a delivery attempt
+        public void restocked(long facilityId) { add(facilityId, 1, -1); }
+
+        // Open record closed (transferred away, delivered, returned, lost)
+        public void departed(long facilityId, String fromStatus) {
+            if ("in_stock".equals(fromStatus)) add(facilityId, -1, 0);
+            else if ("checked_out".equals(fromStatus)) add(facilityId, 0, -1);
+        }
+
+        private void add(long facilityId, long inStock, long checkedOut) {
+            deltas.add(new long[] {facilityId, inStock, checkedOut});
+        }
+
+        public void apply() {
+            if (deltas.isEmpty()) return;
+            swapLock.readLock().lock();
+            try {
+                Map<Long, Entry> current = facilities;
+                if (current == null) {
+                    // Not loaded yet: a first load already running may have missed this commit
+                    version.incrementAndGet();
+                    deltas.clear();
+                    return;
+                }
+                for (long[] d : deltas) {
+                    Entry e = current.get(d[0]);
+                    if (e == null) {
+                        // Facility added since the last load
+                        stale = true;
+                        continue;
+                    }
+                    if (d[1] != 0) e.inStock.addAndGet(d[1]);
+                    if (d[2] != 0) e.checkedOut.addAndGet(d[2]);
+                }
+                version.incrementAndGet();
+            } finally {
+                swapLock.readLock().unlock();
+            }
+            deltas.clear();
+        }
+    }
+
+    /**
+     * Current totals for every facility, ordered by facility name. Loads from the database on
+     * first call (or after a change touched an unknown facility); otherwise no database access.
+     */
+    public static Result<List<FacilityInventory>, String> getAll() {
+        Result<Map<Long, Entry>, String> loaded = ensureLoaded();
+        if (loaded.isErr()) return Result.err(loaded.unwrapErr());
+        List<FacilityInventory> out = new ArrayList<>(loaded.unwrap().size());
+        for (Entry e : loaded.unwrap().values()) out.add(e.snapshot());
+        return Result.ok(out);
+    }
+
+    /**
+     * Current totals for one facility.
+     */
+    public static Result<FacilityInventory, String> get(long facilityId) {
+        Result<Map<Long, Entry>, String> loaded = ensureLoaded();
+        if (loaded.isErr()) return Result.err(loaded.unwrapErr());
+        Entry e = loaded.unwrap().get(facilityId);
+        if (e == null) return Result.err("Facility not found");
+        return Result.ok(e.snapshot());
+    }
+
+    /**
+     * Reload the counters from the database, replacing the in-memory values.
+     * @return Number of facilities whose counts had drifted (0 on the first load)
+     */
+    public static Result<Integer, String> reconcile() {
+        synchronized (reloadLock) {
+            for (int attempt = 1; ; attempt++) {
+                long before = version.get();
+                Result<List<FacilityInventory>, String> result = InventoryDAO.getFacilityInventoryCounts();
+                if (result.isErr()) return Result.err(result.unwrapErr());
+
+                Map<Long, Entry> fresh = new LinkedHashMap<>();
+                for (FacilityInventory f : result.unwrap()) fresh.put(f.getFacilityId(), new Entry(f));
+
+                swapLock.writeLock().lock();
+                try {
+                    // A change committed while the query ran may or may not be in its result; try again
+                    if (version.get() != before && attempt < RECONCILE_ATTEMPTS) continue;
+
+                    int drifted = 0;
+                    Map<Long, Entry> previous = facilities;
+                    if (previous != null) {
+                        for (Entry e : fresh.values()) {
+                            Entry old = previous.get(e.facility.getFacilityId());
+                            if (old == null || old.inStock.get() != e.inStock.get()
+                                    || old.checkedOut.get() != e.checkedOut.get()) {
+                                drifted++;
+                            }
+                        }
+                    }
+                    facilities = Collections.unmodifiableMap(fresh);
+                    stale = false;
+                    return Result.ok(drifted);
+                } finally {
+                    swapLock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Start the periodic reconciliation (also performs the initial load in the background).
+     */
+    public static synchronized void startReconciler() {
+        if (reconciler != null) return;
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "inventory-reconcile");
+            t.setDaemon(true);
+            return t;
+        });
+        Runnable task = () -> {
+            Result<Integer, String> result = reconcile();
+            if (result.isErr()) {
+                System.err.println("Inventory counter reconciliation failed: " + result.unwrapErr());
+            } else if (result.unwrap() > 0) {
+                System.out.println("Inventory counters reconciled: " + result.unwrap() + " facilities corrected");
+            }
+        };
+        if (RECONCILE_SECONDS > 0) {
+            reconciler.scheduleWithFixedDelay(task, 0, RECONCILE_SECONDS, TimeUnit.SECONDS);
+        } else {
+            reconciler.execute(task);
+        }
+    }
+
+    private static Result<Map<Long, Entry>, String> ensureLoaded() {
+        Map<Long, Entry> current = facilities;
+        if (current != null && !stale) return Result.ok(current);
+        synchronized (reloadLock) {
+            // Another request may have reloaded while this one waited
+            current = facilities;
+            if (current != null && !stale) return Result.ok(current);
+            Result<Integer, String> result = reconcile();
+            if (result.isErr()) {
+                // Serve slightly stale counters rather than fail when only a new facility is missing
+                if (current != null) return Result.ok(current);
+                return Result.err(result.unwrapErr());
+            }
+            return Result.ok(facilities);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.delivery.jfr;
+
+import com.delivery.util.EnvLoader;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Optional always-on flight recording, started from Main when JFR_CONTINUOUS=true.
+ *
+ * Uses the JDK "default" settings (the low-overhead profile meant for production) plus the
+ * com.delivery.* events, and keeps a bounded window on disk. Take a snapshot at any time with
+ *   jcmd <pid> JFR.dump name=delivery-continuous filename=delivery.jfr
+ * and the last window is also written to JFR_DUMP_FILE when the server exits.
+ */
+public class ContinuousRecording {
+    private static final String NAME = "delivery-continuous";
+
+    /**
+     * Start the recording if enabled in the environment.
+     * @return true when a recording was started
+     */
+    public static boolean startFromEnv() {
+        if (!"true".equalsIgnoreCase(EnvLoader.get("JFR_CONTINUOUS").unwrapOr("false").trim())) {
+            return false;
+        }
+        int maxAgeMinutes = EnvLoader.getInt("JFR_MAX_AGE_MINUTES", 30);
+        int maxSizeMb = EnvLoader.getInt("JFR_MAX_SIZE_MB", 250);
+        String dumpFile = EnvLoader.get("JFR_DUMP_FILE").unwrapOr("delivery-exit.jfr").trim();
+
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName(NAME);
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+            recording.setMaxSize(maxSizeMb * 1024L * 1024L);
+            recording.enable(HttpRequestEvent.class);
+            recording.enable(DaoCallEvent.class);
+            recording.enable(GeocodeEvent.class);
+            recording.enable(OptimizerPhaseEvent.class);
+            if (!dumpFile.isEmpty()) {
+                Path dumpPath = Paths.get(dumpFile).toAbsolutePath();
+                recording.setDestination(dumpPath);
+                recording.setDumpOnExit(true);
+            }
+            recording.start();
+            System.out.println("JFR continuous recording '" + NAME + "' started (max age " + maxAgeMinutes
+                + " min, max size " + maxSizeMb + " MB)");
+            return true;
+        } catch (Exception e) {
+            System.err.println("Could not start JFR recording: " + e.getMessage());
+            return false;
+        }
+    }
+}
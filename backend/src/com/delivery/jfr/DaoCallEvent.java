@@ -0,0 +1,55 @@
+package com.delivery.jfr;
+
+import com.delivery.database.InstrumentedJdbc;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One DAO method call. Rows are the rows fetched plus rows updated by statements the method ran
+ * on this thread (counted by InstrumentedJdbc; 0 when JDBC_INSTRUMENTATION is off).
+ */
+@Name("com.delivery.DaoCall")
+@Label("DAO Call")
+@Category({"Delivery", "Database"})
+@Description("Call to a RouteDAO / InventoryDAO / TransferDAO method")
+@StackTrace(false)
+public class DaoCallEvent extends Event {
+    @Label("Method")
+    public String method;
+
+    @Label("Rows")
+    public long rows;
+
+    // Not recorded (transient fields are skipped by JFR)
+    private transient long rowsAtStart;
+
+    /**
+     * Create and begin the event; cheap no-op when the event type is not enabled.
+     * @param method DAO method, e.g. "RouteDAO.getDriverRoute"
+     */
+    public static DaoCallEvent start(String method) {
+        DaoCallEvent event = new DaoCallEvent();
+        if (event.isEnabled()) {
+            event.method = method;
+            event.rowsAtStart = InstrumentedJdbc.rowsOnCurrentThread();
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * End the event and commit it if it passes the recording's threshold.
+     */
+    public void finish() {
+        if (!isEnabled()) return;
+        end();
+        if (shouldCommit()) {
+            rows = InstrumentedJdbc.rowsOnCurrentThread() - rowsAtStart;
+            commit();
+        }
+    }
+}
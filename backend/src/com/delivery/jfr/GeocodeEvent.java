@@ -0,0 +1,34 @@
+package com.delivery.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One GeocodingService.geocode call, split into the rate-limit wait and the Nominatim round trip.
+ * The address itself is not recorded (recordings leave the server; addresses are customer data).
+ */
+@Name("com.delivery.Geocode")
+@Label("Geocode")
+@Category({"Delivery", "Routing"})
+@Description("Address lookup against Nominatim")
+@StackTrace(false)
+public class GeocodeEvent extends Event {
+    @Label("Rate Limit Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    public long waitTime;
+
+    @Label("HTTP Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long httpTime;
+
+    @Label("HTTP Status")
+    public int httpStatus;
+
+    @Label("Found")
+    public boolean found;
+}
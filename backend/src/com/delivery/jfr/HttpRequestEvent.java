@@ -0,0 +1,43 @@
+package com.delivery.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One HTTP request, committed by RequestMetricsFilter. Spans the whole handler, so allocation
+ * and lock samples taken on the same thread can be attributed to the route context.
+ */
+@Name("com.delivery.HttpRequest")
+@Label("HTTP Request")
+@Category({"Delivery", "HTTP"})
+@Description("Request handled by an HttpServer route context")
+@StackTrace(false)
+public class HttpRequestEvent extends Event {
+    @Label("Context")
+    public String context;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Request Bytes")
+    @DataAmount
+    public long requestBytes;
+
+    @Label("Response Bytes")
+    @DataAmount
+    public long responseBytes;
+
+    @Label("Request ID")
+    public String requestId;
+}
@@ -0,0 +1,41 @@
+package com.delivery.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of RouteService.optimizeRoute ("geocode", "optimize", "save").
+ * Call finish() in a finally block so the phase is committed even when it throws.
+ */
+@Name("com.delivery.OptimizerPhase")
+@Label("Route Optimizer Phase")
+@Category({"Delivery", "Routing"})
+@Description("Phase of a route optimization request")
+@StackTrace(false)
+public class OptimizerPhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+
+    @Label("Stops")
+    public int stops;
+
+    public static OptimizerPhaseEvent start(String phase, int stops) {
+        OptimizerPhaseEvent event = new OptimizerPhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase;
+            event.stops = stops;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish() {
+        if (!isEnabled()) return;
+        end();
+        if (shouldCommit()) commit();
+    }
+}
@@ -0,0 +1,106 @@
+package com.delivery.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-bucketed latency histogram (HDR-style) with microsecond resolution.
+ *
+ * Values below 16us get their own bucket; above that every power of two is split into 8
+ * linear sub-buckets, so any recorded value is off by at most 12.5%. Buckets are a fixed
+ * AtomicLongArray, so record() never allocates or locks.
+ *
+ * A duration is bucketed by the whole microseconds it took beyond the first, so a bucket's
+ * upper bound is inclusive: a call of exactly 128us is counted at or below 128us, the way a
+ * Prometheus "le" bucket expects.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int LINEAR_LIMIT = 16;
+    // Values are clamped to 2^40 us (about 12 days)
+    private static final int MAX_EXPONENT = 39;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - 3) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Record a duration measured with System.nanoTime().
+     * @param nanos Elapsed nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        long micros = nanos / 1000;
+        if (micros < 0) micros = 0;
+        counts.incrementAndGet(bucketIndex(nanos > 0 ? (nanos - 1) / 1000 : 0));
+        sumMicros.add(micros);
+        count.increment();
+    }
+
+    /**
+     * Record the time elapsed since a System.nanoTime() start value.
+     * @param startNanos Value of System.nanoTime() taken before the operation
+     */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumMicros() {
+        return sumMicros.sum();
+    }
+
+    /**
+     * Copy of the bucket counts, read once each. Everything derived from one snapshot (bucket
+     * totals, their sum) is consistent even while other threads keep recording.
+     */
+    long[] snapshot() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Approximate quantile in microseconds (upper bound of the bucket holding it).
+     * @param q Quantile between 0 and 1
+     * @return Value in microseconds, 0 when nothing has been recorded
+     */
+    public long quantileMicros(double q) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long n : snapshot) total += n;
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(q * total);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return bucketUpperBound(i);
+        }
+        return MAX_VALUE;
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < LINEAR_LIMIT) return (int) micros;
+        if (micros > MAX_VALUE) micros = MAX_VALUE;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    // Upper bound of a bucket in microseconds: recorded durations are at most this long
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_LIMIT) return index + 1;
+        int exponent = 4 + (index - LINEAR_LIMIT) / SUB_BUCKETS;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((SUB_BUCKETS + sub) * width) + width;
+    }
+}
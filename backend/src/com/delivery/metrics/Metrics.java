@@ -0,0 +1,340 @@
+package com.delivery.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * In-process metrics registry.
+ *
+ * Instruments are created once at startup (per route context, per DAO method, per pool) and
+ * held in static fields by the code that records into them, so the hot path is a few atomic
+ * increments with no map lookups or allocation. render() produces the Prometheus text
+ * exposition format served at /admin/metrics.
+ */
+public class Metrics {
+
+    // Histogram buckets exported to Prometheus: powers of two from 128us to ~33s.
+    // These line up exactly with LatencyHistogram bucket boundaries.
+    private static final int FIRST_EXPORT_EXPONENT = 7;
+    private static final int LAST_EXPORT_EXPONENT = 25;
+
+    private static final Map<String, RequestStats> httpContexts = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> daoMethods = new ConcurrentHashMap<>();
+    private static final Map<String, ThreadPoolExecutor> pools = new ConcurrentHashMap<>();
+    private static final Map<String, EventSubscriberStats> eventSubscribers = new ConcurrentHashMap<>();
+    private static final Map<String, CacheStats> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Counters for one HttpServer context: latency, per-status counts and in-flight requests.
+     */
+    public static class RequestStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        // Index = HTTP status code; 0 collects requests that never sent a response
+        final AtomicLongArray statusCounts = new AtomicLongArray(600);
+        final LongAdder inFlight = new LongAdder();
+
+        public void begin() {
+            inFlight.increment();
+        }
+
+        public void end(int status, long startNanos) {
+            inFlight.decrement();
+            latency.recordSince(startNanos);
+            statusCounts.incrementAndGet(status >= 100 && status < 600 ? status : 0);
+        }
+    }
+
+    /**
+     * Counters for one EventBus subscriber: handled, dropped (queue full) and failed events,
+     * handler latency and current queue depth.
+     */
+    public static class EventSubscriberStats {
+        public final LatencyHistogram latency = new LatencyHistogram();
+        public final LongAdder delivered = new LongAdder();
+        public final LongAdder dropped = new LongAdder();
+        public final LongAdder failed = new LongAdder();
+        final IntSupplier queueDepth;
+
+        EventSubscriberStats(IntSupplier queueDepth) {
+            this.queueDepth = queueDepth;
+        }
+    }
+
+    /**
+     * Get the stats for an event subscriber, e.g. "push-hub". Call once when subscribing.
+     */
+    public static EventSubscriberStats eventSubscriber(String name, IntSupplier queueDepth) {
+        return eventSubscribers.computeIfAbsent(name, n -> new EventSubscriberStats(queueDepth));
+    }
+
+    /**
+     * Lookup outcomes and current size of an in-memory cache.
+     */
+    public static class CacheStats {
+        public final LongAdder hits = new LongAdder();
+        // Cached "not found" answers
+        public final LongAdder negativeHits = new LongAdder();
+        public final LongAdder misses = new LongAdder();
+        // Misses that waited for another request's load of the same key
+        public final LongAdder coalesced = new LongAdder();
+        // Answered by a Bloom filter without a cache entry or a query
+        public final LongAdder bloomRejected = new LongAdder();
+        final IntSupplier size;
+
+        CacheStats(IntSupplier size) {
+            this.size = size;
+        }
+    }
+
+    /**
+     * Get the stats for a cache, e.g. "tracking". Intended for a static final field in the cache.
+     */
+    public static CacheStats cache(String name, IntSupplier size) {
+        return caches.computeIfAbsent(name, n -> new CacheStats(size));
+    }
+
+    /**
+     * Get (or create) the stats for a route context. Call at registration time, not per request.
+     */
+    public static RequestStats httpContext(String path) {
+        return httpContexts.computeIfAbsent(path, p -> new RequestStats());
+    }
+
+    /**
+     * Get (or create) the latency histogram for a DAO method, e.g. "InventoryDAO.getAllInventory".
+     * Intended for static final fields in the DAO classes.
+     */
+    public static LatencyHistogram dao(String method) {
+        return daoMethods.computeIfAbsent(method, m -> new LatencyHistogram());
+    }
+
+    /**
+     * Expose a thread pool's size, activity and queue depth as gauges.
+     */
+    public static void registerPool(String name, ThreadPoolExecutor pool) {
+        pools.put(name, pool);
+    }
+
+    /**
+     * Render all metrics in Prometheus text format (version 0.0.4).
+     */
+    public static String render() {
+        StringBuilder sb = new StringBuilder(8192);
+        renderHttp(sb);
+        renderDao(sb);
+        renderPools(sb);
+        renderEvents(sb);
+        renderCaches(sb);
+        renderJvm(sb);
+        return sb.toString();
+    }
+
+    private static void renderHttp(StringBuilder sb) {
+        Map<String, RequestStats> sorted = new TreeMap<>(httpContexts);
+
+        header(sb, "delivery_http_requests_total", "counter", "HTTP requests by route context and status code");
+        for (Map.Entry<String, RequestStats> e : sorted.entrySet()) {
+            AtomicLongArray statuses = e.getValue().statusCounts;
+            for (int code = 0; code < statuses.length(); code++) {
+                long n = statuses.get(code);
+                if (n == 0) continue;
+                sb.append("delivery_http_requests_total{context=\"").append(escape(e.getKey()))
+                  .append("\",status=\"").append(code == 0 ? "none" : String.valueOf(code)).append("\"} ")
+                  .append(n).append('\n');
+            }
+        }
+
+        header(sb, "delivery_http_requests_in_flight", "gauge", "HTTP requests currently being handled");
+        for (Map.Entry<String, RequestStats> e : sorted.entrySet()) {
+            sb.append("delivery_http_requests_in_flight{context=\"").append(escape(e.getKey())).append("\"} ")
+              .append(e.getValue().inFlight.sum()).append('\n');
+        }
+
+        header(sb, "delivery_http_request_duration_seconds", "histogram", "HTTP request latency by route context");
+        for (Map.Entry<String, RequestStats> e : sorted.entrySet()) {
+            histogram(sb, "delivery_http_request_duration_seconds", "context", e.getKey(), e.getValue().latency);
+        }
+
+        header(sb, "delivery_http_request_duration_quantile_seconds", "gauge", "Approximate p50/p95/p99 HTTP latency");
+        for (Map.Entry<String, RequestStats> e : sorted.entrySet()) {
+            quantiles(sb, "delivery_http_request_duration_quantile_seconds", "context", e.getKey(), e.getValue().latency);
+        }
+    }
+
+    private static void renderDao(StringBuilder sb) {
+        Map<String, LatencyHistogram> sorted = new TreeMap<>(daoMethods);
+        header(sb, "delivery_dao_call_duration_seconds", "histogram", "DAO method latency");
+        for (Map.Entry<String, LatencyHistogram> e : sorted.entrySet()) {
+            histogram(sb, "delivery_dao_call_duration_seconds", "method", e.getKey(), e.getValue());
+        }
+        header(sb, "delivery_dao_call_duration_quantile_seconds", "gauge", "Approximate p50/p95/p99 DAO latency");
+        for (Map.Entry<String, LatencyHistogram> e : sorted.entrySet()) {
+            quantiles(sb, "delivery_dao_call_duration_quantile_seconds", "method", e.getKey(), e.getValue());
+        }
+    }
+
+    private static void renderPools(StringBuilder sb) {
+        Map<String, ThreadPoolExecutor> sorted = new TreeMap<>(pools);
+        header(sb, "delivery_thread_pool_threads", "gauge", "Current threads in the pool");
+        for (Map.Entry<String, ThreadPoolExecutor> e : sorted.entrySet()) {
+            gauge(sb, "delivery_thread_pool_threads", "pool", e.getKey(), e.getValue().getPoolSize());
+        }
+        header(sb, "delivery_thread_pool_active_threads", "gauge", "Threads currently running tasks");
+        for (Map.Entry<String, ThreadPoolExecutor> e : sorted.entrySet()) {
+            gauge(sb, "delivery_thread_pool_active_threads", "pool", e.getKey(), e.getValue().getActiveCount());
+        }
+        header(sb, "delivery_thread_pool_max_threads", "gauge", "Configured maximum pool size");
+        for (Map.Entry<String, ThreadPoolExecutor> e : sorted.entrySet()) {
+            gauge(sb, "delivery_thread_pool_max_threads", "pool", e.getKey(), e.getValue().getMaximumPoolSize());
+        }
+        header(sb, "delivery_thread_pool_queue_size", "gauge", "Tasks waiting for a thread");
+        for (Map.Entry<String, ThreadPoolExecutor> e : sorted.entrySet()) {
+            gauge(sb, "delivery_thread_pool_queue_size", "pool", e.getKey(), e.getValue().getQueue().size());
+        }
+        header(sb, "delivery_thread_pool_completed_tasks_total", "counter", "Tasks completed by the pool");
+        for (Map.Entry<String, ThreadPoolExecutor> e : sorted.entrySet()) {
+            gauge(sb, "delivery_thread_pool_completed_tasks_total", "pool", e.getKey(), e.getValue().getCompletedTaskCount());
+        }
+    }
+
+    private static void renderEvents(StringBuilder sb) {
+        Map<String, EventSubscriberStats> sorted = new TreeMap<>(eventSubscribers);
+        header(sb, "delivery_event_queue_size", "gauge", "Events waiting for an event bus subscriber");
+        for (Map.Entry<String, EventSubscriberStats> e : sorted.entrySet()) {
+            gauge(sb, "delivery_event_queue_size", "subscriber", e.getKey(), e.getValue().queueDepth.getAsInt());
+        }
+        header(sb, "delivery_events_delivered_total", "counter", "Events handled by the subscriber");
+        for (Map.Entry<String, EventSubscriberStats> e : sorted.entrySet()) {
+            gauge(sb, "delivery_events_delivered_total", "subscriber", e.getKey(), e.getValue().delivered.sum());
+        }
+        header(sb, "delivery_events_dropped_total", "counter", "Events dropped because the subscriber's queue was full");
+        for (Map.Entry<String, EventSubscriberStats> e : sorted.entrySet()) {
+            gauge(sb, "delivery_events_dropped_total", "subscriber", e.getKey(), e.getValue().dropped.sum());
+        }
+        header(sb, "delivery_events_failed_total", "counter", "Events whose handler threw");
+        for (Map.Entry<String, EventSubscriberStats> e : sorted.entrySet()) {
+            gauge(sb, "delivery_events_failed_total", "subscriber", e.getKey(), e.getValue().failed.sum());
+        }
+        header(sb, "delivery_event_handler_duration_seconds", "histogram", "Event handler latency by subscriber");
+        for (Map.Entry<String, EventSubscriberStats> e : sorted.entrySet()) {
+            histogram(sb, "delivery_event_handler_duration_seconds", "subscriber", e.getKey(), e.getValue().latency);
+        }
+    }
+
+    private static void renderCaches(StringBuilder sb) {
+        Map<String, CacheStats> sorted = new TreeMap<>(caches);
+        header(sb, "delivery_cache_lookups_total", "counter", "Cache lookups by outcome");
+        for (Map.Entry<String, CacheStats> e : sorted.entrySet()) {
+            String l = escape(e.getKey());
+            CacheStats c = e.getValue();
+            cacheLookups(sb, l, "hit", c.hits.sum());
+            cacheLookups(sb, l, "negative_hit", c.negativeHits.sum());
+            cacheLookups(sb, l, "miss", c.misses.sum());
+            cacheLookups(sb, l, "coalesced", c.coalesced.sum());
+            cacheLookups(sb, l, "bloom_rejected", c.bloomRejected.sum());
+        }
+        header(sb, "delivery_cache_entries", "gauge", "Entries currently cached");
+        for (Map.Entry<String, CacheStats> e : sorted.entrySet()) {
+            gauge(sb, "delivery_cache_entries", "cache", e.getKey(), e.getValue().size.getAsInt());
+        }
+    }
+
+    private static void cacheLookups(StringBuilder sb, String cache, String outcome, long n) {
+        sb.append("delivery_cache_lookups_total{cache=\"").append(cache).append("\",outcome=\"").append(outcome)
+          .append("\"} ").append(n).append('\n');
+    }
+
+    private static void renderJvm(StringBuilder sb) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        header(sb, "jvm_memory_bytes_used", "gauge", "Used bytes of a memory area");
+        gauge(sb, "jvm_memory_bytes_used", "area", "heap", heap.getUsed());
+        gauge(sb, "jvm_memory_bytes_used", "area", "nonheap", nonHeap.getUsed());
+        header(sb, "jvm_memory_bytes_committed", "gauge", "Committed bytes of a memory area");
+        gauge(sb, "jvm_memory_bytes_committed", "area", "heap", heap.getCommitted());
+        gauge(sb, "jvm_memory_bytes_committed", "area", "nonheap", nonHeap.getCommitted());
+        header(sb, "jvm_memory_bytes_max", "gauge", "Max bytes of a memory area (-1 if undefined)");
+        gauge(sb, "jvm_memory_bytes_max", "area", "heap", heap.getMax());
+        gauge(sb, "jvm_memory_bytes_max", "area", "nonheap", nonHeap.getMax());
+
+        header(sb, "jvm_gc_collection_seconds", "summary", "Time spent in a given JVM garbage collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String name = escape(gc.getName());
+            sb.append("jvm_gc_collection_seconds_count{gc=\"").append(name).append("\"} ")
+              .append(gc.getCollectionCount()).append('\n');
+            sb.append("jvm_gc_collection_seconds_sum{gc=\"").append(name).append("\"} ")
+              .append(gc.getCollectionTime() / 1000.0).append('\n');
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        header(sb, "jvm_threads_current", "gauge", "Current thread count");
+        sb.append("jvm_threads_current ").append(threads.getThreadCount()).append('\n');
+        header(sb, "jvm_threads_daemon", "gauge", "Daemon thread count");
+        sb.append("jvm_threads_daemon ").append(threads.getDaemonThreadCount()).append('\n');
+        header(sb, "jvm_threads_peak", "gauge", "Peak thread count");
+        sb.append("jvm_threads_peak ").append(threads.getPeakThreadCount()).append('\n');
+
+        header(sb, "process_uptime_seconds", "gauge", "JVM uptime");
+        sb.append("process_uptime_seconds ").append(ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0).append('\n');
+        header(sb, "process_available_processors", "gauge", "Processors available to the JVM");
+        sb.append("process_available_processors ").append(Runtime.getRuntime().availableProcessors()).append('\n');
+    }
+
+    private static void histogram(StringBuilder sb, String name, String label, String value, LatencyHistogram h) {
+        String l = escape(value);
+        // Buckets, +Inf and _count all come from one read of the counts, so a scrape is always
+        // cumulative and never shows a bucket above the total
+        long[] counts = h.snapshot();
+        long cumulative = 0;
+        int i = 0;
+        for (int e = FIRST_EXPORT_EXPONENT; e <= LAST_EXPORT_EXPONENT; e++) {
+            long bound = 1L << e;
+            for (; i < counts.length && LatencyHistogram.bucketUpperBound(i) <= bound; i++) {
+                cumulative += counts[i];
+            }
+            sb.append(name).append("_bucket{").append(label).append("=\"").append(l).append("\",le=\"")
+              .append(bound / 1_000_000.0).append("\"} ").append(cumulative).append('\n');
+        }
+        for (; i < counts.length; i++) {
+            cumulative += counts[i];
+        }
+        sb.append(name).append("_bucket{").append(label).append("=\"").append(l).append("\",le=\"+Inf\"} ")
+          .append(cumulative).append('\n');
+        sb.append(name).append("_sum{").append(label).append("=\"").append(l).append("\"} ")
+          .append(h.getSumMicros() / 1_000_000.0).append('\n');
+        sb.append(name).append("_count{").append(label).append("=\"").append(l).append("\"} ")
+          .append(cumulative).append('\n');
+    }
+
+    private static void quantiles(StringBuilder sb, String name, String label, String value, LatencyHistogram h) {
+        String l = escape(value);
+        for (double q : new double[] {0.5, 0.95, 0.99}) {
+            sb.append(name).append('{').append(label).append("=\"").append(l).append("\",quantile=\"").append(q)
+              .append("\"} ").append(h.quantileMicros(q) / 1_000_000.0).append('\n');
+        }
+    }
+
+    private static void gauge(StringBuilder sb, String name, String label, String value, long v) {
+        sb.append(name).append('{').append(label).append("=\"").append(escape(value)).append("\"} ").append(v).append('\n');
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    // Label values escape backslash, quote and newline
+    private static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
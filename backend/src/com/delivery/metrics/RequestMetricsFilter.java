@@ -0,0 +1,114 @@
+package com.delivery.metrics;
+
+import com.delivery.jfr.HttpRequestEvent;
+import com.delivery.tracing.Tracer;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * HttpServer filter that records latency, status code and in-flight count for one route context.
+ * Attached to every context in Main; the stats object is resolved once when the filter is created.
+ * When a flight recording has HttpRequestEvent enabled the request/response bodies are also
+ * counted and each request is committed as an event.
+ */
+public class RequestMetricsFilter extends Filter {
+    private final String context;
+    private final Metrics.RequestStats stats;
+
+    public RequestMetricsFilter(String context) {
+        this.context = context;
+        this.stats = Metrics.httpContext(context);
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        long start = System.nanoTime();
+        stats.begin();
+
+        HttpRequestEvent event = new HttpRequestEvent();
+        CountingInputStream in = null;
+        CountingOutputStream out = null;
+        if (event.isEnabled()) {
+            // Only wrap the streams while recording; otherwise the handler gets them untouched
+            in = new CountingInputStream(exchange.getRequestBody());
+            out = new CountingOutputStream(exchange.getResponseBody());
+            exchange.setStreams(in, out);
+            event.begin();
+        }
+
+        boolean failed = true;
+        try {
+            chain.doFilter(exchange);
+            failed = false;
+        } finally {
+            int status = exchange.getResponseCode();
+            // A handler that threw before responding is reported as a 500
+            if (failed && status < 0) status = 500;
+            stats.end(status, start);
+
+            if (in != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.context = context;
+                    event.method = exchange.getRequestMethod();
+                    event.path = exchange.getRequestURI().getPath();
+                    event.status = status;
+                    event.requestBytes = in.count;
+                    event.responseBytes = out.count;
+                    event.requestId = Tracer.currentRequestId();
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Request metrics for " + context;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) { super(in); }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) { super(out); }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        // FilterOutputStream would otherwise split arrays into single-byte writes
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.delivery.models;
+
+/**
+ * FacilityInventory - Inventory totals for one facility, as shown in the manager inventory report
+ * Counts cover open inventory records (no departure_time): parcels on the shelf (in_stock) and
+ * parcels out with a driver but still assigned to the facility (checked_out).
+ */
+public class FacilityInventory {
+    private final long facilityId;
+    private final String facilityName;
+    private final String address;
+    private final String city;
+    private final String state;
+    private final int capacity;
+    private final long inStockCount;
+    private final long checkedOutCount;
+
+    public FacilityInventory(long facilityId, String facilityName, String address, String city, String state,
+                             int capacity, long inStockCount, long checkedOutCount) {
+        this.facilityId = facilityId;
+        this.facilityName = facilityName;
+        this.address = address;
+        this.city = city;
+        this.state = state;
+        this.capacity = capacity;
+        this.inStockCount = inStockCount;
+        this.checkedOutCount = checkedOutCount;
+    }
+
+    /**
+     * Same facility with different counts
+     */
+    public FacilityInventory withCounts(long inStock, long checkedOut) {
+        return new FacilityInventory(facilityId, facilityName, address, city, state, capacity, inStock, checkedOut);
+    }
+
+    public long getFacilityId() { return facilityId; }
+    public String getFacilityName() { return facilityName; }
+    public String getAddress() { return address; }
+    public String getCity() { return city; }
+    public String getState() { return state; }
+    public int getCapacity() { return capacity; }
+    public long getInStockCount() { return inStockCount; }
+    public long getCheckedOutCount() { return checkedOutCount; }
+
+    public long getPackageCount() { return inStockCount + checkedOutCount; }
+
+    public double getUtilizationPercent() {
+        return capacity > 0 ? getPackageCount() * 100.0 / capacity : 0;
+    }
+}
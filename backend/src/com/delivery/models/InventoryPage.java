@@ -0,0 +1,66 @@
+package com.delivery.models;
+
+import com.delivery.util.Result;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * InventoryPage - One keyset page of the all-facility inventory listing
+ * The listing is ordered by (facility_id, arrival_time DESC, inventory_id DESC); nextCursor
+ * encodes the last row's key and is null on the final page.
+ */
+public class InventoryPage {
+    private final List<InventoryItem> items;
+    private final String nextCursor;
+
+    public InventoryPage(List<InventoryItem> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<InventoryItem> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+
+    /**
+     * Position in the listing: the key of the last row a client has seen.
+     * Sent to clients as an opaque URL-safe token.
+     */
+    public static class Cursor {
+        public final long facilityId;
+        public final Timestamp arrivalTime;
+        public final long inventoryId;
+
+        public Cursor(long facilityId, Timestamp arrivalTime, long inventoryId) {
+            this.facilityId = facilityId;
+            this.arrivalTime = arrivalTime;
+            this.inventoryId = inventoryId;
+        }
+
+        public static Cursor after(InventoryItem item) {
+            return new Cursor(item.getFacilityId(), item.getArrivalTime(), item.getInventoryId());
+        }
+
+        public String encode() {
+            String raw = "v1:" + facilityId + ":" + arrivalTime.getTime() + ":" + inventoryId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Result<Cursor, String> decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+                String[] parts = raw.split(":");
+                if (parts.length != 4 || !parts[0].equals("v1")) {
+                    return Result.err("Invalid cursor");
+                }
+                return Result.ok(new Cursor(Long.parseLong(parts[1]), new Timestamp(Long.parseLong(parts[2])),
+                                            Long.parseLong(parts[3])));
+            } catch (IllegalArgumentException e) {
+                // Covers bad base64 and NumberFormatException
+                return Result.err("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.delivery.push;
+
+import com.delivery.events.EventBus;
+import com.delivery.events.PackageStatusChanged;
+import com.delivery.events.RouteAssigned;
+import com.delivery.events.TransferCompleted;
+import com.delivery.events.TransferInitiated;
+import com.delivery.util.EnvLoader;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events fan-out for the tracking, driver and management pages.
+ *
+ * Events come from the EventBus (see start()) and go out to the subscribers of their topics.
+ * Subscribers register for topics (a package, a driver, a facility) and hold their response
+ * open; the handler thread returns as soon as the stream is set up, so an idle subscriber
+ * costs a socket and a small queue, not a thread. Published events are queued per subscriber
+ * and written by a small writer pool; a subscriber that falls PUSH_QUEUE_LIMIT events behind
+ * is disconnected (the browser reconnects and re-reads the page's data). A comment line is
+ * sent every PUSH_HEARTBEAT_SECONDS to keep proxies from timing the stream out and to find
+ * dead connections. Public (signed-out tracking) streams have their own, smaller cap so they can
+ * never take the slots the driver and management pages need.
+ */
+public class PushHub {
+    private static final int MAX_SUBSCRIBERS = EnvLoader.getInt("PUSH_MAX_SUBSCRIBERS", 20000);
+    private static final int MAX_PUBLIC_SUBSCRIBERS =
+        Math.min(MAX_SUBSCRIBERS, EnvLoader.getInt("PUSH_MAX_PUBLIC_SUBSCRIBERS", 15000));
+    // Queued messages are shared between subscribers, so a deep queue costs references, not copies;
+    // it has to absorb a bulk route assignment's per-package events
+    private static final int QUEUE_LIMIT = EnvLoader.getInt("PUSH_QUEUE_LIMIT", 1024);
+    private static final int HEARTBEAT_SECONDS = EnvLoader.getInt("PUSH_HEARTBEAT_SECONDS", 25);
+    private static final int WRITER_THREADS = EnvLoader.getInt("PUSH_WRITER_THREADS", 4);
+    // A write blocked this long (client stopped reading) gets the stream closed
+    private static final long WRITE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Topic -> subscribers
+    private static final Map<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+    private static final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger subscriberCount = new AtomicInteger();
+    private static final AtomicInteger publicSubscriberCount = new AtomicInteger();
+    private static final AtomicLong eventIds = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private static final ExecutorService writers = Executors.newFixedThreadPool(Math.max(1, WRITER_THREADS), r -> {
+        Thread t = new Thread(r, "push-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private static ScheduledExecutorService heartbeat;
+    private static boolean started = false;
+
+    public static String packageTopic(long packageId) { return "package:" + packageId; }
+    public static String driverTopic(long driverId) { return "driver:" + driverId; }
+    public static String facilityTopic(long facilityId) { return "facility:" + facilityId; }
+
+    /**
+     * One open event stream
+     */
+    static final class Subscriber {
+        private final HttpExchange exchange;
+        private final OutputStream out;
+        private final List<String> topics;
+        private final boolean publicStream;
+        private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+        private boolean draining = false;
+        private boolean closed = false;
+        // System.nanoTime() when the current write began, 0 when not writing
+        private volatile long writeStartedAt = 0;
+
+        Subscriber(HttpExchange exchange, List<String> topics, boolean publicStream) {
+            this.exchange = exchange;
+            this.out = exchange.getResponseBody();
+            this.topics = topics;
+            this.publicStream = publicStream;
+        }
+
+        void offer(byte[] message) {
+            boolean overflow = false;
+            boolean schedule = false;
+            synchronized (this) {
+                if (closed) return;
+                if (queue.size() >= QUEUE_LIMIT) {
+                    overflow = true;
+                } else {
+                    queue.add(message);
+                    if (!draining) {
+                        draining = true;
+                        schedule = true;
+                    }
+                }
+            }
+            if (overflow) {
+                // Too slow to keep up; drop it rather than buffer without bound
+                dropped.incrementAndGet();
+                close();
+            } else if (schedule) {
+                writers.execute(this::drain);
+            }
+        }
+
+        // Runs on a writer thread; writes until the queue is empty, flushing once per run
+        private void drain() {
+            try {
+                while (true) {
+                    byte[] message;
+                    synchronized (this) {
+                        message = queue.poll();
+                    }
+                    writeStartedAt = System.nanoTime();
+                    if (message != null) {
+                        out.write(message);
+                        continue;
+                    }
+                    out.flush();
+                    writeStartedAt = 0;
+                    synchronized (this) {
+                        if (queue.isEmpty()) {
+                            draining = false;
+                            return;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away
+                writeStartedAt = 0;
+                synchronized (this) {
+                    draining = false;
+                }
+                close();
+            }
+        }
+
+        boolean isStuck(long now) {
+            long started = writeStartedAt;
+            return started != 0 && now - started > WRITE_TIMEOUT_NANOS;
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                queue.clear();
+            }
+            unregister(this);
+            exchange.close();
+        }
+    }
+
+    /**
+     * Claim a subscriber slot before taking over an exchange.
+     * @param publicStream true for a stream opened without a session
+     * @return false if PUSH_MAX_SUBSCRIBERS streams are open, or PUSH_MAX_PUBLIC_SUBSCRIBERS
+     *         public ones for a public stream (the caller should answer 503)
+     */
+    public static boolean reserve(boolean publicStream) {
+        if (publicStream && publicSubscriberCount.incrementAndGet() > MAX_PUBLIC_SUBSCRIBERS) {
+            publicSubscriberCount.decrementAndGet();
+            return false;
+        }
+        if (subscriberCount.incrementAndGet() > MAX_SUBSCRIBERS) {
+            subscriberCount.decrementAndGet();
+            if (publicStream) publicSubscriberCount.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Give back a slot from reserve() that did not end in subscribe().
+     */
+    public static void release(boolean publicStream) {
+        subscriberCount.decrementAndGet();
+        if (publicStream) publicSubscriberCount.decrementAndGet();
+    }
+
+    /**
+     * Take over an exchange whose event-stream headers have been sent, using a slot from
+     * reserve(), and deliver events published to the given topics until the client disconnects.
+     * The handler returns right after; the exchange is closed here.
+     */
+    public static void subscribe(HttpExchange exchange, List<String> topicList, boolean publicStream) {
+        Subscriber s = new Subscriber(exchange, topicList, publicStream);
+        subscribers.add(s);
+        for (String topic : topicList) {
+            // compute() so a topic being emptied by a concurrent unregister is not lost
+            topics.compute(topic, (t, subs) -> {
+                if (subs == null) subs = ConcurrentHashMap.newKeySet();
+                subs.add(s);
+                return subs;
+            });
+        }
+        // Reconnect delay for the browser, then a comment so the client sees the stream open
+        s.offer("retry: 5000\n: connected\n\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Send an event to everyone subscribed to any of the topics (each subscriber gets it once).
+     */
+    public static void publish(String eventName, String dataJson, Collection<String> topicList) {
+        Set<Subscriber> targets = null;
+        for (String topic : topicList) {
+            Set<Subscriber> subs = topics.get(topic);
+            if (subs == null || subs.isEmpty()) continue;
+            if (targets == null) targets = new HashSet<>();
+            targets.addAll(subs);
+        }
+        // Nobody listening: nothing is serialized
+        if (targets == null) return;
+
+        byte[] message = ("id: " + eventIds.incrementAndGet() + "\nevent: " + eventName + "\ndata: " + dataJson + "\n\n")
+            .getBytes(StandardCharsets.UTF_8);
+        for (Subscriber s : targets) s.offer(message);
+    }
+
+    private static void onPackageStatusChanged(PackageStatusChanged e) {
+        List<String> targets = new ArrayList<>(3);
+        targets.add(packageTopic(e.packageId));
+        if (e.facilityId != null) targets.add(facilityTopic(e.facilityId));
+        if (e.driverId != null) targets.add(driverTopic(e.driverId));
+        publish("package_status", "{\"packageId\":" + e.packageId
+            + ",\"trackingNumber\":" + jsonString(e.trackingNumber)
+            + ",\"status\":" + jsonString(e.status)
+            + ",\"facilityId\":" + e.facilityId + "}", targets);
+    }
+
+    // The driver page re-reads its route (with ?since= for a delta); assignment also moved inventory
+    private static void onRouteAssigned(RouteAssigned e) {
+        publish("route_changed", "{\"driverId\":" + e.driverId + ",\"routeId\":" + e.routeId
+            + ",\"reason\":" + jsonString(e.reason) + "}", List.of(driverTopic(e.driverId)));
+        if (!e.packageIds.isEmpty()) {
+            inventoryChanged(e.facilityId);
+        }
+    }
+
+    private static void onTransferInitiated(TransferInitiated e) {
+        transferChanged(e.transferId, e.packageId, e.trackingNumber, e.fromFacilityId, e.toFacilityId, "pending");
+    }
+
+    private static void onTransferCompleted(TransferCompleted e) {
+        transferChanged(e.transferId, e.packageId, e.trackingNumber, e.fromFacilityId, e.toFacilityId, "completed");
+        inventoryChanged(e.fromFacilityId);
+        inventoryChanged(e.toFacilityId);
+    }
+
+    private static void transferChanged(long transferId, long packageId, String trackingNumber,
+                                        long fromFacilityId, long toFacilityId, String transferStatus) {
+        publish("transfer", "{\"transferId\":" + transferId + ",\"packageId\":" + packageId
+            + ",\"trackingNumber\":" + jsonString(trackingNumber)
+            + ",\"fromFacilityId\":" + fromFacilityId + ",\"toFacilityId\":" + toFacilityId
+            + ",\"status\":" + jsonString(transferStatus) + "}",
+            List.of(packageTopic(packageId), facilityTopic(fromFacilityId), facilityTopic(toFacilityId)));
+    }
+
+    // Facility inventory totals changed; the management page re-reads its report
+    private static void inventoryChanged(long facilityId) {
+        publish("inventory_changed", "{\"facilityId\":" + facilityId + "}", List.of(facilityTopic(facilityId)));
+    }
+
+    public static int getSubscriberCount() { return subscribers.size(); }
+    public static long getDroppedCount() { return dropped.get(); }
+
+    /**
+     * Subscribe to domain events and start the heartbeat task.
+     */
+    public static synchronized void start() {
+        if (started) return;
+        started = true;
+
+        // Serialization and fan-out run on the bus's thread, not in the request that made the change
+        EventBus.subscriber("push-hub")
+            .on(PackageStatusChanged.class, PushHub::onPackageStatusChanged)
+            .on(RouteAssigned.class, PushHub::onRouteAssigned)
+            .on(TransferInitiated.class, PushHub::onTransferInitiated)
+            .on(TransferCompleted.class, PushHub::onTransferCompleted)
+            .start();
+
+        if (HEARTBEAT_SECONDS <= 0) return;
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "push-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleWithFixedDelay(() -> {
+            long now = System.nanoTime();
+            for (Subscriber s : subscribers) {
+                if (s.isStuck(now)) {
+                    // Closing can block on the same socket, so not on this thread
+                    Thread closer = new Thread(s::close, "push-close");
+                    closer.setDaemon(true);
+                    closer.start();
+                } else {
+                    s.offer(HEARTBEAT);
+                }
+            }
+        }, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void unregister(Subscriber s) {
+        if (!subscribers.remove(s)) return;
+        release(s.publicStream);
+        for (String topic : s.topics) {
+            topics.computeIfPresent(topic, (t, subs) -> {
+                subs.remove(s);
+                return subs.isEmpty() ? null : subs;
+            });
+        }
+    }
+
+    private static String jsonString(String value) {
+        if (value == null) return "null";
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"")
+            .replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t") + "\"";
+    }
+}
@@ -1,23 +1,25 @@
 package com.delivery.security;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.Instant;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import com.delivery.util.EnvLoader;
+import com.delivery.util.PasswordUtil;
+import com.delivery.tracing.Tracer;
 
 public class SecurityManager {
     // T: success value type
@@ -78,6 +80,13 @@ public class SecurityManager {
                 return Result.err("Username, action, and result are required");
             }
 
+            // Request ID ties the entry to its trace and X-Request-Id; audit_log has no column for it,
+            // so it is carried as a prefix of details
+            String requestId = Tracer.currentRequestId();
+            if (requestId != null) {
+                details = "[req=" + requestId + "]" + (details == null || details.isEmpty() ? "" : " " + details);
+            }
+
             String entry = String.format("[%s] user=%s id=%s action=%s result=%s ip=%s details=%s",
                     Instant.now().toString(), username, userId == null ? "-" : userId.toString(),
                     action, result, ipAddress == null ? "-" : ipAddress, details == null ? "" : details);
@@ -196,32 +205,130 @@ public class SecurityManager {
 
     // Input sanitization and basic format validators (email, phone, username).
     // Removes dangerous characters and simple HTML tags.
+    // Everything is a single scan over the input using lookup tables; the output is
+    // identical to the old replaceAll("[\\'\"\\\\;]") -> replaceAll("<.*?>") ->
+    // replaceAll("[;&|`$()]") -> trim() chain without compiling a regex per call.
     public static class InputSanitizer {
+        // Characters stripped anywhere in the input: ' " \ ; & | ` $ ( )
+        private static final boolean[] STRIP = new boolean[128];
+        // [A-Za-z0-9+_.-] local part, [A-Za-z0-9.-] domain part, [a-zA-Z0-9_] usernames
+        private static final boolean[] EMAIL_LOCAL = new boolean[128];
+        private static final boolean[] EMAIL_DOMAIN = new boolean[128];
+        private static final boolean[] USERNAME = new boolean[128];
+        static {
+            for (char c : "'\"\\;&|`$()".toCharArray()) STRIP[c] = true;
+            for (char c = 'a'; c <= 'z'; c++) { EMAIL_LOCAL[c] = EMAIL_DOMAIN[c] = USERNAME[c] = true; }
+            for (char c = 'A'; c <= 'Z'; c++) { EMAIL_LOCAL[c] = EMAIL_DOMAIN[c] = USERNAME[c] = true; }
+            for (char c = '0'; c <= '9'; c++) { EMAIL_LOCAL[c] = EMAIL_DOMAIN[c] = USERNAME[c] = true; }
+            for (char c : "+_.-".toCharArray()) EMAIL_LOCAL[c] = true;
+            for (char c : ".-".toCharArray()) EMAIL_DOMAIN[c] = true;
+            USERNAME['_'] = true;
+        }
+
         public static Result<String, String> sanitizeString(String input) {
             if (input == null) return Result.err("Input cannot be null");
-            String s = input.replaceAll("[\\'\"\\\\;]", "");
-            s = s.replaceAll("<.*?>", "");
-            s = s.replaceAll("[;&|`$()]", "");
-            return Result.ok(s.trim());
+            int n = input.length();
+            char[] out = new char[n];
+            int len = 0;
+            // Index of the next line terminator known to have no '>' before it, so a run
+            // of unclosed '<' on one line is only scanned once.
+            int noCloseBefore = -1;
+            for (int i = 0; i < n; i++) {
+                char c = input.charAt(i);
+                if (c < 128 && STRIP[c]) continue;
+                if (c == '<' && i >= noCloseBefore) {
+                    // Non-greedy "<.*?>": '.' stops at line terminators
+                    int j = i + 1;
+                    while (j < n && input.charAt(j) != '>' && !isLineTerminator(input.charAt(j))) j++;
+                    if (j < n && input.charAt(j) == '>') { i = j; continue; }
+                    noCloseBefore = j;
+                }
+                out[len++] = c;
+            }
+            int start = 0;
+            while (start < len && out[start] <= ' ') start++;
+            while (len > start && out[len - 1] <= ' ') len--;
+            return Result.ok(new String(out, start, len - start));
         }
 
         public static Result<Boolean, String> validateEmail(String email) {
             if (email == null || email.trim().isEmpty()) return Result.err("Email cannot be empty");
-            if (!email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$")) return Result.err("Invalid email format");
+            if (!isEmail(email)) return Result.err("Invalid email format");
             return Result.ok(true);
         }
 
         public static Result<Boolean, String> validatePhone(String phone) {
             if (phone == null || phone.trim().isEmpty()) return Result.err("Phone cannot be empty");
-            if (!phone.matches("^[+]?[(]?[0-9]{3}[)]?[-\\s.]?[0-9]{3}[-\\s.]?[0-9]{4,6}$")) return Result.err("Invalid phone format");
+            if (!isPhone(phone)) return Result.err("Invalid phone format");
             return Result.ok(true);
         }
 
         public static Result<Boolean, String> validateUsername(String username) {
             if (username == null || username.trim().isEmpty()) return Result.err("Username cannot be empty");
-            if (!username.matches("^[a-zA-Z0-9_]{3,20}$")) return Result.err("Username must be 3-20 alphanumeric/_");
+            if (!isUsername(username)) return Result.err("Username must be 3-20 alphanumeric/_");
             return Result.ok(true);
         }
+
+        // ^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\.[A-Za-z]{2,}$
+        private static boolean isEmail(String s) {
+            int at = s.indexOf('@');
+            if (at < 1) return false;
+            for (int i = 0; i < at; i++) if (!inTable(EMAIL_LOCAL, s.charAt(i))) return false;
+            // The TLD can only follow the last '.', and must be 2+ letters with a non-empty host before it
+            int dot = s.lastIndexOf('.');
+            if (dot < at + 2 || s.length() - dot - 1 < 2) return false;
+            for (int i = at + 1; i < dot; i++) if (!inTable(EMAIL_DOMAIN, s.charAt(i))) return false;
+            for (int i = dot + 1; i < s.length(); i++) if (!isAsciiLetter(s.charAt(i))) return false;
+            return true;
+        }
+
+        // ^[+]?[(]?[0-9]{3}[)]?[-\s.]?[0-9]{3}[-\s.]?[0-9]{4,6}$
+        // None of the optional tokens can match a digit, so taking each one greedily is exact.
+        private static boolean isPhone(String s) {
+            int n = s.length(), i = 0;
+            if (i < n && s.charAt(i) == '+') i++;
+            if (i < n && s.charAt(i) == '(') i++;
+            if (!digits(s, i, 3)) return false;
+            i += 3;
+            if (i < n && s.charAt(i) == ')') i++;
+            if (i < n && isPhoneSeparator(s.charAt(i))) i++;
+            if (!digits(s, i, 3)) return false;
+            i += 3;
+            if (i < n && isPhoneSeparator(s.charAt(i))) i++;
+            int rest = n - i;
+            return rest >= 4 && rest <= 6 && digits(s, i, rest);
+        }
+
+        // ^[a-zA-Z0-9_]{3,20}$
+        private static boolean isUsername(String s) {
+            int n = s.length();
+            if (n < 3 || n > 20) return false;
+            for (int i = 0; i < n; i++) if (!inTable(USERNAME, s.charAt(i))) return false;
+            return true;
+        }
+
+        private static boolean digits(String s, int from, int count) {
+            if (from + count > s.length()) return false;
+            for (int i = from; i < from + count; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') return false;
+            }
+            return true;
+        }
+
+        // [-\s.] where \s is [ \t\n\x0B\f\r]
+        private static boolean isPhoneSeparator(char c) {
+            return c == '-' || c == '.' || c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+        }
+
+        private static boolean inTable(boolean[] table, char c) { return c < 128 && table[c]; }
+
+        private static boolean isAsciiLetter(char c) { return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'); }
+
+        // Characters that regex '.' does not match outside DOTALL mode
+        static boolean isLineTerminator(char c) {
+            return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
     }
 
     // Higher level validation routines that use the sanitizer and password rules
@@ -272,42 +379,49 @@ public class SecurityManager {
         }
     }
 
-    // Password utilities: salt generation, SHA-256 hashing, and strength checks.
+    // Password utilities: salt generation, hashing, and strength checks.
+    // Hashing and verification delegate to PasswordUtil so there is a single implementation.
     public static class PasswordManager {
-        private static final SecureRandom random = new SecureRandom();
-        private static final int SALT_LEN = 16;
+        private static final String SPECIAL_CHARS = "!@#$%^&*()_+-=[]{};':\"|,.<>/?";
 
     // Generate a base64-encoded random salt.
     public static String generateSalt() {
-            byte[] b = new byte[SALT_LEN]; random.nextBytes(b); return Base64.getEncoder().encodeToString(b);
+            return PasswordUtil.generateSalt();
         }
 
-    // Hash a password with the provided salt using SHA-256.
+    // Hash a password with the provided salt (PBKDF2, see PasswordUtil).
     public static Result<String, String> hashPassword(String password, String salt) {
             if (password == null || salt == null) return Result.err("Password and salt required");
-            try {
-                MessageDigest md = MessageDigest.getInstance("SHA-256");
-                md.update(salt.getBytes());
-                byte[] hashed = md.digest(password.getBytes());
-                StringBuilder sb = new StringBuilder(); for (byte bb : hashed) sb.append(String.format("%02x", bb));
-                return Result.ok(sb.toString());
-            } catch (NoSuchAlgorithmException e) { return Result.err("SHA-256 not available"); }
+            com.delivery.util.Result<String, String> r = PasswordUtil.hashPassword(password, salt);
+            return r.isOk() ? Result.ok(r.unwrap()) : Result.err(r.unwrapErr());
         }
 
-    // Verify a password by hashing and comparing to the expected hash.
+    // Verify a password against a stored hash (PBKDF2 or legacy SHA-256).
     public static Result<Boolean, String> verifyPassword(String password, String salt, String expectedHash) {
-            Result<String, String> r = hashPassword(password, salt); if (r.isErr()) return Result.err(r.unwrapErr());
-            return Result.ok(r.unwrap().equalsIgnoreCase(expectedHash));
+            com.delivery.util.Result<Boolean, String> r = PasswordUtil.verifyPassword(password, salt, expectedHash);
+            return r.isOk() ? Result.ok(r.unwrap()) : Result.err(r.unwrapErr());
         }
 
     // Check password strength against simple policy rules.
     public static Result<Boolean, String> validatePasswordStrength(String password) {
             if (password == null) return Result.err("Password cannot be null");
             if (password.length() < 8) return Result.err("Password must be at least 8 chars");
-            if (!password.matches(".*[A-Z].*")) return Result.err("Must contain uppercase");
-            if (!password.matches(".*[a-z].*")) return Result.err("Must contain lowercase");
-            if (!password.matches(".*\\d.*")) return Result.err("Must contain digit");
-            if (!password.matches(".*[!@#$%^&*()_+\\-=[\\]{};':\"\\|,.<>/?].*")) return Result.err("Must contain special char");
+            // One pass collects every character class; the checks are then reported in the
+            // same order as before. A line terminator made every ".*X.*" match fail, so the
+            // first rule is reported for it just as the regex version did.
+            boolean upper = false, lower = false, digit = false, special = false;
+            for (int i = 0; i < password.length(); i++) {
+                char c = password.charAt(i);
+                if (InputSanitizer.isLineTerminator(c)) return Result.err("Must contain uppercase");
+                if (c >= 'A' && c <= 'Z') upper = true;
+                else if (c >= 'a' && c <= 'z') lower = true;
+                else if (c >= '0' && c <= '9') digit = true;
+                else if (SPECIAL_CHARS.indexOf(c) >= 0) special = true;
+            }
+            if (!upper) return Result.err("Must contain uppercase");
+            if (!lower) return Result.err("Must contain lowercase");
+            if (!digit) return Result.err("Must contain digit");
+            if (!special) return Result.err("Must contain special char");
             return Result.ok(true);
         }
     }
@@ -338,85 +452,247 @@ public class SecurityManager {
         }
     }
 
-    // Server-side reCAPTCHA verifier. Sends a POST to Google's verify endpoint
+    // reCAPTCHA verification against Google's siteverify API.
+    // One shared HttpClient (HTTP/2, keep-alive) with strict timeouts, plus a circuit breaker so a
+    // slow or failing upstream can't pin login threads. RECAPTCHA_FAIL_OPEN decides whether logins
+    // are let through (true) or rejected (false, default) while the upstream is unavailable.
     public static class RecaptchaVerifier {
-        private static final String VERIFY_URL = "https://www.google.com/recaptcha/api/siteverify";
-
-    // Verify the provided reCAPTCHA token with Google's API.
+        private static final String DEFAULT_VERIFY_URL = "https://www.google.com/recaptcha/api/siteverify";
+        // Overridable so load tests can point at the local stub (backend/bench RecaptchaStubServer)
+        private static final String VERIFY_URL = EnvLoader.get("RECAPTCHA_VERIFY_URL").unwrapOr(DEFAULT_VERIFY_URL);
+        private static final Duration CONNECT_TIMEOUT = Duration.ofMillis(EnvLoader.getInt("RECAPTCHA_CONNECT_TIMEOUT_MS", 2000));
+        private static final Duration REQUEST_TIMEOUT = Duration.ofMillis(EnvLoader.getInt("RECAPTCHA_TIMEOUT_MS", 3000));
+        private static final boolean FAIL_OPEN = Boolean.parseBoolean(EnvLoader.get("RECAPTCHA_FAIL_OPEN").unwrapOr("false").trim());
+        private static final int BREAKER_THRESHOLD = Math.max(1, EnvLoader.getInt("RECAPTCHA_BREAKER_FAILURES", 5));
+        private static final long BREAKER_OPEN_MS = EnvLoader.getInt("RECAPTCHA_BREAKER_OPEN_MS", 30000);
+
+        private static final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+
+        // Circuit breaker: opens after BREAKER_THRESHOLD consecutive upstream failures, then lets a
+        // single probe through once BREAKER_OPEN_MS has passed (half-open).
+        private static final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+        private static final AtomicLong openUntil = new AtomicLong(0);
+        private static final AtomicBoolean probeInFlight = new AtomicBoolean(false);
+
+    // Verify the provided reCAPTCHA token with Google's API. Blocks for at most the request timeout.
     public static Result<Boolean, String> verifyRecaptcha(String token, String clientIp) {
-            if (token == null || token.trim().isEmpty()) return Result.err("reCAPTCHA token required");
+            return Tracer.inSpan("http", "POST recaptcha siteverify",
+                () -> verifyRecaptchaAsync(token, clientIp).join());
+        }
+
+    // Non-blocking variant; the future always completes with a Result, never exceptionally.
+    public static CompletableFuture<Result<Boolean, String>> verifyRecaptchaAsync(String token, String clientIp) {
+            if (token == null || token.trim().isEmpty()) return CompletableFuture.completedFuture(Result.err("reCAPTCHA token required"));
 
             com.delivery.util.Result<String, String> secretResult = EnvLoader.get("RECAPTCHA_SECRET_KEY");
             if (secretResult.isErr()) {
                 AuditLogger.logError("RECAPTCHA_CONFIG", "RECAPTCHA_SECRET_KEY not set in environment: " + secretResult.unwrapErr(), "SYSTEM");
-                return Result.err("reCAPTCHA not configured on server");
+                return CompletableFuture.completedFuture(Result.err("reCAPTCHA not configured on server"));
+            }
+
+            boolean probe = false;
+            long now = System.currentTimeMillis();
+            if (now < openUntil.get()) {
+                return CompletableFuture.completedFuture(unavailable("circuit open"));
+            }
+            if (openUntil.get() != 0) {
+                // Half-open: only one request tests the upstream, the rest keep the breaker behaviour
+                if (!probeInFlight.compareAndSet(false, true)) return CompletableFuture.completedFuture(unavailable("circuit half-open"));
+                probe = true;
+            }
+
+            StringBuilder postData = new StringBuilder();
+            postData.append("secret=").append(URLEncoder.encode(secretResult.unwrap(), StandardCharsets.UTF_8));
+            postData.append("&response=").append(URLEncoder.encode(token, StandardCharsets.UTF_8));
+            if (clientIp != null && !clientIp.trim().isEmpty()) {
+                postData.append("&remoteip=").append(URLEncoder.encode(clientIp, StandardCharsets.UTF_8));
             }
-            String secret = secretResult.unwrap();
 
+            HttpRequest request;
             try {
-                StringBuilder postData = new StringBuilder();
-                postData.append("secret=").append(URLEncoder.encode(secret, StandardCharsets.UTF_8.name()));
-                postData.append("&response=").append(URLEncoder.encode(token, StandardCharsets.UTF_8.name()));
-                if (clientIp != null && !clientIp.trim().isEmpty()) {
-                    postData.append("&remoteip=").append(URLEncoder.encode(clientIp, StandardCharsets.UTF_8.name()));
-                }
+                request = HttpRequest.newBuilder(URI.create(VERIFY_URL))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(postData.toString()))
+                    .build();
+            } catch (IllegalArgumentException e) {
+                if (probe) probeInFlight.set(false);
+                AuditLogger.logError("RECAPTCHA_CONFIG", "Invalid RECAPTCHA_VERIFY_URL: " + VERIFY_URL, "SYSTEM");
+                return CompletableFuture.completedFuture(Result.err("reCAPTCHA not configured on server"));
+            }
 
-                URL url = new URL(VERIFY_URL);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=" + StandardCharsets.UTF_8.name());
-                conn.setDoOutput(true);
-
-                byte[] postBytes = postData.toString().getBytes(StandardCharsets.UTF_8);
-                conn.setRequestProperty("Content-Length", String.valueOf(postBytes.length));
-                try (OutputStream os = conn.getOutputStream()) {
-                    os.write(postBytes);
-                    os.flush();
-                }
+            final boolean isProbe = probe;
+            return client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .handle((resp, ex) -> {
+                    if (isProbe) probeInFlight.set(false);
+                    if (ex != null) {
+                        recordFailure();
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        AuditLogger.logError("RECAPTCHA_ERROR", cause.getClass().getSimpleName() + ": " + cause.getMessage(), "SYSTEM");
+                        return unavailable(cause.getClass().getSimpleName());
+                    }
+                    VerifyResponse parsed = VerifyResponse.parse(resp.body());
+                    if (resp.statusCode() < 200 || resp.statusCode() >= 300 || parsed == null) {
+                        recordFailure();
+                        AuditLogger.logError("RECAPTCHA_ERROR", "HTTP " + resp.statusCode() + " | raw: " + resp.body(), "SYSTEM");
+                        return unavailable("HTTP " + resp.statusCode());
+                    }
+                    recordSuccess();
+                    if (parsed.success) return Result.ok(true);
+                    String errors = parsed.errorCodes.isEmpty() ? "no error codes" : String.join(", ", parsed.errorCodes);
+                    AuditLogger.logError("RECAPTCHA_FAILED", errors + " | raw: " + resp.body(), "SYSTEM");
+                    return Result.<Boolean, String>err("reCAPTCHA verification failed: " + errors);
+                });
+        }
 
-                int code = conn.getResponseCode();
-                BufferedReader br;
-                if (code >= 200 && code < 300) {
-                    br = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                } else {
-                    br = new BufferedReader(new InputStreamReader(conn.getErrorStream() == null ? conn.getInputStream() : conn.getErrorStream(), StandardCharsets.UTF_8));
-                }
+    // Current breaker state for diagnostics: "closed", "open" or "half-open"
+    public static String breakerState() {
+            long until = openUntil.get();
+            if (until == 0) return "closed";
+            return System.currentTimeMillis() < until ? "open" : "half-open";
+        }
 
-                StringBuilder resp = new StringBuilder();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    resp.append(line).append('\n');
-                }
+        private static Result<Boolean, String> unavailable(String reason) {
+            if (FAIL_OPEN) {
+                AuditLogger.logError("RECAPTCHA_FAIL_OPEN", "Verification skipped (" + reason + ")", "SYSTEM");
+                return Result.ok(true);
+            }
+            return Result.err("reCAPTCHA verification unavailable, try again later");
+        }
 
-                String json = resp.toString();
-                boolean success = json.contains("\"success\": true") || json.contains("\"success\":true");
-                if (success) {
-                    return Result.ok(true);
-                } else {
-                    String errors = extractErrors(json);
-                    AuditLogger.logError("RECAPTCHA_FAILED", errors + " | raw: " + json, "SYSTEM");
-                    return Result.err("reCAPTCHA verification failed: " + errors);
-                }
+        private static void recordSuccess() {
+            consecutiveFailures.set(0);
+            openUntil.set(0);
+        }
 
-            } catch (Exception e) {
-                AuditLogger.logError("RECAPTCHA_ERROR", e.getMessage(), "SYSTEM");
-                return Result.err("reCAPTCHA verification error: " + e.getMessage());
+        private static void recordFailure() {
+            int failures = consecutiveFailures.incrementAndGet();
+            // A failed half-open probe re-opens immediately
+            if (failures >= BREAKER_THRESHOLD || openUntil.get() != 0) {
+                openUntil.set(System.currentTimeMillis() + BREAKER_OPEN_MS);
+                AuditLogger.logError("RECAPTCHA_BREAKER", "Circuit opened after " + failures + " consecutive failures", "SYSTEM");
             }
         }
 
-        private static String extractErrors(String json) {
-            if (json == null) return "unknown error";
-            try {
-                int idx = json.indexOf("\"error-codes\"");
-                if (idx == -1) return "no error-codes provided";
-                int a = json.indexOf('[', idx);
-                int b = json.indexOf(']', a);
-                if (a == -1 || b == -1) return "malformed error-codes";
-                String arr = json.substring(a + 1, b).replaceAll("[\"\\s]", "");
-                if (arr.isEmpty()) return "no error codes";
-                return arr.replaceAll("\\s*,\\s*", ", ");
-            } catch (Exception ex) {
-                return "error parsing response";
+        // The fields of the siteverify response we use. parse() returns null for anything that is not a
+        // JSON object with a boolean "success", so garbage from a proxy counts as an upstream failure.
+        static class VerifyResponse {
+            boolean success;
+            List<String> errorCodes = new ArrayList<>();
+
+            static VerifyResponse parse(String json) {
+                if (json == null) return null;
+                try {
+                    JsonReader r = new JsonReader(json);
+                    VerifyResponse vr = new VerifyResponse();
+                    boolean sawSuccess = false;
+                    r.expect('{');
+                    if (!r.consume('}')) {
+                        do {
+                            String key = r.readString();
+                            r.expect(':');
+                            if ("success".equals(key)) {
+                                Object v = r.readValue();
+                                if (!(v instanceof Boolean)) return null;
+                                vr.success = (Boolean) v;
+                                sawSuccess = true;
+                            } else if ("error-codes".equals(key)) {
+                                Object v = r.readValue();
+                                if (v instanceof List) {
+                                    for (Object o : (List<?>) v) if (o instanceof String) vr.errorCodes.add((String) o);
+                                }
+                            } else {
+                                r.readValue();
+                            }
+                        } while (r.consume(','));
+                        r.expect('}');
+                    }
+                    return sawSuccess ? vr : null;
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+
+        // Minimal JSON reader: strings, literals, numbers, arrays and nested objects (skipped)
+        private static class JsonReader {
+            private final String s;
+            private int pos = 0;
+
+            JsonReader(String s) { this.s = s; }
+
+            void skipWs() { while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++; }
+
+            boolean consume(char c) {
+                skipWs();
+                if (pos < s.length() && s.charAt(pos) == c) { pos++; return true; }
+                return false;
+            }
+
+            void expect(char c) { if (!consume(c)) throw new IllegalArgumentException("Expected '" + c + "' at " + pos); }
+
+            String readString() {
+                skipWs();
+                if (pos >= s.length() || s.charAt(pos) != '"') throw new IllegalArgumentException("Expected string at " + pos);
+                pos++;
+                StringBuilder sb = new StringBuilder();
+                while (pos < s.length()) {
+                    char c = s.charAt(pos++);
+                    if (c == '"') return sb.toString();
+                    if (c != '\\') { sb.append(c); continue; }
+                    if (pos >= s.length()) break;
+                    char e = s.charAt(pos++);
+                    switch (e) {
+                        case 'n': sb.append('\n'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'u':
+                            if (pos + 4 > s.length()) throw new IllegalArgumentException("Bad escape");
+                            sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                            pos += 4;
+                            break;
+                        default: sb.append(e);
+                    }
+                }
+                throw new IllegalArgumentException("Unterminated string");
+            }
+
+            Object readValue() {
+                skipWs();
+                if (pos >= s.length()) throw new IllegalArgumentException("Unexpected end");
+                char c = s.charAt(pos);
+                if (c == '"') return readString();
+                if (c == '[') {
+                    pos++;
+                    List<Object> list = new ArrayList<>();
+                    if (consume(']')) return list;
+                    do { list.add(readValue()); } while (consume(','));
+                    expect(']');
+                    return list;
+                }
+                if (c == '{') {
+                    pos++;
+                    if (consume('}')) return null;
+                    do { readString(); expect(':'); readValue(); } while (consume(','));
+                    expect('}');
+                    return null;
+                }
+                int start = pos;
+                while (pos < s.length() && "{}[],: \t\r\n".indexOf(s.charAt(pos)) < 0) pos++;
+                String lit = s.substring(start, pos);
+                if (lit.equals("true")) return Boolean.TRUE;
+                if (lit.equals("false")) return Boolean.FALSE;
+                if (lit.equals("null")) return null;
+                try {
+                    return Double.parseDouble(lit);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Bad literal '" + lit + "'");
+                }
             }
         }
     }
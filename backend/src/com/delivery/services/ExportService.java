@@ -0,0 +1,219 @@
+package com.delivery.services;
+
+import com.delivery.dao.ExportDAO;
+import com.delivery.dao.ExportDAO.Dataset;
+import com.delivery.security.SecurityManager.BLPAccessControl;
+import com.delivery.security.SecurityManager.SecurityLevel;
+import com.delivery.tracing.Tracer;
+import com.delivery.util.EnvLoader;
+import com.delivery.util.Result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ExportService - Streams a whole table out as CSV or NDJSON
+ *
+ * Rows are read in keyset batches of EXPORT_BATCH_ROWS (see ExportDAO) into a buffer that is
+ * cut off at EXPORT_BUFFER_KB; only then is the batch handed to the sink, after the database
+ * connection has been returned. Memory per export is one buffer however large the table is,
+ * and a client that reads slowly only ever holds up its own request thread, never a connection.
+ *
+ * Exports resume by key: every row starts with its key, and an export started with
+ * after=<last key received> continues exactly where an interrupted one stopped.
+ */
+public class ExportService {
+    private static final int BATCH_ROWS = Math.max(1, EnvLoader.getInt("EXPORT_BATCH_ROWS", 1000));
+    private static final int BUFFER_BYTES = Math.max(64, EnvLoader.getInt("EXPORT_BUFFER_KB", 1024)) * 1024;
+    // Each running export holds a request thread for as long as its client keeps reading
+    private static final int MAX_CONCURRENT = Math.max(1, EnvLoader.getInt("EXPORT_MAX_CONCURRENT", 2));
+
+    public static final String BUSY = "Too many exports in progress";
+
+    private static final Semaphore slots = new Semaphore(MAX_CONCURRENT);
+
+    public enum Format {
+        CSV("text/csv; charset=utf-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+    }
+
+    /**
+     * Receives the export a buffered batch at a time
+     */
+    public interface ChunkSink {
+        void write(byte[] bytes, int length) throws IOException;
+    }
+
+    /**
+     * Export every row of a dataset with a key greater than afterKey, in key order
+     * Audit log requires TOP_SECRET clearance (admins); inventory and routes require SECRET (managers).
+     * A CSV export starts with a header row; NDJSON has one object per line. Nothing is written
+     * if the first batch cannot be read, so the caller can still answer with an error status.
+     *
+     * @param dataset Table to export
+     * @param format Output format
+     * @param afterKey Key of the last row already received (0 for a full export)
+     * @param sink Receives the encoded output; an IOException (client went away) stops the export
+     * @param userClearance The requesting user's clearance level
+     * @return Result containing the number of rows exported or error message; BUSY when
+     *         EXPORT_MAX_CONCURRENT exports are already running
+     */
+    public static Result<Long, String> export(Dataset dataset, Format format, long afterKey, ChunkSink sink,
+                                              SecurityLevel userClearance) throws IOException {
+        return Tracer.inSpan("service", "ExportService.export",
+                             () -> exportImpl(dataset, format, afterKey, sink, userClearance));
+    }
+
+    private static Result<Long, String> exportImpl(Dataset dataset, Format format, long afterKey, ChunkSink sink,
+                                                   SecurityLevel userClearance) throws IOException {
+        // BLP Access Control: the audit log is TOP_SECRET, operational data is SECRET
+        SecurityLevel required = dataset == Dataset.AUDIT_LOG ? SecurityLevel.TOP_SECRET : SecurityLevel.SECRET;
+        if (!BLPAccessControl.checkReadAccess(userClearance, required)) {
+            return Result.err("Access denied: Insufficient clearance to export " + dataset.getSlug());
+        }
+
+        if (!slots.tryAcquire()) {
+            return Result.err(BUSY);
+        }
+        try {
+            return exportBatches(dataset, format, afterKey, sink);
+        } finally {
+            slots.release();
+        }
+    }
+
+    private static Result<Long, String> exportBatches(Dataset dataset, Format format, long afterKey,
+                                                      ChunkSink sink) throws IOException {
+        String[] columns = dataset.getColumns();
+        Buffer buffer = new Buffer(BUFFER_BYTES);
+        StringBuilder line = new StringBuilder(256);
+        if (format == Format.CSV) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) line.append(',');
+                line.append(columns[i]);
+            }
+            line.append("\r\n");
+            buffer.append(line);
+        }
+
+        long[] lastKey = {afterKey};
+        boolean[] full = new boolean[1];
+        long total = 0;
+        while (true) {
+            full[0] = false;
+            Result<Integer, String> batch = ExportDAO.readBatch(dataset, lastKey[0], BATCH_ROWS, row -> {
+                line.setLength(0);
+                if (format == Format.CSV) {
+                    appendCsv(line, row);
+                } else {
+                    appendJson(line, columns, row);
+                }
+                buffer.append(line);
+                lastKey[0] = ((Number) row[0]).longValue();
+                full[0] = buffer.size() >= BUFFER_BYTES;
+                return !full[0];
+            });
+            if (batch.isErr()) {
+                return Result.err(batch.unwrapErr());
+            }
+
+            int rows = batch.unwrap();
+            total += rows;
+            if (buffer.size() > 0) {
+                sink.write(buffer.array(), buffer.size());
+                buffer.reset();
+            }
+            // A short batch that was not cut off by the buffer was the end of the table
+            if (rows < BATCH_ROWS && !full[0]) {
+                return Result.ok(total);
+            }
+        }
+    }
+
+    // RFC 4180 record; text that a spreadsheet would run as a formula is prefixed with '
+    private static void appendCsv(StringBuilder out, Object[] row) {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) out.append(',');
+            Object value = row[i];
+            if (value == null) continue;
+            String text = value.toString();
+            if (!(value instanceof Number) && !text.isEmpty()) {
+                char first = text.charAt(0);
+                if (first == '=' || first == '+' || first == '-' || first == '@') text = "'" + text;
+            }
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                out.append(text);
+            } else {
+                out.append('"').append(text.replace("\"", "\"\"")).append('"');
+            }
+        }
+        out.append("\r\n");
+    }
+
+    private static void appendJson(StringBuilder out, String[] columns, Object[] row) {
+        out.append('{');
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) out.append(',');
+            out.append('"').append(columns[i]).append("\":");
+            Object value = row[i];
+            if (value == null) {
+                out.append("null");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                out.append(value);
+            } else {
+                out.append('"');
+                escapeJson(out, value.toString());
+                out.append('"');
+            }
+        }
+        out.append("}\n");
+    }
+
+    private static void escapeJson(StringBuilder out, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+    }
+
+    // Reused for every batch; it never grows past the cutoff by more than one row
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer(int size) {
+            super(size);
+        }
+
+        void append(CharSequence text) {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            write(bytes, 0, bytes.length);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
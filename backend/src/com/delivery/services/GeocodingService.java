@@ -1,6 +1,8 @@
 package com.delivery.services;
 
+import com.delivery.jfr.GeocodeEvent;
 import com.delivery.models.Location;
+import com.delivery.tracing.Tracer;
 
 import java.net.URI;
 import java.net.URLEncoder;
@@ -25,8 +27,25 @@ public class GeocodingService {
      * Geocodes an address to latitude/longitude
      */
     public Location geocode(String address) throws Exception {
+        GeocodeEvent event = new GeocodeEvent();
+        event.begin();
+        try {
+            Location location = lookup(address, event);
+            event.found = true;
+            return location;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private Location lookup(String address, GeocodeEvent event) throws Exception {
         // Respect Nominatim rate limit (1 request per second)
-        Thread.sleep(1100);
+        long waitStart = System.nanoTime();
+        Tracer.inSpan("wait", "GeocodingService.rateLimit", () -> {
+            Thread.sleep(1100);
+            return null;
+        });
+        event.waitTime = System.nanoTime() - waitStart;
 
         String encodedAddress = URLEncoder.encode(address, StandardCharsets.UTF_8);
         String url = NOMINATIM_URL + "?q=" + encodedAddress + "&format=json&limit=1";
@@ -37,7 +56,11 @@ public class GeocodingService {
                 .GET()
                 .build();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        long httpStart = System.nanoTime();
+        HttpResponse<String> response = Tracer.inSpan("http", "GET nominatim.openstreetmap.org/search",
+            () -> httpClient.send(request, HttpResponse.BodyHandlers.ofString()));
+        event.httpTime = System.nanoTime() - httpStart;
+        event.httpStatus = response.statusCode();
 
         if (response.statusCode() != 200) {
             throw new Exception("Geocoding service returned status: " + response.statusCode());
@@ -3,8 +3,10 @@ package com.delivery.services;
 import com.delivery.dao.InventoryDAO;
 import com.delivery.models.Facility;
 import com.delivery.models.InventoryItem;
+import com.delivery.models.InventoryPage;
 import com.delivery.security.SecurityManager.BLPAccessControl;
 import com.delivery.security.SecurityManager.SecurityLevel;
+import com.delivery.tracing.Tracer;
 import com.delivery.util.Result;
 
 import java.util.List;
@@ -15,6 +17,9 @@ import java.util.List;
  */
 public class InventoryService {
 
+    // Largest page the all-facility listing will return in one request
+    public static final int MAX_PAGE_SIZE = 5000;
+
     /**
      * Get inventory for a specific facility
      * Requires SECRET clearance (managers) as inventory contains sensitive operational data
@@ -27,6 +32,13 @@ public class InventoryService {
     public static Result<List<InventoryItem>, String> getInventoryByFacility(long facilityId,
                                                                              SecurityLevel userClearance,
                                                                              String username) {
+        return Tracer.inSpan("service", "InventoryService.getInventoryByFacility",
+                             () -> getInventoryByFacilityImpl(facilityId, userClearance, username));
+    }
+
+    private static Result<List<InventoryItem>, String> getInventoryByFacilityImpl(long facilityId,
+                                                                                  SecurityLevel userClearance,
+                                                                                  String username) {
         // BLP Access Control: Inventory data is SECRET level (managers and above)
         if (!BLPAccessControl.checkReadAccess(userClearance, SecurityLevel.SECRET)) {
             return Result.err("Access denied: Insufficient clearance to view inventory data");
@@ -37,22 +49,73 @@ public class InventoryService {
     }
 
     /**
-     * Get all inventory across all facilities
+     * Get one page of inventory across all facilities
      * Requires SECRET clearance (managers) for system-wide inventory view
      *
+     * @param cursor Cursor token from the previous page, or null for the first page
+     * @param limit Page size (1 to MAX_PAGE_SIZE)
      * @param userClearance The requesting user's clearance level
      * @param username The requesting username for audit logging
-     * @return Result containing list of all InventoryItems or error message
+     * @return Result containing the page of InventoryItems or error message
      */
-    public static Result<List<InventoryItem>, String> getAllInventory(SecurityLevel userClearance,
-                                                                       String username) {
+    public static Result<InventoryPage, String> getAllInventory(String cursor, int limit,
+                                                                 SecurityLevel userClearance,
+                                                                 String username) {
+        return Tracer.inSpan("service", "InventoryService.getAllInventory",
+                             () -> getAllInventoryImpl(cursor, limit, userClearance, username));
+    }
+
+    private static Result<InventoryPage, String> getAllInventoryImpl(String cursor, int limit,
+                                                                      SecurityLevel userClearance,
+                                                                      String username) {
         // BLP Access Control: Inventory data is SECRET level
         if (!BLPAccessControl.checkReadAccess(userClearance, SecurityLevel.SECRET)) {
             return Result.err("Access denied: Insufficient clearance to view inventory data");
         }
 
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Result.err("Invalid limit: must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        InventoryPage.Cursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            Result<InventoryPage.Cursor, String> cursorResult = InventoryPage.Cursor.decode(cursor);
+            if (cursorResult.isErr()) {
+                return Result.err(cursorResult.unwrapErr());
+            }
+            after = cursorResult.unwrap();
+        }
+
         // Delegate to DAO
-        return InventoryDAO.getAllInventory();
+        return InventoryDAO.getAllInventory(after, limit);
+    }
+
+    /**
+     * Stream all inventory across all facilities to a sink, one item at a time
+     * Requires SECRET clearance (managers) for system-wide inventory view
+     *
+     * @param sink Receives each item as it is read from the database
+     * @param userClearance The requesting user's clearance level
+     * @param username The requesting username for audit logging
+     * @return Result containing the number of items streamed or error message
+     */
+    public static Result<Long, String> streamAllInventory(InventoryDAO.ItemSink sink,
+                                                          SecurityLevel userClearance,
+                                                          String username) {
+        return Tracer.inSpan("service", "InventoryService.streamAllInventory",
+                             () -> streamAllInventoryImpl(sink, userClearance, username));
+    }
+
+    private static Result<Long, String> streamAllInventoryImpl(InventoryDAO.ItemSink sink,
+                                                               SecurityLevel userClearance,
+                                                               String username) {
+        // BLP Access Control: Inventory data is SECRET level
+        if (!BLPAccessControl.checkReadAccess(userClearance, SecurityLevel.SECRET)) {
+            return Result.err("Access denied: Insufficient clearance to view inventory data");
+        }
+
+        // Delegate to DAO
+        return InventoryDAO.streamAllInventory(sink);
     }
 
     /**
@@ -63,6 +126,11 @@ public class InventoryService {
      * @return Result containing list of facilities or error message
      */
     public static Result<List<Facility>, String> getAllFacilities(SecurityLevel userClearance) {
+        return Tracer.inSpan("service", "InventoryService.getAllFacilities",
+                             () -> getAllFacilitiesImpl(userClearance));
+    }
+
+    private static Result<List<Facility>, String> getAllFacilitiesImpl(SecurityLevel userClearance) {
         // BLP Access Control: Public facility info is CONFIDENTIAL level
         if (!BLPAccessControl.checkReadAccess(userClearance, SecurityLevel.CONFIDENTIAL)) {
             return Result.err("Access denied: Insufficient clearance to view facility data");
@@ -84,6 +152,13 @@ public class InventoryService {
     public static Result<InventoryItem, String> searchByTrackingNumber(String trackingNumber,
                                                                         SecurityLevel userClearance,
                                                                         String username) {
+        return Tracer.inSpan("service", "InventoryService.searchByTrackingNumber",
+                             () -> searchByTrackingNumberImpl(trackingNumber, userClearance, username));
+    }
+
+    private static Result<InventoryItem, String> searchByTrackingNumberImpl(String trackingNumber,
+                                                                             SecurityLevel userClearance,
+                                                                             String username) {
         // BLP Access Control: Inventory lookup is SECRET level
         if (!BLPAccessControl.checkReadAccess(userClearance, SecurityLevel.SECRET)) {
             return Result.err("Access denied: Insufficient clearance to search inventory");
@@ -114,6 +189,12 @@ public class InventoryService {
      */
     public static Result<Integer, String> getInventoryCount(long facilityId,
                                                             SecurityLevel userClearance) {
+        return Tracer.inSpan("service", "InventoryService.getInventoryCount",
+                             () -> getInventoryCountImpl(facilityId, userClearance));
+    }
+
+    private static Result<Integer, String> getInventoryCountImpl(long facilityId,
+                                                                 SecurityLevel userClearance) {
         // BLP Access Control: Inventory statistics are SECRET level
         if (!BLPAccessControl.checkReadAccess(userClearance, SecurityLevel.SECRET)) {
             return Result.err("Access denied: Insufficient clearance to view inventory statistics");
@@ -0,0 +1,596 @@
+package com.delivery.services;
+
+import com.delivery.dao.OrderDAO;
+import com.delivery.database.DatabaseConnection;
+import com.delivery.events.EventBus;
+import com.delivery.events.PackageCreated;
+import com.delivery.security.SecurityManager;
+import com.delivery.security.SecurityManager.InputSanitizer;
+import com.delivery.util.CsvReader;
+import com.delivery.util.EnvLoader;
+import com.delivery.util.Result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * OrderImportService - creates packages in bulk from a CSV manifest, one package per row
+ *
+ * Columns (header row required, any order, unknown columns ignored):
+ *   street_address, city, state, zip_code, weight_kg, length_cm, width_cm, height_cm
+ *   and optionally delivery_instructions, fragile, signature_required, reference
+ *
+ * The upload is read as it arrives and never held whole. Two stages overlap:
+ * - the request thread parses and validates rows (InputSanitizer, ranges) into chunks of
+ *   IMPORT_CHUNK_ROWS valid rows and hands them over a short queue;
+ * - a writer thread commits each chunk in its own transaction: new addresses, one order per
+ *   distinct address, packages and history rows, each as one JDBC batch (see OrderDAO).
+ * When the writer falls behind the queue fills and parsing waits, so memory stays bounded.
+ *
+ * Addresses are deduplicated against the customer's address book and within the file; the
+ * book is read once and kept for the whole import. That is safe because address rows are never
+ * changed in place: an address edit gives its order a new row (PackageController.handleEditAddress).
+ * Tracking numbers are reserved a chunk at a time. A bad row is reported and skipped; a chunk
+ * that fails to write is rolled back and its rows are reported, and earlier chunks stay
+ * committed. Every row's outcome (tracking number or error) is kept, gzipped, as a CSV result
+ * for IMPORT_REPORT_TTL_MINUTES.
+ */
+public class OrderImportService {
+    // Capped by what one OrderService.generateTrackingNumbers call hands out
+    private static final int CHUNK_ROWS = Math.max(1, Math.min(10_000, EnvLoader.getInt("IMPORT_CHUNK_ROWS", 1000)));
+    private static final int MAX_ROWS = EnvLoader.getInt("IMPORT_MAX_ROWS", 200_000);
+    private static final int MAX_CONCURRENT = Math.max(1, EnvLoader.getInt("IMPORT_MAX_CONCURRENT", 2));
+    private static final long REPORT_TTL_MILLIS =
+        TimeUnit.MINUTES.toMillis(Math.max(1, EnvLoader.getInt("IMPORT_REPORT_TTL_MINUTES", 60)));
+    private static final int MAX_REPORTS = 50;
+    // Validated chunks waiting for the writer
+    private static final int PIPELINE_DEPTH = 4;
+    private static final int MAX_RECORD_CHARS = 8192;
+    // DECIMAL(8, 2)
+    private static final double MAX_MEASURE = 999_999.99;
+
+    public static final String BUSY = "Too many imports in progress";
+
+    private static final String[] REQUIRED_COLUMNS = {
+        "street_address", "city", "state", "zip_code", "weight_kg", "length_cm", "width_cm", "height_cm"
+    };
+    private static final String[] OPTIONAL_COLUMNS = {
+        "delivery_instructions", "fragile", "signature_required", "reference"
+    };
+
+    // Signals the end of input to the writer
+    private static final List<Row> END = Collections.emptyList();
+
+    private static final Semaphore slots = new Semaphore(MAX_CONCURRENT);
+    private static final ExecutorService writers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "import-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    // Import id -> report
+    private static final Map<String, Report> reports = new ConcurrentHashMap<>();
+
+    /**
+     * Outcome of one import. Counts are final once importCsv returns it.
+     */
+    public static final class Report {
+        private final String id = UUID.randomUUID().toString();
+        private final String username;
+        private final long startedAt = System.currentTimeMillis();
+        private final ByteArrayOutputStream resultBytes = new ByteArrayOutputStream();
+        private final Writer result;
+
+        private long rowsRead;
+        private long imported;
+        private long failed;
+        private long orders;
+        private long addressesCreated;
+        private long addressesReused;
+        private long durationMillis;
+        // Set by either stage
+        private volatile String error;
+
+        private Report(String username) {
+            this.username = username;
+            try {
+                this.result = new OutputStreamWriter(new GZIPOutputStream(resultBytes), StandardCharsets.UTF_8);
+                result.write("line,reference,status,tracking_number,order_id,error\n");
+            } catch (IOException e) {
+                // In-memory stream
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public String getId() { return id; }
+        public String getUsername() { return username; }
+        public long getRowsRead() { return rowsRead; }
+        public long getImported() { return imported; }
+        public long getFailed() { return failed; }
+        public long getOrders() { return orders; }
+        public long getAddressesCreated() { return addressesCreated; }
+        public long getAddressesReused() { return addressesReused; }
+        public long getDurationMillis() { return durationMillis; }
+
+        /**
+         * Why the import stopped before the end of the file, or null if it read all of it
+         */
+        public String getError() { return error; }
+
+        /**
+         * Per-row results as gzipped CSV
+         */
+        public synchronized byte[] getResultGzip() {
+            return resultBytes.toByteArray();
+        }
+
+        private void row(Row row, String status, String trackingNumber, long orderId, String rowError) {
+            try {
+                result.write(Long.toString(row.line));
+                result.write(',');
+                result.write(csv(row.reference));
+                result.write(',');
+                result.write(status);
+                result.write(',');
+                result.write(trackingNumber == null ? "" : trackingNumber);
+                result.write(',');
+                result.write(orderId > 0 ? Long.toString(orderId) : "");
+                result.write(',');
+                result.write(csv(rowError));
+                result.write('\n');
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            if ("created".equals(status)) imported++;
+            else failed++;
+        }
+
+        private synchronized void finish() {
+            durationMillis = System.currentTimeMillis() - startedAt;
+            try {
+                result.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static String csv(String value) {
+            if (value == null || value.isEmpty()) return "";
+            // Not a formula when the file is opened in a spreadsheet
+            char first = value.charAt(0);
+            if (first == '=' || first == '+' || first == '-' || first == '@') value = "'" + value;
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    // One CSV row: a package to create, or the reason it cannot be
+    private static final class Row {
+        final long line;
+        String reference;
+        String error;
+        String addressKey;
+        String streetAddress;
+        String city;
+        String state;
+        String zipCode;
+        String deliveryInstructions;
+        OrderDAO.NewPackage pkg;
+        long orderId;
+
+        Row(long line) {
+            this.line = line;
+        }
+    }
+
+    /**
+     * Import a CSV manifest for a customer.
+     * @param username Customer the orders are created for
+     * @param body CSV upload (UTF-8); read to the end or until the import stops
+     * @return Result with the report (also kept for getReport) or error message; BUSY when
+     *         IMPORT_MAX_CONCURRENT imports are already running
+     */
+    public static Result<Report, String> importCsv(String username, InputStream body) {
+        if (!slots.tryAcquire()) {
+            return Result.err(BUSY);
+        }
+        try {
+            CsvReader reader = new CsvReader(new InputStreamReader(body, StandardCharsets.UTF_8), MAX_RECORD_CHARS);
+
+            int[] columns;
+            try {
+                Result<int[], String> header = readHeader(reader.next());
+                if (header.isErr()) {
+                    return Result.err(header.unwrapErr());
+                }
+                columns = header.unwrap();
+            } catch (IOException e) {
+                return Result.err("Could not read CSV header: " + e.getMessage());
+            }
+
+            Result<Connection, String> connResult = DatabaseConnection.getConnection();
+            if (connResult.isErr()) {
+                return Result.err("Database connection failed: " + connResult.unwrapErr());
+            }
+
+            try (Connection conn = connResult.unwrap()) {
+                long customerId = OrderDAO.findUserId(conn, username);
+                if (customerId == -1) {
+                    return Result.err("User not found");
+                }
+                Result<Map<String, Long>, String> addressResult = OrderDAO.findDeliveryAddresses(conn, customerId);
+                if (addressResult.isErr()) {
+                    return Result.err(addressResult.unwrapErr());
+                }
+
+                Report report = new Report(username);
+                BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+                Future<?> writer = writers.submit(() ->
+                    writeChunks(conn, customerId, addressResult.unwrap(), queue, report));
+
+                try {
+                    parseRows(reader, columns, queue, writer, report);
+                    handOff(queue, END, writer, report);
+                    writer.get();
+                    // Chunks the writer never took (it stops when the connection is lost)
+                    List<Row> left;
+                    while ((left = queue.poll()) != null) {
+                        notImported(left, report);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    report.error = "Import interrupted";
+                } catch (ExecutionException e) {
+                    report.error = "Import failed: " + e.getCause();
+                } finally {
+                    // No-op when the writer finished; otherwise it must not outlive the connection
+                    writer.cancel(true);
+                }
+
+                report.finish();
+                register(report);
+                return Result.ok(report);
+            }
+        } catch (SQLException e) {
+            return Result.err("Database error during import: " + e.getMessage());
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * A finished import's report, or null if unknown or expired
+     */
+    public static Report getReport(String importId) {
+        Report report = reports.get(importId);
+        if (report != null && System.currentTimeMillis() - report.startedAt > REPORT_TTL_MILLIS) {
+            reports.remove(importId, report);
+            return null;
+        }
+        return report;
+    }
+
+    // Request thread: parse and validate, handing chunks of CHUNK_ROWS valid rows to the writer
+    private static void parseRows(CsvReader reader, int[] columns, BlockingQueue<List<Row>> queue,
+                                  Future<?> writer, Report report) throws InterruptedException {
+        List<Row> chunk = new ArrayList<>(CHUNK_ROWS);
+        int valid = 0;
+        try {
+            List<String> fields;
+            while ((fields = reader.next()) != null) {
+                if (fields.isEmpty() || (fields.size() == 1 && fields.get(0).trim().isEmpty())) continue;
+                if (report.rowsRead >= MAX_ROWS) {
+                    report.error = "Stopped at line " + reader.getLineNumber() + ": imports are limited to "
+                        + MAX_ROWS + " rows";
+                    break;
+                }
+                report.rowsRead++;
+
+                Row row = validate(fields, columns, reader.getLineNumber());
+                chunk.add(row);
+                if (row.error == null) valid++;
+
+                // Invalid rows count too, so a file of bad rows is not held in memory
+                if (valid >= CHUNK_ROWS || chunk.size() >= CHUNK_ROWS * 2) {
+                    if (!handOff(queue, chunk, writer, report)) return;
+                    chunk = new ArrayList<>(CHUNK_ROWS);
+                    valid = 0;
+                }
+            }
+        } catch (IOException e) {
+            // Malformed CSV or the client went away; rows before it are still written
+            report.error = "Stopped at line " + (reader.getLineNumber()) + ": " + e.getMessage();
+        }
+        if (!chunk.isEmpty()) {
+            handOff(queue, chunk, writer, report);
+        }
+    }
+
+    // Wait for room in the queue; false (and the chunk reported) if the writer has stopped
+    private static boolean handOff(BlockingQueue<List<Row>> queue, List<Row> chunk, Future<?> writer,
+                                   Report report) throws InterruptedException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                notImported(chunk, report);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void notImported(List<Row> chunk, Report report) {
+        for (Row row : chunk) {
+            report.row(row, "error", null, 0, row.error != null ? row.error : "Not imported: " + report.error);
+        }
+    }
+
+    // Writer thread: one transaction per chunk, until END or the connection is lost
+    private static void writeChunks(Connection conn, long customerId, Map<String, Long> addresses,
+                                    BlockingQueue<List<Row>> queue, Report report) {
+        try {
+            conn.setAutoCommit(false);
+            while (true) {
+                List<Row> chunk = queue.take();
+                if (chunk == END) return;
+                if (!writeChunk(conn, customerId, addresses, chunk, report)) {
+                    report.error = "Database connection lost after line " + chunk.get(chunk.size() - 1).line;
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            report.error = "Database error during import: " + e.getMessage();
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    // Write and report one chunk; false if it failed and the connection is no longer usable
+    private static boolean writeChunk(Connection conn, long customerId, Map<String, Long> addresses,
+                                      List<Row> chunk, Report report) throws SQLException {
+        // One order per distinct address in the chunk
+        Map<String, OrderDAO.NewOrder> orders = new LinkedHashMap<>();
+        List<OrderDAO.NewOrder> newAddresses = new ArrayList<>();
+        List<Row> valid = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (row.error != null) continue;
+            valid.add(row);
+            OrderDAO.NewOrder order = orders.get(row.addressKey);
+            if (order == null) {
+                order = new OrderDAO.NewOrder(report.username, row.streetAddress, row.city, row.state,
+                    row.zipCode, row.deliveryInstructions, new ArrayList<>());
+                order.customerId = customerId;
+                Long addressId = addresses.get(row.addressKey);
+                if (addressId != null) {
+                    order.deliveryAddressId = addressId;
+                } else {
+                    newAddresses.add(order);
+                }
+                orders.put(row.addressKey, order);
+            }
+            order.packages.add(row.pkg);
+        }
+
+        String chunkError = valid.isEmpty() ? null
+            : insertChunk(conn, customerId, new ArrayList<>(orders.values()), newAddresses, valid);
+
+        if (chunkError == null) {
+            // Only now: a rolled-back address must not be reused by later chunks
+            for (Map.Entry<String, OrderDAO.NewOrder> entry : orders.entrySet()) {
+                addresses.putIfAbsent(entry.getKey(), entry.getValue().deliveryAddressId);
+            }
+            report.orders += orders.size();
+            report.addressesCreated += newAddresses.size();
+            report.addressesReused += orders.size() - newAddresses.size();
+        }
+
+        for (Row row : chunk) {
+            if (row.error != null) {
+                report.row(row, "error", null, 0, row.error);
+            } else if (chunkError != null) {
+                report.row(row, "error", null, 0, "Not imported: " + chunkError);
+            } else {
+                report.row(row, "created", row.pkg.trackingNumber, orders.get(row.addressKey).orderId, null);
+            }
+        }
+
+        if (chunkError != null) {
+            return conn.isValid(2);
+        }
+        for (Row row : valid) {
+            EventBus.publish(new PackageCreated(row.pkg.packageId, row.pkg.trackingNumber));
+        }
+        return true;
+    }
+
+    // One transaction; null on success, otherwise the error (rolled back)
+    private static String insertChunk(Connection conn, long customerId, List<OrderDAO.NewOrder> orders,
+                                      List<OrderDAO.NewOrder> newAddresses, List<Row> valid) {
+        Result<List<String>, String> numbers = OrderService.generateTrackingNumbers(valid.size());
+        if (numbers.isErr()) {
+            return numbers.unwrapErr();
+        }
+        List<String> trackingNumbers = numbers.unwrap();
+        for (int i = 0; i < valid.size(); i++) {
+            valid.get(i).pkg.trackingNumber = trackingNumbers.get(i);
+        }
+
+        Result<Void, String> result = newAddresses.isEmpty()
+            ? Result.ok(null) : OrderDAO.insertAddresses(conn, customerId, newAddresses);
+        if (result.isOk()) result = OrderDAO.insertOrders(conn, orders);
+        if (result.isOk()) result = OrderDAO.insertPackages(conn, orders);
+
+        try {
+            if (result.isErr()) {
+                conn.rollback();
+                return result.unwrapErr();
+            }
+            conn.commit();
+            return null;
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ignored) {
+            }
+            return "Database error during import: " + e.getMessage();
+        }
+    }
+
+    // Column index per REQUIRED_COLUMNS then OPTIONAL_COLUMNS (-1 when an optional one is absent)
+    private static Result<int[], String> readHeader(List<String> header) {
+        if (header == null || header.isEmpty()) {
+            return Result.err("CSV is empty");
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            positions.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+
+        int[] columns = new int[REQUIRED_COLUMNS.length + OPTIONAL_COLUMNS.length];
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < REQUIRED_COLUMNS.length; i++) {
+            Integer at = positions.get(REQUIRED_COLUMNS[i]);
+            if (at == null) missing.add(REQUIRED_COLUMNS[i]);
+            columns[i] = at == null ? -1 : at;
+        }
+        if (!missing.isEmpty()) {
+            return Result.err("Missing column(s): " + String.join(", ", missing));
+        }
+        for (int i = 0; i < OPTIONAL_COLUMNS.length; i++) {
+            columns[REQUIRED_COLUMNS.length + i] = positions.getOrDefault(OPTIONAL_COLUMNS[i], -1);
+        }
+        return Result.ok(columns);
+    }
+
+    private static Row validate(List<String> fields, int[] columns, long line) {
+        Row row = new Row(line);
+        String[] text = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            String value = columns[i] >= 0 && columns[i] < fields.size() ? fields.get(columns[i]) : "";
+            SecurityManager.Result<String, String> clean = InputSanitizer.sanitizeString(value);
+            if (clean.isErr()) {
+                row.error = column(i) + ": " + clean.unwrapErr();
+                return row;
+            }
+            text[i] = clean.unwrap();
+        }
+        row.reference = limit(text[11], 100);
+
+        String error = required(text[0], "street_address", 255);
+        if (error == null) error = required(text[1], "city", 100);
+        if (error == null) error = required(text[2], "state", 50);
+        if (error == null) error = required(text[3], "zip_code", 20);
+        if (error == null && text[8].length() > 1000) error = "delivery_instructions is longer than 1000 characters";
+        if (error != null) {
+            row.error = error;
+            return row;
+        }
+
+        double[] measures = new double[4];
+        for (int i = 0; i < 4; i++) {
+            String name = REQUIRED_COLUMNS[4 + i];
+            if (text[4 + i].isEmpty()) {
+                row.error = name + " is required";
+                return row;
+            }
+            try {
+                measures[i] = Double.parseDouble(text[4 + i]);
+            } catch (NumberFormatException e) {
+                row.error = name + " must be a number";
+                return row;
+            }
+            if (!(measures[i] > 0) || measures[i] > MAX_MEASURE) {
+                row.error = name + " must be greater than 0 and at most " + MAX_MEASURE;
+                return row;
+            }
+        }
+
+        Boolean fragile = flag(text[9]);
+        Boolean signatureRequired = flag(text[10]);
+        if (fragile == null || signatureRequired == null) {
+            row.error = (fragile == null ? "fragile" : "signature_required") + " must be true or false";
+            return row;
+        }
+
+        row.streetAddress = text[0];
+        row.city = text[1];
+        row.state = text[2];
+        row.zipCode = text[3];
+        row.deliveryInstructions = text[8];
+        row.addressKey = OrderDAO.addressKey(text[0], text[1], text[2], text[3], text[8]);
+        row.pkg = new OrderDAO.NewPackage(measures[0], measures[1], measures[2], measures[3],
+            fragile, signatureRequired);
+        return row;
+    }
+
+    private static String required(String value, String name, int maxLength) {
+        if (value.isEmpty()) return name + " is required";
+        if (value.length() > maxLength) return name + " is longer than " + maxLength + " characters";
+        return null;
+    }
+
+    private static Boolean flag(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "": case "0": case "false": case "no": case "n":
+                return false;
+            case "1": case "true": case "yes": case "y":
+                return true;
+            default:
+                return null;
+        }
+    }
+
+    private static String column(int index) {
+        return index < REQUIRED_COLUMNS.length ? REQUIRED_COLUMNS[index]
+            : OPTIONAL_COLUMNS[index - REQUIRED_COLUMNS.length];
+    }
+
+    private static String limit(String value, int maxLength) {
+        return value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    // Keep finished reports for download, dropping expired ones and the oldest past MAX_REPORTS
+    private static void register(Report report) {
+        long now = System.currentTimeMillis();
+        reports.values().removeIf(r -> now - r.startedAt > REPORT_TTL_MILLIS);
+        reports.put(report.id, report);
+        while (reports.size() > MAX_REPORTS) {
+            Report oldest = null;
+            for (Report r : reports.values()) {
+                if (oldest == null || r.startedAt < oldest.startedAt) oldest = r;
+            }
+            if (oldest == null) break;
+            reports.remove(oldest.id, oldest);
+        }
+    }
+}
@@ -1,9 +1,69 @@
 package com.delivery.services;
 
+import com.delivery.dao.OrderDAO;
+import com.delivery.events.EventBus;
+import com.delivery.events.PackageCreated;
+import com.delivery.tracking.TrackingNumberGenerator;
 import com.delivery.util.Result;
 
+import java.util.List;
+
 // OrderService - business logic for orders
 public class OrderService {
-    // TODO: Implement createOrder, calculateCost, generateTrackingNumbers, etc.
+    // Most tracking numbers handed out by one generateTrackingNumbers call
+    private static final int MAX_TRACKING_BATCH = 10_000;
+    // Most packages in one order (one request, one transaction)
+    public static final int MAX_PACKAGES_PER_ORDER = 500;
+
+    // TODO: Implement calculateCost, etc.
+
+    /**
+     * Create an order and all of its packages in one transaction (see OrderDAO.createOrder).
+     * Tracking numbers are assigned here; PackageCreated is published for each package once
+     * the order is committed.
+     * @param order Validated, sanitized order with 1 to MAX_PACKAGES_PER_ORDER packages
+     * @return Result with the order (ids and tracking numbers filled in) or error message
+     */
+    public static Result<OrderDAO.NewOrder, String> createOrder(OrderDAO.NewOrder order) {
+        if (order.packages == null || order.packages.isEmpty() || order.packages.size() > MAX_PACKAGES_PER_ORDER) {
+            return Result.err("An order must have between 1 and " + MAX_PACKAGES_PER_ORDER + " packages");
+        }
+
+        Result<List<String>, String> numbers = generateTrackingNumbers(order.packages.size());
+        if (numbers.isErr()) {
+            return Result.err(numbers.unwrapErr());
+        }
+        List<String> trackingNumbers = numbers.unwrap();
+        for (int i = 0; i < order.packages.size(); i++) {
+            order.packages.get(i).trackingNumber = trackingNumbers.get(i);
+        }
+
+        Result<OrderDAO.NewOrder, String> result = OrderDAO.createOrder(order);
+        if (result.isOk()) {
+            for (OrderDAO.NewPackage pkg : order.packages) {
+                EventBus.publish(new PackageCreated(pkg.packageId, pkg.trackingNumber));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tracking number for a new package. Unique across API nodes with distinct TRACKING_NODE_ID
+     * values, so the insert does not depend on the database rejecting duplicates.
+     */
+    public static String generateTrackingNumber() {
+        return TrackingNumberGenerator.next();
+    }
 
+    /**
+     * Tracking numbers for the packages of a bulk order, reserved in one step.
+     * @param count Number of packages
+     * @return Result with the numbers in increasing order or error message
+     */
+    public static Result<List<String>, String> generateTrackingNumbers(int count) {
+        if (count <= 0 || count > MAX_TRACKING_BATCH) {
+            return Result.err("Tracking number count must be between 1 and " + MAX_TRACKING_BATCH);
+        }
+        return Result.ok(TrackingNumberGenerator.reserve(count));
+    }
 }
@@ -2,7 +2,11 @@ package com.delivery.services;
 
 import com.delivery.dao.RouteDAO;
 import com.delivery.database.DatabaseConnection;
+import com.delivery.events.EventBus;
+import com.delivery.events.RouteAssigned;
+import com.delivery.jfr.OptimizerPhaseEvent;
 import com.delivery.models.*;
+import com.delivery.tracing.Tracer;
 import com.delivery.util.Result;
 import java.sql.Connection;
 import java.time.LocalDate;
@@ -22,25 +26,46 @@ public class RouteService {
      * Optimizes a route using nearest-neighbor algorithm
      */
     public OptimizedRoute optimizeRoute(RouteRequest request) throws Exception {
-        // 1. Geocode warehouse address
-        Location warehouse = geocodingService.geocode(request.getWarehouseAddress());
+        return Tracer.inSpan("service", "RouteService.optimizeRoute", () -> optimizeRouteTraced(request));
+    }
 
-        // 2. Geocode all delivery addresses
+    private OptimizedRoute optimizeRouteTraced(RouteRequest request) throws Exception {
+        // 1. Geocode warehouse address
+        Location warehouse;
         List<Location> deliveries = new ArrayList<>();
-        for (String address : request.getDeliveryAddresses()) {
-            try {
-                Location location = geocodingService.geocode(address);
-                deliveries.add(location);
-            } catch (Exception e) {
-                throw new Exception("Failed to geocode address: " + address + " - " + e.getMessage());
+        Tracer.Span geocodeSpan = Tracer.span("service", "RouteService.geocodeAddresses");
+        OptimizerPhaseEvent geocodePhase = OptimizerPhaseEvent.start("geocode", request.getDeliveryAddresses().size());
+        try {
+            warehouse = geocodingService.geocode(request.getWarehouseAddress());
+
+            // 2. Geocode all delivery addresses
+            for (String address : request.getDeliveryAddresses()) {
+                try {
+                    Location location = geocodingService.geocode(address);
+                    deliveries.add(location);
+                } catch (Exception e) {
+                    throw new Exception("Failed to geocode address: " + address + " - " + e.getMessage());
+                }
             }
+        } finally {
+            geocodePhase.finish();
+            geocodeSpan.close();
         }
 
         // 3. Run optimization algorithm
-        List<Location> optimizedRoute = nearestNeighborOptimization(warehouse, deliveries);
-
-        // 4. Calculate total distance and duration
-        double totalDistance = calculateTotalDistance(optimizedRoute, warehouse);
+        List<Location> optimizedRoute;
+        double totalDistance;
+        Tracer.Span optimizeSpan = Tracer.span("service", "RouteService.nearestNeighborOptimization");
+        OptimizerPhaseEvent optimizePhase = OptimizerPhaseEvent.start("optimize", deliveries.size());
+        try {
+            optimizedRoute = nearestNeighborOptimization(warehouse, deliveries);
+
+            // 4. Calculate total distance and duration
+            totalDistance = calculateTotalDistance(optimizedRoute, warehouse);
+        } finally {
+            optimizePhase.finish();
+            optimizeSpan.close();
+        }
         int estimatedDuration = (int) Math.round((totalDistance / 40.0) * 60); // 40 km/h avg speed
 
         // 5. Save to database if driverId + facilityId provided
@@ -64,20 +89,30 @@ public class RouteService {
                 String routeDate = request.getRouteDate() != null ?
                         request.getRouteDate() : LocalDate.now().toString();
 
-                Result<Long, String> result = RouteDAO.saveOptimizedRoute(
-                        conn,
-                        request.getDriverId(),
-                        warehouse.getAddress(),
-                        routeJson.toString(),
-                        totalDistance,
-                        estimatedDuration,
-                        request.getFacilityId(),
-                        routeDate
-                );
+                Result<Long, String> result;
+                Tracer.Span saveSpan = Tracer.span("dao", "RouteDAO.saveOptimizedRoute");
+                OptimizerPhaseEvent savePhase = OptimizerPhaseEvent.start("save", optimizedRoute.size() - 1);
+                try {
+                    result = RouteDAO.saveOptimizedRoute(
+                            conn,
+                            request.getDriverId(),
+                            warehouse.getAddress(),
+                            routeJson.toString(),
+                            totalDistance,
+                            estimatedDuration,
+                            request.getFacilityId(),
+                            routeDate
+                    );
+                } finally {
+                    savePhase.finish();
+                    saveSpan.close();
+                }
 
                 if (result.isErr()) {
                     throw new Exception("Failed to save route: " + result.unwrapErr());
                 }
+                EventBus.publish(new RouteAssigned(result.unwrap(), request.getDriverId(),
+                        request.getFacilityId(), List.of(), "optimized"));
             }
         }
 
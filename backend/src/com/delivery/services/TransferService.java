@@ -4,6 +4,7 @@ import com.delivery.dao.TransferDAO;
 import com.delivery.security.SecurityManager.BLPAccessControl;
 import com.delivery.security.SecurityManager.SecurityLevel;
 import com.delivery.security.SecurityManager.AuditLogger;
+import com.delivery.tracing.Tracer;
 import com.delivery.util.Result;
 
 import java.util.List;
@@ -32,6 +33,15 @@ public class TransferService {
                                                         long toFacilityId, long userId,
                                                         String username, SecurityLevel userClearance,
                                                         String clientIp) {
+        return Tracer.inSpan("service", "TransferService.initiateTransfer",
+                             () -> initiateTransferImpl(packageId, fromFacilityId, toFacilityId, userId,
+                                                        username, userClearance, clientIp));
+    }
+
+    private static Result<Long, String> initiateTransferImpl(long packageId, long fromFacilityId,
+                                                             long toFacilityId, long userId,
+                                                             String username, SecurityLevel userClearance,
+                                                             String clientIp) {
         // BLP Access Control: Transfers require SECRET clearance (managers)
         if (!BLPAccessControl.checkWriteAccess(userClearance, SecurityLevel.SECRET)) {
             AuditLogger.log(userId, username, "TRANSFER_INITIATE_DENIED",
@@ -84,6 +94,13 @@ public class TransferService {
     public static Result<String, String> completeTransfer(long transferId, long userId,
                                                           String username, SecurityLevel userClearance,
                                                           String clientIp) {
+        return Tracer.inSpan("service", "TransferService.completeTransfer",
+                             () -> completeTransferImpl(transferId, userId, username, userClearance, clientIp));
+    }
+
+    private static Result<String, String> completeTransferImpl(long transferId, long userId,
+                                                               String username, SecurityLevel userClearance,
+                                                               String clientIp) {
         // BLP Access Control: Transfers require SECRET clearance (managers)
         if (!BLPAccessControl.checkWriteAccess(userClearance, SecurityLevel.SECRET)) {
             AuditLogger.log(userId, username, "TRANSFER_COMPLETE_DENIED",
@@ -126,6 +143,14 @@ public class TransferService {
                                                                                  String username,
                                                                                  SecurityLevel userClearance,
                                                                                  String clientIp) {
+        return Tracer.inSpan("service", "TransferService.getPendingTransfers",
+                             () -> getPendingTransfersImpl(userId, username, userClearance, clientIp));
+    }
+
+    private static Result<List<Map<String, Object>>, String> getPendingTransfersImpl(long userId,
+                                                                                      String username,
+                                                                                      SecurityLevel userClearance,
+                                                                                      String clientIp) {
         // BLP Access Control: Viewing transfers requires SECRET clearance
         if (!BLPAccessControl.checkReadAccess(userClearance, SecurityLevel.SECRET)) {
             AuditLogger.log(userId, username, "VIEW_TRANSFERS_DENIED",
@@ -161,6 +186,16 @@ public class TransferService {
                                                                              String username,
                                                                              SecurityLevel userClearance,
                                                                              String clientIp) {
+        return Tracer.inSpan("service", "TransferService.getTransferByTracking",
+                             () -> getTransferByTrackingImpl(trackingNumber, userId, username,
+                                                             userClearance, clientIp));
+    }
+
+    private static Result<Map<String, Object>, String> getTransferByTrackingImpl(String trackingNumber,
+                                                                                  long userId,
+                                                                                  String username,
+                                                                                  SecurityLevel userClearance,
+                                                                                  String clientIp) {
         // BLP Access Control: Requires at least CONFIDENTIAL clearance
         if (!BLPAccessControl.checkReadAccess(userClearance, SecurityLevel.CONFIDENTIAL)) {
             AuditLogger.log(userId, username, "TRANSFER_LOOKUP_DENIED",
@@ -1,5 +1,7 @@
 package com.delivery.session;
 
+import com.delivery.events.EventBus;
+import com.delivery.events.UserRoleChanged;
 import com.delivery.security.SecurityManager;
 import com.delivery.util.Result;
 
@@ -65,4 +67,16 @@ public class SessionManager {
     public static void invalidate(String token) {
         sessions.remove(token);
     }
+
+    // End every session of a user, e.g. after their role changed (sessions carry the old role)
+    public static void invalidateUser(String username) {
+        sessions.values().removeIf(s -> s.username.equals(username));
+    }
+
+    // Inline so the old role stops working before the role change request returns
+    public static void subscribeToEvents() {
+        EventBus.inlineSubscriber("sessions")
+            .on(UserRoleChanged.class, e -> invalidateUser(e.username))
+            .start();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,287 @@
+package com.delivery.tracing;
+
+import com.delivery.util.EnvLoader;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process request tracing.
+ *
+ * TracingFilter starts a Trace for every request and gives it a request ID; the ID is always
+ * available through currentRequestId() (audit entries carry it). Only a sampled fraction of
+ * requests record spans: for the rest span() returns a shared no-op, so instrumented code
+ * costs one ThreadLocal read. Finished sampled traces go into a ring of recent traces, and
+ * those slower than TRACE_SLOW_MS also into a separate ring served at /admin/traces.
+ *
+ * A trace belongs to the thread handling the request; work handed to another thread
+ * (the password pool, async HTTP callbacks) is not traced.
+ */
+public class Tracer {
+    private static final int SAMPLE_PERCENT = Math.max(0, Math.min(100, EnvLoader.getInt("TRACE_SAMPLE_PERCENT", 10)));
+    private static final long SLOW_TRACE_NANOS = EnvLoader.getInt("TRACE_SLOW_MS", 1000) * 1_000_000L;
+    private static final int RECENT_SIZE = Math.max(1, EnvLoader.getInt("TRACE_BUFFER_SIZE", 200));
+    private static final int SLOW_SIZE = 50;
+    // Per-trace cap so a request that loops over thousands of statements cannot grow without bound
+    private static final int MAX_SPANS = 512;
+
+    private static final ThreadLocal<Trace> current = new ThreadLocal<>();
+    private static final Deque<Trace> recent = new ArrayDeque<>();
+    private static final Deque<Trace> slow = new ArrayDeque<>();
+
+    /**
+     * One request: its ID, and when sampled, a flat list of spans linked by parent index.
+     * Written only by the thread handling the request; published to readers once finished.
+     */
+    public static class Trace {
+        public final String requestId;
+        public final String name;
+        public final long startMillis;
+        public final boolean sampled;
+        final long startNanos;
+        long durationNanos = -1;
+        int status;
+
+        // Span i: names[i], kinds[i], parent index (-1 = root), start offset and duration in nanos
+        String[] names;
+        String[] kinds;
+        int[] parents;
+        long[] starts;
+        long[] durations;
+        int spanCount = 0;
+        int droppedSpans = 0;
+        int openSpan = -1;
+
+        Trace(String requestId, String name, boolean sampled) {
+            this.requestId = requestId;
+            this.name = name;
+            this.sampled = sampled;
+            this.startMillis = System.currentTimeMillis();
+            this.startNanos = System.nanoTime();
+            if (sampled) {
+                names = new String[16];
+                kinds = new String[16];
+                parents = new int[16];
+                starts = new long[16];
+                durations = new long[16];
+            }
+        }
+
+        Span open(String kind, String spanName) {
+            if (spanCount == MAX_SPANS) {
+                droppedSpans++;
+                return Span.NOOP;
+            }
+            if (spanCount == names.length) {
+                int size = Math.min(MAX_SPANS, names.length * 2);
+                names = Arrays.copyOf(names, size);
+                kinds = Arrays.copyOf(kinds, size);
+                parents = Arrays.copyOf(parents, size);
+                starts = Arrays.copyOf(starts, size);
+                durations = Arrays.copyOf(durations, size);
+            }
+            int i = spanCount++;
+            names[i] = spanName;
+            kinds[i] = kind;
+            parents[i] = openSpan;
+            starts[i] = System.nanoTime() - startNanos;
+            durations[i] = -1;
+            openSpan = i;
+            return new Span(this, i);
+        }
+
+        void close(int i) {
+            if (durations[i] >= 0) return;
+            durations[i] = System.nanoTime() - startNanos - starts[i];
+            openSpan = parents[i];
+        }
+
+        void finish(int status) {
+            long now = System.nanoTime() - startNanos;
+            durationNanos = now;
+            this.status = status;
+            // Spans left open by an exception end with the request
+            for (int i = 0; i < spanCount; i++) {
+                if (durations[i] < 0) durations[i] = now - starts[i];
+            }
+        }
+
+        public long getDurationMicros() { return durationNanos / 1000; }
+        public int getStatus() { return status; }
+        public int getSpanCount() { return spanCount; }
+        public int getDroppedSpans() { return droppedSpans; }
+        public String getSpanName(int i) { return names[i]; }
+        public String getSpanKind(int i) { return kinds[i]; }
+        public int getSpanParent(int i) { return parents[i]; }
+        public long getSpanStartMicros(int i) { return starts[i] / 1000; }
+        public long getSpanDurationMicros(int i) { return durations[i] / 1000; }
+
+        /**
+         * Time spent in a span minus time spent in its direct children.
+         */
+        public long getSpanSelfMicros(int i) {
+            long self = durations[i];
+            for (int j = i + 1; j < spanCount; j++) {
+                if (parents[j] == i) self -= durations[j];
+            }
+            return Math.max(0, self / 1000);
+        }
+
+        /**
+         * Request time not covered by any top-level span (routing, parsing, writing the response).
+         */
+        public long getUntracedMicros() {
+            long covered = 0;
+            for (int i = 0; i < spanCount; i++) {
+                if (parents[i] == -1) covered += durations[i];
+            }
+            return Math.max(0, (durationNanos - covered) / 1000);
+        }
+    }
+
+    /**
+     * Handle for an open span; close it in a finally block around the work it times, or let
+     * inSpan() do that.
+     */
+    public static class Span implements AutoCloseable {
+        static final Span NOOP = new Span(null, -1);
+
+        private final Trace trace;
+        private final int index;
+
+        Span(Trace trace, int index) {
+            this.trace = trace;
+            this.index = index;
+        }
+
+        @Override
+        public void close() {
+            if (trace != null) trace.close(index);
+        }
+    }
+
+    /**
+     * Open a span under whatever span is currently open on this thread.
+     * @param kind Layer, e.g. "service", "http", "jdbc"
+     * @param name What is being timed, e.g. "RouteService.optimizeRoute"
+     */
+    public static Span span(String kind, String name) {
+        Trace t = current.get();
+        if (t == null || !t.sampled) return Span.NOOP;
+        return t.open(kind, name);
+    }
+
+    /**
+     * Run body inside a span that is closed however body ends, so a traced method hands its
+     * body over as a lambda instead of wrapping it in try/finally (like DaoCalls.timed).
+     * @return Whatever body returns
+     */
+    public static <T, E extends Exception> T inSpan(String kind, String name, Body<T, E> body) throws E {
+        Span span = span(kind, name);
+        try {
+            return body.run();
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * Work timed by inSpan(); may throw whatever the traced code throws.
+     */
+    @FunctionalInterface
+    public interface Body<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Request ID of the trace running on this thread, or null outside a request.
+     */
+    public static String currentRequestId() {
+        Trace t = current.get();
+        return t == null ? null : t.requestId;
+    }
+
+    /**
+     * Start a trace on the current thread. Called by TracingFilter.
+     * @param forceSample Record spans regardless of TRACE_SAMPLE_PERCENT
+     */
+    public static Trace begin(String requestId, String name, boolean forceSample) {
+        boolean sampled = forceSample || (SAMPLE_PERCENT > 0
+            && ThreadLocalRandom.current().nextInt(100) < SAMPLE_PERCENT);
+        Trace t = new Trace(requestId, name, sampled);
+        current.set(t);
+        return t;
+    }
+
+    /**
+     * Finish the current thread's trace and keep it if it was sampled.
+     */
+    public static void end(Trace t, int status) {
+        current.remove();
+        if (!t.sampled) return;
+        t.finish(status);
+        synchronized (recent) {
+            if (recent.size() >= RECENT_SIZE) recent.removeFirst();
+            recent.addLast(t);
+        }
+        if (t.durationNanos >= SLOW_TRACE_NANOS) {
+            synchronized (slow) {
+                if (slow.size() >= SLOW_SIZE) slow.removeFirst();
+                slow.addLast(t);
+            }
+        }
+    }
+
+    /**
+     * Random 16-hex-digit request ID.
+     */
+    public static String newRequestId() {
+        String hex = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    /**
+     * Recently finished sampled traces, newest first.
+     */
+    public static List<Trace> recentTraces() {
+        return snapshot(recent);
+    }
+
+    /**
+     * Sampled traces slower than TRACE_SLOW_MS, newest first.
+     */
+    public static List<Trace> slowTraces() {
+        return snapshot(slow);
+    }
+
+    /**
+     * Look up a kept trace by request ID, or null if it was not sampled or has been evicted.
+     */
+    public static Trace find(String requestId) {
+        for (Trace t : slowTraces()) if (t.requestId.equals(requestId)) return t;
+        for (Trace t : recentTraces()) if (t.requestId.equals(requestId)) return t;
+        return null;
+    }
+
+    public static long getSlowTraceThresholdMillis() {
+        return SLOW_TRACE_NANOS / 1_000_000;
+    }
+
+    public static int getSamplePercent() {
+        return SAMPLE_PERCENT;
+    }
+
+    private static List<Trace> snapshot(Deque<Trace> ring) {
+        List<Trace> out;
+        synchronized (ring) {
+            out = new ArrayList<>(ring);
+        }
+        Collections.reverse(out);
+        return out;
+    }
+}
@@ -0,0 +1,89 @@
+package com.delivery.tracing;
+
+import com.delivery.session.SessionManager;
+import com.delivery.util.Result;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+
+/**
+ * HttpServer filter that assigns the request ID, echoes it in X-Request-Id and runs the
+ * handler inside a trace. A well-formed incoming X-Request-Id (from a proxy or the frontend)
+ * is reused; "X-Trace-Sample: 1" forces the request to be sampled, but only from localhost or
+ * an admin session, so clients cannot get around TRACE_SAMPLE_PERCENT.
+ */
+public class TracingFilter extends Filter {
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+    private final String context;
+
+    public TracingFilter(String context) {
+        this.context = context;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String requestId = exchange.getRequestHeaders().getFirst("X-Request-Id");
+        if (!isValidRequestId(requestId)) requestId = Tracer.newRequestId();
+        exchange.getResponseHeaders().set("X-Request-Id", requestId);
+
+        boolean force = "1".equals(exchange.getRequestHeaders().getFirst("X-Trace-Sample"))
+            && mayForceSample(exchange);
+        Tracer.Trace trace = Tracer.begin(requestId,
+            exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath(), force);
+        boolean failed = true;
+        Tracer.Span span = Tracer.span("handler", context);
+        try {
+            chain.doFilter(exchange);
+            failed = false;
+        } finally {
+            span.close();
+            int status = exchange.getResponseCode();
+            if (failed && status < 0) status = 500;
+            Tracer.end(trace, status);
+        }
+    }
+
+    private static boolean mayForceSample(HttpExchange exchange) {
+        if (exchange.getRemoteAddress().getAddress().isLoopbackAddress()) return true;
+
+        String token = null;
+        String auth = exchange.getRequestHeaders().getFirst("Authorization");
+        if (auth != null && auth.startsWith("Bearer ")) {
+            token = auth.substring(7);
+        } else {
+            String cookies = exchange.getRequestHeaders().getFirst("Cookie");
+            if (cookies != null) {
+                for (String c : cookies.split(";")) {
+                    c = c.trim();
+                    if (c.startsWith("SESSION=")) {
+                        token = c.substring("SESSION=".length());
+                        break;
+                    }
+                }
+            }
+        }
+        if (token == null) return false;
+
+        Result<SessionManager.Session, String> session = SessionManager.getSession(token);
+        return session.isOk() && "admin".equals(session.unwrap().role);
+    }
+
+    // IDs end up in logs and audit rows, so only short [A-Za-z0-9._-] values are accepted
+    private static boolean isValidRequestId(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_REQUEST_ID_LENGTH) return false;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.';
+            if (!ok) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String description() {
+        return "Request tracing for " + context;
+    }
+}
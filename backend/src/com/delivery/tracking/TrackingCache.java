@@ -0,0 +1,349 @@
+package com.delivery.tracking;
+
+import com.delivery.database.DatabaseConnection;
+import com.delivery.events.EventBus;
+import com.delivery.events.PackageCreated;
+import com.delivery.events.PackageDetailsChanged;
+import com.delivery.events.PackageStatusChanged;
+import com.delivery.events.TransferCompleted;
+import com.delivery.metrics.Metrics;
+import com.delivery.util.EnvLoader;
+import com.delivery.util.Result;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of public tracking responses (GET /api/trackPackages), keyed by tracking number.
+ *
+ * - Responses are kept serialized, so a hit is a map lookup and a write.
+ * - Concurrent misses for the same number share one load (single flight).
+ * - "Not found" is cached too, for a shorter time (TRACKING_CACHE_NEGATIVE_TTL_SECONDS).
+ * - A Bloom filter over every tracking number limits the queries unknown numbers (typos,
+ *   enumeration) can cause. It is built from the database in the background at startup and
+ *   every TRACKING_BLOOM_REBUILD_SECONDS, and this server's new packages are added as they are
+ *   created. A number the filter has not seen is still looked up, since it may have been created
+ *   by another server or inserted directly; only once TRACKING_BLOOM_MISS_LOOKUPS_PER_SECOND
+ *   such lookups have been made in the current second is it answered "not found" from the
+ *   filter alone. Numbers found that way are added to the filter.
+ *
+ * Entries are dropped from committed EventBus events: status changes, package and address edits
+ * and completed transfers by package id, and "not found" entries when a package is created.
+ * TRACKING_CACHE_TTL_SECONDS (default 60, 0 disables caching) bounds staleness from writes
+ * made outside the server, and TRACKING_CACHE_NEGATIVE_TTL_SECONDS how long a package created
+ * elsewhere can still be reported "not found" (unless filter lookups are over their limit).
+ */
+public class TrackingCache {
+    private static final long TTL_NANOS =
+        TimeUnit.SECONDS.toNanos(Math.max(0, EnvLoader.getInt("TRACKING_CACHE_TTL_SECONDS", 60)));
+    private static final long NEGATIVE_TTL_NANOS =
+        TimeUnit.SECONDS.toNanos(Math.max(0, EnvLoader.getInt("TRACKING_CACHE_NEGATIVE_TTL_SECONDS", 30)));
+    private static final int MAX_ENTRIES = Math.max(100, EnvLoader.getInt("TRACKING_CACHE_MAX_ENTRIES", 50000));
+    private static final int BLOOM_REBUILD_SECONDS = EnvLoader.getInt("TRACKING_BLOOM_REBUILD_SECONDS", 3600);
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+    private static final int MISS_LOOKUPS_PER_SECOND =
+        Math.max(0, EnvLoader.getInt("TRACKING_BLOOM_MISS_LOOKUPS_PER_SECOND", 20));
+    // A load that finishes later than this after a change to its package is not cached
+    private static final long CHANGE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * One serialized tracking response, or "not found".
+     */
+    public static final class View {
+        private static final View NOT_FOUND = new View(-1, null);
+
+        private final long packageId;
+        private final byte[] json;
+        private final long loadedAt;
+
+        private View(long packageId, byte[] json) {
+            this.packageId = packageId;
+            this.json = json;
+            this.loadedAt = System.nanoTime();
+        }
+
+        public static View found(long packageId, byte[] json) {
+            return new View(packageId, json);
+        }
+
+        public static View notFound() {
+            return NOT_FOUND;
+        }
+
+        public boolean isFound() { return json != null; }
+        public long getPackageId() { return packageId; }
+
+        // Shared array; callers write it out and must not modify it
+        public byte[] getJson() { return json; }
+    }
+
+    /**
+     * Reads a tracking response from the database; null or View.notFound() when there is no
+     * such package.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        View load(String trackingNumber) throws SQLException;
+    }
+
+    // Tracking number -> cached response
+    private static final Map<String, View> entries = new ConcurrentHashMap<>();
+    // Tracking number -> load in progress
+    private static final Map<String, CompletableFuture<View>> inFlight = new ConcurrentHashMap<>();
+    // Package id -> tracking number, for invalidating by package id
+    private static final Map<Long, String> trackingNumbers = new ConcurrentHashMap<>();
+    // Package id or tracking number -> System.nanoTime() of its last change, for loads in progress
+    private static final Map<Object, Long> changedAt = new ConcurrentHashMap<>();
+    private static final AtomicBoolean evicting = new AtomicBoolean();
+    // Database lookups of numbers the filter has not seen, in the current second
+    private static final AtomicLong missLookupSecond = new AtomicLong();
+    private static final AtomicInteger missLookups = new AtomicInteger();
+
+    private static volatile BloomFilter bloom;
+    // Filter being built; new tracking numbers go into both
+    private static volatile BloomFilter building;
+    private static ScheduledExecutorService bloomBuilder;
+
+    private static final Metrics.CacheStats stats = Metrics.cache("tracking", entries::size);
+
+    /**
+     * Tracking response for a number, from the cache or from the loader.
+     */
+    public static View get(String trackingNumber, Loader loader) throws SQLException {
+        BloomFilter filter = bloom;
+        boolean unknown = filter != null && !filter.mightContain(trackingNumber);
+
+        View cached = entries.get(trackingNumber);
+        if (cached != null) {
+            if (!expired(cached, System.nanoTime())) {
+                if (cached.isFound()) stats.hits.increment();
+                else stats.negativeHits.increment();
+                return cached;
+            }
+            entries.remove(trackingNumber, cached);
+        }
+
+        if (unknown && !allowMissLookup()) {
+            stats.bloomRejected.increment();
+            return View.notFound();
+        }
+
+        CompletableFuture<View> mine = new CompletableFuture<>();
+        CompletableFuture<View> running = inFlight.putIfAbsent(trackingNumber, mine);
+        if (running != null) {
+            stats.coalesced.increment();
+            return await(running);
+        }
+
+        stats.misses.increment();
+        long start = System.nanoTime();
+        try {
+            View view = loader.load(trackingNumber);
+            if (view == null) view = View.notFound();
+            if (view.isFound()) {
+                trackingNumbers.put(view.packageId, trackingNumber);
+                // Created by another server or outside the application
+                if (unknown) addToFilter(trackingNumber);
+            }
+            if (TTL_NANOS > 0 && !changedSince(view, trackingNumber, start)) {
+                entries.put(trackingNumber, view);
+                if (entries.size() > MAX_ENTRIES || trackingNumbers.size() > MAX_ENTRIES * 2) evict();
+            }
+            mine.complete(view);
+            return view;
+        } catch (SQLException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(trackingNumber, mine);
+        }
+    }
+
+    /**
+     * Drop the cached response for a package; call after committing a change to what it shows.
+     */
+    public static void invalidatePackage(long packageId) {
+        changedAt.put(packageId, System.nanoTime());
+        String trackingNumber = trackingNumbers.get(packageId);
+        if (trackingNumber != null) {
+            entries.remove(trackingNumber);
+            // Later requests start a fresh load instead of joining one that may predate the change
+            inFlight.remove(trackingNumber);
+        }
+        pruneChanges();
+    }
+
+    /**
+     * A package was created: its number must stop being "not found".
+     */
+    public static void packageCreated(long packageId, String trackingNumber) {
+        addToFilter(trackingNumber);
+        trackingNumbers.put(packageId, trackingNumber);
+        changedAt.put(trackingNumber, System.nanoTime());
+        entries.remove(trackingNumber);
+        inFlight.remove(trackingNumber);
+        pruneChanges();
+    }
+
+    /**
+     * Subscribe to domain events and start building the Bloom filter.
+     */
+    public static synchronized void start() {
+        if (bloomBuilder != null) return;
+
+        // Inline, so a customer refreshing right after a status update sees it
+        EventBus.inlineSubscriber("tracking-cache")
+            .on(PackageStatusChanged.class, e -> invalidatePackage(e.packageId))
+            .on(PackageDetailsChanged.class, e -> invalidatePackage(e.packageId))
+            .on(TransferCompleted.class, e -> invalidatePackage(e.packageId))
+            .on(PackageCreated.class, e -> packageCreated(e.packageId, e.trackingNumber))
+            .start();
+
+        bloomBuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tracking-bloom");
+            t.setDaemon(true);
+            return t;
+        });
+        Runnable task = () -> {
+            Result<Long, String> result = rebuildBloomFilter();
+            if (result.isErr()) {
+                System.err.println("Tracking number filter build failed: " + result.unwrapErr());
+            }
+        };
+        if (BLOOM_REBUILD_SECONDS > 0) {
+            bloomBuilder.scheduleWithFixedDelay(task, 0, BLOOM_REBUILD_SECONDS, TimeUnit.SECONDS);
+        } else {
+            bloomBuilder.execute(task);
+        }
+    }
+
+    /**
+     * Build a new filter from every tracking number in the database and swap it in.
+     * @return Result with the number of tracking numbers read or error message
+     */
+    public static Result<Long, String> rebuildBloomFilter() {
+        Result<Connection, String> connResult = DatabaseConnection.getConnection();
+        if (connResult.isErr()) {
+            return Result.err("Database connection failed: " + connResult.unwrapErr());
+        }
+
+        try (Connection conn = connResult.unwrap()) {
+            long total;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM packages");
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                total = rs.getLong(1);
+            }
+
+            // Room to double before the false positive rate climbs past the target
+            BloomFilter next = new BloomFilter(Math.max(100_000, total * 2), BLOOM_FALSE_POSITIVE_RATE);
+            building = next;
+
+            long count = 0;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT tracking_number FROM packages",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Stream the rows rather than buffering every tracking number
+                stmt.setFetchSize(Integer.MIN_VALUE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        next.add(rs.getString(1));
+                        count++;
+                    }
+                }
+            }
+
+            // Publish before clearing building: packageCreated() reads building first
+            bloom = next;
+            building = null;
+            return Result.ok(count);
+
+        } catch (SQLException e) {
+            building = null;
+            return Result.err("Database error while reading tracking numbers: " + e.getMessage());
+        }
+    }
+
+    private static void addToFilter(String trackingNumber) {
+        BloomFilter next = building;
+        if (next != null) next.add(trackingNumber);
+        BloomFilter current = bloom;
+        if (current != null) current.add(trackingNumber);
+    }
+
+    // Whether a number the filter has not seen may still go to the database this second
+    private static boolean allowMissLookup() {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long current = missLookupSecond.get();
+        if (current != second && missLookupSecond.compareAndSet(current, second)) {
+            missLookups.set(0);
+        }
+        return missLookups.incrementAndGet() <= MISS_LOOKUPS_PER_SECOND;
+    }
+
+    private static boolean expired(View view, long now) {
+        long ttl = view.isFound() ? TTL_NANOS : Math.min(TTL_NANOS, NEGATIVE_TTL_NANOS);
+        return now - view.loadedAt > ttl;
+    }
+
+    // Whether the package (or, for "not found", the number) changed after the load began
+    private static boolean changedSince(View view, String trackingNumber, long start) {
+        Long changed = view.isFound() ? changedAt.get(view.packageId) : changedAt.get(trackingNumber);
+        if (changed != null && changed - start >= 0) return true;
+        // Too slow to be sure a change in the meantime is still remembered
+        return System.nanoTime() - start > CHANGE_WINDOW_NANOS;
+    }
+
+    private static void pruneChanges() {
+        if (changedAt.size() < 10_000) return;
+        long now = System.nanoTime();
+        changedAt.values().removeIf(t -> now - t > CHANGE_WINDOW_NANOS);
+    }
+
+    // Drop expired entries, then arbitrary ones, until back under 90% of the limit
+    private static void evict() {
+        if (!evicting.compareAndSet(false, true)) return;
+        try {
+            long now = System.nanoTime();
+            entries.values().removeIf(v -> expired(v, now));
+            int target = MAX_ENTRIES * 9 / 10;
+            Iterator<View> it = entries.values().iterator();
+            while (entries.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+            // The package id map only serves invalidation; it needs no entry a response is not cached for
+            if (trackingNumbers.size() > MAX_ENTRIES * 2) {
+                trackingNumbers.entrySet().removeIf(e -> !entries.containsKey(e.getValue()));
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static View await(CompletableFuture<View> running) throws SQLException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for tracking lookup");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new SQLException(cause);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.delivery.tracking;
+
+import com.delivery.util.EnvLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates tracking numbers without asking the database: "PKG", 19 digits, one check digit,
+ * e.g. PKG00012345678901234567.
+ *
+ * The 19 digits are a 63-bit id built from milliseconds since 2024-01-01 (41 bits), this node's
+ * TRACKING_NODE_ID (10 bits, 0-1023) and a per-millisecond sequence (12 bits). Nodes with
+ * different ids never produce the same number; each node's numbers only ever increase. The time
+ * and sequence live in one AtomicLong advanced by compare-and-set, so there is no lock: a burst
+ * past 4096 numbers in a millisecond borrows from the next millisecond, and a clock that steps
+ * back is ignored until it catches up.
+ *
+ * The check digit is Luhn over the 19 digits, so a mistyped digit or two swapped neighbours are
+ * caught before a lookup (see isWellFormed).
+ */
+public class TrackingNumberGenerator {
+    public static final String PREFIX = "PKG";
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // 2024-01-01T00:00:00Z
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    private static final int DIGITS = 19;
+
+    private static final long NODE_ID = nodeId();
+
+    // (milliseconds since EPOCH_MILLIS << SEQUENCE_BITS) | sequence of the last number handed out
+    private static final AtomicLong last = new AtomicLong();
+
+    /**
+     * Next tracking number for this node.
+     */
+    public static String next() {
+        long now = nowTicks();
+        return format(last.accumulateAndGet(now, (prev, time) -> Math.max(prev + 1, time)));
+    }
+
+    /**
+     * Reserve a block of consecutive numbers in one step, for bulk creation.
+     * @param count Numbers wanted; must be positive
+     * @return The numbers, in increasing order
+     */
+    public static List<String> reserve(int count) {
+        if (count <= 0) throw new IllegalArgumentException("count must be positive");
+        long now = nowTicks();
+        long end = last.accumulateAndGet(now, (prev, time) -> Math.max(prev + count, time + count - 1));
+        List<String> numbers = new ArrayList<>(count);
+        for (long ticks = end - count + 1; ticks <= end; ticks++) {
+            numbers.add(format(ticks));
+        }
+        return numbers;
+    }
+
+    /**
+     * Whether a number has this generator's shape ("PKG" and 20 digits).
+     */
+    public static boolean isGenerated(String trackingNumber) {
+        if (trackingNumber == null || trackingNumber.length() != PREFIX.length() + DIGITS + 1
+                || !trackingNumber.startsWith(PREFIX)) {
+            return false;
+        }
+        for (int i = PREFIX.length(); i < trackingNumber.length(); i++) {
+            char c = trackingNumber.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    /**
+     * False only for a number shaped like a generated one whose check digit is wrong; numbers
+     * in other formats (e.g. created before this generator) are not judged.
+     */
+    public static boolean isWellFormed(String trackingNumber) {
+        if (!isGenerated(trackingNumber)) return true;
+        String digits = trackingNumber.substring(PREFIX.length(), trackingNumber.length() - 1);
+        return trackingNumber.charAt(trackingNumber.length() - 1) == checkDigit(digits);
+    }
+
+    public static long getNodeId() {
+        return NODE_ID;
+    }
+
+    private static long nowTicks() {
+        return (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+    }
+
+    private static String format(long ticks) {
+        long millis = ticks >>> SEQUENCE_BITS;
+        long id = (millis << (NODE_BITS + SEQUENCE_BITS)) | (NODE_ID << SEQUENCE_BITS) | (ticks & SEQUENCE_MASK);
+
+        char[] out = new char[PREFIX.length() + DIGITS + 1];
+        PREFIX.getChars(0, PREFIX.length(), out, 0);
+        for (int i = PREFIX.length() + DIGITS - 1; i >= PREFIX.length(); i--) {
+            out[i] = (char) ('0' + id % 10);
+            id /= 10;
+        }
+        out[out.length - 1] = checkDigit(out, PREFIX.length(), DIGITS);
+        return new String(out);
+    }
+
+    private static char checkDigit(String digits) {
+        return checkDigit(digits.toCharArray(), 0, digits.length());
+    }
+
+    // Luhn: double every second digit from the right (the check digit will be rightmost)
+    private static char checkDigit(char[] digits, int offset, int length) {
+        int sum = 0;
+        boolean dbl = true;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            int d = digits[i] - '0';
+            if (dbl) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            sum += d;
+            dbl = !dbl;
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+
+    private static long nodeId() {
+        int id = EnvLoader.getInt("TRACKING_NODE_ID", 0);
+        if (id < 0 || id > MAX_NODE_ID) {
+            throw new IllegalStateException("TRACKING_NODE_ID must be between 0 and " + MAX_NODE_ID + ", got " + id);
+        }
+        return id;
+    }
+}
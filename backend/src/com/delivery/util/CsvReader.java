@@ -0,0 +1,117 @@
+package com.delivery.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time from a Reader, so a large upload is never held in
+ * memory whole. Quoted fields may contain commas, doubled quotes and line breaks; records end
+ * in LF or CRLF. A leading byte order mark is skipped.
+ */
+public class CsvReader {
+    private final Reader in;
+    private final int maxRecordChars;
+    private final char[] buf = new char[64 * 1024];
+    private int pos = 0;
+    private int limit = 0;
+    private long lineNumber = 0;
+    private long recordLine = 0;
+    private boolean first = true;
+
+    /**
+     * @param in Source; not closed by this reader
+     * @param maxRecordChars Longest record accepted; longer ones fail with an IOException
+     */
+    public CsvReader(Reader in, int maxRecordChars) {
+        this.in = in;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /**
+     * Fields of the next record, or null at end of input. A blank line is an empty list.
+     * @throws IOException on a read error, an unterminated quote or an over-long record
+     */
+    public List<String> next() throws IOException {
+        if (pos >= limit && !fill()) return null;
+        if (first) {
+            first = false;
+            if (buf[pos] == '\uFEFF') pos++;
+        }
+
+        recordLine = ++lineNumber;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        int recordChars = 0;
+
+        while (true) {
+            if (pos >= limit && !fill()) {
+                if (quoted) throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                break;
+            }
+            char c = buf[pos++];
+            if (++recordChars > maxRecordChars) {
+                throw new IOException("Line " + recordLine + " is longer than " + maxRecordChars + " characters");
+            }
+
+            if (quoted) {
+                if (c == '"') {
+                    if (pos >= limit && !fill()) {
+                        quoted = false;
+                    } else if (buf[pos] == '"') {
+                        field.append('"');
+                        pos++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') lineNumber++;
+                    field.append(c);
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                if ((pos < limit || fill()) && buf[pos] == '\n') pos++;
+                break;
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (!fields.isEmpty() || field.length() > 0 || wasQuoted) {
+            fields.add(field.toString());
+        }
+        return fields;
+    }
+
+    /**
+     * Line the last record read by next() starts on (1-based)
+     */
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = in.read(buf, 0, buf.length);
+        } while (n == 0);
+        if (n < 0) {
+            pos = limit = 0;
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+}
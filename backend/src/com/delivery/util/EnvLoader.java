@@ -53,9 +53,14 @@ public class EnvLoader {
         }
     }
 
-    // Returns environment variable from .env or system env, or error if not found
+    // Returns environment variable from a -D system property, .env or system env, or error if not found.
+    // System properties win so tools that boot the server in-process (e.g. the load test) can
+    // point it at another database or port without editing .env.
     public static Result<String, String> get(String key) {
-        String v = env.get(key);
+        String v = System.getProperty(key);
+        if (v != null) return Result.ok(v);
+
+        v = env.get(key);
         if (v != null) return Result.ok(v);
 
         v = System.getenv(key);
@@ -66,4 +71,16 @@ public class EnvLoader {
         }
         return Result.err("Environment variable '" + key + "' not found");
     }
+
+    // Integer setting with a fallback when the variable is missing or not a number
+    public static int getInt(String key, int defaultValue) {
+        Result<String, String> r = get(key);
+        if (r.isErr()) return defaultValue;
+        try {
+            return Integer.parseInt(r.unwrap().trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ": " + r.unwrap() + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
 }
@@ -1,16 +1,64 @@
 package com.delivery.util;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.delivery.metrics.Metrics;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 
 /**
- * Password hashing utilities using SHA-256(password + salt)
- * IMPORTANT: Hash algorithm must match schema.sql test user generation
+ * Password hashing shared by login, registration and SecurityManager.PasswordManager.
+ *
+ * New hashes are PBKDF2-HMAC-SHA256 stored as "pbkdf2$<iterations>$<hex>" in password_hash,
+ * using the existing salt column. Hashes without that prefix are the legacy
+ * SHA-256(password + salt) hex digests (schema.sql test users); they still verify and are
+ * upgraded on the next successful login via needsRehash().
+ *
+ * Verification runs on a small dedicated pool, which bounds how many PBKDF2 computations run
+ * at once. The calling HTTP worker still waits for its own result, for up to
+ * PASSWORD_VERIFY_TIMEOUT_MS; what the pool prevents is a burst of logins all hashing on request
+ * threads at once: past the pool's threads and queue, callers are rejected immediately. A task
+ * that times out while still queued is dropped, but one already running finishes (PBKDF2 cannot
+ * be interrupted) and keeps its pool thread until then.
+ *
+ * Re-hashing after login (hashPasswordInBackground) is queued on the same pool and never waited on.
  */
 public class PasswordUtil {
     private static final SecureRandom random = new SecureRandom();
+    private static final String PBKDF2_PREFIX = "pbkdf2$";
+    private static final int PBKDF2_KEY_BITS = 256;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Tunable with PASSWORD_PBKDF2_ITERATIONS; see PasswordCostBench for picking a value per host
+    private static final int DEFAULT_ITERATIONS = 210_000;
+    private static volatile int iterations = Math.max(1, EnvLoader.getInt("PASSWORD_PBKDF2_ITERATIONS", DEFAULT_ITERATIONS));
+
+    // Verification pool: CPU bound, so at most one thread per core and a short queue
+    private static final int VERIFY_THREADS = Math.max(1, EnvLoader.getInt("PASSWORD_VERIFY_THREADS",
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+    private static final int VERIFY_QUEUE = Math.max(1, EnvLoader.getInt("PASSWORD_VERIFY_QUEUE", 16));
+    private static final long VERIFY_TIMEOUT_MS = EnvLoader.getInt("PASSWORD_VERIFY_TIMEOUT_MS", 5000);
+
+    // Error returned by the bounded variants when the pool is saturated
+    public static final String VERIFY_BUSY = "Password verification busy";
+
+    private static final ThreadPoolExecutor verifyPool = createVerifyPool();
 
     public static String generateSalt() {
         byte[] s = new byte[16];
@@ -18,11 +66,146 @@ public class PasswordUtil {
         return Base64.getEncoder().encodeToString(s);
     }
 
+    /**
+     * Hash a password for storage using PBKDF2 at the current cost.
+     * @param password Plain-text password
+     * @param salt Salt stored alongside the hash
+     * @return Encoded hash ("pbkdf2$iterations$hex") or error
+     */
     public static Result<String, String> hashPassword(String password, String salt) {
         if (password == null || salt == null) {
             return Result.err("Password and salt cannot be null");
         }
+        int cost = iterations;
+        Result<byte[], String> derived = pbkdf2(password, salt, cost);
+        if (derived.isErr()) return Result.err(derived.unwrapErr());
+        return Result.ok(PBKDF2_PREFIX + cost + "$" + bytesToHex(derived.unwrap()));
+    }
+
+    /**
+     * Verify a password against a stored hash in either the PBKDF2 or the legacy SHA-256 format.
+     * Runs on the calling thread; request handlers should use verifyPasswordBounded instead.
+     * @param password Plain-text password
+     * @param salt Salt from the users table
+     * @param storedHash Value of password_hash
+     * @return true when the password matches
+     */
+    public static Result<Boolean, String> verifyPassword(String password, String salt, String storedHash) {
+        if (password == null || salt == null || storedHash == null) {
+            return Result.err("Password, salt and hash cannot be null");
+        }
+
+        if (storedHash.startsWith(PBKDF2_PREFIX)) {
+            int sep = storedHash.indexOf('$', PBKDF2_PREFIX.length());
+            if (sep < 0) return Result.err("Malformed password hash");
+            int cost;
+            try {
+                cost = Integer.parseInt(storedHash.substring(PBKDF2_PREFIX.length(), sep));
+            } catch (NumberFormatException e) {
+                return Result.err("Malformed password hash");
+            }
+            if (cost <= 0) return Result.err("Malformed password hash");
+            Result<byte[], String> derived = pbkdf2(password, salt, cost);
+            if (derived.isErr()) return Result.err(derived.unwrapErr());
+            byte[] expected = storedHash.substring(sep + 1).toLowerCase().getBytes(StandardCharsets.US_ASCII);
+            byte[] actual = bytesToHex(derived.unwrap()).getBytes(StandardCharsets.US_ASCII);
+            return Result.ok(MessageDigest.isEqual(expected, actual));
+        }
+
+        Result<String, String> legacy = legacySha256(password, salt);
+        if (legacy.isErr()) return Result.err(legacy.unwrapErr());
+        byte[] expected = storedHash.toLowerCase().getBytes(StandardCharsets.US_ASCII);
+        return Result.ok(MessageDigest.isEqual(expected, legacy.unwrap().getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Same as verifyPassword but executed on the dedicated verification pool.
+     * Fails fast with VERIFY_BUSY when the pool queue is full, so callers can answer 503.
+     */
+    public static Result<Boolean, String> verifyPasswordBounded(String password, String salt, String storedHash) {
+        return runBounded(() -> verifyPassword(password, salt, storedHash));
+    }
+
+    /**
+     * Same as hashPassword but executed on the dedicated verification pool.
+     */
+    public static Result<String, String> hashPasswordBounded(String password, String salt) {
+        return runBounded(() -> hashPassword(password, salt));
+    }
+
+    /**
+     * Hash a password on the verification pool without waiting for it, for upgrades that must not
+     * slow the request down. onHashed runs on the pool thread with the new hash; failures are
+     * logged and dropped.
+     * @return false when the pool is saturated and nothing was queued
+     */
+    public static boolean hashPasswordInBackground(String password, String salt, Consumer<String> onHashed) {
+        try {
+            verifyPool.execute(() -> {
+                Result<String, String> hash = hashPassword(password, salt);
+                if (hash.isErr()) {
+                    System.err.println("Background password hash failed: " + hash.unwrapErr());
+                    return;
+                }
+                onHashed.accept(hash.unwrap());
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
 
+    private static <T> Result<T, String> runBounded(Callable<Result<T, String>> task) {
+        Future<Result<T, String>> future;
+        try {
+            future = verifyPool.submit(task);
+        } catch (RejectedExecutionException e) {
+            return Result.err(VERIFY_BUSY);
+        }
+        try {
+            return future.get(VERIFY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Drops the task if it is still queued; a running PBKDF2 ignores the interrupt
+            future.cancel(true);
+            return Result.err(VERIFY_BUSY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.err("Password hashing interrupted");
+        } catch (ExecutionException e) {
+            return Result.err("Password hashing failed: " + e.getCause());
+        }
+    }
+
+    /**
+     * Whether a stored hash should be replaced after a successful login:
+     * legacy SHA-256 hashes and PBKDF2 hashes below the current cost.
+     */
+    public static boolean needsRehash(String storedHash) {
+        if (storedHash == null || !storedHash.startsWith(PBKDF2_PREFIX)) return true;
+        int sep = storedHash.indexOf('$', PBKDF2_PREFIX.length());
+        if (sep < 0) return true;
+        try {
+            return Integer.parseInt(storedHash.substring(PBKDF2_PREFIX.length(), sep)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public static int getIterations() {
+        return iterations;
+    }
+
+    // Used by PasswordCostBench to measure candidate costs
+    public static void setIterations(int cost) {
+        if (cost <= 0) throw new IllegalArgumentException("PBKDF2 iterations must be positive");
+        iterations = cost;
+    }
+
+    /**
+     * Legacy SHA-256(password + salt) hex digest.
+     * IMPORTANT: must keep matching schema.sql test user generation
+     */
+    public static Result<String, String> legacySha256(String password, String salt) {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
             md.update(password.getBytes());
@@ -33,11 +216,36 @@ public class PasswordUtil {
         }
     }
 
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder(bytes.length * 2);
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
+    private static Result<byte[], String> pbkdf2(String password, String salt, int cost) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt.getBytes(StandardCharsets.UTF_8), cost, PBKDF2_KEY_BITS);
+        try {
+            SecretKeyFactory f = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+            return Result.ok(f.generateSecret(spec).getEncoded());
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            return Result.err("PBKDF2 not available: " + e.getMessage());
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    public static String bytesToHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            out[i * 2 + 1] = HEX[bytes[i] & 0x0f];
         }
-        return sb.toString();
+        return new String(out);
+    }
+
+    private static ThreadPoolExecutor createVerifyPool() {
+        AtomicInteger n = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(VERIFY_THREADS, VERIFY_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(VERIFY_QUEUE), r -> {
+                Thread t = new Thread(r, "password-verify-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        Metrics.registerPool("password-verify", pool);
+        return pool;
     }
 }
@@ -22,6 +22,8 @@ CREATE TABLE users (
     INDEX idx_email (email),
     INDEX idx_lockout (lockout_until),
     INDEX idx_account_status (account_status),
+    -- Active driver lists, already in username order
+    INDEX idx_role_status_username (role, account_status, username),
     CONSTRAINT chk_clearance_level CHECK (clearance_level BETWEEN 0 AND 3)
 ) ENGINE=InnoDB;
 
@@ -48,10 +50,13 @@ CREATE TABLE audit_log (
     ip_address VARCHAR(45) NULL,
     details TEXT NULL,
 
-    INDEX idx_timestamp (timestamp),
-    INDEX idx_username (username),
-    INDEX idx_action (action),
-    INDEX idx_result (result)
+    -- Keyset order of the admin log view, newest first (AdminController.handleGetLogs)
+    INDEX idx_timestamp_id (timestamp, audit_id),
+    -- Filtered log views: equality on the filter, then the same (timestamp, audit_id) order
+    -- (InnoDB appends audit_id to every secondary index)
+    INDEX idx_username (username, timestamp),
+    INDEX idx_action (action, timestamp),
+    INDEX idx_result (result, timestamp)
 ) ENGINE=InnoDB;
 
 -- MFA codes table for two-factor authentication
@@ -143,7 +148,8 @@ CREATE TABLE packages (
     INDEX idx_tracking_number (tracking_number),
     INDEX idx_order_id (order_id),
     INDEX idx_package_status (package_status),
-    INDEX idx_current_facility (current_facility_id)
+    -- Packages waiting at a facility (route generation)
+    INDEX idx_facility_status (current_facility_id, package_status)
 ) ENGINE=InnoDB;
 
 -- Payment information table
@@ -177,7 +183,7 @@ CREATE TABLE routes (
 
     FOREIGN KEY (facility_id) REFERENCES facilities(facility_id) ON DELETE RESTRICT,
     INDEX idx_route_date (route_date),
-    INDEX idx_facility_id (facility_id),
+    INDEX idx_facility_date (facility_id, route_date),
     INDEX idx_route_status (route_status)
 ) ENGINE=InnoDB;
 
@@ -194,7 +200,7 @@ CREATE TABLE route_assignments (
     FOREIGN KEY (route_id) REFERENCES routes(route_id) ON DELETE CASCADE,
     FOREIGN KEY (driver_id) REFERENCES users(user_id) ON DELETE RESTRICT,
     INDEX idx_route_id (route_id),
-    INDEX idx_driver_id (driver_id),
+    INDEX idx_driver_route (driver_id, route_id),
     UNIQUE KEY unique_route_driver (route_id, driver_id)
 ) ENGINE=InnoDB;
 
@@ -208,7 +214,8 @@ CREATE TABLE route_packages (
 
     FOREIGN KEY (route_id) REFERENCES routes(route_id) ON DELETE CASCADE,
     FOREIGN KEY (package_id) REFERENCES packages(package_id) ON DELETE CASCADE,
-    INDEX idx_route_id (route_id),
+    -- Stops of a route in delivery order
+    INDEX idx_route_stop (route_id, stop_sequence),
     INDEX idx_package_id (package_id),
     UNIQUE KEY unique_route_package (route_id, package_id)
 ) ENGINE=InnoDB;
@@ -222,10 +229,15 @@ CREATE TABLE delivery_status_history (
     updated_by BIGINT UNSIGNED NULL,
     notes TEXT NULL,
     timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- Device-generated id of an update synced from a driver's offline queue (NULL otherwise)
+    client_event_id VARCHAR(64) NULL,
 
     FOREIGN KEY (package_id) REFERENCES packages(package_id) ON DELETE CASCADE,
     FOREIGN KEY (updated_by) REFERENCES users(user_id) ON DELETE SET NULL,
-    INDEX idx_package_id (package_id),
+    -- A synced event is applied once per driver; also serves the duplicate check
+    UNIQUE KEY uk_driver_event (updated_by, client_event_id),
+    -- A package's history, newest first
+    INDEX idx_package_time (package_id, timestamp),
     INDEX idx_timestamp (timestamp)
 ) ENGINE=InnoDB;
 
@@ -245,7 +257,8 @@ CREATE TABLE package_transfers (
     FOREIGN KEY (from_facility_id) REFERENCES facilities(facility_id) ON DELETE RESTRICT,
     FOREIGN KEY (to_facility_id) REFERENCES facilities(facility_id) ON DELETE RESTRICT,
     FOREIGN KEY (initiated_by) REFERENCES users(user_id) ON DELETE RESTRICT,
-    INDEX idx_package_id (package_id),
+    -- A package's latest transfer
+    INDEX idx_package_initiated (package_id, initiated_at),
     INDEX idx_transfer_status (transfer_status),
     INDEX idx_from_facility (from_facility_id),
     INDEX idx_to_facility (to_facility_id)
@@ -262,9 +275,12 @@ CREATE TABLE inventory (
 
     FOREIGN KEY (facility_id) REFERENCES facilities(facility_id) ON DELETE CASCADE,
     FOREIGN KEY (package_id) REFERENCES packages(package_id) ON DELETE CASCADE,
-    INDEX idx_facility_id (facility_id),
+    INDEX idx_facility_arrival (facility_id, arrival_time),
+    -- Open records at a facility: newest-first drill-down and per-status totals (covering)
+    INDEX idx_facility_open (facility_id, departure_time, arrival_time, inventory_status),
     INDEX idx_package_id (package_id),
-    INDEX idx_inventory_status (inventory_status)
+    -- Keyset order of the all-facility listing (InventoryDAO.getAllInventory)
+    INDEX idx_inventory_listing (inventory_status, facility_id, arrival_time DESC, inventory_id DESC)
 ) ENGINE=InnoDB;
 
 -- Package returns tracking
@@ -159,6 +159,13 @@ function initializeDriverDashboard() {
 
     loadRoute();
     window.reloadRoute = loadRoute;
+
+    // Reload when the route changes on the server (assignment, re-optimization, another device)
+    if (window.EventSource) {
+        const routeStream = new EventSource('http://localhost:8081/api/events?driver=1',
+            { withCredentials: true });
+        routeStream.addEventListener('route_changed', () => loadRoute());
+    }
 }
 
 // Mark package as delivered
@@ -294,11 +294,44 @@ function initializeRouteAssignment() {
         }
     }
 
+    // Live updates for the selected facility: another manager's assignment, a status change or
+    // a transfer changes which packages can still be assigned
+    let facilityStream = null;
+    let reloadTimer = null;
+    function watchFacility(facilityId) {
+        if (!window.EventSource) return;
+        if (facilityStream) facilityStream.close();
+        facilityStream = null;
+        if (!facilityId) return;
+
+        facilityStream = new EventSource(
+            `http://localhost:8081/api/events?facility=${encodeURIComponent(facilityId)}`,
+            { withCredentials: true });
+
+        // One reload per burst of events; packages the manager has ticked stay ticked
+        const scheduleReload = () => {
+            clearTimeout(reloadTimer);
+            reloadTimer = setTimeout(async () => {
+                if (!currentFacilityId) return;
+                const checked = new Set(Array.from(document.querySelectorAll('.package-select:checked'))
+                    .map(cb => cb.dataset.packageId));
+                await loadUnassignedPackages(currentFacilityId);
+                document.querySelectorAll('.package-select').forEach(cb => {
+                    if (checked.has(cb.dataset.packageId)) cb.checked = true;
+                });
+            }, 1000);
+        };
+        facilityStream.addEventListener('inventory_changed', scheduleReload);
+        facilityStream.addEventListener('package_status', scheduleReload);
+        facilityStream.addEventListener('transfer', scheduleReload);
+    }
+
     // Facility selection change handler
     const facilitySelect = document.getElementById('facilitySelect');
     if (facilitySelect) {
         facilitySelect.addEventListener('change', (e) => {
             currentFacilityId = e.target.value;
+            watchFacility(currentFacilityId);
             if (currentFacilityId) {
                 loadUnassignedPackages(currentFacilityId);
             } else {
@@ -391,6 +424,7 @@ function initializeRouteAssignment() {
                 // Reset form and reload packages
                 form.reset();
                 currentFacilityId = null;
+                watchFacility(null);
                 const tbody = document.getElementById('unassignedPackagesTable');
                 tbody.innerHTML = '<tr><td colspan="7" class="no-data">Please select a facility.</td></tr>';
             } else {
@@ -54,6 +54,7 @@ async function getTracking(event) {
             `;
 
             tbody.appendChild(row);
+            watchTracking(trackingNumber, tbody);
         } else {
             console.error("trackingHistoryTable not found in DOM.");
         }
@@ -65,6 +66,41 @@ async function getTracking(event) {
 }
 
 
+// Live status updates for the tracked package; replaces the stream of a previous search
+let trackingStream = null;
+
+function watchTracking(trackingNumber, tbody) {
+    if (!window.EventSource) return;
+    if (trackingStream) trackingStream.close();
+
+    trackingStream = new EventSource(
+        `http://localhost:8081/api/events?tracking=${encodeURIComponent(trackingNumber)}`);
+
+    trackingStream.addEventListener("package_status", (e) => {
+        const update = JSON.parse(e.data);
+        const row = document.createElement("tr");
+        row.innerHTML = `
+            <td>${new Date().toLocaleString()}</td>
+            <td></td>
+            <td>${update.status || ""}</td>
+            <td></td>
+        `;
+        tbody.appendChild(row);
+    });
+
+    trackingStream.addEventListener("transfer", (e) => {
+        const update = JSON.parse(e.data);
+        const row = document.createElement("tr");
+        row.innerHTML = `
+            <td>${new Date().toLocaleString()}</td>
+            <td>Facility ${update.toFacilityId}</td>
+            <td>transfer ${update.status || ""}</td>
+            <td></td>
+        `;
+        tbody.appendChild(row);
+    });
+}
+
 // Attach event listener safely if router replaces DOM
 document.addEventListener("DOMContentLoaded", () => {
     const form = document.getElementById("trackForm");